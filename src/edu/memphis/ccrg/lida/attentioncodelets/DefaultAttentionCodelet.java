@@ -1,9 +1,9 @@
 package edu.memphis.ccrg.lida.attentioncodelets;
 
-import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import edu.memphis.ccrg.lida.framework.shared.ConnectionVisitor;
 import edu.memphis.ccrg.lida.framework.shared.Link;
 import edu.memphis.ccrg.lida.framework.shared.Linkable;
 import edu.memphis.ccrg.lida.framework.shared.Node;
@@ -109,24 +109,18 @@ public class DefaultAttentionCodelet extends AttentionCodeletImpl {
 		return retrievedSubGraph;
 	}
 	
-	private void getNeighbors(NodeStructure bufferNS, NodeStructure retrievedSubGraph, Node n) {
-		Map<Linkable, Link> sinks = bufferNS.getConnectedSinks(n);
-		for (Linkable sink : sinks.keySet()) {
-			if (sink instanceof Node && sink.getActivation() >= attentionThreshold){
-				retrievedSubGraph.addDefaultNode((Node) sink);
-				Link connectingLink = sinks.get(sink);
-				retrievedSubGraph.addDefaultLink(connectingLink);
-			}
-		}
-
-		Map<Node, Link> sources = bufferNS.getConnectedSources(n);
-		for (Node source : sources.keySet()) {
-			if(source.getActivation() >= attentionThreshold){
-				retrievedSubGraph.addDefaultNode(source);
-				Link connectingLink = sources.get(source);
-				retrievedSubGraph.addDefaultLink(connectingLink);
+	private void getNeighbors(NodeStructure bufferNS, final NodeStructure retrievedSubGraph, Node n) {
+		ConnectionVisitor<Linkable> neighborAdder = new ConnectionVisitor<Linkable>() {
+			@Override
+			public void visit(Linkable neighbor, Link connectingLink) {
+				if (neighbor instanceof Node && neighbor.getActivation() >= attentionThreshold){
+					retrievedSubGraph.addDefaultNode((Node) neighbor);
+					retrievedSubGraph.addDefaultLink(connectingLink);
+				}
 			}
-		}
+		};
+		bufferNS.forEachSink(n, neighborAdder);
+		bufferNS.forEachSource(n, neighborAdder);
 	}
 
 }
@@ -15,6 +15,7 @@ import java.util.logging.Logger;
 
 import edu.memphis.ccrg.lida.framework.initialization.AgentXmlFactory;
 import edu.memphis.ccrg.lida.framework.initialization.InitializableImpl;
+import edu.memphis.ccrg.lida.framework.shared.activation.ActivatibleImpl;
 import edu.memphis.ccrg.lida.framework.tasks.TaskManager;
 import edu.memphis.ccrg.lida.framework.tasks.TaskSpawner;
 
@@ -38,6 +39,12 @@ public abstract class FrameworkModuleImpl extends InitializableImpl implements
 	 */
 	protected TaskSpawner taskSpawner;
 
+	private long decayInterval = 1L;
+	/*
+	 * Ticks elapsed since this module was last decayed
+	 */
+	private long ticksToDecay;
+
 	/**
 	 * Default constructor
 	 */
@@ -59,6 +66,52 @@ public abstract class FrameworkModuleImpl extends InitializableImpl implements
 		moduleName = name;
 	}
 
+	/**
+	 * Sets the parameters of this module and calls {@link #init()}. Also sets
+	 * the parameter with the following name, common to all modules:<br/><br/>
+	 * 
+	 * <b>module.decayInterval</b> number of ticks between decays of this module<br/>
+	 * If the parameter is not specified this module is decayed every time the
+	 * {@link TaskManager} decays the modules.
+	 * 
+	 * @see #setDecayInterval(long)
+	 */
+	@Override
+	public void init(Map<String, ?> params) {
+		super.init(params);
+		if (params != null && params.containsKey("module.decayInterval")) {
+			setDecayInterval(getParam("module.decayInterval", 1));
+		}
+	}
+
+	/**
+	 * Sets the minimum number of ticks between two calls of
+	 * {@link #decayModule(long)}. The ticks elapsed in between are
+	 * accumulated and decayed at once. Intervals greater than 1 are intended
+	 * for modules whose elements decay lazily, e.g., with the
+	 * <b>activatible.lazyDecay</b> parameter of {@link ActivatibleImpl}, so
+	 * that the module's decay is only a low frequency sweep removing the
+	 * elements below their removal threshold.
+	 * 
+	 * @param interval
+	 *            number of ticks, at least 1
+	 */
+	public void setDecayInterval(long interval) {
+		if (interval < 1) {
+			logger.log(Level.WARNING, "Decay interval must be at least 1",
+					TaskManager.getCurrentTick());
+		} else {
+			decayInterval = interval;
+		}
+	}
+
+	/**
+	 * @return the minimum number of ticks between two decays of this module
+	 */
+	public long getDecayInterval() {
+		return decayInterval;
+	}
+
 	@Override
 	public void setAssistingTaskSpawner(TaskSpawner ts) {
 		taskSpawner = ts;
@@ -120,11 +173,17 @@ public abstract class FrameworkModuleImpl extends InitializableImpl implements
 	 * 
 	 * @param ticks
 	 *            number of ticks to decay.
+	 * @see #setDecayInterval(long)
 	 */
 	@Override
 	public void taskManagerDecayModule(long ticks) {
 		try{
-			decayModule(ticks); //First call this FrameworkModule's decayModule method.
+			ticksToDecay += ticks;
+			if (ticksToDecay >= decayInterval) {
+				long t = ticksToDecay;
+				ticksToDecay = 0L;
+				decayModule(t); //First call this FrameworkModule's decayModule method.
+			}
 		}catch(Exception e){
 			logger.log(Level.WARNING, 
 					"Exception occurred during the execution of the 'decayModule(long ticks)' method in module: {1}. \n{2}",
@@ -24,9 +24,15 @@ import edu.memphis.ccrg.lida.framework.FrameworkModule;
 import edu.memphis.ccrg.lida.framework.ModuleListener;
 import edu.memphis.ccrg.lida.framework.ModuleName;
 import edu.memphis.ccrg.lida.framework.shared.ElementFactory;
+import edu.memphis.ccrg.lida.framework.tasks.CatchUpPolicy;
+import edu.memphis.ccrg.lida.framework.tasks.ForkJoinTaskExecutor;
 import edu.memphis.ccrg.lida.framework.tasks.FrameworkTask;
+import edu.memphis.ccrg.lida.framework.tasks.TaskExecutor;
 import edu.memphis.ccrg.lida.framework.tasks.TaskManager;
+import edu.memphis.ccrg.lida.framework.tasks.TaskQueue;
 import edu.memphis.ccrg.lida.framework.tasks.TaskSpawner;
+import edu.memphis.ccrg.lida.framework.tasks.ThreadPoolTaskExecutor;
+import edu.memphis.ccrg.lida.framework.tasks.TimingWheelTaskQueue;
 
 /**
  * Creates and returns a {@link Agent} Object based on an XML file.
@@ -198,7 +204,74 @@ public class AgentXmlFactory implements AgentFactory {
 		if(maxNumberOfThreads==null){
 			 maxNumberOfThreads=TaskManager.DEFAULT_NUMBER_OF_THREADS;			
 		}		
-		TaskManager taskManager = new TaskManager(tickDuration, maxNumberOfThreads);
+		TaskQueue taskQueue = null;
+		Object q = params.get("taskManager.taskQueue");
+		if(q instanceof String){
+			String className = ((String) q).trim();
+			try{
+				taskQueue = (TaskQueue) Class.forName(className).getDeclaredConstructor().newInstance();
+			}catch(Exception e){
+				logger.warning("Could not create task queue " + className + ", using default");
+			}
+		}
+		if(taskQueue == null){
+			taskQueue = new TimingWheelTaskQueue();
+		}
+		TaskExecutor taskExecutor = null;
+		Object x = params.get("taskManager.executor");
+		if(x instanceof String){
+			String executorName = ((String) x).trim();
+			if("forkJoin".equalsIgnoreCase(executorName)){
+				taskExecutor = new ForkJoinTaskExecutor();
+			}else if(!"threadPool".equalsIgnoreCase(executorName)){
+				logger.warning("Unknown task executor " + executorName + ", using default");
+			}
+		}
+		if(taskExecutor == null){
+			taskExecutor = new ThreadPoolTaskExecutor(maxNumberOfThreads);
+		}
+		TaskManager taskManager = new TaskManager(tickDuration, taskQueue, taskExecutor);
+		
+		Object s = params.get("taskManager.skipEmptyTicks");
+		if(s instanceof Boolean){
+			taskManager.setSkipEmptyTicks((Boolean) s);
+		}else if(s instanceof String){
+			taskManager.setSkipEmptyTicks(Boolean.parseBoolean(((String) s).trim()));
+		}
+		Object p = params.get("taskManager.catchUpPolicy");
+		if(p instanceof String){
+			try{
+				taskManager.setCatchUpPolicy(CatchUpPolicy.valueOf(((String) p).trim().toUpperCase()));
+			}catch (IllegalArgumentException e){
+				logger.warning("Could not load catch up policy, using default");
+			}
+		}
+		Object f = params.get("taskManager.freeRunning");
+		if(f instanceof Boolean){
+			taskManager.setFreeRunning((Boolean) f);
+		}else if(f instanceof String){
+			taskManager.setFreeRunning(Boolean.parseBoolean(((String) f).trim()));
+		}
+		Object c = params.get("taskManager.checkInterval");
+		if(c instanceof Integer){
+			taskManager.setCheckInterval((Integer) c);
+		}else if(c instanceof String){
+			try{
+				taskManager.setCheckInterval(Integer.parseInt(((String) c).trim()));
+			}catch (NumberFormatException e){
+				logger.warning("Could not load check interval, using default");
+			}
+		}
+		Object l = params.get("taskManager.tickLimit");
+		if(l instanceof Integer){
+			taskManager.setTickLimit((Integer) l);
+		}else if(l instanceof String){
+			try{
+				taskManager.setTickLimit(Long.parseLong(((String) l).trim()));
+			}catch (NumberFormatException e){
+				logger.warning("Could not load tick limit, using default");
+			}
+		}
 
 		return taskManager;
 	}
@@ -272,6 +272,7 @@ public class FactoriesDataXmlLoader {
 		String className = XmlUtils.getTextValue(e, "class");
 		String name = e.getAttribute("name");
 		int ticksPerRun = XmlUtils.getIntegerValue(e, "ticksperrun");
+		boolean blocking = Boolean.parseBoolean(e.getAttribute("blocking"));
 		Map<String, String> behav = new HashMap<String, String>();
 		List<String> list = XmlUtils.getChildrenValues(e, "defaultstrategy");
 		checkStrategies(list, strategies);
@@ -289,6 +290,7 @@ public class FactoriesDataXmlLoader {
 		taskDef.setParams(params);
 		taskDef.setDefaultStrategies(behav);
 		taskDef.setTicksPerRun(ticksPerRun);
+		taskDef.setBlocking(blocking);
 		taskDef.setAssociatedModules(associatedModules);
 		return taskDef;
 	}
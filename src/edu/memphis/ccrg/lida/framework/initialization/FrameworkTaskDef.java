@@ -31,6 +31,7 @@ public class FrameworkTaskDef {
 	private Map<ModuleName, String> associatedModules;
 	private Map<String, String> defaultStrategies;
 	private Map<String, Object> params;
+	private boolean blocking;
 
 	/**
 	 * 
@@ -153,6 +154,21 @@ public class FrameworkTaskDef {
 		this.ticksPerRun = ticksPerRun;
 	}
 
+	/**
+	 * @return true if the task blocks and runs on its own thread
+	 */
+	public boolean isBlocking() {
+		return blocking;
+	}
+
+	/**
+	 * @param blocking
+	 *            whether the task blocks and runs on its own thread
+	 */
+	public void setBlocking(boolean blocking) {
+		this.blocking = blocking;
+	}
+
 	/**
 	 * @return the associatedModules
 	 */
@@ -0,0 +1,378 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2011 The University of Memphis.  All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the LIDA Software Framework Non-Commercial License v1.0 
+ * which accompanies this distribution, and is available at
+ * http://ccrg.cs.memphis.edu/assets/papers/2010/LIDA-framework-non-commercial-v1.0.pdf
+ *******************************************************************************/
+package edu.memphis.ccrg.lida.framework.shared;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Thread-safe map from primitive int keys to values, used to look up
+ * {@link Node}s by id without boxing the id. Entries are kept in an open
+ * addressing table probed linearly. Reads take no lock and never miss an
+ * entry present during the whole read; writes are synchronized. Removed
+ * entries leave a marker, dropped when the table is rebuilt.
+ *
+ * @author agent
+ *
+ * @param <V>
+ *            the type of the values
+ */
+public class ConcurrentIntMap<V> {
+
+	private static final int MIN_CAPACITY = 16;
+
+	/*
+	 * Immutable so that a reader sees a key with its value
+	 */
+	private static final class Entry<V> {
+		final int key;
+		final V value;
+
+		Entry(int key, V value) {
+			this.key = key;
+			this.value = value;
+		}
+	}
+
+	/*
+	 * Marks the slot of a removed entry, so that probes continue past it
+	 */
+	private static final Entry<Object> REMOVED = new Entry<Object>(0, null);
+
+	private volatile AtomicReferenceArray<Entry<V>> table;
+	private volatile int size;
+
+	/*
+	 * Number of entries and removal markers in the table
+	 */
+	private int used;
+
+	private final Collection<V> values = new Values();
+
+	/**
+	 * Constructs a new, empty map.
+	 */
+	public ConcurrentIntMap() {
+		this(MIN_CAPACITY / 2);
+	}
+
+	/**
+	 * Constructs a new, empty map holding specified number of entries
+	 * without resizing.
+	 *
+	 * @param expectedSize
+	 *            expected number of entries
+	 */
+	public ConcurrentIntMap(int expectedSize) {
+		table = new AtomicReferenceArray<Entry<V>>(capacityFor(expectedSize));
+	}
+
+	/*
+	 * Smallest power of two keeping the table at most half full
+	 */
+	private static int capacityFor(int count) {
+		int capacity = MIN_CAPACITY;
+		while (capacity < 2 * count && capacity < (1 << 30)) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+	private static int index(int key, int mask) {
+		int h = key * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & mask;
+	}
+
+	/**
+	 * @param key
+	 *            a key
+	 * @return the value of specified key or null
+	 */
+	public V get(int key) {
+		AtomicReferenceArray<Entry<V>> t = table;
+		int mask = t.length() - 1;
+		int i = index(key, mask);
+		Entry<V> e;
+		while ((e = t.get(i)) != null) {
+			if (e.key == key && e != REMOVED) {
+				return e.value;
+			}
+			i = (i + 1) & mask;
+		}
+		return null;
+	}
+
+	/**
+	 * @param key
+	 *            a key
+	 * @return true if this map contains specified key
+	 */
+	public boolean containsKey(int key) {
+		return get(key) != null;
+	}
+
+	/**
+	 * Maps specified key to specified value.
+	 *
+	 * @param key
+	 *            the key
+	 * @param value
+	 *            the value, not null
+	 * @return the previous value of the key or null
+	 */
+	public synchronized V put(int key, V value) {
+		if (value == null) {
+			throw new NullPointerException();
+		}
+		AtomicReferenceArray<Entry<V>> t = table;
+		int mask = t.length() - 1;
+		int i = index(key, mask);
+		int free = -1;
+		Entry<V> e;
+		while ((e = t.get(i)) != null) {
+			if (e == REMOVED) {
+				if (free < 0) {
+					free = i;
+				}
+			} else if (e.key == key) {
+				t.set(i, new Entry<V>(key, value));
+				return e.value;
+			}
+			i = (i + 1) & mask;
+		}
+		if (free >= 0) {
+			t.set(free, new Entry<V>(key, value));
+		} else {
+			t.set(i, new Entry<V>(key, value));
+			used++;
+		}
+		size++;
+		if (2 * used > t.length()) {
+			rebuild(capacityFor(2 * size));
+		}
+		return null;
+	}
+
+	/**
+	 * Removes the entry of specified key.
+	 *
+	 * @param key
+	 *            the key
+	 * @return the removed value or null
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized V remove(int key) {
+		AtomicReferenceArray<Entry<V>> t = table;
+		int mask = t.length() - 1;
+		int i = index(key, mask);
+		Entry<V> e;
+		while ((e = t.get(i)) != null) {
+			if (e.key == key && e != REMOVED) {
+				t.set(i, (Entry<V>) (Entry<?>) REMOVED);
+				size--;
+				return e.value;
+			}
+			i = (i + 1) & mask;
+		}
+		return null;
+	}
+
+	/**
+	 * Maps specified key to specified value unless the key already has a
+	 * value.
+	 * 
+	 * @param key
+	 *            the key
+	 * @param value
+	 *            the value, not null
+	 * @return the current value of the key or null if specified value was
+	 *         added
+	 */
+	public synchronized V putIfAbsent(int key, V value) {
+		V current = get(key);
+		if (current == null) {
+			put(key, value);
+		}
+		return current;
+	}
+
+	/**
+	 * Replaces the value of specified key only if it is equal to specified
+	 * old value.
+	 * 
+	 * @param key
+	 *            the key
+	 * @param oldValue
+	 *            the expected value
+	 * @param newValue
+	 *            the new value, not null
+	 * @return true if the value was replaced
+	 */
+	public synchronized boolean replace(int key, V oldValue, V newValue) {
+		V current = get(key);
+		if (current == null || !current.equals(oldValue)) {
+			return false;
+		}
+		put(key, newValue);
+		return true;
+	}
+
+	/**
+	 * Removes the entry of specified key only if its value is equal to
+	 * specified value.
+	 * 
+	 * @param key
+	 *            the key
+	 * @param value
+	 *            the expected value
+	 * @return true if the entry was removed
+	 */
+	public synchronized boolean remove(int key, Object value) {
+		V current = get(key);
+		if (current == null || !current.equals(value)) {
+			return false;
+		}
+		remove(key);
+		return true;
+	}
+
+	/**
+	 * Removes all entries.
+	 */
+	public synchronized void clear() {
+		table = new AtomicReferenceArray<Entry<V>>(MIN_CAPACITY);
+		size = 0;
+		used = 0;
+	}
+
+	/**
+	 * Resizes the table, if needed, to hold specified number of entries
+	 * without resizing again.
+	 *
+	 * @param expectedSize
+	 *            expected number of entries
+	 */
+	public synchronized void ensureCapacity(int expectedSize) {
+		int capacity = capacityFor(Math.max(expectedSize, size));
+		if (capacity > table.length()) {
+			rebuild(capacity);
+		}
+	}
+
+	/*
+	 * Copies the entries to a new table, which is then published. Readers
+	 * still probing the old table find the entries it holds, since it is
+	 * no longer modified.
+	 */
+	private void rebuild(int capacity) {
+		AtomicReferenceArray<Entry<V>> old = table;
+		AtomicReferenceArray<Entry<V>> t = new AtomicReferenceArray<Entry<V>>(
+				capacity);
+		int mask = capacity - 1;
+		for (int j = 0; j < old.length(); j++) {
+			Entry<V> e = old.get(j);
+			if (e != null && e != REMOVED) {
+				int i = index(e.key, mask);
+				while (t.get(i) != null) {
+					i = (i + 1) & mask;
+				}
+				t.set(i, e);
+			}
+		}
+		used = size;
+		table = t;
+	}
+
+	/**
+	 * @return the number of entries
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return true if this map has no entries
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns a view of the values of this map. Its iterators are weakly
+	 * consistent and do not support removal.
+	 *
+	 * @return the values
+	 */
+	public Collection<V> values() {
+		return values;
+	}
+
+	private class Values extends AbstractCollection<V> {
+
+		@Override
+		public Iterator<V> iterator() {
+			return new ValueIterator(table);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return size == 0;
+		}
+	}
+
+	private class ValueIterator implements Iterator<V> {
+
+		private final AtomicReferenceArray<Entry<V>> t;
+		private int index;
+		private V next;
+
+		ValueIterator(AtomicReferenceArray<Entry<V>> t) {
+			this.t = t;
+			advance();
+		}
+
+		private void advance() {
+			next = null;
+			while (index < t.length()) {
+				Entry<V> e = t.get(index++);
+				if (e != null && e != REMOVED) {
+					next = e.value;
+					return;
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		@Override
+		public V next() {
+			if (next == null) {
+				throw new NoSuchElementException();
+			}
+			V v = next;
+			advance();
+			return v;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
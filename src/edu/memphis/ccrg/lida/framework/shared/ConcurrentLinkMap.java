@@ -0,0 +1,376 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2011 The University of Memphis.  All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the LIDA Software Framework Non-Commercial License v1.0 
+ * which accompanies this distribution, and is available at
+ * http://ccrg.cs.memphis.edu/assets/papers/2010/LIDA-framework-non-commercial-v1.0.pdf
+ *******************************************************************************/
+package edu.memphis.ccrg.lida.framework.shared;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Thread-safe map from {@link ExtendedId}s to {@link Link}s, the link
+ * counterpart of {@link ConcurrentIntMap}. Each entry is keyed by the 64-bit
+ * {@link ExtendedId#longHash()} of its id, which selects the slot and rejects
+ * most other entries with a primitive comparison; the ids are only compared
+ * when the keys are equal. A link can also be looked up by its source, sink
+ * and category without creating its id. Reads take no lock, writes are
+ * synchronized.
+ *
+ * @author agent
+ */
+public class ConcurrentLinkMap {
+
+	private static final int MIN_CAPACITY = 16;
+
+	/*
+	 * Immutable so that a reader sees a key with its value
+	 */
+	private static final class Entry {
+		final long key;
+		final ExtendedId id;
+		final Link value;
+
+		Entry(long key, ExtendedId id, Link value) {
+			this.key = key;
+			this.id = id;
+			this.value = value;
+		}
+
+		boolean matches(long k, ExtendedId other) {
+			return key == k && this != REMOVED && id.equals(other);
+		}
+
+		boolean matches(long k, int sourceId, ExtendedId sinkId, int categoryId) {
+			return key == k && this != REMOVED
+					&& id.isLinkId(sourceId, sinkId, categoryId);
+		}
+	}
+
+	/*
+	 * Marks the slot of a removed entry, so that probes continue past it
+	 */
+	private static final Entry REMOVED = new Entry(0L, null, null);
+
+	private volatile AtomicReferenceArray<Entry> table;
+	private volatile int size;
+
+	/*
+	 * Number of entries and removal markers in the table
+	 */
+	private int used;
+
+	private final Collection<Link> values = new Values();
+
+	/**
+	 * Constructs a new, empty map.
+	 */
+	public ConcurrentLinkMap() {
+		this(MIN_CAPACITY / 2);
+	}
+
+	/**
+	 * Constructs a new, empty map holding specified number of entries
+	 * without resizing.
+	 *
+	 * @param expectedSize
+	 *            expected number of links
+	 */
+	public ConcurrentLinkMap(int expectedSize) {
+		table = new AtomicReferenceArray<Entry>(capacityFor(expectedSize));
+	}
+
+	/*
+	 * Smallest power of two keeping the table at most half full
+	 */
+	private static int capacityFor(int count) {
+		int capacity = MIN_CAPACITY;
+		while (capacity < 2 * count && capacity < (1 << 30)) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+	private static int index(long key, int mask) {
+		return (int) (key ^ (key >>> 32)) & mask;
+	}
+
+	/**
+	 * @param id
+	 *            a link id
+	 * @return the link of specified id or null
+	 */
+	public Link get(ExtendedId id) {
+		long k = id.longHash();
+		AtomicReferenceArray<Entry> t = table;
+		int mask = t.length() - 1;
+		int i = index(k, mask);
+		Entry e;
+		while ((e = t.get(i)) != null) {
+			if (e.matches(k, id)) {
+				return e.value;
+			}
+			i = (i + 1) & mask;
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the link with specified source, sink and category without
+	 * creating its {@link ExtendedId}.
+	 * 
+	 * @param sourceId
+	 *            id of the link's source
+	 * @param sinkId
+	 *            id of the link's sink
+	 * @param categoryId
+	 *            id of the link's category
+	 * @return the link or null
+	 */
+	public Link get(int sourceId, ExtendedId sinkId, int categoryId) {
+		long k = ExtendedId.linkHash(sourceId, sinkId, categoryId);
+		AtomicReferenceArray<Entry> t = table;
+		int mask = t.length() - 1;
+		int i = index(k, mask);
+		Entry e;
+		while ((e = t.get(i)) != null) {
+			if (e.matches(k, sourceId, sinkId, categoryId)) {
+				return e.value;
+			}
+			i = (i + 1) & mask;
+		}
+		return null;
+	}
+
+	/**
+	 * @param id
+	 *            a link id
+	 * @return true if this map contains specified id
+	 */
+	public boolean containsKey(ExtendedId id) {
+		return get(id) != null;
+	}
+
+	/**
+	 * Maps specified id to specified link.
+	 *
+	 * @param id
+	 *            the id
+	 * @param value
+	 *            the link, not null
+	 * @return the previous link of the id or null
+	 */
+	public synchronized Link put(ExtendedId id, Link value) {
+		return insert(id, value, false);
+	}
+
+	/**
+	 * Maps specified id to specified link unless the id is already mapped.
+	 *
+	 * @param id
+	 *            the id
+	 * @param value
+	 *            the link, not null
+	 * @return the link already mapped to the id or null if value was added
+	 */
+	public synchronized Link putIfAbsent(ExtendedId id, Link value) {
+		return insert(id, value, true);
+	}
+
+	private Link insert(ExtendedId id, Link value, boolean onlyIfAbsent) {
+		if (value == null) {
+			throw new NullPointerException();
+		}
+		long k = id.longHash();
+		AtomicReferenceArray<Entry> t = table;
+		int mask = t.length() - 1;
+		int i = index(k, mask);
+		int free = -1;
+		Entry e;
+		while ((e = t.get(i)) != null) {
+			if (e == REMOVED) {
+				if (free < 0) {
+					free = i;
+				}
+			} else if (e.matches(k, id)) {
+				if (!onlyIfAbsent) {
+					t.set(i, new Entry(k, id, value));
+				}
+				return e.value;
+			}
+			i = (i + 1) & mask;
+		}
+		if (free >= 0) {
+			t.set(free, new Entry(k, id, value));
+		} else {
+			t.set(i, new Entry(k, id, value));
+			used++;
+		}
+		size++;
+		if (2 * used > t.length()) {
+			rebuild(capacityFor(2 * size));
+		}
+		return null;
+	}
+
+	/**
+	 * Removes the entry of specified id.
+	 *
+	 * @param id
+	 *            the id
+	 * @return the removed link or null
+	 */
+	public synchronized Link remove(ExtendedId id) {
+		long k = id.longHash();
+		AtomicReferenceArray<Entry> t = table;
+		int mask = t.length() - 1;
+		int i = index(k, mask);
+		Entry e;
+		while ((e = t.get(i)) != null) {
+			if (e.matches(k, id)) {
+				t.set(i, REMOVED);
+				size--;
+				return e.value;
+			}
+			i = (i + 1) & mask;
+		}
+		return null;
+	}
+
+	/**
+	 * Removes all entries.
+	 */
+	public synchronized void clear() {
+		table = new AtomicReferenceArray<Entry>(MIN_CAPACITY);
+		size = 0;
+		used = 0;
+	}
+
+	/**
+	 * Resizes the table, if needed, to hold specified number of entries
+	 * without resizing again.
+	 *
+	 * @param expectedSize
+	 *            expected number of links
+	 */
+	public synchronized void ensureCapacity(int expectedSize) {
+		int capacity = capacityFor(Math.max(expectedSize, size));
+		if (capacity > table.length()) {
+			rebuild(capacity);
+		}
+	}
+
+	/*
+	 * Copies the entries to a new table, which is then published. Readers
+	 * still probing the old table find the entries it holds, since it is
+	 * no longer modified.
+	 */
+	private void rebuild(int capacity) {
+		AtomicReferenceArray<Entry> old = table;
+		AtomicReferenceArray<Entry> t = new AtomicReferenceArray<Entry>(
+				capacity);
+		int mask = capacity - 1;
+		for (int j = 0; j < old.length(); j++) {
+			Entry e = old.get(j);
+			if (e != null && e != REMOVED) {
+				int i = index(e.key, mask);
+				while (t.get(i) != null) {
+					i = (i + 1) & mask;
+				}
+				t.set(i, e);
+			}
+		}
+		used = size;
+		table = t;
+	}
+
+	/**
+	 * @return the number of entries
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return true if this map has no entries
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns a view of the links of this map. Its iterators are weakly
+	 * consistent and do not support removal.
+	 *
+	 * @return the links
+	 */
+	public Collection<Link> values() {
+		return values;
+	}
+
+	private class Values extends AbstractCollection<Link> {
+
+		@Override
+		public Iterator<Link> iterator() {
+			return new ValueIterator(table);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return size == 0;
+		}
+	}
+
+	private class ValueIterator implements Iterator<Link> {
+
+		private final AtomicReferenceArray<Entry> t;
+		private int index;
+		private Link next;
+
+		ValueIterator(AtomicReferenceArray<Entry> t) {
+			this.t = t;
+			advance();
+		}
+
+		private void advance() {
+			next = null;
+			while (index < t.length()) {
+				Entry e = t.get(index++);
+				if (e != null && e != REMOVED) {
+					next = e.value;
+					return;
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		@Override
+		public Link next() {
+			if (next == null) {
+				throw new NoSuchElementException();
+			}
+			Link v = next;
+			advance();
+			return v;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -0,0 +1,297 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2011 The University of Memphis.  All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the LIDA Software Framework Non-Commercial License v1.0 
+ * which accompanies this distribution, and is available at
+ * http://ccrg.cs.memphis.edu/assets/papers/2010/LIDA-framework-non-commercial-v1.0.pdf
+ *******************************************************************************/
+package edu.memphis.ccrg.lida.framework.shared;
+
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link NodeStructureImpl} whose modifications are guarded by striped locks
+ * keyed by {@link Node} id instead of a single lock, so that threads adding or
+ * removing unrelated {@link Node}s and {@link Link}s proceed in parallel.
+ * <br/>
+ * Adding a Node locks the stripe of its id. Adding a Link locks the stripes of
+ * every Node id in its {@link ExtendedId}, so that it is atomic with respect
+ * to its source and sink. Removing a Linkable locks the stripes of all the
+ * Links that would be removed along with it. Bulk additions and clearing
+ * lock all the stripes. Reads take no lock.
+ * <br/>
+ * Stripes are always acquired together in ascending order and a thread never
+ * acquires stripes while holding others, so that there is no deadlock.
+ *
+ * @author agent
+ * @see NodeStructureImpl
+ */
+public class ConcurrentNodeStructureImpl extends NodeStructureImpl {
+
+	/*
+	 * Number of stripes, one per bit of a stripe mask
+	 */
+	private static final int STRIPES = 64;
+
+	private static final long ALL_STRIPES = -1L;
+
+	private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+	{
+		for (int i = 0; i < STRIPES; i++) {
+			stripes[i] = new ReentrantLock();
+		}
+	}
+
+	/**
+	 * Default constructor. Uses the default node and link types of the factory
+	 */
+	public ConcurrentNodeStructureImpl() {
+		super();
+	}
+
+	/**
+	 * Creates a new ConcurrentNodeStructureImpl with specified default Node
+	 * type and link Type.
+	 *
+	 * @param nodeType
+	 *            kind of node used in this NodeStructure
+	 * @param linkType
+	 *            kind of link used in this NodeStructure
+	 * @see NodeStructureImpl#NodeStructureImpl(String, String)
+	 */
+	public ConcurrentNodeStructureImpl(String nodeType, String linkType) {
+		super(nodeType, linkType);
+	}
+
+	/**
+	 * Copy constructor. The default types of the original are the default
+	 * types of the copy.
+	 *
+	 * @param ns
+	 *            original NodeStructure
+	 * @see #mergeWith(NodeStructure)
+	 */
+	public ConcurrentNodeStructureImpl(NodeStructure ns) {
+		super(ns.getDefaultNodeType(), ns.getDefaultLinkType());
+		mergeWith(ns);
+	}
+
+	@Override
+	public Node addNode(Node n, String type) {
+		if (n == null) {
+			return internalAddNode(n, type);
+		}
+		long mask = stripeOf(n.getId());
+		lock(mask);
+		try {
+			return internalAddNode(n, type);
+		} finally {
+			unlock(mask);
+		}
+	}
+
+	@Override
+	public Node addNode(String type, String label, double a, double rt) {
+		Node n = ElementFactory.getInstance().getNode(getDefaultNodeType(),
+				null, type);
+		if (n != null) {
+			n.setLabel(label);
+			n.setActivation(a);
+			n.setActivatibleRemovalThreshold(rt);
+			long mask = stripeOf(n.getId());
+			lock(mask);
+			try {
+				internalAddNewNode(n);
+			} finally {
+				unlock(mask);
+			}
+		}
+		return n;
+	}
+
+	@Override
+	protected Node addNode(Node n, boolean shouldCopy) {
+		if (shouldCopy || n == null) {
+			return super.addNode(n, shouldCopy);
+		}
+		long mask = stripeOf(n.getId());
+		lock(mask);
+		try {
+			return super.addNode(n, false);
+		} finally {
+			unlock(mask);
+		}
+	}
+
+	@Override
+	public Link addLink(Link l, String type) {
+		if (l == null) {
+			return internalAddLink(l, type);
+		}
+		long mask = stripesOf(l.getExtendedId());
+		lock(mask);
+		try {
+			return internalAddLink(l, type);
+		} finally {
+			unlock(mask);
+		}
+	}
+
+	@Override
+	public Link addDefaultLink(int sourceId, int sinkId, LinkCategory cat,
+			double activation, double removalThreshold) {
+		long mask = stripeOf(sourceId) | stripeOf(sinkId);
+		lock(mask);
+		try {
+			return internalAddDefaultLink(sourceId, sinkId, cat, activation,
+					removalThreshold);
+		} finally {
+			unlock(mask);
+		}
+	}
+
+	@Override
+	public Link addLink(String type, int srcId, ExtendedId snkId,
+			LinkCategory cat, double a, double rt) {
+		long mask = stripeOf(srcId);
+		if (snkId != null) {
+			mask |= stripesOf(snkId);
+		}
+		lock(mask);
+		try {
+			return internalAddLink(type, srcId, snkId, cat, a, rt);
+		} finally {
+			unlock(mask);
+		}
+	}
+
+	@Override
+	public void removeLinkable(Linkable linkable) {
+		if (linkable == null) {
+			return;
+		}
+		long mask = removalStripes(linkable, 0L);
+		while (true) {
+			long needed;
+			lock(mask);
+			try {
+				// links attached meanwhile may involve more stripes
+				needed = removalStripes(linkable, 0L);
+				if ((needed & ~mask) == 0L) {
+					internalRemoveLinkable(linkable);
+					return;
+				}
+			} finally {
+				unlock(mask);
+			}
+			mask |= needed;
+		}
+	}
+
+	@Override
+	public void clearLinks() {
+		lock(ALL_STRIPES);
+		try {
+			internalClearLinks();
+		} finally {
+			unlock(ALL_STRIPES);
+		}
+	}
+
+	@Override
+	public void clearNodeStructure() {
+		lock(ALL_STRIPES);
+		try {
+			internalClearNodeStructure();
+		} finally {
+			unlock(ALL_STRIPES);
+		}
+	}
+
+	@Override
+	public void ensureCapacity(int nodeCount, int linkCount) {
+		lock(ALL_STRIPES);
+		try {
+			internalEnsureCapacity(nodeCount, linkCount);
+		} finally {
+			unlock(ALL_STRIPES);
+		}
+	}
+
+	@Override
+	protected int addNodes(Node[] ns, int count) {
+		lock(ALL_STRIPES);
+		try {
+			return internalAddNodes(ns, count);
+		} finally {
+			unlock(ALL_STRIPES);
+		}
+	}
+
+	@Override
+	protected int addLinks(Link[] ls, int count) {
+		lock(ALL_STRIPES);
+		try {
+			return internalAddLinks(ls, count);
+		} finally {
+			unlock(ALL_STRIPES);
+		}
+	}
+
+	@Override
+	public NodeStructure copy() {
+		return new ConcurrentNodeStructureImpl(this);
+	}
+
+	/*
+	 * Links of a category attached to a Linkable are modified while reading
+	 * them
+	 */
+	@Override
+	Set<Link> createLinkSet() {
+		return new ConcurrentHashSet<Link>();
+	}
+
+	/*
+	 * Stripes of specified Linkable and of all the Links removed with it
+	 */
+	private long removalStripes(Linkable linkable, long mask) {
+		mask |= stripesOf(linkable.getExtendedId());
+		Set<Link> attached = getAttachedLinks(linkable);
+		if (attached != null) {
+			for (Link l : attached) {
+				mask = removalStripes(l, mask);
+			}
+		}
+		return mask;
+	}
+
+	private static long stripesOf(ExtendedId id) {
+		long mask = stripeOf(id.getSourceNodeId());
+		if (!ExtendedId.isUndefined(id.getSinkNode1Id())) {
+			mask |= stripeOf(id.getSinkNode1Id());
+		}
+		if (!ExtendedId.isUndefined(id.getSinkNode2Id())) {
+			mask |= stripeOf(id.getSinkNode2Id());
+		}
+		return mask;
+	}
+
+	private static long stripeOf(int nodeId) {
+		int h = nodeId * 0x9E3779B9;
+		return 1L << ((h ^ (h >>> 16)) & (STRIPES - 1));
+	}
+
+	private void lock(long mask) {
+		for (long m = mask; m != 0L; m &= m - 1) {
+			stripes[Long.numberOfTrailingZeros(m)].lock();
+		}
+	}
+
+	private void unlock(long mask) {
+		for (long m = mask; m != 0L; m &= m - 1) {
+			stripes[Long.numberOfTrailingZeros(m)].unlock();
+		}
+	}
+}
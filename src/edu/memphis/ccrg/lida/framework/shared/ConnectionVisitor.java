@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2011 The University of Memphis.  All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the LIDA Software Framework Non-Commercial License v1.0 
+ * which accompanies this distribution, and is available at
+ * http://ccrg.cs.memphis.edu/assets/papers/2010/LIDA-framework-non-commercial-v1.0.pdf
+ *******************************************************************************/
+package edu.memphis.ccrg.lida.framework.shared;
+
+/**
+ * Receives the {@link Linkable}s connected to a {@link Linkable} of a
+ * {@link NodeStructure} together with the connecting {@link Link}s, e.g.,
+ * to traverse the sinks of a {@link Node} without creating a collection of
+ * them.
+ *
+ * @author agent
+ * @param <T>
+ *            the type of the connected Linkables
+ * @see NodeStructure#forEachSink(Node, ConnectionVisitor)
+ * @see NodeStructure#forEachSource(Linkable, ConnectionVisitor)
+ */
+public interface ConnectionVisitor<T extends Linkable> {
+
+	/**
+	 * Receives a connected {@link Linkable} and the {@link Link} connecting
+	 * it.
+	 *
+	 * @param connected
+	 *            the source or sink of the link
+	 * @param link
+	 *            the connecting {@link Link}
+	 */
+	public void visit(T connected, Link link);
+
+}
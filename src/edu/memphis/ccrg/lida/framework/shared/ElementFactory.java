@@ -9,6 +9,7 @@ package edu.memphis.ccrg.lida.framework.shared;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -126,6 +127,12 @@ public class ElementFactory {
 	 */
 	private Map<String, FrameworkTaskDef> tasks = new HashMap<String, FrameworkTaskDef>();
 
+	/*
+	 * Node and Link classes already loaded indexed by class name, so that
+	 * creating many elements does not look up their class each time.
+	 */
+	private final Map<String, Class<?>> loadedClasses = new ConcurrentHashMap<String, Class<?>>();
+
 	/*
 	 * Sole instance of this class that will be used.
 	 */
@@ -512,8 +519,8 @@ public class ElementFactory {
 		
 		Link l = null;
 		try {
-			Class<?> required = Class.forName(requiredDef.getClassName());
-			Class<?> desired = Class.forName(desiredDef.getClassName());
+			Class<?> required = forName(requiredDef.getClassName());
+			Class<?> desired = forName(desiredDef.getClassName());
 			
 			if(required != null && required.isAssignableFrom(desired)){
 				l = getLink(desiredType, source, sink, category);
@@ -612,7 +619,7 @@ public class ElementFactory {
 			}
 
 			String className = linkDef.getClassName();
-			link = (Link) Class.forName(className).newInstance();
+			link = (Link) forName(className).newInstance();
 			link.setFactoryType(linkType);
 			link.setSource(source);
 			link.setSink(sink);
@@ -752,8 +759,8 @@ public class ElementFactory {
 		
 		Node newNode = null;
 		try {
-			Class<?> required = Class.forName(requiredDef.getClassName());
-			Class<?> desired = Class.forName(desiredDef.getClassName());
+			Class<?> required = forName(requiredDef.getClassName());
+			Class<?> desired = forName(desiredDef.getClassName());
 			
 			if(required != null && required.isAssignableFrom(desired)){
 				if(oNode == null){//Get a new Node from scratch
@@ -813,6 +820,29 @@ public class ElementFactory {
 	}
 
 	/**
+	 * Returns a new unique node id without creating a node. Used by
+	 * implementations that store their nodes in other forms than
+	 * {@link Node} objects.
+	 * 
+	 * @return a node id not used by any node created by this factory
+	 */
+	public int getNewNodeId() {
+		return nodeIdCount++;
+	}
+
+	/*
+	 * Returns the class of specified name, loading it the first time.
+	 */
+	private Class<?> forName(String className) throws ClassNotFoundException {
+		Class<?> c = loadedClasses.get(className);
+		if (c == null) {
+			c = Class.forName(className);
+			loadedClasses.put(className, c);
+		}
+		return c;
+	}
+
+	/**
 	 * Creates new node of specified type. Uses strategies based on specified
 	 * node type, or the default strategies if the node type has no strategies
 	 * defined.
@@ -854,7 +884,7 @@ public class ElementFactory {
 			}
 
 			String className = nodeDef.getClassName();
-			n = (Node)Class.forName(className).newInstance();
+			n = (Node)forName(className).newInstance();
 
 			n.setId(nodeIdCount++);
 			n.setFactoryType(nodeType);
@@ -1056,6 +1086,7 @@ public class ElementFactory {
 			task = (FrameworkTask) Class.forName(className).newInstance();
 
 			task.setTicksPerRun(ticksPerRun);
+			task.setBlocking(taskDef.isBlocking());
 			task.setActivation(activation);
 			task.setActivatibleRemovalThreshold(removalThreshold);
 			setActivatibleStrategies(task, decayStrategy, exciteStrategy);
@@ -10,17 +10,26 @@ package edu.memphis.ccrg.lida.framework.shared;
 /**
  * Generalized Id for Both {@link Node}s and {@link Link}s.
  * Link's source must be a {@link Node}. Link's sink can be a Node or a Link.
+ * <br/>
+ * The five ints identifying an element are packed into two longs and an int,
+ * and a 64-bit hash mixing all of them is computed once, so that ids of
+ * links between the same nodes in opposite directions do not collide.
  * 
  * @author Javier Snaider
  * @author Ryan J. McCall
  */
 public class ExtendedId {
 
-	private int linkCategory;
-	private int sourceNodeId;
-	private int sinkLinkCategory;
-	private int sinkNode1Id;
-	private int sinkNode2Id;
+	/*
+	 * linkCategory in the high half, sourceNodeId in the low half
+	 */
+	private final long source;
+	/*
+	 * sinkLinkCategory in the high half, sinkNode1Id in the low half
+	 */
+	private final long sink;
+	private final int sinkNode2Id;
+	private final long hash;
 	
 	private static final int UNDEFINED = Integer.MIN_VALUE;
 	
@@ -44,6 +53,8 @@ public class ExtendedId {
 	 * Then sinkNode1Id is L1's sourceNodeId.
 	 * Then sinkNode2Id is L1's sinkNode1Id
 	 * 
+	 * So the sink part of a link's id is the source part of its sink's id, 
+	 * and sinkNode2Id is the low half of the sink part of its sink's id.
 	 */
 
 	/**
@@ -53,12 +64,7 @@ public class ExtendedId {
 	 * @param categoryId Link's category
 	 */
 	public ExtendedId(int sourceNodeId, ExtendedId sinkId, int categoryId) {
-		super();
-		this.linkCategory = categoryId;
-		this.sourceNodeId = sourceNodeId;
-		this.sinkLinkCategory = sinkId.linkCategory;
-		this.sinkNode1Id = sinkId.sourceNodeId;
-		this.sinkNode2Id = sinkId.sinkNode1Id;
+		this(pack(categoryId, sourceNodeId), sinkId.source, (int) sinkId.sink);
 	}
 
 	/**
@@ -67,12 +73,92 @@ public class ExtendedId {
 	 * @param nodeId Node's id
 	 */
 	public ExtendedId(int nodeId) {
-		super();
-		this.linkCategory = UNDEFINED;
-		this.sourceNodeId = nodeId;
-		this.sinkLinkCategory = UNDEFINED;
-		this.sinkNode1Id = UNDEFINED;
-		this.sinkNode2Id = UNDEFINED;
+		this(pack(UNDEFINED, nodeId), pack(UNDEFINED, UNDEFINED), UNDEFINED);
+	}
+
+	private ExtendedId(long source, long sink, int sinkNode2Id) {
+		this.source = source;
+		this.sink = sink;
+		this.sinkNode2Id = sinkNode2Id;
+		this.hash = hash(source, sink, sinkNode2Id);
+	}
+
+	private static long pack(int high, int low) {
+		return ((long) high << 32) | (low & 0xFFFFFFFFL);
+	}
+
+	/*
+	 * Mixes the packed parts of an id so that every bit of them affects
+	 * every bit of the hash.
+	 */
+	private static long hash(long source, long sink, int sinkNode2Id) {
+		long h = source * 0x9E3779B97F4A7C15L;
+		h = Long.rotateLeft(h, 31) ^ sink;
+		h *= 0xC2B2AE3D27D4EB4FL;
+		h = Long.rotateLeft(h, 27) ^ sinkNode2Id;
+		h *= 0x9E3779B97F4A7C15L;
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	/**
+	 * Returns the {@link #longHash()} of the id of the link with specified
+	 * source, sink and category, without creating that id.
+	 * 
+	 * @param sourceNodeId
+	 *            link's source id
+	 * @param sinkId
+	 *            link's sink id
+	 * @param categoryId
+	 *            link's category id
+	 * @return the hash
+	 */
+	static long linkHash(int sourceNodeId, ExtendedId sinkId, int categoryId) {
+		return hash(pack(categoryId, sourceNodeId), sinkId.source,
+				(int) sinkId.sink);
+	}
+
+	/**
+	 * Returns the {@link #longHash()} of the id of the node with specified id,
+	 * without creating that id.
+	 * 
+	 * @param nodeId
+	 *            node's id
+	 * @return the hash
+	 */
+	static long nodeHash(int nodeId) {
+		return hash(pack(UNDEFINED, nodeId), pack(UNDEFINED, UNDEFINED),
+				UNDEFINED);
+	}
+
+	/**
+	 * Returns whether this is the id of the node with specified id.
+	 * 
+	 * @param nodeId
+	 *            node's id
+	 * @return true if this id equals the id of that node
+	 */
+	boolean isNodeId(int nodeId) {
+		return source == pack(UNDEFINED, nodeId);
+	}
+
+	/**
+	 * Returns whether this is the id of the link with specified source, sink
+	 * and category.
+	 * 
+	 * @param sourceNodeId
+	 *            link's source id
+	 * @param sinkId
+	 *            link's sink id
+	 * @param categoryId
+	 *            link's category id
+	 * @return true if this id equals the id of that link
+	 */
+	boolean isLinkId(int sourceNodeId, ExtendedId sinkId, int categoryId) {
+		return source == pack(categoryId, sourceNodeId)
+				&& sink == sinkId.source && sinkNode2Id == (int) sinkId.sink;
 	}
 
 	/**
@@ -81,7 +167,29 @@ public class ExtendedId {
 	 * @return id of the source Node
 	 */
 	public int getSourceNodeId() {
-		return sourceNodeId;
+		return (int) source;
+	}
+
+	/*
+	 * Id of the sink Node of a simple link, or of the source of the sink of
+	 * a complex link. UNDEFINED for a Node.
+	 */
+	int getSinkNode1Id() {
+		return (int) sink;
+	}
+
+	/*
+	 * Id of the sink Node of the sink of a complex link. UNDEFINED otherwise.
+	 */
+	int getSinkNode2Id() {
+		return sinkNode2Id;
+	}
+
+	/*
+	 * Returns whether specified id part is undefined
+	 */
+	static boolean isUndefined(int id) {
+		return id == UNDEFINED;
 	}
 
 	/**
@@ -90,7 +198,7 @@ public class ExtendedId {
 	 * @return true if this ExtendedId is for a Node.
 	 */
 	public boolean isNodeId() {
-		return linkCategory == UNDEFINED;
+		return (int) (source >> 32) == UNDEFINED;
 	}
 
 	/**
@@ -98,7 +206,7 @@ public class ExtendedId {
 	 * @return true if id is for a simple link.  false if id is for a node or a complex link.
 	 */
 	public boolean isSimpleLink(){
-		return linkCategory != UNDEFINED && sinkLinkCategory == UNDEFINED;
+		return !isNodeId() && (int) (sink >> 32) == UNDEFINED;
 	}
 	
 	/**
@@ -106,34 +214,41 @@ public class ExtendedId {
 	 * @return true if id is for a complex link.  false if id is for a node or a simple link.
 	 */
 	public boolean isComplexLink(){
-		return linkCategory != UNDEFINED && sinkLinkCategory != UNDEFINED;
+		return !isNodeId() && (int) (sink >> 32) != UNDEFINED;
 	}
 	
 	@Override
 	public boolean equals(Object o) {
 		if (o instanceof ExtendedId) {
 			ExtendedId otherId = (ExtendedId) o;
-			return (linkCategory == otherId.linkCategory && 
-					sourceNodeId == otherId.sourceNodeId && 
-					sinkLinkCategory == otherId.sinkLinkCategory && 
-					sinkNode1Id == otherId.sinkNode1Id   && 
-					sinkNode2Id == otherId.sinkNode2Id);
+			return source == otherId.source && sink == otherId.sink
+					&& sinkNode2Id == otherId.sinkNode2Id;
 		}
 		return false;
 	}
 	
+	/**
+	 * Returns a 64-bit hash of all the fields of this id, used as the key of
+	 * this id in a {@link ConcurrentLinkMap}.
+	 * 
+	 * @return the hash
+	 */
+	long longHash() {
+		return hash;
+	}
+
 	@Override
 	public int hashCode() {
-		return (linkCategory ^ sourceNodeId ^ sinkLinkCategory ^ sinkNode1Id ^ sinkNode2Id);
+		return (int) (hash ^ (hash >>> 32));
 	}
 
 	@Override
 	public String toString() {
 		StringBuilder sb = new StringBuilder("[");
-		sb.append(linkCategory).append(","); 
-		sb.append(sourceNodeId).append(",");
-		sb.append(sinkLinkCategory).append(","); 
-		sb.append(sinkNode1Id).append(","); 
+		sb.append((int) (source >> 32)).append(","); 
+		sb.append((int) source).append(",");
+		sb.append((int) (sink >> 32)).append(","); 
+		sb.append((int) sink).append(","); 
 		sb.append(sinkNode2Id).append("]");
 		return sb.toString();
 	}
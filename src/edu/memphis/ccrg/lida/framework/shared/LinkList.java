@@ -0,0 +1,221 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2011 The University of Memphis.  All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the LIDA Software Framework Non-Commercial License v1.0 
+ * which accompanies this distribution, and is available at
+ * http://ccrg.cs.memphis.edu/assets/papers/2010/LIDA-framework-non-commercial-v1.0.pdf
+ *******************************************************************************/
+package edu.memphis.ccrg.lida.framework.shared;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Links in an array, e.g., the links coming into or going out of a
+ * {@link Linkable}. Reads take no lock and allocate nothing; writes are
+ * synchronized. A Link is appended in place while there is room. A removal
+ * moves the last Link into the place of the removed one, so it does not copy
+ * the array except to shrink it. The Links are unordered.
+ * <br/>
+ * A reader never misses a Link present during the whole read, except the
+ * Link moved by a removal made during the read, which it may miss.
+ * {@link #contains(Object)} is a linear scan, taking time proportional to
+ * the number of Links. Lists of at least {@link #INDEX_THRESHOLD} Links also
+ * keep the position of each Link, so that a removal takes constant time.
+ *
+ * @author agent
+ */
+final class LinkList {
+
+	/**
+	 * Number of Links from which the position of each Link is kept
+	 */
+	static final int INDEX_THRESHOLD = 64;
+
+	private volatile AtomicReferenceArray<Link> links = new AtomicReferenceArray<Link>(0);
+
+	/*
+	 * Written after the array, so that a reader reading it first sees the
+	 * Links it counts. A reader may still find a null past the Links, left
+	 * by a removal.
+	 */
+	private volatile int size;
+
+	/*
+	 * Position of each Link in the array while there are many, else null.
+	 * Guarded by this.
+	 */
+	private Map<Link, Integer> positions;
+
+	/*
+	 * Appends specified Link, which must not be in this list
+	 */
+	synchronized void add(Link l) {
+		AtomicReferenceArray<Link> a = links;
+		int n = size;
+		if (n == a.length()) {
+			a = copy(a, n, Math.max(4, 2 * n));
+			links = a;
+		}
+		a.set(n, l);
+		if (positions != null) {
+			positions.put(l, n);
+		} else if (n + 1 >= INDEX_THRESHOLD) {
+			positions = new HashMap<Link, Integer>(4 * (n + 1) / 3 + 1);
+			for (int i = 0; i <= n; i++) {
+				positions.put(a.get(i), i);
+			}
+		}
+		size = n + 1;
+	}
+
+	/*
+	 * Removes specified Link, moving the last Link into its place
+	 */
+	synchronized boolean remove(Object o) {
+		int i = indexOf(o);
+		if (i < 0) {
+			return false;
+		}
+		AtomicReferenceArray<Link> a = links;
+		int last = size - 1;
+		Link moved = a.get(last);
+		int capacity = a.length();
+		if (last <= capacity / 4 && capacity > 4) {
+			AtomicReferenceArray<Link> b = copy(a, last, capacity / 2);
+			if (i < last) {
+				b.set(i, moved);
+			}
+			links = b;
+		} else {
+			a.set(i, moved);
+			a.set(last, null);
+		}
+		if (positions != null) {
+			positions.remove(o);
+			if (i < last) {
+				positions.put(moved, i);
+			}
+			if (last < INDEX_THRESHOLD / 4) {
+				positions = null;
+			}
+		}
+		size = last;
+		return true;
+	}
+
+	/*
+	 * Returns the position of specified Link or -1, called holding the lock
+	 */
+	private int indexOf(Object o) {
+		if (positions != null) {
+			Integer i = positions.get(o);
+			return (i == null) ? -1 : i;
+		}
+		AtomicReferenceArray<Link> a = links;
+		int n = size;
+		for (int i = 0; i < n; i++) {
+			if (a.get(i).equals(o)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/*
+	 * Copies the first n Links of specified array into a new array of
+	 * specified capacity
+	 */
+	private static AtomicReferenceArray<Link> copy(AtomicReferenceArray<Link> a,
+			int n, int capacity) {
+		AtomicReferenceArray<Link> b = new AtomicReferenceArray<Link>(capacity);
+		for (int i = 0; i < n; i++) {
+			b.set(i, a.get(i));
+		}
+		return b;
+	}
+
+	boolean contains(Object o) {
+		int n = size;
+		AtomicReferenceArray<Link> a = links;
+		for (int i = 0; i < n && i < a.length(); i++) {
+			Link l = a.get(i);
+			if (l != null && l.equals(o)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/*
+	 * Iterates over the Links present when it is created. Its remove is not
+	 * supported.
+	 */
+	Iterator<Link> iterator() {
+		final int n = size;
+		final AtomicReferenceArray<Link> a = links;
+		return new Iterator<Link>() {
+			private int index;
+			private Link next = advance();
+
+			private Link advance() {
+				while (index < n && index < a.length()) {
+					Link l = a.get(index++);
+					if (l != null) {
+						return l;
+					}
+				}
+				return null;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return next != null;
+			}
+
+			@Override
+			public Link next() {
+				if (next == null) {
+					throw new NoSuchElementException();
+				}
+				Link l = next;
+				next = advance();
+				return l;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	void visitSinks(ConnectionVisitor<? super Linkable> visitor) {
+		int n = size;
+		AtomicReferenceArray<Link> a = links;
+		for (int i = 0; i < n && i < a.length(); i++) {
+			Link l = a.get(i);
+			if (l != null) {
+				visitor.visit(l.getSink(), l);
+			}
+		}
+	}
+
+	void visitSources(ConnectionVisitor<? super Node> visitor) {
+		int n = size;
+		AtomicReferenceArray<Link> a = links;
+		for (int i = 0; i < n && i < a.length(); i++) {
+			Link l = a.get(i);
+			if (l != null) {
+				visitor.visit(l.getSource(), l);
+			}
+		}
+	}
+}
@@ -243,6 +243,16 @@ public interface NodeStructure {
 	public boolean containsLink(ExtendedId id);
 
 	/**
+	 * Returns whether this NodeStructure contains a Link with specified source, sink and category.
+	 * Unlike {@link #containsLink(ExtendedId)} no {@link ExtendedId} needs to be created.
+	 * @param sourceId id of the Link's source {@link Node}
+	 * @param sinkId {@link ExtendedId} of the Link's sink
+	 * @param categoryId id of the Link's {@link LinkCategory}
+	 * @return true if contains such a {@link Link}
+	 */
+	public boolean containsLink(int sourceId, ExtendedId sinkId, int categoryId);
+
+	/**
 	 * Returns whether this NodeStructure contains specified {@link Linkable}.
 	 * @param l {@link Linkable} checked for.
 	 * @return true if contains a {@link Linkable} with the same {@link ExtendedId}.
@@ -303,6 +313,16 @@ public interface NodeStructure {
 	 * @return Link or null if no Link exists
 	 */
 	public Link getLink(ExtendedId id);
+
+	/**
+	 * Gets {@link Link} with specified source, sink and category if present.
+	 * Unlike {@link #getLink(ExtendedId)} no {@link ExtendedId} needs to be created.
+	 * @param sourceId id of the Link's source {@link Node}
+	 * @param sinkId {@link ExtendedId} of the Link's sink
+	 * @param categoryId id of the Link's {@link LinkCategory}
+	 * @return Link or null if no Link exists
+	 */
+	public Link getLink(int sourceId, ExtendedId sinkId, int categoryId);
 
 	/**
 	 * Returns the Links of this NodeStructure.
@@ -366,6 +386,22 @@ public interface NodeStructure {
 	 * @return {@link Map} of all sources connected to lnk and the links connecting them to lnk
 	 */
 	public Map<Node, Link> getConnectedSources(Linkable lnk);
+
+	/**
+	 * Passes each sink {@link Linkable} connected to specified {@link Node}, and the Link connecting it,
+	 * to specified {@link ConnectionVisitor}. Unlike {@link #getConnectedSinks(Node)} no collection is created.
+	 * @param n supplied node
+	 * @param visitor receives the sinks and the links connecting node to them
+	 */
+	public void forEachSink(Node n, ConnectionVisitor<? super Linkable> visitor);
+
+	/**
+	 * Passes each source {@link Node} connected to specified {@link Linkable}, and the Link connecting it,
+	 * to specified {@link ConnectionVisitor}. Unlike {@link #getConnectedSources(Linkable)} no collection is created.
+	 * @param lnk the {@link Linkable} whose connected sources are visited
+	 * @param visitor receives the sources and the links connecting them to lnk
+	 */
+	public void forEachSource(Linkable lnk, ConnectionVisitor<? super Node> visitor);
 	
 	/**
 	 * Gets the number of nodes.
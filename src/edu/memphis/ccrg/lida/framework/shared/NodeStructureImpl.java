@@ -7,11 +7,14 @@
  *******************************************************************************/
 package edu.memphis.ccrg.lida.framework.shared;
 
+import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -20,6 +23,11 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import edu.memphis.ccrg.lida.framework.shared.activation.Activatible;
+import edu.memphis.ccrg.lida.framework.shared.activation.ActivatibleImpl;
+import edu.memphis.ccrg.lida.framework.shared.activation.ActivationListener;
+import edu.memphis.ccrg.lida.framework.shared.activation.Learnable;
+import edu.memphis.ccrg.lida.framework.strategies.DecayStrategy;
+import edu.memphis.ccrg.lida.framework.strategies.NoDecayStrategy;
 import edu.memphis.ccrg.lida.framework.tasks.TaskManager;
 import edu.memphis.ccrg.lida.globalworkspace.BroadcastContent;
 import edu.memphis.ccrg.lida.pam.PamLink;
@@ -31,6 +39,12 @@ import edu.memphis.ccrg.lida.workspace.WorkspaceContent;
  * (simple link) or can connect a node and another SIMPLE link. Nodes and links
  * are copied when added. This prevents having the same node (object) in two
  * different NodeStructures.
+ * <br/>
+ * Only the linkables that are not at rest are decayed by
+ * {@link #decayNodeStructure(long)}. A linkable is at rest when neither its
+ * activation nor its base-level activation would change by decaying. Such a
+ * linkable leaves the set of active linkables until it is excited or its
+ * activation is set again.
  * 
  * @author Javier Snaider
  * @author Ryan J. McCall
@@ -51,19 +65,44 @@ public class NodeStructureImpl implements NodeStructure, BroadcastContent,
 	private static ElementFactory factory = ElementFactory.getInstance();	
 	
 	/*
-	 * Nodes contained in this NodeStructure indexed by their id
+	 * Nodes contained in this NodeStructure indexed by their id, without
+	 * boxing the id
 	 */
-	private ConcurrentMap<Integer, Node> nodes = new ConcurrentHashMap<Integer, Node>();
+	private final ConcurrentIntMap<Node> nodes = new ConcurrentIntMap<Node>();
 
 	/*
-	 * Links contained in this NodeStructure indexed by their id String.
+	 * Links contained in this NodeStructure indexed by their id
 	 */
-	private ConcurrentMap<ExtendedId, Link> links = new ConcurrentHashMap<ExtendedId, Link>();
+	private final ConcurrentLinkMap links = new ConcurrentLinkMap();
 
 	/*
 	 * Links that each Linkable (Node or Link) has.
 	 */
-	private ConcurrentMap<Linkable, Set<Link>> linkableMap = new ConcurrentHashMap<Linkable, Set<Link>>();
+	private final ConcurrentMap<Linkable, AttachedLinks> linkableMap = new ConcurrentHashMap<Linkable, AttachedLinks>();
+
+	/*
+	 * Links of each LinkCategory
+	 */
+	private final ConcurrentMap<LinkCategory, Set<Link>> categoryLinks = new ConcurrentHashMap<LinkCategory, Set<Link>>();
+
+	/*
+	 * Linkables that are not at rest and need to be decayed.
+	 */
+	private Set<Linkable> activeLinkables = new ConcurrentHashSet<Linkable>();
+
+	/*
+	 * Notifies that the linkables of this NodeStructure are active when they
+	 * are excited or their activation is set.
+	 */
+	private final ActivationListener activationListener = new ActivationListener() {
+		@Override
+		public void receiveActivation(Activatible a) {
+			Linkable l = (Linkable) a;
+			if (linkableMap.containsKey(l)) {
+				linkableActivated(l);
+			}
+		}
+	};
 
 	/*
 	 * Default Node type used.
@@ -151,6 +190,14 @@ public class NodeStructureImpl implements NodeStructure, BroadcastContent,
 
 	@Override
 	public synchronized Node addNode(Node n, String type) {
+		return internalAddNode(n, type);
+	}
+
+	/*
+	 * Adds a copy of specified Node. Callers must prevent concurrent
+	 * modifications of the Node's id.
+	 */
+	Node internalAddNode(Node n, String type) {
 		if (n == null) {
 			logger.log(Level.WARNING, "Cannot add null Node.", TaskManager
 					.getCurrentTick());
@@ -166,8 +213,7 @@ public class NodeStructureImpl implements NodeStructure, BroadcastContent,
 		if (node == null) {
 			node = getNewNode(n, type);
 			if (node != null) {
-				nodes.put(node.getId(), node);
-				linkableMap.put(node, new HashSet<Link>());
+				internalAddNewNode(node);
 			} else {
 				logger.log(Level.WARNING, "Could not create new node of type: {1} ",
 						new Object[]{TaskManager.getCurrentTick(),type});
@@ -186,7 +232,7 @@ public class NodeStructureImpl implements NodeStructure, BroadcastContent,
 	}
 	
 	@Override
-	public synchronized Node addDefaultNode(String label, double a, double rt){
+	public Node addDefaultNode(String label, double a, double rt){
 		return addNode(defaultNodeType, label, a, rt);
 	}
 	
@@ -197,12 +243,21 @@ public class NodeStructureImpl implements NodeStructure, BroadcastContent,
 			n.setLabel(label);
 			n.setActivation(a);
 			n.setActivatibleRemovalThreshold(rt);
-			nodes.put(n.getId(), n);
-			linkableMap.put(n, new HashSet<Link>());
+			internalAddNewNode(n);
 		}
 		return n;	
 	}
 
+	/*
+	 * Stores a new Node, whose id is not used by another Node. Callers must
+	 * prevent concurrent modifications of the Node's id.
+	 */
+	void internalAddNewNode(Node n) {
+		nodes.put(n.getId(), n);
+		linkableMap.put(n, new AttachedLinks());
+		addActiveLinkable(n);
+	}
+
 	/**
 	 * If copy is false, this method adds a already generated {@link Node}
 	 *  to this NodeStructure without copying it.
@@ -226,8 +281,7 @@ public class NodeStructureImpl implements NodeStructure, BroadcastContent,
 			Node node = nodes.get(n.getId());
 			if (node == null) {
 					node=n;
-					nodes.put(node.getId(), node);
-					linkableMap.put(node, new HashSet<Link>());
+					internalAddNewNode(node);
 			} else {
 				logger.log(Level.FINE,
 						"Cannot add node, it is already in this NodeStructure.", TaskManager
@@ -253,7 +307,7 @@ public class NodeStructureImpl implements NodeStructure, BroadcastContent,
 	}
 	
 	@Override
-	public synchronized Link addDefaultLink(Link l) {
+	public Link addDefaultLink(Link l) {
 		return addLink(l, defaultLinkType);
 	}
 
@@ -295,13 +349,21 @@ public class NodeStructureImpl implements NodeStructure, BroadcastContent,
 	
 	@Override
 	public synchronized Link addLink(Link l, String type) {
+		return internalAddLink(l, type);
+	}
+
+	/*
+	 * Adds a copy of specified Link. Callers must prevent concurrent
+	 * modifications of the Link's source and sink.
+	 */
+	Link internalAddLink(Link l, String type) {
 		if (!factory.containsLinkType(type)) {
 			logger.log(Level.WARNING,
 							"Cannot add link {1} of type {2} because factory does not contain that Link type. Check that type is defined in factoryData xml file.",
 							new Object[]{TaskManager.getCurrentTick(),l,type});
 			return null;
 		}
-		if (!isLinkValid(l)) {
+		if (!isLinkValid(this, l)) {
 			return null;
 		}
 		double newActivation = l.getActivation();
@@ -333,7 +395,7 @@ public class NodeStructureImpl implements NodeStructure, BroadcastContent,
 	}
 
 	@Override
-	public synchronized Link addDefaultLink(Node source, Linkable sink,
+	public Link addDefaultLink(Node source, Linkable sink,
 			LinkCategory category, double activation, double removalThreshold) {
 		if(source == null) {
 			logger.log(Level.WARNING,
@@ -352,7 +414,7 @@ public class NodeStructureImpl implements NodeStructure, BroadcastContent,
 	}
 
 	@Override
-	public synchronized Link addDefaultLink(int sourceId, ExtendedId sinkId,
+	public Link addDefaultLink(int sourceId, ExtendedId sinkId,
 			LinkCategory category, double activation, double removalThreshold) {
 		return addLink(defaultLinkType, sourceId, sinkId, category, activation, removalThreshold);
 	}
@@ -360,19 +422,27 @@ public class NodeStructureImpl implements NodeStructure, BroadcastContent,
 	@Override
 	public synchronized Link addDefaultLink(int sourceId, int sinkId,
 			LinkCategory cat, double activation, double removalThreshold) {
+		return internalAddDefaultLink(sourceId, sinkId, cat, activation, removalThreshold);
+	}
+
+	/*
+	 * Adds a new Link between the Nodes of specified ids. Callers must
+	 * prevent concurrent modifications of those Nodes.
+	 */
+	Link internalAddDefaultLink(int sourceId, int sinkId,
+			LinkCategory cat, double activation, double removalThreshold) {
 		if(cat == null){
 			logger.log(Level.WARNING,
 					"Cannot add new link because category is null.",TaskManager.getCurrentTick());
 			return null;
 		}
-		if(!isConnectionValid(sourceId, new ExtendedId(sinkId))){
+		Node sink = getNode(sinkId);
+		ExtendedId sinkEid = (sink == null)? new ExtendedId(sinkId) : sink.getExtendedId();
+		if(!isConnectionValid(this, sourceId, sinkEid)){
 			return null;
 		}
 		Node source = getNode(sourceId);
-		Linkable sink = getNode(sinkId);
-		ExtendedId newLinkId = new ExtendedId(sourceId, sink.getExtendedId(),
-				cat.getId());
-		Link link = getLink(newLinkId);
+		Link link = getLink(sourceId, sinkEid, cat.getId());
 		if (link == null) {
 			link = generateNewLink(null, defaultLinkType, source, sink, cat,
 					activation, removalThreshold, null);
@@ -383,7 +453,7 @@ public class NodeStructureImpl implements NodeStructure, BroadcastContent,
 	}
 	
 	@Override
-	public synchronized Link addLink(String type, Node src, Linkable sink, LinkCategory cat, double a, double rt){
+	public Link addLink(String type, Node src, Linkable sink, LinkCategory cat, double a, double rt){
 		if(src == null){
 			logger.log(Level.WARNING,
 					"Cannot add link because source is null", TaskManager
@@ -402,6 +472,16 @@ public class NodeStructureImpl implements NodeStructure, BroadcastContent,
 	@Override
 	public synchronized Link addLink(String type, int srcId, ExtendedId snkId,
 			LinkCategory cat, double a, double rt){
+		return internalAddLink(type, srcId, snkId, cat, a, rt);
+	}
+
+	/*
+	 * Adds a new Link from the Node of specified id to the Linkable of
+	 * specified id. Callers must prevent concurrent modifications of the
+	 * source and sink.
+	 */
+	Link internalAddLink(String type, int srcId, ExtendedId snkId,
+			LinkCategory cat, double a, double rt){
 		if (!factory.containsLinkType(type)) {
 			logger.log(Level.WARNING,
 							"Cannot add new link of type {2} because factory does not contain that Link type. Check that type is defined in factoryData xml file.",
@@ -413,12 +493,10 @@ public class NodeStructureImpl implements NodeStructure, BroadcastContent,
 					"Cannot add new link because category is null.",TaskManager.getCurrentTick());
 			return null;
 		}
-		if(!isConnectionValid(srcId, snkId)){
+		if(!isConnectionValid(this, srcId, snkId)){
 			return null;
 		}
-		ExtendedId newLinkId = new ExtendedId(srcId, snkId, cat
-				.getId());
-		Link link = getLink(newLinkId);
+		Link link = getLink(srcId, snkId, cat.getId());
 		if (link == null) {
 			Node source = getNode(srcId);
 			Linkable sink = getLinkable(snkId);
@@ -437,11 +515,11 @@ public class NodeStructureImpl implements NodeStructure, BroadcastContent,
 	}
 	
 	/*
-	 * Returns true if Link l can currently be added to the NodeStructure.
+	 * Returns true if Link l can currently be added to specified NodeStructure.
 	 * Calls isConnectionValid().
 	 * @see #isConnectionValid
 	 */
-	private boolean isLinkValid(Link l){
+	static boolean isLinkValid(NodeStructure ns, Link l){
 		if (l == null) {
 			logger.log(Level.WARNING, "Cannot add null", TaskManager
 					.getCurrentTick());
@@ -461,20 +539,21 @@ public class NodeStructureImpl implements NodeStructure, BroadcastContent,
 					TaskManager.getCurrentTick());
 			return false;
 		}
-		return isConnectionValid(src.getId(), sink.getExtendedId());
+		return isConnectionValid(ns, src.getId(), sink.getExtendedId());
 	}
 	
 	/*
-	 * Returns true if a Link from specified source to specified sink can be added
+	 * Returns true if a Link from specified source to specified sink can be
+	 * added to specified NodeStructure
 	 */
-	private boolean isConnectionValid(int srcId, ExtendedId sinkId){
-		if (!containsNode(srcId)) {
+	static boolean isConnectionValid(NodeStructure ns, int srcId, ExtendedId sinkId){
+		if (!ns.containsNode(srcId)) {
 			logger.log(Level.WARNING,
 					"Cannot add Link because its source is not present in this NodeStructure",
 					TaskManager.getCurrentTick());
 			return false;
 		}
-		if (!containsLinkable(sinkId)) {
+		if (!ns.containsLinkable(sinkId)) {
 			logger.log(Level.WARNING,
 					"Cannot add Link because its sink is not present in this NodeStructure",
 					TaskManager.getCurrentTick());
@@ -510,29 +589,330 @@ public class NodeStructureImpl implements NodeStructure, BroadcastContent,
 				newLink.setGroundingPamLink(groundingPamLink);
 			}
 	
-			links.put(newLink.getExtendedId(), newLink);
-			if (!linkableMap.containsKey(newLink)) {
-				linkableMap.put(newLink, new HashSet<Link>());
-			}
-	
-			Set<Link> tempLinks = linkableMap.get(newSource);
-			if (tempLinks == null) {
-				tempLinks = new HashSet<Link>();
-				linkableMap.put(newSource, tempLinks);
-			}
-			tempLinks.add(newLink);
-	
-			tempLinks = linkableMap.get(newSink);
-			if (tempLinks == null) {
-				tempLinks = new HashSet<Link>();
-				linkableMap.put(newSink, tempLinks);
-			}
-			tempLinks.add(newLink);
+			indexLink(newLink, newSource, newSink);
 		}else{
 			logger.log(Level.WARNING, "Could not create new link of type: {1} ",
 					new Object[]{TaskManager.getCurrentTick(),linkType});
 		}
 		return newLink;
+	}
+
+	/*
+	 * Stores a new Link and records it as a Link of its source and sink.
+	 */
+	private void indexLink(Link newLink, Node newSource, Linkable newSink) {
+		links.put(newLink.getExtendedId(), newLink);
+		if (!linkableMap.containsKey(newLink)) {
+			linkableMap.put(newLink, new AttachedLinks());
+			addActiveLinkable(newLink);
+		}
+
+		AttachedLinks tempLinks = linkableMap.get(newSource);
+		if (tempLinks == null) {
+			tempLinks = new AttachedLinks();
+			linkableMap.put(newSource, tempLinks);
+		}
+		tempLinks.addOutgoing(newLink);
+
+		tempLinks = linkableMap.get(newSink);
+		if (tempLinks == null) {
+			tempLinks = new AttachedLinks();
+			linkableMap.put(newSink, tempLinks);
+		}
+		tempLinks.addIncoming(newLink);
+
+		LinkCategory category = newLink.getCategory();
+		if (category != null) {
+			getCategoryLinks(category).add(newLink);
+		}
+	}
+
+	/*
+	 * Returns the indexed Links of specified category, adding an empty set
+	 * if there are none. Called when a Link is indexed only.
+	 */
+	private Set<Link> getCategoryLinks(LinkCategory category) {
+		Set<Link> catLinks = categoryLinks.get(category);
+		if (catLinks == null) {
+			Set<Link> newCatLinks = new ConcurrentHashSet<Link>();
+			catLinks = categoryLinks.putIfAbsent(category, newCatLinks);
+			if (catLinks == null) {
+				catLinks = newCatLinks;
+			}
+		}
+		return catLinks;
+	}
+
+	/*
+	 * Unmodifiable view of the Links of one category. The set of the
+	 * category is looked up at each call, so the view is empty until a Link
+	 * of the category is added and then follows the set, without creating
+	 * the set on reads.
+	 */
+	private static abstract class CategoryLinksView extends AbstractSet<Link> {
+
+		/*
+		 * Returns the set of the category or null if there is none yet
+		 */
+		abstract Set<Link> current();
+
+		@Override
+		public int size() {
+			Set<Link> s = current();
+			return (s == null) ? 0 : s.size();
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			Set<Link> s = current();
+			return s != null && s.contains(o);
+		}
+
+		@Override
+		public Iterator<Link> iterator() {
+			Set<Link> s = current();
+			return (s == null) ? Collections.<Link> emptySet().iterator()
+					: Collections.unmodifiableSet(s).iterator();
+		}
+	}
+
+	/*
+	 * Returns a new set for the Links of one category attached to a Linkable.
+	 */
+	Set<Link> createLinkSet() {
+		return new HashSet<Link>();
+	}
+
+	/*
+	 * Links attached to a Linkable, kept as the Links going out of it and the
+	 * Links coming into it, and also grouped by LinkCategory. Links are added
+	 * with addOutgoing or addIncoming. The Link's id contains its category,
+	 * so the category of a Link never changes.
+	 */
+	private class AttachedLinks extends AbstractSet<Link> {
+
+		/*
+		 * Links whose source is the Linkable
+		 */
+		private final LinkList outgoing = new LinkList();
+
+		/*
+		 * Links whose sink is the Linkable
+		 */
+		private final LinkList incoming = new LinkList();
+
+		/*
+		 * Each LinkCategory followed by the set of its Links. Replaced by a
+		 * longer copy when a category is added, so that it is read without
+		 * locking.
+		 */
+		private volatile Object[] categories = new Object[0];
+
+		@SuppressWarnings("unchecked")
+		Set<Link> get(LinkCategory cat) {
+			Object[] c = categories;
+			for (int i = 0; i < c.length; i += 2) {
+				if (cat.equals(c[i])) {
+					return (Set<Link>) c[i + 1];
+				}
+			}
+			return null;
+		}
+
+		/*
+		 * Called when a Link is added only, reads use get
+		 */
+		synchronized Set<Link> getOrAdd(LinkCategory cat) {
+			Set<Link> catLinks = get(cat);
+			if (catLinks == null) {
+				catLinks = createLinkSet();
+				Object[] c = Arrays.copyOf(categories, categories.length + 2);
+				c[c.length - 2] = cat;
+				c[c.length - 1] = catLinks;
+				categories = c;
+			}
+			return catLinks;
+		}
+
+		/*
+		 * Adds a Link whose source is the Linkable, not already attached
+		 */
+		void addOutgoing(Link l) {
+			outgoing.add(l);
+			addToCategory(l);
+		}
+
+		/*
+		 * Adds a Link whose sink is the Linkable, not already attached
+		 */
+		void addIncoming(Link l) {
+			incoming.add(l);
+			addToCategory(l);
+		}
+
+		private void addToCategory(Link l) {
+			LinkCategory cat = l.getCategory();
+			if (cat != null) {
+				getOrAdd(cat).add(l);
+			}
+		}
+
+		@Override
+		public boolean remove(Object o) {
+			if (!outgoing.remove(o) && !incoming.remove(o)) {
+				return false;
+			}
+			LinkCategory cat = ((Link) o).getCategory();
+			if (cat != null) {
+				Set<Link> catLinks = get(cat);
+				if (catLinks != null) {
+					catLinks.remove(o);
+				}
+			}
+			return true;
+		}
+
+		/*
+		 * Looks a Link up in the set of its category, which holds every
+		 * attached Link of the category, so that it takes constant time
+		 * however many Links are attached.
+		 */
+		@Override
+		public boolean contains(Object o) {
+			if (o instanceof Link) {
+				LinkCategory cat = ((Link) o).getCategory();
+				if (cat != null) {
+					Set<Link> catLinks = get(cat);
+					return catLinks != null && catLinks.contains(o);
+				}
+			}
+			return outgoing.contains(o) || incoming.contains(o);
+		}
+
+		@Override
+		public int size() {
+			return outgoing.size() + incoming.size();
+		}
+
+		@Override
+		public Iterator<Link> iterator() {
+			final Iterator<Link> out = outgoing.iterator();
+			final Iterator<Link> in = incoming.iterator();
+			return new Iterator<Link>() {
+				private Link last;
+
+				@Override
+				public boolean hasNext() {
+					return out.hasNext() || in.hasNext();
+				}
+
+				@Override
+				public Link next() {
+					last = out.hasNext() ? out.next() : in.next();
+					return last;
+				}
+
+				@Override
+				public void remove() {
+					if (last == null) {
+						throw new IllegalStateException();
+					}
+					AttachedLinks.this.remove(last);
+					last = null;
+				}
+			};
+		}
+	}
+
+	/**
+	 * Pre-sizes the node and link maps of this NodeStructure so that
+	 * specified numbers of {@link Node}s and {@link Link}s can be added
+	 * without rehashing. Intended to be called before a bulk load; elements already
+	 * present are kept.
+	 * 
+	 * @param nodeCount
+	 *            expected number of nodes
+	 * @param linkCount
+	 *            expected number of links
+	 */
+	public synchronized void ensureCapacity(int nodeCount, int linkCount) {
+		internalEnsureCapacity(nodeCount, linkCount);
+	}
+
+	void internalEnsureCapacity(int nodeCount, int linkCount) {
+		nodes.ensureCapacity(nodeCount);
+		links.ensureCapacity(linkCount);
+	}
+
+	/**
+	 * Adds already generated {@link Node}s to this NodeStructure without
+	 * copying them, taking the lock of this NodeStructure once for all of
+	 * them. A Node whose id is already present is not added and its entry in
+	 * the array is set to null.
+	 * 
+	 * This method is intended for internal use only.
+	 * 
+	 * @param ns
+	 *            the nodes to add, null entries are skipped
+	 * @param count
+	 *            number of entries of ns to add
+	 * @return number of nodes added
+	 */
+	protected synchronized int addNodes(Node[] ns, int count) {
+		return internalAddNodes(ns, count);
+	}
+
+	int internalAddNodes(Node[] ns, int count) {
+		int added = 0;
+		for (int i = 0; i < count; i++) {
+			Node n = ns[i];
+			if (n == null) {
+				continue;
+			}
+			if (nodes.containsKey(n.getId())) {
+				ns[i] = null;
+				continue;
+			}
+			internalAddNewNode(n);
+			added++;
+		}
+		return added;
+	}
+
+	/**
+	 * Adds already generated {@link Link}s to this NodeStructure without
+	 * copying them, taking the lock of this NodeStructure once for all of
+	 * them. The source and sink of each Link must be the instances stored in
+	 * this NodeStructure. A Link that is already present or cannot be
+	 * connected is not added and its entry in the array is set to null.
+	 * 
+	 * This method is intended for internal use only.
+	 * 
+	 * @param ls
+	 *            the links to add, null entries are skipped
+	 * @param count
+	 *            number of entries of ls to add
+	 * @return number of links added
+	 */
+	protected synchronized int addLinks(Link[] ls, int count) {
+		return internalAddLinks(ls, count);
+	}
+
+	int internalAddLinks(Link[] ls, int count) {
+		int added = 0;
+		for (int i = 0; i < count; i++) {
+			Link l = ls[i];
+			if (l == null) {
+				continue;
+			}
+			if (links.containsKey(l.getExtendedId()) || !isLinkValid(this, l)) {
+				ls[i] = null;
+				continue;
+			}
+			indexLink(l, l.getSource(), l.getSink());
+			added++;
+		}
+		return added;
 	}
 
 	/**
@@ -614,6 +994,15 @@ public class NodeStructureImpl implements NodeStructure, BroadcastContent,
 	
 	@Override
 	public synchronized void removeLinkable(Linkable linkable) {
+		internalRemoveLinkable(linkable);
+	}
+
+	/*
+	 * Removes specified Linkable and the Links attached to it. Callers must
+	 * prevent concurrent modifications of the Linkable and of the Linkables
+	 * connected to it.
+	 */
+	void internalRemoveLinkable(Linkable linkable) {
 		// First check if the NS actually contains specified linkable to prevent
 		// null pointers.
 		if (!containsLinkable(linkable)) {
@@ -628,12 +1017,13 @@ public class NodeStructureImpl implements NodeStructure, BroadcastContent,
 			Set<Link> connectedLinks = new HashSet<Link>(tempLinks);
 			for (Link connectedLink : connectedLinks) {
 				// for all of the links connected to linkable
-				removeLinkable(connectedLink);
+				internalRemoveLinkable(connectedLink);
 			}
 		}
 
 		// finally remove the linkable and its links
 		linkableMap.remove(linkable);
+		removeActiveLinkable(linkable);
 		if (linkable instanceof Node) {
 			nodes.remove(((Node) linkable).getId());
 		} else if (linkable instanceof Link) {
@@ -650,6 +1040,12 @@ public class NodeStructureImpl implements NodeStructure, BroadcastContent,
 			if (sinkLinks != null) {
 				sinkLinks.remove(aux);
 			}
+			if (aux.getCategory() != null) {
+				Set<Link> catLinks = categoryLinks.get(aux.getCategory());
+				if (catLinks != null) {
+					catLinks.remove(aux);
+				}
+			}
 			//finally remove the link from links map
 			links.remove(linkable.getExtendedId());
 		}
@@ -670,30 +1066,119 @@ public class NodeStructureImpl implements NodeStructure, BroadcastContent,
 
 	@Override
 	public synchronized void clearLinks() {
+		internalClearLinks();
+	}
+
+	void internalClearLinks() {
 		for (Link l : links.values()) {
-			removeLink(l);
+			internalRemoveLinkable(l);
 		}
 		links.clear();
 	}
 
 	@Override
 	public synchronized void clearNodeStructure() {
+		internalClearNodeStructure();
+	}
+
+	void internalClearNodeStructure() {
+		for (Linkable l : linkableMap.keySet()) {
+			removeActiveLinkable(l);
+		}
 		linkableMap.clear();
 		nodes.clear();
 		links.clear();
+		for (Set<Link> catLinks : categoryLinks.values()) {
+			catLinks.clear();
+		}
 	}
 
 	@Override
 	public void decayNodeStructure(long ticks) {
-		for (Linkable linkable : linkableMap.keySet()) {
+		for (Linkable linkable : activeLinkables) {
+			if (!linkableMap.containsKey(linkable)) {
+				activeLinkables.remove(linkable);
+				continue;
+			}
 			Activatible a = (Activatible) linkable;
 			a.decay(ticks);
 			if (a.isRemovable()) {
 				removeLinkable(linkable);
+			} else if (isAtRest(a)) {
+				activeLinkables.remove(linkable);
+				// it may have been excited since it was checked
+				if (!isAtRest(a)) {
+					activeLinkables.add(linkable);
+				}
 			}
 		}
 	}
 
+	/*
+	 * Adds a linkable just added to this NodeStructure to the active linkables
+	 * and listens to its activation. Linkables not extending ActivatibleImpl
+	 * cannot be listened to and are never considered at rest.
+	 */
+	private void addActiveLinkable(Linkable l) {
+		if (l instanceof ActivatibleImpl) {
+			((ActivatibleImpl) l).setActivationListener(activationListener);
+		}
+		linkableActivated(l);
+	}
+
+	/**
+	 * Called when a {@link Linkable} is added to this NodeStructure and each
+	 * time its activation changes afterwards. This implementation adds it to
+	 * the linkables visited by {@link #decayNodeStructure(long)}. Subclasses
+	 * overriding this method should also override
+	 * {@link #decayNodeStructure(long)}.
+	 * 
+	 * @param l
+	 *            a Linkable of this NodeStructure that may not be at rest
+	 */
+	protected void linkableActivated(Linkable l) {
+		activeLinkables.add(l);
+	}
+
+	private void removeActiveLinkable(Linkable l) {
+		activeLinkables.remove(l);
+		if (l instanceof ActivatibleImpl) {
+			ActivatibleImpl a = (ActivatibleImpl) l;
+			if (a.getActivationListener() == activationListener) {
+				a.setActivationListener(null);
+			}
+		}
+	}
+
+	/**
+	 * Returns true if decaying specified Activatible would not change it.
+	 * Activatibles not extending {@link ActivatibleImpl} are never at rest.
+	 * 
+	 * @param a
+	 *            an Activatible
+	 * @return whether a is at rest
+	 */
+	public static boolean isAtRest(Activatible a) {
+		if (!(a instanceof ActivatibleImpl)) {
+			return false;
+		}
+		if (a.getActivation() > 0.0 && !isNoDecay(a.getDecayStrategy())) {
+			return false;
+		}
+		if (a instanceof Learnable) {
+			Learnable l = (Learnable) a;
+			if (l.getBaseLevelActivation() > 0.0
+					&& !isNoDecay(l.getBaseLevelDecayStrategy())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isNoDecay(DecayStrategy s) {
+		return s == null || s instanceof NoDecayStrategy;
+	}
+
 	@Override
 	public Node getNode(int id) {
 		return nodes.get(id);
@@ -728,18 +1213,27 @@ public class NodeStructureImpl implements NodeStructure, BroadcastContent,
 	}
 
 	@Override
-	public Set<Link> getLinks(LinkCategory cat) {
+	public Link getLink(int sourceId, ExtendedId sinkId, int categoryId) {
+		return (sinkId == null)? null:links.get(sourceId, sinkId, categoryId);
+	}
+
+	/**
+	 * Returns an unmodifiable live view of the Links of specified category,
+	 * kept in an index updated as Links are added and removed. Its iterators
+	 * are weakly consistent. The view is updated even if no Link of the
+	 * category was added yet.
+	 */
+	@Override
+	public Set<Link> getLinks(final LinkCategory cat) {
 		if(cat == null){
 			return null;
 		}
-		Set<Link> results = new HashSet<Link>();
-		for (Link l : links.values()) {
-			if (cat.equals(l.getCategory())) {
-				results.add(l);
+		return new CategoryLinksView() {
+			@Override
+			Set<Link> current() {
+				return categoryLinks.get(cat);
 			}
-		}
-			
-		return Collections.unmodifiableSet(results);
+		};
 	}
 
 	@Override
@@ -791,22 +1285,27 @@ public class NodeStructureImpl implements NodeStructure, BroadcastContent,
 		return (aux == null)? null: Collections.unmodifiableSet(aux);
 	}
 
+	/**
+	 * Returns an unmodifiable live view of the Links of specified category
+	 * attached to specified Linkable, kept in an index updated as Links are
+	 * added and removed. The view is updated even if no such Link was added
+	 * yet.
+	 */
 	@Override
-	public Set<Link> getAttachedLinks(Linkable lnk, LinkCategory cat) {
+	public Set<Link> getAttachedLinks(Linkable lnk, final LinkCategory cat) {
 		if (lnk == null || cat == null) {
 			return null;
 		}
-		Set<Link> attachedLinks = linkableMap.get(lnk);
+		final AttachedLinks attachedLinks = linkableMap.get(lnk);
 		if (attachedLinks == null) {
 			return null;
 		}
-		Set<Link> results = new HashSet<Link>();
-		for (Link l : attachedLinks) {
-			if (cat.equals(l.getCategory())) {
-				results.add(l);
-			}
-		}
-		return Collections.unmodifiableSet(results);
+		return new CategoryLinksView() {
+			@Override
+			Set<Link> current() {
+				return attachedLinks.get(cat);
+			}
+		};
 	}
 
 	@Override
@@ -814,15 +1313,14 @@ public class NodeStructureImpl implements NodeStructure, BroadcastContent,
 		if(lnk == null){
 			return null;
 		}		
-		Set<Link> candidateLinks = linkableMap.get(lnk);
+		AttachedLinks attachedLinks = linkableMap.get(lnk);
+		if (attachedLinks == null) {
+			return Collections.emptyMap();
+		}
 		Map<Node, Link> sourceLinkMap = new HashMap<Node, Link>();
-		if (candidateLinks != null) {
-			for (Link link : candidateLinks) {
-				Node source = link.getSource();
-				if (!source.equals(lnk)) {
-					sourceLinkMap.put(source, link);
-				}
-			}
+		for (Iterator<Link> it = attachedLinks.incoming.iterator(); it.hasNext();) {
+			Link link = it.next();
+			sourceLinkMap.put(link.getSource(), link);
 		}
 		return Collections.unmodifiableMap(sourceLinkMap);
 	}
@@ -832,18 +1330,39 @@ public class NodeStructureImpl implements NodeStructure, BroadcastContent,
 		if(n == null){
 			return null;
 		}
-		Set<Link> candidateLinks = linkableMap.get(n);
+		AttachedLinks attachedLinks = linkableMap.get(n);
+		if (attachedLinks == null) {
+			return Collections.emptyMap();
+		}
 		Map<Linkable, Link> sinkLinkMap = new HashMap<Linkable, Link>();
-		if (candidateLinks != null) {
-			for (Link link : candidateLinks) {
-				Linkable sink = link.getSink();
-				if (!sink.equals(n)) {
-					sinkLinkMap.put(sink, link);
-				}
-			}
+		for (Iterator<Link> it = attachedLinks.outgoing.iterator(); it.hasNext();) {
+			Link link = it.next();
+			sinkLinkMap.put(link.getSink(), link);
 		}
 		return Collections.unmodifiableMap(sinkLinkMap);
 	}
+
+	@Override
+	public void forEachSink(Node n, ConnectionVisitor<? super Linkable> visitor) {
+		if (n == null || visitor == null) {
+			return;
+		}
+		AttachedLinks attachedLinks = linkableMap.get(n);
+		if (attachedLinks != null) {
+			attachedLinks.outgoing.visitSinks(visitor);
+		}
+	}
+
+	@Override
+	public void forEachSource(Linkable lnk, ConnectionVisitor<? super Node> visitor) {
+		if (lnk == null || visitor == null) {
+			return;
+		}
+		AttachedLinks attachedLinks = linkableMap.get(lnk);
+		if (attachedLinks != null) {
+			attachedLinks.incoming.visitSources(visitor);
+		}
+	}
 	
 	@Override
 	public String getDefaultLinkType() {
@@ -881,6 +1400,11 @@ public class NodeStructureImpl implements NodeStructure, BroadcastContent,
 	@Override
 	public boolean containsLink(ExtendedId id) {
 		return (id == null)? false : links.containsKey(id);
+	}
+
+	@Override
+	public boolean containsLink(int sourceId, ExtendedId sinkId, int categoryId) {
+		return getLink(sourceId, sinkId, categoryId) != null;
 	}
 
 	@Override
@@ -901,6 +1425,15 @@ public class NodeStructureImpl implements NodeStructure, BroadcastContent,
 	@Override
 	public NodeStructure getSubgraph(Collection<Node> nodes,
 			int d, double threshold) {
+		return getSubgraph(this, nodes, d, threshold);
+	}
+
+	/*
+	 * Returns the subgraph of specified NodeStructure, using only its public
+	 * methods so that other implementations can share it.
+	 */
+	static NodeStructure getSubgraph(NodeStructure ns, Collection<Node> nodes,
+			int d, double threshold) {
 		if (nodes == null ){
 			logger.log(Level.WARNING, "Collection of specified nodes are not available.",
 					TaskManager.getCurrentTick());
@@ -923,76 +1456,101 @@ public class NodeStructureImpl implements NodeStructure, BroadcastContent,
 			return null;
 		}
 		//	Distance should be not bigger than number of all links.
-		if (d > getLinkCount()){
-			d = getLinkCount();
+		if (d > ns.getLinkCount()){
+			d = ns.getLinkCount();
 		}
 		
 		//Preserve default Node and Link type of the originating NodeStructure
-		NodeStructure subNodeStructure = new NodeStructureImpl(getDefaultNodeType(), getDefaultLinkType());		
+		final NodeStructure subNodeStructure = new NodeStructureImpl(ns.getDefaultNodeType(), ns.getDefaultLinkType());		
+		SubgraphSearch search = new SubgraphSearch(ns, subNodeStructure, threshold);
 		for (Node n : nodes) {
 			//Add nodes to the sub node structure and scan from each node
 			if(n != null){
-				depthFirstSearch(n, d, subNodeStructure, threshold);
+				search.depthFirstSearch(n, d);
 			}
 		}
 		//	Add all simple links to the sub node structure
-		for (Node subNode : subNodeStructure.getNodes()) {
-			//Get the simple links for each Node already in the subgraph
-			Map<Node, Link> sources = getConnectedSources(subNode);
-			for (Node n : sources.keySet()) {
+		ConnectionVisitor<Node> simpleLinkAdder = new ConnectionVisitor<Node>() {
+			@Override
+			public void visit(Node source, Link link) {
 				//Add the simple link only if its source is present in the subgraph
-				if (subNodeStructure.containsNode(n)) {
-					subNodeStructure.addLink(sources.get(n), sources.get(n).getFactoryType());
+				if (subNodeStructure.containsNode(source)) {
+					subNodeStructure.addLink(link, link.getFactoryType());
 				}
 			}
+		};
+		for (Node subNode : subNodeStructure.getNodes()) {
+			//Visit the simple links for each Node already in the subgraph
+			ns.forEachSource(subNode, simpleLinkAdder);
 		}
 		//Add all complex links.
-		for (Node subNode : subNodeStructure.getNodes()) {
-			// Get the potential complex links for every node present in the subgraph
-			Map<Linkable, Link> sinks = getConnectedSinks(subNode);
-			for (Linkable l : sinks.keySet()) {
+		ConnectionVisitor<Linkable> complexLinkAdder = new ConnectionVisitor<Linkable>() {
+			@Override
+			public void visit(Linkable sink, Link link) {
 				//If Linkable is a link and the sub graph contains it then there is a complex link to add. 
-				if ((l instanceof Link) && subNodeStructure.containsLinkable(l)){
-					subNodeStructure.addLink(sinks.get(l), sinks.get(l).getFactoryType());
+				if ((sink instanceof Link) && subNodeStructure.containsLinkable(sink)){
+					subNodeStructure.addLink(link, link.getFactoryType());
 				}
 			}
+		};
+		for (Node subNode : subNodeStructure.getNodes()) {
+			// Visit the potential complex links for every node present in the subgraph
+			ns.forEachSink(subNode, complexLinkAdder);
 		}
 		return subNodeStructure;
 	}
 		
 	/*
-	 * @param currentNode One specified node that be considered as neighbor nodes
-	 * or specified nodes in sub NodeStructure 
-	 * @param step The distance between specified nodes and this current Node
-	 * @param distanceLeftToGo The farthest distance between specified nodes and
-	 * its neighbor nodes
-	 * @param subNodeStructure Nodes contained in subNodeStructure. 
-	 * @param threshold Lower bound of Node's activation
-	 * It involves specified nodes and all neighbor nodes whose distance
-	 * from one of specified nodes is not bigger than farthest distance 
-	 * coming from arguments, and those nodes' activation is not lower than threshold.
-	 * Also it involves all links between these above nodes.
+	 * Adds the Nodes reached from specified Nodes to a sub NodeStructure,
+	 * visiting the sinks and sources of each Node reached.
 	 */
-	private void depthFirstSearch(Node currentNode, int distanceLeftToGo, 
-			NodeStructure subNodeStructure, double threshold) {
-		Node actual = getNode(currentNode.getId());
-		if (actual != null && (actual.getActivation() >= threshold)){
-			subNodeStructure.addNode(actual, actual.getFactoryType());
-			//Get all connected Sinks
-			Map<Linkable, Link> subSinks = getConnectedSinks(actual);
-			Set<Linkable> subLinkables = subSinks.keySet();
-			for (Linkable l : subLinkables) {
-				if (l instanceof Node && 0 < distanceLeftToGo){
-					depthFirstSearch((Node)l, distanceLeftToGo - 1, subNodeStructure, threshold);
+	private static class SubgraphSearch implements ConnectionVisitor<Linkable> {
+
+		private final NodeStructure ns;
+		private final NodeStructure subNodeStructure;
+		private final double threshold;
+
+		/*
+		 * Distance left to go from the Node being visited
+		 */
+		private int distanceLeftToGo;
+
+		SubgraphSearch(NodeStructure ns, NodeStructure subNodeStructure,
+				double threshold) {
+			this.ns = ns;
+			this.subNodeStructure = subNodeStructure;
+			this.threshold = threshold;
+		}
+
+		/*
+		 * @param currentNode One specified node that be considered as neighbor nodes
+		 * or specified nodes in sub NodeStructure 
+		 * @param distance The farthest distance between specified nodes and
+		 * its neighbor nodes
+		 * It involves specified nodes and all neighbor nodes whose distance
+		 * from one of specified nodes is not bigger than farthest distance 
+		 * coming from arguments, and those nodes' activation is not lower than threshold.
+		 * Also it involves all links between these above nodes.
+		 */
+		void depthFirstSearch(Node currentNode, int distance) {
+			Node actual = ns.getNode(currentNode.getId());
+			if (actual != null && (actual.getActivation() >= threshold)){
+				subNodeStructure.addNode(actual, actual.getFactoryType());
+				if (0 < distance) {
+					int saved = distanceLeftToGo;
+					distanceLeftToGo = distance - 1;
+					//Visit all connected Sinks and Sources
+					ns.forEachSink(actual, this);
+					ns.forEachSource(actual, this);
+					distanceLeftToGo = saved;
 				}
 			}
-			//Get all connected Sources
-			Map<Node, Link> subSources = getConnectedSources(actual);
-			Set<Node> parentNodes = subSources.keySet();
-			for (Node n : parentNodes) {
-				if (0 < distanceLeftToGo){
-					depthFirstSearch(n, distanceLeftToGo - 1, subNodeStructure, threshold);
-				}
+		}
+
+		@Override
+		public void visit(Linkable connected, Link link) {
+			if (connected instanceof Node) {
+				depthFirstSearch((Node) connected, distanceLeftToGo);
 			}
 		}
 	}
@@ -0,0 +1,483 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2011 The University of Memphis.  All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the LIDA Software Framework Non-Commercial License v1.0 
+ * which accompanies this distribution, and is available at
+ * http://ccrg.cs.memphis.edu/assets/papers/2010/LIDA-framework-non-commercial-v1.0.pdf
+ *******************************************************************************/
+package edu.memphis.ccrg.lida.framework.shared;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable map from {@link ExtendedId}s to values, kept in a hash array
+ * mapped trie over {@link ExtendedId#longHash()}. Adding or removing an entry
+ * returns a new map sharing all the trie except the path to that entry, so
+ * that older maps stay valid and unchanged. Each level of the trie consumes 5
+ * bits of the hash; ids whose hashes agree on the first 60 bits share a list.
+ * <br/>
+ * Node and link ids can be looked up without creating them, as in
+ * {@link ConcurrentLinkMap}.
+ *
+ * @author agent
+ *
+ * @param <V>
+ *            the type of the values
+ */
+public final class PersistentIdMap<V> {
+
+	private static final int BITS = 5;
+	private static final int MASK = (1 << BITS) - 1;
+	private static final int MAX_SHIFT = 60;
+
+	/*
+	 * Deepest path: 12 levels of bitmap nodes and a list
+	 */
+	private static final int MAX_DEPTH = MAX_SHIFT / BITS + 1;
+
+	private static final PersistentIdMap<Object> EMPTY = new PersistentIdMap<Object>(
+			null, 0);
+
+	private static final class Entry {
+		final ExtendedId key;
+		final long hash;
+		final Object value;
+
+		Entry(ExtendedId key, Object value) {
+			this.key = key;
+			this.hash = key.longHash();
+			this.value = value;
+		}
+	}
+
+	/*
+	 * Inner node holding a slot, an Entry or a child, for each bit set in
+	 * its bitmap
+	 */
+	private static final class Bitmap {
+		final int bitmap;
+		final Object[] slots;
+
+		Bitmap(int bitmap, Object[] slots) {
+			this.bitmap = bitmap;
+			this.slots = slots;
+		}
+
+		Bitmap inserted(int bit, int index, Object o) {
+			Object[] s = new Object[slots.length + 1];
+			System.arraycopy(slots, 0, s, 0, index);
+			s[index] = o;
+			System.arraycopy(slots, index, s, index + 1, slots.length - index);
+			return new Bitmap(bitmap | bit, s);
+		}
+
+		Bitmap replaced(int index, Object o) {
+			Object[] s = slots.clone();
+			s[index] = o;
+			return new Bitmap(bitmap, s);
+		}
+
+		Bitmap removed(int bit, int index) {
+			Object[] s = new Object[slots.length - 1];
+			System.arraycopy(slots, 0, s, 0, index);
+			System.arraycopy(slots, index + 1, s, index, s.length - index);
+			return new Bitmap(bitmap & ~bit, s);
+		}
+	}
+
+	/*
+	 * Entries whose hashes agree on all the bits used by the trie
+	 */
+	private static final class Collision {
+		final Object[] entries;
+
+		Collision(Object[] entries) {
+			this.entries = entries;
+		}
+	}
+
+	private final Bitmap root;
+	private final int size;
+	private Collection<V> values;
+
+	private PersistentIdMap(Bitmap root, int size) {
+		this.root = root;
+		this.size = size;
+	}
+
+	/**
+	 * @param <V>
+	 *            the type of the values
+	 * @return the empty map
+	 */
+	@SuppressWarnings("unchecked")
+	public static <V> PersistentIdMap<V> empty() {
+		return (PersistentIdMap<V>) EMPTY;
+	}
+
+	private static int bit(long hash, int shift) {
+		return 1 << ((int) (hash >>> shift) & MASK);
+	}
+
+	private static int index(int bitmap, int bit) {
+		return Integer.bitCount(bitmap & (bit - 1));
+	}
+
+	/*
+	 * Returns the Entry or Collision where an id of specified hash would be
+	 */
+	private Object find(long hash) {
+		Object node = root;
+		int shift = 0;
+		while (node instanceof Bitmap) {
+			Bitmap b = (Bitmap) node;
+			int bit = bit(hash, shift);
+			if ((b.bitmap & bit) == 0) {
+				return null;
+			}
+			node = b.slots[index(b.bitmap, bit)];
+			shift += BITS;
+		}
+		return node;
+	}
+
+	/*
+	 * Returns the Entry of id, or of the node id, or of the link id, when
+	 * id, or sinkId, is null
+	 */
+	private Entry find(long hash, ExtendedId id, int sourceId,
+			ExtendedId sinkId, int categoryId) {
+		Object o = find(hash);
+		if (o instanceof Entry) {
+			Entry e = (Entry) o;
+			return matches(e.key, id, sourceId, sinkId, categoryId) ? e : null;
+		}
+		if (o instanceof Collision) {
+			for (Object c : ((Collision) o).entries) {
+				Entry e = (Entry) c;
+				if (matches(e.key, id, sourceId, sinkId, categoryId)) {
+					return e;
+				}
+			}
+		}
+		return null;
+	}
+
+	private static boolean matches(ExtendedId key, ExtendedId id,
+			int sourceId, ExtendedId sinkId, int categoryId) {
+		if (id != null) {
+			return key.equals(id);
+		}
+		if (sinkId == null) {
+			return key.isNodeId(sourceId);
+		}
+		return key.isLinkId(sourceId, sinkId, categoryId);
+	}
+
+	/**
+	 * @param id
+	 *            an id
+	 * @return the value of specified id or null
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(ExtendedId id) {
+		if (id == null) {
+			return null;
+		}
+		Entry e = find(id.longHash(), id, 0, null, 0);
+		return (e == null) ? null : (V) e.value;
+	}
+
+	/**
+	 * Returns the value of the id of the node with specified id, without
+	 * creating that id.
+	 *
+	 * @param nodeId
+	 *            node's id
+	 * @return the value or null
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(int nodeId) {
+		Entry e = find(ExtendedId.nodeHash(nodeId), null, nodeId, null, 0);
+		return (e == null) ? null : (V) e.value;
+	}
+
+	/**
+	 * Returns the value of the id of the link with specified source, sink and
+	 * category, without creating that id.
+	 *
+	 * @param sourceId
+	 *            link's source id
+	 * @param sinkId
+	 *            link's sink id
+	 * @param categoryId
+	 *            link's category id
+	 * @return the value or null
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(int sourceId, ExtendedId sinkId, int categoryId) {
+		if (sinkId == null) {
+			return null;
+		}
+		Entry e = find(ExtendedId.linkHash(sourceId, sinkId, categoryId),
+				null, sourceId, sinkId, categoryId);
+		return (e == null) ? null : (V) e.value;
+	}
+
+	/**
+	 * @param id
+	 *            an id
+	 * @return true if this map contains specified id
+	 */
+	public boolean containsKey(ExtendedId id) {
+		return get(id) != null;
+	}
+
+	/**
+	 * Returns a map with the entries of this map, where specified id is
+	 * mapped to specified value.
+	 *
+	 * @param id
+	 *            the id
+	 * @param value
+	 *            the value, not null
+	 * @return the new map, or this map if it already maps id to value
+	 */
+	public PersistentIdMap<V> plus(ExtendedId id, V value) {
+		if (value == null) {
+			throw new NullPointerException();
+		}
+		Entry old = find(id.longHash(), id, 0, null, 0);
+		if (old != null && old.value == value) {
+			return this;
+		}
+		Entry e = new Entry(id, value);
+		Bitmap r = (root == null) ? new Bitmap(0, new Object[0]) : root;
+		return new PersistentIdMap<V>((Bitmap) put(r, 0, e),
+				(old == null) ? size + 1 : size);
+	}
+
+	private static Object put(Object node, int shift, Entry e) {
+		if (node instanceof Collision) {
+			Object[] entries = ((Collision) node).entries;
+			for (int i = 0; i < entries.length; i++) {
+				if (((Entry) entries[i]).key.equals(e.key)) {
+					Object[] s = entries.clone();
+					s[i] = e;
+					return new Collision(s);
+				}
+			}
+			Object[] s = new Object[entries.length + 1];
+			System.arraycopy(entries, 0, s, 0, entries.length);
+			s[entries.length] = e;
+			return new Collision(s);
+		}
+		Bitmap b = (Bitmap) node;
+		int bit = bit(e.hash, shift);
+		int i = index(b.bitmap, bit);
+		if ((b.bitmap & bit) == 0) {
+			return b.inserted(bit, i, e);
+		}
+		Object child = b.slots[i];
+		if (child instanceof Entry) {
+			Entry c = (Entry) child;
+			if (c.key.equals(e.key)) {
+				return b.replaced(i, e);
+			}
+			return b.replaced(i, pair(c, e, shift + BITS));
+		}
+		return b.replaced(i, put(child, shift + BITS, e));
+	}
+
+	/*
+	 * Returns a subtrie holding two entries of different ids
+	 */
+	private static Object pair(Entry a, Entry b, int shift) {
+		if (shift >= MAX_SHIFT) {
+			return new Collision(new Object[] { a, b });
+		}
+		int ia = (int) (a.hash >>> shift) & MASK;
+		int ib = (int) (b.hash >>> shift) & MASK;
+		if (ia == ib) {
+			return new Bitmap(1 << ia, new Object[] { pair(a, b, shift + BITS) });
+		}
+		Object[] slots = (ia < ib) ? new Object[] { a, b } : new Object[] { b, a };
+		return new Bitmap((1 << ia) | (1 << ib), slots);
+	}
+
+	/**
+	 * Returns a map with the entries of this map except the one of specified
+	 * id.
+	 *
+	 * @param id
+	 *            the id
+	 * @return the new map, or this map if it does not contain id
+	 */
+	public PersistentIdMap<V> minus(ExtendedId id) {
+		if (id == null || root == null) {
+			return this;
+		}
+		Object r = remove(root, 0, id, id.longHash());
+		if (r == root) {
+			return this;
+		}
+		if (r == null) {
+			return empty();
+		}
+		return new PersistentIdMap<V>((Bitmap) r, size - 1);
+	}
+
+	/*
+	 * Returns the node without the entry of id, the same node if it does not
+	 * hold it, null if it becomes empty, or its only Entry left, which is
+	 * then moved up, below the root.
+	 */
+	private static Object remove(Object node, int shift, ExtendedId id,
+			long hash) {
+		if (node instanceof Collision) {
+			Object[] entries = ((Collision) node).entries;
+			for (int i = 0; i < entries.length; i++) {
+				if (((Entry) entries[i]).key.equals(id)) {
+					if (entries.length == 2) {
+						return entries[1 - i];
+					}
+					Object[] s = new Object[entries.length - 1];
+					System.arraycopy(entries, 0, s, 0, i);
+					System.arraycopy(entries, i + 1, s, i, s.length - i);
+					return new Collision(s);
+				}
+			}
+			return node;
+		}
+		Bitmap b = (Bitmap) node;
+		int bit = bit(hash, shift);
+		if ((b.bitmap & bit) == 0) {
+			return b;
+		}
+		int i = index(b.bitmap, bit);
+		Object child = b.slots[i];
+		Object newChild;
+		if (child instanceof Entry) {
+			newChild = ((Entry) child).key.equals(id) ? null : child;
+		} else {
+			newChild = remove(child, shift + BITS, id, hash);
+		}
+		if (newChild == child) {
+			return b;
+		}
+		if (newChild == null) {
+			if (b.slots.length == 1) {
+				return null;
+			}
+			if (b.slots.length == 2 && shift > 0
+					&& b.slots[1 - i] instanceof Entry) {
+				return b.slots[1 - i];
+			}
+			return b.removed(bit, i);
+		}
+		if (b.slots.length == 1 && shift > 0 && newChild instanceof Entry) {
+			return newChild;
+		}
+		return b.replaced(i, newChild);
+	}
+
+	/**
+	 * @return the number of entries
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return true if this map has no entries
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns an unmodifiable view of the values of this map.
+	 *
+	 * @return the values
+	 */
+	public Collection<V> values() {
+		if (values == null) {
+			values = new AbstractCollection<V>() {
+				@Override
+				public Iterator<V> iterator() {
+					return new ValueIterator<V>(root);
+				}
+
+				@Override
+				public int size() {
+					return size;
+				}
+			};
+		}
+		return values;
+	}
+
+	/*
+	 * Walks the trie depth first with an explicit stack
+	 */
+	private static class ValueIterator<V> implements Iterator<V> {
+
+		private final Object[][] stack = new Object[MAX_DEPTH + 1][];
+		private final int[] positions = new int[MAX_DEPTH + 1];
+		private int depth;
+		private Entry next;
+
+		ValueIterator(Bitmap root) {
+			if (root == null) {
+				depth = -1;
+			} else {
+				stack[0] = root.slots;
+			}
+			advance();
+		}
+
+		private void advance() {
+			next = null;
+			while (depth >= 0) {
+				Object[] slots = stack[depth];
+				if (positions[depth] == slots.length) {
+					depth--;
+					continue;
+				}
+				Object o = slots[positions[depth]++];
+				if (o instanceof Entry) {
+					next = (Entry) o;
+					return;
+				}
+				depth++;
+				stack[depth] = (o instanceof Bitmap) ? ((Bitmap) o).slots
+						: ((Collision) o).entries;
+				positions[depth] = 0;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public V next() {
+			if (next == null) {
+				throw new NoSuchElementException();
+			}
+			V v = (V) next.value;
+			advance();
+			return v;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
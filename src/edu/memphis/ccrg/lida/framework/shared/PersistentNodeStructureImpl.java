@@ -0,0 +1,927 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2011 The University of Memphis.  All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the LIDA Software Framework Non-Commercial License v1.0 
+ * which accompanies this distribution, and is available at
+ * http://ccrg.cs.memphis.edu/assets/papers/2010/LIDA-framework-non-commercial-v1.0.pdf
+ *******************************************************************************/
+package edu.memphis.ccrg.lida.framework.shared;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import edu.memphis.ccrg.lida.framework.shared.activation.Activatible;
+import edu.memphis.ccrg.lida.framework.tasks.TaskManager;
+import edu.memphis.ccrg.lida.globalworkspace.BroadcastContent;
+import edu.memphis.ccrg.lida.pam.PamLink;
+import edu.memphis.ccrg.lida.workspace.WorkspaceContent;
+
+/**
+ * A {@link NodeStructure} whose nodes, links and attached links are kept in
+ * persistent {@link PersistentIdMap}s. {@link #copy()} takes constant time:
+ * the copy shares the maps with the original, and later modifications of
+ * either one replace only the paths of the maps they change.
+ * <br/>
+ * Nodes and Links are shared the same way. Each NodeStructure copies a shared
+ * Node or Link, and the Links attached to it, the first time it modifies it,
+ * e.g. when decaying it. Nodes and Links obtained from this NodeStructure may
+ * be shared with its copies and should only be modified through it.
+ * <br/>
+ * Modifications are synchronized. Reads take no lock and see the contents
+ * as of the last completed modification.
+ *
+ * @author agent
+ * @see UnmodifiableNodeStructureImpl
+ */
+public class PersistentNodeStructureImpl implements NodeStructure,
+		BroadcastContent, WorkspaceContent {
+
+	private static final Logger logger = Logger
+			.getLogger(PersistentNodeStructureImpl.class.getCanonicalName());
+
+	private static ElementFactory factory = ElementFactory.getInstance();
+
+	/*
+	 * Contents of a PersistentNodeStructureImpl, replaced as a whole by each
+	 * modification
+	 */
+	private static final class Contents {
+		final PersistentIdMap<Node> nodes;
+		final PersistentIdMap<Link> links;
+
+		/*
+		 * Links of each Linkable having some, by Linkable id
+		 */
+		final PersistentIdMap<PersistentIdMap<Link>> attached;
+
+		Contents(PersistentIdMap<Node> nodes, PersistentIdMap<Link> links,
+				PersistentIdMap<PersistentIdMap<Link>> attached) {
+			this.nodes = nodes;
+			this.links = links;
+			this.attached = attached;
+		}
+	}
+
+	private static final Contents EMPTY = new Contents(
+			PersistentIdMap.<Node> empty(), PersistentIdMap.<Link> empty(),
+			PersistentIdMap.<PersistentIdMap<Link>> empty());
+
+	private volatile Contents contents = EMPTY;
+
+	/*
+	 * Nodes and Links created by this NodeStructure since it was last copied,
+	 * which no copy shares and which can be modified in place
+	 */
+	private Set<Linkable> owned = newOwnedSet();
+
+	private String defaultNodeType;
+	private String defaultLinkType;
+
+	/**
+	 * Default constructor. Uses the default node and link types of the factory
+	 */
+	public PersistentNodeStructureImpl() {
+		defaultNodeType = factory.getDefaultNodeType();
+		defaultLinkType = factory.getDefaultLinkType();
+	}
+
+	/**
+	 * Creates a new PersistentNodeStructureImpl with specified default Node
+	 * type and link Type.
+	 *
+	 * @param nodeType
+	 *            kind of node used in this NodeStructure
+	 * @param linkType
+	 *            kind of link used in this NodeStructure
+	 * @see NodeStructureImpl#NodeStructureImpl(String, String)
+	 */
+	public PersistentNodeStructureImpl(String nodeType, String linkType) {
+		this();
+		if (factory.containsNodeType(nodeType)) {
+			defaultNodeType = nodeType;
+		} else {
+			logger.log(Level.SEVERE, "Unsupported Node type: {1}",
+					new Object[]{TaskManager.getCurrentTick(),nodeType});
+			throw new IllegalArgumentException();
+		}
+		if (factory.containsLinkType(linkType)) {
+			defaultLinkType = linkType;
+		} else {
+			logger.log(Level.SEVERE, "Unsupported Link type: {1}",
+					new Object[]{TaskManager.getCurrentTick(),linkType});
+			throw new IllegalArgumentException();
+		}
+	}
+
+	/**
+	 * Copy constructor. If the original is a PersistentNodeStructureImpl,
+	 * possibly wrapped in an {@link UnmodifiableNodeStructureImpl}, the copy
+	 * shares its contents and takes constant time. Otherwise the Nodes and
+	 * Links of the original are copied.
+	 *
+	 * @param ns
+	 *            original NodeStructure
+	 * @see #mergeWith(NodeStructure)
+	 */
+	public PersistentNodeStructureImpl(NodeStructure ns) {
+		this(ns.getDefaultNodeType(), ns.getDefaultLinkType());
+		NodeStructure src = ns;
+		if (src instanceof UnmodifiableNodeStructureImpl) {
+			src = ((UnmodifiableNodeStructureImpl) src).getNodeStructure();
+		}
+		if (src instanceof PersistentNodeStructureImpl) {
+			contents = ((PersistentNodeStructureImpl) src).share();
+		} else {
+			mergeWith(src);
+		}
+	}
+
+	private static Set<Linkable> newOwnedSet() {
+		return Collections.newSetFromMap(new IdentityHashMap<Linkable, Boolean>());
+	}
+
+	/*
+	 * Returns the contents for a copy. Nodes and Links are shared from now on.
+	 */
+	private synchronized Contents share() {
+		if (!owned.isEmpty()) {
+			owned = newOwnedSet();
+		}
+		return contents;
+	}
+
+	@Override
+	public NodeStructure copy() {
+		return new PersistentNodeStructureImpl(this);
+	}
+
+	@Override
+	public Node addDefaultNode(Node n) {
+		return addNode(n, defaultNodeType);
+	}
+
+	@Override
+	public Collection<Node> addDefaultNodes(Collection<Node> nodes) {
+		if (nodes == null) {
+			logger.log(Level.WARNING,
+					"Cannot add nodes. Node collection is null", TaskManager
+							.getCurrentTick());
+			return null;
+		}
+		Collection<Node> storedNodes = new ArrayList<Node>();
+		for (Node n : nodes) {
+			if(n == null){
+				continue;
+			}
+			Node stored = addNode(n, defaultNodeType);
+			storedNodes.add(stored);
+		}
+		return storedNodes;
+	}
+
+	@Override
+	public synchronized Node addNode(Node n, String type) {
+		if (n == null) {
+			logger.log(Level.WARNING, "Cannot add null Node.", TaskManager
+					.getCurrentTick());
+			return null;
+		}
+		if (!factory.containsNodeType(type)) {
+			logger.log(Level.WARNING,
+							"Factory does not contain node type {1}. Check that type is defined in factoryData.xml. Node {2} not added",
+							new Object[]{TaskManager.getCurrentTick(),type,n});
+			return null;
+		}
+		Node node = contents.nodes.get(n.getId());
+		if (node == null) {
+			node = factory.getNode(defaultNodeType, n, type);
+			if (node != null) {
+				storeNode(node);
+			} else {
+				logger.log(Level.WARNING, "Could not create new node of type: {1} ",
+						new Object[]{TaskManager.getCurrentTick(),type});
+			}
+		} else if(type.equals(node.getFactoryType())){
+			node = own(node);
+			if (node.getActivation() < n.getActivation()) {
+				node.setActivation(n.getActivation());
+			}
+			node.updateNodeValues(n);
+		} else {
+			logger.log(Level.WARNING, "Cannot add Node {1} of type {2} because another Node {3} having a different type {4} and the same id is already present. Existing Node returned.",
+						new Object[]{TaskManager.getCurrentTick(),n,type,node,node.getFactoryType()});
+			node = null;
+		}
+		return node;
+	}
+
+	@Override
+	public Node addDefaultNode(String label, double a, double rt) {
+		return addNode(defaultNodeType, label, a, rt);
+	}
+
+	@Override
+	public synchronized Node addNode(String type, String label, double a,
+			double rt) {
+		Node n = factory.getNode(defaultNodeType, null, type);
+		if(n != null){
+			n.setLabel(label);
+			n.setActivation(a);
+			n.setActivatibleRemovalThreshold(rt);
+			storeNode(n);
+		}
+		return n;
+	}
+
+	@Override
+	public Link addDefaultLink(Link l) {
+		return addLink(l, defaultLinkType);
+	}
+
+	@Override
+	public Collection<Link> addDefaultLinks(Collection<Link> links) {
+		if (links == null) {
+			logger.log(Level.WARNING,
+					"Cannot add links. Link collection is null", TaskManager
+							.getCurrentTick());
+			return null;
+		}
+		Collection<Link> storedLinks = new ArrayList<Link>();
+		// Add simple links
+		for (Link l : links) {
+			if (l != null && l.isSimpleLink()) {
+				Link addedLink = addDefaultLink(l);
+				if(addedLink != null){
+					storedLinks.add(addedLink);
+				}
+			}
+		}
+		// Add complex links
+		for (Link l : links) {
+			if (l != null && !l.isSimpleLink()) {
+				Link addedLink = addDefaultLink(l);
+				if(addedLink != null){
+					storedLinks.add(addedLink);
+				}
+			}
+		}
+		return storedLinks;
+	}
+
+	@Override
+	public synchronized Link addLink(Link l, String type) {
+		if (!factory.containsLinkType(type)) {
+			logger.log(Level.WARNING,
+							"Cannot add link {1} of type {2} because factory does not contain that Link type. Check that type is defined in factoryData xml file.",
+							new Object[]{TaskManager.getCurrentTick(),l,type});
+			return null;
+		}
+		if (!NodeStructureImpl.isLinkValid(this, l)) {
+			return null;
+		}
+		double newActivation = l.getActivation();
+		Link link = contents.links.get(l.getExtendedId());
+		if (link == null) {
+			Node newSource = getNode(l.getSource().getId());
+			Linkable newSink = getLinkable(l.getSink().getExtendedId());
+			link = newLink(l, type, newSource, newSink, l.getCategory(),
+					newActivation, l.getActivatibleRemovalThreshold(),
+					l.getGroundingPamLink());
+		} else if(type.equals(link.getFactoryType())){
+			link = own(link);
+			if(newActivation > link.getActivation()){
+				link.setActivation(newActivation);
+			}
+			link.updateLinkValues(l);
+		}else {
+			logger.log(Level.WARNING, "Cannot add Link {1} of type {2} because another Link {3} having a different type {4} and the same id is already present. Existing Link returned.",
+					new Object[]{TaskManager.getCurrentTick(),l,type,link,link.getFactoryType()});
+			link = null;
+		}
+		return link;
+	}
+
+	@Override
+	public Link addDefaultLink(Node source, Linkable sink,
+			LinkCategory category, double activation, double removalThreshold) {
+		return addLink(defaultLinkType, source, sink, category, activation,
+				removalThreshold);
+	}
+
+	@Override
+	public Link addDefaultLink(int sourceId, ExtendedId sinkId,
+			LinkCategory category, double activation, double removalThreshold) {
+		return addLink(defaultLinkType, sourceId, sinkId, category,
+				activation, removalThreshold);
+	}
+
+	@Override
+	public Link addDefaultLink(int sourceId, int sinkId, LinkCategory cat,
+			double activation, double removalThreshold) {
+		Node sink = getNode(sinkId);
+		ExtendedId sinkEid = (sink == null)? new ExtendedId(sinkId) : sink.getExtendedId();
+		return addLink(defaultLinkType, sourceId, sinkEid, cat, activation,
+				removalThreshold);
+	}
+
+	@Override
+	public Link addLink(String type, Node src, Linkable sink,
+			LinkCategory cat, double a, double rt) {
+		if(src == null){
+			logger.log(Level.WARNING,
+					"Cannot add link because source is null", TaskManager
+							.getCurrentTick());
+			return null;
+		}
+		if(sink == null){
+			logger.log(Level.WARNING,
+					"Cannot add link because sink is null", TaskManager
+							.getCurrentTick());
+			return null;
+		}
+		return addLink(type, src.getId(), sink.getExtendedId(), cat, a, rt);
+	}
+
+	@Override
+	public synchronized Link addLink(String type, int srcId,
+			ExtendedId snkId, LinkCategory cat, double a, double rt) {
+		if (!factory.containsLinkType(type)) {
+			logger.log(Level.WARNING,
+							"Cannot add link of type {1} because factory does not contain that Link type. Check that type is defined in factoryData xml file.",
+							new Object[]{TaskManager.getCurrentTick(),type});
+			return null;
+		}
+		if(cat == null){
+			logger.log(Level.WARNING,
+					"Cannot add new link because category is null.",TaskManager.getCurrentTick());
+			return null;
+		}
+		if(!NodeStructureImpl.isConnectionValid(this, srcId, snkId)){
+			return null;
+		}
+		Link link = getLink(srcId, snkId, cat.getId());
+		if (link == null) {
+			link = newLink(null, type, getNode(srcId), getLinkable(snkId),
+					cat, a, rt, null);
+		}else if(type.equals(link.getFactoryType())){
+			if(a > link.getActivation()){
+				link = own(link);
+				link.setActivation(a);
+			}
+		}else{
+			logger.log(Level.WARNING, "Cannot add new Link of type {2} because another Link {3} having a different type {4} and the same id is already present. Existing Link returned.",
+					new Object[]{TaskManager.getCurrentTick(),type,link,link.getFactoryType()});
+			link = null;
+		}
+		return link;
+	}
+
+	/*
+	 * Creates and stores a new Link with specified type and values.
+	 */
+	private Link newLink(Link oLink, String linkType, Node source,
+			Linkable sink, LinkCategory category, double activation,
+			double removalThreshold, PamLink groundingPamLink) {
+		Link link = factory.getLink(defaultLinkType, linkType, source, sink,
+				category);
+		if (link == null) {
+			logger.log(Level.WARNING, "Could not create new link of type: {1} ",
+					new Object[]{TaskManager.getCurrentTick(),linkType});
+			return null;
+		}
+		if (oLink != null) {
+			link.updateLinkValues(oLink);
+		}
+		link.setActivation(activation);
+		link.setActivatibleRemovalThreshold(removalThreshold);
+		if(groundingPamLink != null){
+			link.setGroundingPamLink(groundingPamLink);
+		}
+		storeLink(link);
+		return link;
+	}
+
+	private void storeNode(Node n) {
+		Contents c = contents;
+		contents = new Contents(c.nodes.plus(n.getExtendedId(), n), c.links,
+				c.attached);
+		owned.add(n);
+	}
+
+	/*
+	 * Stores a Link, new or replacing a copy, and records it as a Link of
+	 * its source and sink.
+	 */
+	private void storeLink(Link l) {
+		Contents c = contents;
+		ExtendedId id = l.getExtendedId();
+		PersistentIdMap<PersistentIdMap<Link>> attached = attach(c.attached,
+				l.getSource().getExtendedId(), l);
+		attached = attach(attached, l.getSink().getExtendedId(), l);
+		contents = new Contents(c.nodes, c.links.plus(id, l), attached);
+		owned.add(l);
+	}
+
+	private static PersistentIdMap<PersistentIdMap<Link>> attach(
+			PersistentIdMap<PersistentIdMap<Link>> attached, ExtendedId id,
+			Link l) {
+		PersistentIdMap<Link> links = attached.get(id);
+		if (links == null) {
+			links = PersistentIdMap.empty();
+		}
+		return attached.plus(id, links.plus(l.getExtendedId(), l));
+	}
+
+	private static PersistentIdMap<PersistentIdMap<Link>> detach(
+			PersistentIdMap<PersistentIdMap<Link>> attached, ExtendedId id,
+			Link l) {
+		PersistentIdMap<Link> links = attached.get(id);
+		if (links == null) {
+			return attached;
+		}
+		links = links.minus(l.getExtendedId());
+		return links.isEmpty() ? attached.minus(id) : attached.plus(id, links);
+	}
+
+	/*
+	 * Returns specified Node or Link of this NodeStructure, or a copy of it
+	 * replacing it if it may be shared. Links attached to a replaced Linkable
+	 * are updated to the copy, and copied first if they may be shared.
+	 */
+	@SuppressWarnings("unchecked")
+	private <T extends Linkable> T own(T linkable) {
+		if (owned.contains(linkable)) {
+			return linkable;
+		}
+		Linkable copy;
+		if (linkable instanceof Node) {
+			Node n = (Node) linkable;
+			copy = factory.getNode(defaultNodeType, n, n.getFactoryType());
+			if (copy == null) {
+				return linkable;
+			}
+			storeNode((Node) copy);
+		} else {
+			Link l = (Link) linkable;
+			Link c = factory.getLink(defaultLinkType, l.getFactoryType(),
+					getNode(l.getSource().getId()),
+					getLinkable(l.getSink().getExtendedId()), l.getCategory());
+			if (c == null) {
+				return linkable;
+			}
+			c.updateLinkValues(l);
+			c.setActivation(l.getActivation());
+			c.setActivatibleRemovalThreshold(l.getActivatibleRemovalThreshold());
+			if (l.getGroundingPamLink() != null) {
+				c.setGroundingPamLink(l.getGroundingPamLink());
+			}
+			storeLink(c);
+			copy = c;
+		}
+		PersistentIdMap<Link> attached = contents.attached.get(copy.getExtendedId());
+		if (attached != null) {
+			for (Link a : attached.values()) {
+				Link updated = own(a);
+				if (updated.getSource().equals(copy)) {
+					updated.setSource((Node) copy);
+				} else {
+					updated.setSink(copy);
+				}
+				storeLink(updated);
+			}
+		}
+		return (T) copy;
+	}
+
+	@Override
+	public void removeNode(Node n) {
+		removeLinkable(n);
+	}
+
+	@Override
+	public void removeLink(Link l) {
+		removeLinkable(l);
+	}
+
+	@Override
+	public void removeLinkable(Linkable l) {
+		if (l != null) {
+			removeLinkable(l.getExtendedId());
+		}
+	}
+
+	@Override
+	public synchronized void removeLinkable(ExtendedId id) {
+		if (!containsLinkable(id)) {
+			return;
+		}
+		contents = remove(contents, id);
+	}
+
+	/*
+	 * Returns the contents without the Linkable of specified id and the Links
+	 * attached to it.
+	 */
+	private Contents remove(Contents c, ExtendedId id) {
+		PersistentIdMap<Link> attached = c.attached.get(id);
+		if (attached != null) {
+			for (Link l : attached.values()) {
+				c = remove(c, l.getExtendedId());
+			}
+		}
+		if (id.isNodeId()) {
+			Node n = c.nodes.get(id);
+			if (n == null) {
+				return c;
+			}
+			owned.remove(n);
+			return new Contents(c.nodes.minus(id), c.links, c.attached.minus(id));
+		}
+		Link l = c.links.get(id);
+		if (l == null) {
+			return c;
+		}
+		owned.remove(l);
+		PersistentIdMap<PersistentIdMap<Link>> a = detach(c.attached.minus(id),
+				l.getSource().getExtendedId(), l);
+		a = detach(a, l.getSink().getExtendedId(), l);
+		return new Contents(c.nodes, c.links.minus(id), a);
+	}
+
+	@Override
+	public synchronized void clearLinks() {
+		Contents c = contents;
+		for (Link l : c.links.values()) {
+			owned.remove(l);
+		}
+		contents = new Contents(c.nodes, EMPTY.links, EMPTY.attached);
+	}
+
+	@Override
+	public synchronized void clearNodeStructure() {
+		owned = newOwnedSet();
+		contents = EMPTY;
+	}
+
+	@Override
+	public void mergeWith(NodeStructure ns) {
+		if (ns == null) {
+			logger.log(Level.WARNING, "Cannot merge with null", TaskManager
+					.getCurrentTick());
+			return;
+		}
+		for(Node n: ns.getNodes()){
+			addNode(n, n.getFactoryType());
+		}
+		Collection<Link> cl = ns.getLinks();
+		// Add simple links
+		for (Link l : cl) {
+			if (l.isSimpleLink()) {
+				addLink(l,l.getFactoryType());
+			}
+		}
+		// Add complex links
+		for (Link l : cl) {
+			if (l.isSimpleLink() == false) {
+				addLink(l,l.getFactoryType());
+			}
+		}
+	}
+
+	/**
+	 * Decays the Nodes and Links of this NodeStructure that are not at rest,
+	 * copying those that may be shared first, and removes those that become
+	 * removable.
+	 */
+	@Override
+	public synchronized void decayNodeStructure(long ticks) {
+		Contents c = contents;
+		for (Node n : c.nodes.values()) {
+			decay(n.getExtendedId(), ticks);
+		}
+		for (Link l : c.links.values()) {
+			decay(l.getExtendedId(), ticks);
+		}
+	}
+
+	private void decay(ExtendedId id, long ticks) {
+		Linkable l = getLinkable(id);
+		if (l == null) {
+			return;
+		}
+		if (!NodeStructureImpl.isAtRest((Activatible) l)) {
+			l = own(l);
+			((Activatible) l).decay(ticks);
+		}
+		if (((Activatible) l).isRemovable()) {
+			contents = remove(contents, id);
+		}
+	}
+
+	@Override
+	public boolean containsNode(Node n) {
+		return (n == null)? false : containsNode(n.getId());
+	}
+
+	@Override
+	public boolean containsNode(int id) {
+		return contents.nodes.get(id) != null;
+	}
+
+	@Override
+	public boolean containsNode(ExtendedId id) {
+		return (id == null)? false : id.isNodeId() && contents.nodes.containsKey(id);
+	}
+
+	@Override
+	public boolean containsLink(Link l) {
+		return (l == null)? false : containsLink(l.getExtendedId());
+	}
+
+	@Override
+	public boolean containsLink(ExtendedId id) {
+		return (id == null)? false : contents.links.containsKey(id);
+	}
+
+	@Override
+	public boolean containsLink(int sourceId, ExtendedId sinkId, int categoryId) {
+		return getLink(sourceId, sinkId, categoryId) != null;
+	}
+
+	@Override
+	public boolean containsLinkable(Linkable l) {
+		return (l == null)? false : containsLinkable(l.getExtendedId());
+	}
+
+	@Override
+	public boolean containsLinkable(ExtendedId id) {
+		return containsNode(id) || containsLink(id);
+	}
+
+	@Override
+	public Node getNode(int id) {
+		return contents.nodes.get(id);
+	}
+
+	@Override
+	public Node getNode(ExtendedId id) {
+		return (id == null || !id.isNodeId())? null : contents.nodes.get(id);
+	}
+
+	@Override
+	public Collection<Node> getNodes() {
+		return contents.nodes.values();
+	}
+
+	@Override
+	public Link getLink(ExtendedId id) {
+		return contents.links.get(id);
+	}
+
+	@Override
+	public Link getLink(int sourceId, ExtendedId sinkId, int categoryId) {
+		return contents.links.get(sourceId, sinkId, categoryId);
+	}
+
+	@Override
+	public Collection<Link> getLinks() {
+		return contents.links.values();
+	}
+
+	@Override
+	public Set<Link> getLinks(LinkCategory cat) {
+		if(cat == null){
+			return null;
+		}
+		Set<Link> results = new HashSet<Link>();
+		for (Link l : contents.links.values()) {
+			if (cat.equals(l.getCategory())) {
+				results.add(l);
+			}
+		}
+		return Collections.unmodifiableSet(results);
+	}
+
+	@Override
+	public Set<Link> getAttachedLinks(Linkable l) {
+		if (l == null) {
+			return null;
+		}
+		Contents c = contents;
+		PersistentIdMap<Link> links = c.attached.get(l.getExtendedId());
+		if (links == null) {
+			return containsLinkable(l)? Collections.<Link>emptySet() : null;
+		}
+		return new LinkSet(links);
+	}
+
+	@Override
+	public Set<Link> getAttachedLinks(Linkable lnk, LinkCategory cat) {
+		if (lnk == null || cat == null) {
+			return null;
+		}
+		Set<Link> attachedLinks = getAttachedLinks(lnk);
+		if (attachedLinks == null) {
+			return null;
+		}
+		Set<Link> results = new HashSet<Link>();
+		for (Link l : attachedLinks) {
+			if (cat.equals(l.getCategory())) {
+				results.add(l);
+			}
+		}
+		return Collections.unmodifiableSet(results);
+	}
+
+	/*
+	 * Unmodifiable set view of the Links attached to a Linkable
+	 */
+	private static class LinkSet extends AbstractSet<Link> {
+		private final PersistentIdMap<Link> links;
+
+		LinkSet(PersistentIdMap<Link> links) {
+			this.links = links;
+		}
+
+		@Override
+		public Iterator<Link> iterator() {
+			return links.values().iterator();
+		}
+
+		@Override
+		public int size() {
+			return links.size();
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return (o instanceof Link)
+					&& links.containsKey(((Link) o).getExtendedId());
+		}
+	}
+
+	@Override
+	public Linkable getLinkable(ExtendedId id) {
+		if(id == null){
+			return null;
+		}
+		Contents c = contents;
+		return id.isNodeId()? c.nodes.get(id) : c.links.get(id);
+	}
+
+	@Override
+	public Collection<Linkable> getLinkables() {
+		Contents c = contents;
+		List<Linkable> linkables = new ArrayList<Linkable>(c.nodes.size()
+				+ c.links.size());
+		linkables.addAll(c.nodes.values());
+		linkables.addAll(c.links.values());
+		return Collections.unmodifiableList(linkables);
+	}
+
+	@Override
+	public Map<Linkable, Set<Link>> getLinkableMap() {
+		Map<Linkable, Set<Link>> map = new HashMap<Linkable, Set<Link>>();
+		for (Linkable l : getLinkables()) {
+			map.put(l, getAttachedLinks(l));
+		}
+		return Collections.unmodifiableMap(map);
+	}
+
+	@Override
+	public Map<Linkable, Link> getConnectedSinks(Node n) {
+		if(n == null){
+			return null;
+		}
+		Map<Linkable, Link> sinkLinkMap = new HashMap<Linkable, Link>();
+		PersistentIdMap<Link> candidateLinks = contents.attached.get(n.getExtendedId());
+		if (candidateLinks != null) {
+			for (Link link : candidateLinks.values()) {
+				Linkable sink = link.getSink();
+				if (!sink.equals(n)) {
+					sinkLinkMap.put(sink, link);
+				}
+			}
+		}
+		return Collections.unmodifiableMap(sinkLinkMap);
+	}
+
+	@Override
+	public Map<Node, Link> getConnectedSources(Linkable lnk) {
+		if(lnk == null){
+			return null;
+		}
+		Map<Node, Link> sourceLinkMap = new HashMap<Node, Link>();
+		PersistentIdMap<Link> candidateLinks = contents.attached.get(lnk.getExtendedId());
+		if (candidateLinks != null) {
+			for (Link link : candidateLinks.values()) {
+				Node source = link.getSource();
+				if (!source.equals(lnk)) {
+					sourceLinkMap.put(source, link);
+				}
+			}
+		}
+		return Collections.unmodifiableMap(sourceLinkMap);
+	}
+
+	@Override
+	public void forEachSink(Node n, ConnectionVisitor<? super Linkable> visitor) {
+		if (n == null || visitor == null) {
+			return;
+		}
+		PersistentIdMap<Link> candidateLinks = contents.attached.get(n.getExtendedId());
+		if (candidateLinks != null) {
+			for (Link link : candidateLinks.values()) {
+				Linkable sink = link.getSink();
+				if (!sink.equals(n)) {
+					visitor.visit(sink, link);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void forEachSource(Linkable lnk, ConnectionVisitor<? super Node> visitor) {
+		if (lnk == null || visitor == null) {
+			return;
+		}
+		PersistentIdMap<Link> candidateLinks = contents.attached.get(lnk.getExtendedId());
+		if (candidateLinks != null) {
+			for (Link link : candidateLinks.values()) {
+				Node source = link.getSource();
+				if (!source.equals(lnk)) {
+					visitor.visit(source, link);
+				}
+			}
+		}
+	}
+
+	@Override
+	public int getNodeCount() {
+		return contents.nodes.size();
+	}
+
+	@Override
+	public int getLinkCount() {
+		return contents.links.size();
+	}
+
+	@Override
+	public int getLinkableCount() {
+		Contents c = contents;
+		return c.nodes.size() + c.links.size();
+	}
+
+	@Override
+	public String getDefaultNodeType() {
+		return defaultNodeType;
+	}
+
+	@Override
+	public String getDefaultLinkType() {
+		return defaultLinkType;
+	}
+
+	@Override
+	public NodeStructure getSubgraph(Collection<Node> nodes, int d) {
+		return getSubgraph(nodes, d, 0.0);
+	}
+
+	@Override
+	public NodeStructure getSubgraph(Collection<Node> nodes, int d,
+			double threshold) {
+		return NodeStructureImpl.getSubgraph(this, nodes, d, threshold);
+	}
+
+	@Override
+	public String toString() {
+		Contents c = contents;
+		StringBuilder result = new StringBuilder("Nodes (");
+		for (Node n : c.nodes.values()) {
+			result.append(n.toString()).append(",");
+		}
+		if(c.nodes.size() != 0){
+			result.deleteCharAt(result.length()-1);
+		}
+		result.append(") Links (");
+		for (Link l : c.links.values()) {
+			result.append(l.toString()).append(",");
+		}
+		if(c.links.size() != 0){
+			result.deleteCharAt(result.length()-1);
+		}
+		result.append(")");
+		return result.toString();
+	}
+}
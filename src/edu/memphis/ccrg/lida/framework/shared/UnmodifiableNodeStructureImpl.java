@@ -53,6 +53,13 @@ public class UnmodifiableNodeStructureImpl implements NodeStructure, BroadcastCo
 		}
 	}
 
+	/*
+	 * Returns the wrapped NodeStructure
+	 */
+	NodeStructure getNodeStructure() {
+		return ns;
+	}
+
 	/**
 	 * Returns true if both NodeStructures have the same nodes and links.
 	 * @param o Object
@@ -293,6 +300,11 @@ public class UnmodifiableNodeStructureImpl implements NodeStructure, BroadcastCo
 		return ns.containsLink(id);
 	}
 
+	@Override
+	public boolean containsLink(int sourceId, ExtendedId sinkId, int categoryId) {
+		return ns.containsLink(sourceId, sinkId, categoryId);
+	}
+
 	@Override
 	public boolean containsLinkable(Linkable l) {
 		return ns.containsLinkable(l);
@@ -338,6 +350,16 @@ public class UnmodifiableNodeStructureImpl implements NodeStructure, BroadcastCo
 		return ns.getConnectedSources(linkable);
 	}
 
+	@Override
+	public void forEachSink(Node n, ConnectionVisitor<? super Linkable> visitor) {
+		ns.forEachSink(n, visitor);
+	}
+
+	@Override
+	public void forEachSource(Linkable linkable, ConnectionVisitor<? super Node> visitor) {
+		ns.forEachSource(linkable, visitor);
+	}
+
 	@Override
 	public String getDefaultLinkType() {
 		return ns.getDefaultLinkType();
@@ -353,6 +375,11 @@ public class UnmodifiableNodeStructureImpl implements NodeStructure, BroadcastCo
 		return ns.getLink(ids);
 	}
 
+	@Override
+	public Link getLink(int sourceId, ExtendedId sinkId, int categoryId) {
+		return ns.getLink(sourceId, sinkId, categoryId);
+	}
+
 	@Override
 	public int getLinkCount() {
 		return ns.getLinkCount();
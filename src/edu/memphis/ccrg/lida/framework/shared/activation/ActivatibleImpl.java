@@ -7,6 +7,7 @@
  *******************************************************************************/
 package edu.memphis.ccrg.lida.framework.shared.activation;
 
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -21,6 +22,12 @@ import edu.memphis.ccrg.lida.framework.tasks.TaskManager;
 /**
  * Generic {@link Activatible} Implementation. Useful for classes to extend from it, 
  * e.g. {@link Node} and {@link Codelet}.
+ * <br/>
+ * In lazy decay mode the activation is not decayed by {@link #decay(long)}.
+ * Instead, the tick of the last update is kept and the {@link DecayStrategy}
+ * is applied for all the ticks elapsed since then when the activation is read
+ * or excited. This way a module does not need to decay all its elements every
+ * tick. 
  *  
  * @author Javier Snaider
  * 
@@ -34,6 +41,12 @@ public class ActivatibleImpl extends InitializableImpl implements Activatible {
 	private DecayStrategy decayStrategy;
 	private double activation;
 	private double removalThreshold;
+	private volatile boolean lazyDecay;
+	/*
+	 * Tick up to which the activation has been decayed in lazy decay mode.
+	 */
+	private volatile long lastDecayTick;
+	private volatile ActivationListener activationListener;
 
 	/**
 	 * Default constructor
@@ -60,9 +73,99 @@ public class ActivatibleImpl extends InitializableImpl implements Activatible {
 		this.decayStrategy = decay;
 	}
 
+	/**
+	 * If this method is overridden, this init() must be called first! i.e. super.init();
+	 * Will set parameters with the following names:<br/><br/>
+	 * 
+	 * <b>activatible.lazyDecay</b> if true activation is decayed when it is read or excited<br/>
+	 * If the parameter is not specified lazy decay is not used.
+	 * 
+	 * @see Initializable
+	 */
+	@Override
+	public void init() {
+		Map<String, ?> params = getParameters();
+		if (params != null && params.containsKey("activatible.lazyDecay")) {
+			setLazyDecay(getParam("activatible.lazyDecay", false));
+		}
+	}
+
+	/**
+	 * Sets whether this instance decays its activation lazily. In lazy decay
+	 * mode {@link #decay(long)} only brings the activation up to date with
+	 * the current tick.
+	 * 
+	 * @param lazy
+	 *            true to decay activation when it is read or excited
+	 */
+	public void setLazyDecay(boolean lazy) {
+		synchronized (this) {
+			updateDecay();
+			lastDecayTick = TaskManager.getCurrentTick();
+			lazyDecay = lazy;
+		}
+	}
+
+	/**
+	 * @return true if this instance decays its activation when it is read or
+	 *         excited
+	 */
+	public boolean isLazyDecay() {
+		return lazyDecay;
+	}
+
+	/**
+	 * Sets the listener notified every time this instance is excited or its
+	 * activation is set. Only one listener is kept.
+	 * 
+	 * @param l
+	 *            the {@link ActivationListener} or null to remove it
+	 */
+	public void setActivationListener(ActivationListener l) {
+		activationListener = l;
+	}
+
+	/**
+	 * @return the {@link ActivationListener} of this instance or null
+	 */
+	public ActivationListener getActivationListener() {
+		return activationListener;
+	}
+
+	/**
+	 * Notifies the {@link ActivationListener}, if any, that the activation of
+	 * this instance changed. Subclasses that do not store their activation
+	 * in this class must call it after their activation is excited or set.
+	 */
+	protected void notifyActivationListener() {
+		ActivationListener l = activationListener;
+		if (l != null) {
+			l.receiveActivation(this);
+		}
+	}
+
+	/*
+	 * In lazy decay mode, applies the decay strategy for the ticks elapsed
+	 * since the last update.
+	 */
+	private void updateDecay() {
+		if (lazyDecay && lastDecayTick != TaskManager.getCurrentTick()) {
+			synchronized (this) {
+				long tick = TaskManager.getCurrentTick();
+				long ticks = tick - lastDecayTick;
+				if (ticks > 0 && decayStrategy != null) {
+					activation = decayStrategy.decay(activation, ticks);
+				}
+				lastDecayTick = tick;
+			}
+		}
+	}
+
 	@Override
 	public void decay(long ticks) {	
-		if (decayStrategy != null) {
+		if (lazyDecay) {
+			updateDecay();
+		} else if (decayStrategy != null) {
 			if(logger.isLoggable(Level.FINEST)){
 				logger.log(Level.FINEST, "Before decaying {1} has current activation: {2}",
 							new Object[]{TaskManager.getCurrentTick(),this,getActivation()});
@@ -85,8 +188,10 @@ public class ActivatibleImpl extends InitializableImpl implements Activatible {
 							new Object[]{TaskManager.getCurrentTick(),this,getActivation()});
 			}
 			synchronized(this){
+				updateDecay();
 				activation = exciteStrategy.excite(getActivation(), excitation);
 			}
+			notifyActivationListener();
 			if(logger.isLoggable(Level.FINEST)){
 				logger.log(Level.FINEST, "After excitation {1} has current activation: {2}",
 							new Object[]{TaskManager.getCurrentTick(),this,getActivation()});
@@ -96,6 +201,7 @@ public class ActivatibleImpl extends InitializableImpl implements Activatible {
 
 	@Override
 	public double getActivation() {
+		updateDecay();
 		return activation;
 	}
 	
@@ -117,18 +223,15 @@ public class ActivatibleImpl extends InitializableImpl implements Activatible {
 	@Override
 	public void setActivation(double a) {
 		if(a > 1.0){
-			synchronized(this){
-				activation = 1.0;
-			}
+			a = 1.0;
 		}else if(a < 0.0){
-			synchronized(this){
-				activation = 0.0;
-			}
-		}else{
-			synchronized(this){
-				activation = a;
-			}
+			a = 0.0;
+		}
+		synchronized(this){
+			activation = a;
+			lastDecayTick = TaskManager.getCurrentTick();
 		}
+		notifyActivationListener();
 	}
 	
 	@Override
@@ -0,0 +1,29 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2011 The University of Memphis.  All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the LIDA Software Framework Non-Commercial License v1.0 
+ * which accompanies this distribution, and is available at
+ * http://ccrg.cs.memphis.edu/assets/papers/2010/LIDA-framework-non-commercial-v1.0.pdf
+ *******************************************************************************/
+package edu.memphis.ccrg.lida.framework.shared.activation;
+
+/**
+ * A listener notified when an {@link Activatible} is excited or its
+ * activation is set, e.g., used by a container to keep track of the elements
+ * that are not at rest.
+ * 
+ * @author agent
+ * @see ActivatibleImpl#setActivationListener(ActivationListener)
+ */
+public interface ActivationListener {
+
+	/**
+	 * Receives an {@link Activatible} whose activation or base-level
+	 * activation has just been excited or set.
+	 * 
+	 * @param a
+	 *            the {@link Activatible}
+	 */
+	public void receiveActivation(Activatible a);
+
+}
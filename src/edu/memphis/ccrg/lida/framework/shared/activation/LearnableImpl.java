@@ -38,6 +38,11 @@ public class LearnableImpl extends ActivatibleImpl implements Learnable {
 	private ExciteStrategy baseLevelExciteStrategy;
 	private DecayStrategy baseLevelDecayStrategy;
 	private TotalActivationStrategy totalActivationStrategy;
+	/*
+	 * Tick up to which the base-level activation has been decayed in lazy
+	 * decay mode.
+	 */
+	private volatile long lastBaseLevelDecayTick;
 	private static final String DEFAULT_TOTAL_ACTIVATION_TYPE = DefaultTotalActivationStrategy.class.getSimpleName();
 
 	/**
@@ -98,11 +103,14 @@ public class LearnableImpl extends ActivatibleImpl implements Learnable {
      * <b>learnable.baseLevelExciteStrategy</b> name of base-level excite strategy<br/>
      * <b>learnable.totalActivationStrategy</b> name of total activation strategy<br/><br/>
      * If any parameter is not specified its default value will be used.
+     * In lazy decay mode base-level activation is also decayed lazily.
      * 
      * @see Initializable
+     * @see ActivatibleImpl#init()
 	 */
 	@Override
 	public void init(){
+		super.init();
 		baseLevelActivation = (Double) getParam("learnable.baseLevelActivation",DEFAULT_BASE_LEVEL_ACTIVATION);
 		learnableRemovalThreshold = (Double) getParam("learnable.baseLevelRemovalThreshold", DEFAULT_LEARNABLE_REMOVAL_THRESHOLD);
 		String decayName = (String) getParam("learnable.baseLevelDecayStrategy", factory.getDefaultDecayType());
@@ -116,6 +124,32 @@ public class LearnableImpl extends ActivatibleImpl implements Learnable {
 		if(totalActivationStrategy == null){
 			totalActivationStrategy = (TotalActivationStrategy) factory.getStrategy(DEFAULT_TOTAL_ACTIVATION_TYPE);
 		}
+	}
+
+	@Override
+	public void setLazyDecay(boolean lazy) {
+		synchronized (this) {
+			updateBaseLevelDecay();
+			lastBaseLevelDecayTick = TaskManager.getCurrentTick();
+			super.setLazyDecay(lazy);
+		}
+	}
+
+	/*
+	 * In lazy decay mode, applies the base-level decay strategy for the ticks
+	 * elapsed since the last update.
+	 */
+	private void updateBaseLevelDecay() {
+		if (isLazyDecay() && lastBaseLevelDecayTick != TaskManager.getCurrentTick()) {
+			synchronized (this) {
+				long tick = TaskManager.getCurrentTick();
+				long ticks = tick - lastBaseLevelDecayTick;
+				if (ticks > 0 && baseLevelDecayStrategy != null) {
+					baseLevelActivation = baseLevelDecayStrategy.decay(baseLevelActivation, ticks);
+				}
+				lastBaseLevelDecayTick = tick;
+			}
+		}
 	}
 
 	@Override
@@ -136,7 +170,9 @@ public class LearnableImpl extends ActivatibleImpl implements Learnable {
 
 	@Override
 	public void decayBaseLevelActivation(long ticks) {
-		if (baseLevelDecayStrategy != null) {
+		if (isLazyDecay()) {
+			updateBaseLevelDecay();
+		} else if (baseLevelDecayStrategy != null) {
 			if(logger.isLoggable(Level.FINEST)){
 				logger.log(Level.FINEST, "Before decaying {1} has base-level activation: {2}",
 							new Object[]{TaskManager.getCurrentTick(),this,getBaseLevelActivation()});
@@ -159,8 +195,10 @@ public class LearnableImpl extends ActivatibleImpl implements Learnable {
 							new Object[]{TaskManager.getCurrentTick(),this,getBaseLevelActivation()});
 			}
 			synchronized(this){
+				updateBaseLevelDecay();
 				baseLevelActivation = baseLevelExciteStrategy.excite(getBaseLevelActivation(), amount);
 			}
+			notifyActivationListener();
 			if(logger.isLoggable(Level.FINEST)){
 				logger.log(Level.FINEST, "After reinforcement {1} has base-level activation: {2}",
 							new Object[]{TaskManager.getCurrentTick(),this,getBaseLevelActivation()});
@@ -191,22 +229,20 @@ public class LearnableImpl extends ActivatibleImpl implements Learnable {
 	@Override
 	public void setBaseLevelActivation(double a) {
 		if(a < 0.0){
-			synchronized (this) {
-				baseLevelActivation = 0.0;
-			}
+			a = 0.0;
 		}else if(a > 1.0){
-			synchronized (this) {
-				baseLevelActivation = 1.0;
-			}
-		}else{
-			synchronized (this) {
-				baseLevelActivation = a;
-			}
-		}		
+			a = 1.0;
+		}
+		synchronized (this) {
+			baseLevelActivation = a;
+			lastBaseLevelDecayTick = TaskManager.getCurrentTick();
+		}
+		notifyActivationListener();
 	}
 	
 	@Override
 	public double getBaseLevelActivation() {
+		updateBaseLevelDecay();
 		return baseLevelActivation;
 	}
 
@@ -0,0 +1,36 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2011 The University of Memphis.  All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the LIDA Software Framework Non-Commercial License v1.0 
+ * which accompanies this distribution, and is available at
+ * http://ccrg.cs.memphis.edu/assets/papers/2010/LIDA-framework-non-commercial-v1.0.pdf
+ *******************************************************************************/
+package edu.memphis.ccrg.lida.framework.tasks;
+
+/**
+ * Enumeration of the ways the {@link TaskManager} recovers when, in real time
+ * execution, a tick finishes after the time the next tick was due to start.
+ * 
+ * @author agent
+ */
+public enum CatchUpPolicy {
+
+	/**
+	 * The start times that were missed are dropped. The next tick starts at
+	 * the next due time of the original schedule, so ticks stay aligned with
+	 * it.
+	 */
+	SKIP,
+
+	/**
+	 * The original schedule is kept. The next ticks start without waiting
+	 * until they have caught up with it.
+	 */
+	BURST,
+
+	/**
+	 * The schedule is shifted by the lateness. The next tick starts at once
+	 * and the following ones are due relative to it.
+	 */
+	STRETCH
+}
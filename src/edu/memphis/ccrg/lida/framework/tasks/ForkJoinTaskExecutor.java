@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2011 The University of Memphis.  All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the LIDA Software Framework Non-Commercial License v1.0 
+ * which accompanies this distribution, and is available at
+ * http://ccrg.cs.memphis.edu/assets/papers/2010/LIDA-framework-non-commercial-v1.0.pdf
+ *******************************************************************************/
+package edu.memphis.ccrg.lida.framework.tasks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A {@link TaskExecutor} based on a work-stealing {@link ForkJoinPool}. The
+ * batch of tasks of a tick is split recursively in halves until each part has
+ * at most batchSize tasks, which are then called directly by the worker
+ * thread. Idle workers steal the parts of busy ones, so no single queue is
+ * shared by all the threads and no {@link java.util.concurrent.Future} is
+ * created per task.
+ * 
+ * @author agent
+ */
+public class ForkJoinTaskExecutor implements TaskExecutor {
+
+	private static final Logger logger = Logger
+			.getLogger(ForkJoinTaskExecutor.class.getCanonicalName());
+
+	/**
+	 * Default maximum number of tasks called sequentially by a worker
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 8;
+
+	private final ForkJoinPool pool;
+	private final int batchSize;
+	/*
+	 * Used to index batches that are not RandomAccess lists. Only used by the
+	 * TaskManager's main loop.
+	 */
+	private final List<Callable<?>> buffer = new ArrayList<Callable<?>>();
+
+	/**
+	 * Constructs a new executor with one worker per available processor.
+	 */
+	public ForkJoinTaskExecutor() {
+		this(Runtime.getRuntime().availableProcessors(), DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * Constructs a new executor.
+	 * 
+	 * @param parallelism
+	 *            the number of worker threads
+	 * @param batchSize
+	 *            maximum number of tasks called sequentially by a worker
+	 */
+	public ForkJoinTaskExecutor(int parallelism, int batchSize) {
+		pool = new ForkJoinPool(Math.max(1, parallelism));
+		this.batchSize = Math.max(1, batchSize);
+	}
+
+	@Override
+	public <T> void invokeAll(Collection<? extends Callable<T>> tasks)
+			throws InterruptedException {
+		List<? extends Callable<?>> list;
+		if (tasks instanceof List<?> && tasks instanceof RandomAccess) {
+			list = (List<? extends Callable<T>>) tasks;
+		} else {
+			buffer.clear();
+			buffer.addAll(tasks);
+			list = buffer;
+		}
+		if (!list.isEmpty()) {
+			pool.invoke(new TaskBatch(list, 0, list.size()));
+		}
+		buffer.clear();
+		if (Thread.interrupted()) {
+			throw new InterruptedException();
+		}
+	}
+
+	/*
+	 * Calls the tasks from index 'from' (inclusive) to index 'to' (exclusive)
+	 * of the list, splitting the range while it is larger than batchSize.
+	 */
+	@SuppressWarnings("serial")
+	private class TaskBatch extends RecursiveAction {
+
+		private final List<? extends Callable<?>> tasks;
+		private final int from;
+		private final int to;
+
+		public TaskBatch(List<? extends Callable<?>> tasks, int from, int to) {
+			this.tasks = tasks;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= batchSize) {
+				for (int i = from; i < to; i++) {
+					Callable<?> task = tasks.get(i);
+					try {
+						task.call();
+					} catch (Exception e) {
+						logger.log(Level.WARNING,
+								"Exception encountered during the execution of task {1}. \n {2}",
+								new Object[] { TaskManager.getCurrentTick(),
+										task, e });
+					}
+				}
+			} else {
+				int middle = (from + to) >>> 1;
+				invokeAll(new TaskBatch(tasks, from, middle), new TaskBatch(
+						tasks, middle, to));
+			}
+		}
+	}
+
+	@Override
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	@Override
+	public void awaitTermination(long timeout, TimeUnit unit)
+			throws InterruptedException {
+		pool.awaitTermination(timeout, unit);
+	}
+
+	@Override
+	public void shutdownNow() {
+		pool.shutdownNow();
+	}
+
+}
@@ -125,4 +125,27 @@ public interface FrameworkTask extends Callable<FrameworkTask>, Learnable, Fully
 	 * @return scheduledTick tick when this task will run next
 	 */
 	public long getScheduledTick();
+
+	/**
+	 * Sets whether this task blocks, e.g., waiting on I/O, during its
+	 * execution. Blocking tasks are run by the {@link TaskManager} on their
+	 * own threads so they do not hold the threads used by the other tasks.
+	 * By default this does nothing, so a task that does not support it never
+	 * blocks.
+	 * 
+	 * @param blocking
+	 *            true if this task may block during its execution
+	 */
+	public default void setBlocking(boolean blocking) {
+	}
+
+	/**
+	 * Returns whether this task may block during its execution.
+	 * 
+	 * @return true if this task may block, by default false
+	 * @see #setBlocking(boolean)
+	 */
+	public default boolean isBlocking() {
+		return false;
+	}
 }
\ No newline at end of file
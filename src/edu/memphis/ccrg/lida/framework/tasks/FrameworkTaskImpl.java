@@ -14,13 +14,21 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import edu.memphis.ccrg.lida.framework.FrameworkModule;
+import edu.memphis.ccrg.lida.framework.initialization.InitializableImpl;
+import edu.memphis.ccrg.lida.framework.shared.activation.Learnable;
 import edu.memphis.ccrg.lida.framework.shared.activation.LearnableImpl;
+import edu.memphis.ccrg.lida.framework.strategies.DecayStrategy;
+import edu.memphis.ccrg.lida.framework.strategies.ExciteStrategy;
+import edu.memphis.ccrg.lida.framework.strategies.TotalActivationStrategy;
 
 /**
  * This class implements the FrameworkTask Interface. This class should be used as the base class for all FrameworkTasks.
+ * Has a private {@link LearnableImpl} to help implement all {@link Learnable} methods. It is only created 
+ * the first time one of these methods is called, or when the task is initialized, so that short-lived tasks 
+ * that never use their activation do not pay for it.
  * @author Javier Snaider
  */
-public abstract class FrameworkTaskImpl extends LearnableImpl implements FrameworkTask {
+public abstract class FrameworkTaskImpl extends InitializableImpl implements FrameworkTask {
 
 	private static final Logger logger= Logger.getLogger(FrameworkTaskImpl.class.getCanonicalName());
 
@@ -39,7 +47,16 @@ public abstract class FrameworkTaskImpl extends LearnableImpl implements Framewo
 	protected TaskStatus status = TaskStatus.RUNNING;
 	private TaskSpawner controllingTS;
 	private long scheduledTick;
-    private final String taskName;
+	private volatile boolean blocking;
+    private String taskName;
+    /*
+     * Private Learnable object used for all learnable methods, created when first needed
+     */
+    private volatile LearnableImpl learnable;
+    /*
+     * Pool this task returns to once it is canceled, if any
+     */
+    private TaskPool<?> pool;
 	
 	/**
 	 * Constructs a {@link FrameworkTaskImpl} with default ticksPerRun
@@ -66,7 +83,54 @@ public abstract class FrameworkTaskImpl extends LearnableImpl implements Framewo
 		taskID = nextTaskID++;
 		controllingTS = ts;
 		setTicksPerRun(ticksPerRun);
-        taskName = getClass().getSimpleName() + "["+taskID+"]";
+	}
+
+	/**
+	 * If this method is overridden, this init() must be called first! i.e. super.init();
+	 * Initializes the internal {@link Learnable} with the parameters of this task.
+	 * @see LearnableImpl#init()
+	 */
+	@Override
+	public void init() {
+		getLearnable().init(getParameters());
+	}
+
+	/*
+	 * Returns the internal Learnable creating it if needed.
+	 */
+	private LearnableImpl getLearnable() {
+		LearnableImpl l = learnable;
+		if (l == null) {
+			synchronized (this) {
+				l = learnable;
+				if (l == null) {
+					l = new LearnableImpl();
+					learnable = l;
+				}
+			}
+		}
+		return l;
+	}
+
+	/*
+	 * Sets the pool this task is returned to once it is canceled.
+	 */
+	void setTaskPool(TaskPool<?> p) {
+		pool = p;
+	}
+
+	/*
+	 * Prepares a task taken from a pool to be run again as a new task.
+	 */
+	void resetTask() {
+		synchronized (this) {
+			status = TaskStatus.RUNNING;
+			learnable = null;
+		}
+		nextExcecutionTicksPerRun = ticksPerRun;
+		scheduledTick = 0L;
+		controllingTS = null;
+		blocking = false;
 	}
 	
 	@Override
@@ -79,6 +143,16 @@ public abstract class FrameworkTaskImpl extends LearnableImpl implements Framewo
 		scheduledTick = t;
 	}
 
+	@Override
+	public boolean isBlocking() {
+		return blocking;
+	}
+
+	@Override
+	public void setBlocking(boolean b) {
+		blocking = b;
+	}
+
 	/** 
 	 * This method should not be called directly nor should it be overridden.
 	 * Override {@link #runThisFrameworkTask()} instead.
@@ -107,6 +181,9 @@ public abstract class FrameworkTaskImpl extends LearnableImpl implements Framewo
 			logger.log(Level.WARNING, "Task {1} does not have an assigned TaskSpawner",
 					new Object[] {TaskManager.getCurrentTick(), this });
 		}
+		if (pool != null && status == TaskStatus.CANCELED) {
+			pool.release(this);
+		}
 		return this;
 	}
 
@@ -206,6 +283,132 @@ public abstract class FrameworkTaskImpl extends LearnableImpl implements Framewo
 	
 	@Override
 	public String toString(){
-        return taskName;
+		String name = taskName;
+		if (name == null) {
+			name = getClass().getSimpleName() + "["+taskID+"]";
+			taskName = name;
+		}
+        return name;
     }
+
+	//LEARNABLE METHODS
+	@Override
+	public double getActivation() {
+		return getLearnable().getActivation();
+	}
+
+	@Override
+	public void setActivation(double a) {
+		getLearnable().setActivation(a);
+	}
+
+	@Override
+	public double getTotalActivation() {
+		return getLearnable().getTotalActivation();
+	}
+
+	@Override
+	public void excite(double amount) {
+		getLearnable().excite(amount);
+	}
+
+	@Override
+	public void setExciteStrategy(ExciteStrategy strategy) {
+		getLearnable().setExciteStrategy(strategy);
+	}
+
+	@Override
+	public ExciteStrategy getExciteStrategy() {
+		return getLearnable().getExciteStrategy();
+	}
+
+	@Override
+	public void decay(long ticks) {
+		getLearnable().decay(ticks);
+	}
+
+	@Override
+	public void setDecayStrategy(DecayStrategy strategy) {
+		getLearnable().setDecayStrategy(strategy);
+	}
+
+	@Override
+	public DecayStrategy getDecayStrategy() {
+		return getLearnable().getDecayStrategy();
+	}
+
+	@Override
+	public void setActivatibleRemovalThreshold(double threshold) {
+		getLearnable().setActivatibleRemovalThreshold(threshold);
+	}
+
+	@Override
+	public double getActivatibleRemovalThreshold() {
+		return getLearnable().getActivatibleRemovalThreshold();
+	}
+
+	@Override
+	public boolean isRemovable() {
+		return getLearnable().isRemovable();
+	}
+
+	@Override
+	public double getBaseLevelActivation() {
+		return getLearnable().getBaseLevelActivation();
+	}
+
+	@Override
+	public void setBaseLevelActivation(double amount) {
+		getLearnable().setBaseLevelActivation(amount);
+	}
+
+	@Override
+	public void reinforceBaseLevelActivation(double amount) {
+		getLearnable().reinforceBaseLevelActivation(amount);
+	}
+
+	@Override
+	public void setBaseLevelExciteStrategy(ExciteStrategy strategy) {
+		getLearnable().setBaseLevelExciteStrategy(strategy);
+	}
+
+	@Override
+	public ExciteStrategy getBaseLevelExciteStrategy() {
+		return getLearnable().getBaseLevelExciteStrategy();
+	}
+
+	@Override
+	public void decayBaseLevelActivation(long ticks) {
+		getLearnable().decayBaseLevelActivation(ticks);
+	}
+
+	@Override
+	public void setBaseLevelDecayStrategy(DecayStrategy strategy) {
+		getLearnable().setBaseLevelDecayStrategy(strategy);
+	}
+
+	@Override
+	public DecayStrategy getBaseLevelDecayStrategy() {
+		return getLearnable().getBaseLevelDecayStrategy();
+	}
+
+	@Override
+	public void setBaseLevelRemovalThreshold(double threshold) {
+		getLearnable().setBaseLevelRemovalThreshold(threshold);
+	}
+
+	@Override
+	public double getLearnableRemovalThreshold() {
+		return getLearnable().getLearnableRemovalThreshold();
+	}
+
+	@Override
+	public TotalActivationStrategy getTotalActivationStrategy() {
+		return getLearnable().getTotalActivationStrategy();
+	}
+
+	@Override
+	public void setTotalActivationStrategy(TotalActivationStrategy strategy) {
+		getLearnable().setTotalActivationStrategy(strategy);
+	}
 }
\ No newline at end of file
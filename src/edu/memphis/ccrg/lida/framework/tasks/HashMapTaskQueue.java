@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2011 The University of Memphis.  All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the LIDA Software Framework Non-Commercial License v1.0 
+ * which accompanies this distribution, and is available at
+ * http://ccrg.cs.memphis.edu/assets/papers/2010/LIDA-framework-non-commercial-v1.0.pdf
+ *******************************************************************************/
+package edu.memphis.ccrg.lida.framework.tasks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.memphis.ccrg.lida.framework.shared.ConcurrentHashSet;
+
+/**
+ * A {@link TaskQueue} backed by a {@link ConcurrentMap} from tick to the
+ * {@link Set} of tasks scheduled at that tick. A new set is created for each
+ * tick that has scheduled tasks. An ordered index of these ticks is kept to
+ * find the next tick with scheduled tasks.
+ *
+ * @author Javier Snaider
+ * @author Ryan J. McCall
+ * @author agent
+ */
+public class HashMapTaskQueue implements TaskQueue {
+
+	private ConcurrentMap<Long, Set<FrameworkTask>> taskQueue = new ConcurrentHashMap<Long, Set<FrameworkTask>>();
+	/*
+	 * Ordered index of the ticks that have a set in the taskQueue.
+	 */
+	private ConcurrentSkipListSet<Long> scheduledTicks = new ConcurrentSkipListSet<Long>();
+	private final AtomicLong maxTick = new AtomicLong();
+	private final List<FrameworkTask> polled = new ArrayList<FrameworkTask>();
+
+	@Override
+	public boolean add(FrameworkTask task) {
+		Long time = task.getScheduledTick();
+		Set<FrameworkTask> set = taskQueue.get(time);
+		if (set == null) {
+			// indexed before the set is added so that the main loop cannot
+			// skip over a tick whose set is being added
+			scheduledTicks.add(time);
+			Set<FrameworkTask> set2 = new ConcurrentHashSet<FrameworkTask>();
+			set = taskQueue.putIfAbsent(time, set2);
+			if (set == null) {// there wasn't a set already at key 'time'
+				set = set2;
+			}
+		}
+		set.add(task);
+		long max = maxTick.get();
+		while (time > max) {
+			if (maxTick.compareAndSet(max, time)) {
+				return true;
+			}
+			max = maxTick.get();
+		}
+		return false;
+	}
+
+	@Override
+	public boolean remove(FrameworkTask task) {
+		Set<FrameworkTask> set = taskQueue.get(task.getScheduledTick());
+		if (set != null) {
+			return set.remove(task);
+		}
+		return false;
+	}
+
+	@Override
+	public Collection<FrameworkTask> pollTasks(long tick) {
+		Set<FrameworkTask> first = null;
+		polled.clear();
+		while (!scheduledTicks.isEmpty() && scheduledTicks.first() <= tick) {
+			Set<FrameworkTask> set = taskQueue.remove(scheduledTicks
+					.pollFirst());
+			if (set == null) {
+				continue;
+			}
+			if (first == null) {
+				first = set;
+			} else {
+				if (polled.isEmpty()) {
+					polled.addAll(first);
+				}
+				polled.addAll(set);
+			}
+		}
+		if (!polled.isEmpty()) {
+			return polled;
+		}
+		if (first != null) {
+			return first;
+		}
+		return Collections.emptySet();
+	}
+
+	@Override
+	public long getNextScheduledTick(long tick) {
+		Long next = scheduledTicks.ceiling(tick);
+		return (next == null) ? -1 : next;
+	}
+
+	@Override
+	public long getMaxTick() {
+		return maxTick.get();
+	}
+
+	@Override
+	public Map<Long, Set<FrameworkTask>> getTasks() {
+		return Collections.unmodifiableMap(taskQueue);
+	}
+
+	@Override
+	public void clear() {
+		taskQueue = new ConcurrentHashMap<Long, Set<FrameworkTask>>();
+		scheduledTicks = new ConcurrentSkipListSet<Long>();
+		maxTick.set(0L);
+	}
+
+}
@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2011 The University of Memphis.  All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the LIDA Software Framework Non-Commercial License v1.0 
+ * which accompanies this distribution, and is available at
+ * http://ccrg.cs.memphis.edu/assets/papers/2010/LIDA-framework-non-commercial-v1.0.pdf
+ *******************************************************************************/
+package edu.memphis.ccrg.lida.framework.tasks;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paces the ticks of the {@link TaskManager} in real time. Tick start times
+ * follow an absolute schedule measured with {@link System#nanoTime()}, so the
+ * error of each wait does not accumulate. When a tick overruns the start of
+ * the next one, the schedule is corrected according to the
+ * {@link CatchUpPolicy}. Keeps the number of overruns and a histogram of how
+ * late each tick started.
+ * 
+ * @author agent
+ */
+class RealTimePacer {
+
+	/**
+	 * Number of buckets of the lateness histogram. Bucket 0 counts the ticks
+	 * started less than 1 microsecond late, bucket i the ticks started between
+	 * 2^(i-1) and 2^i microseconds late. The last bucket also counts all later
+	 * ticks.
+	 */
+	static final int HISTOGRAM_BUCKETS = 32;
+
+	/*
+	 * The last part of a wait is spent spinning since parking is not
+	 * precise at that scale.
+	 */
+	private static final long SPIN_NANOS = 50000L;
+
+	private volatile CatchUpPolicy policy = CatchUpPolicy.SKIP;
+	private volatile long overruns;
+	private final AtomicLongArray lateness = new AtomicLongArray(
+			HISTOGRAM_BUCKETS);
+
+	/*
+	 * Due start time of the next tick. Only used by the main loop.
+	 */
+	private long nextStart;
+	private volatile boolean started;
+
+	/**
+	 * Restarts the schedule at the current time. Must be called when the
+	 * ticks are resumed after a wait or when the tick duration changes.
+	 */
+	void restart() {
+		started = false;
+	}
+
+	/**
+	 * Waits until the next tick is due to start. Returns as soon as the
+	 * calling thread is interrupted, leaving its interrupt status set.
+	 * 
+	 * @param ticks
+	 *            the number of ticks executed since the last call
+	 * @param tickNanos
+	 *            the duration of a tick in nanoseconds
+	 */
+	void awaitNextTick(long ticks, long tickNanos) {
+		long now = System.nanoTime();
+		if (!started) {
+			started = true;
+			nextStart = now;
+		}
+		nextStart += ticks * tickNanos;
+		long late = now - nextStart;
+		if (late > 0) {
+			// recorded before the policy moves the schedule past now
+			overruns++;
+			record(late);
+			switch (policy) {
+				case SKIP:
+					nextStart += ((late + tickNanos - 1) / tickNanos) * tickNanos;
+					break;
+				case STRETCH:
+					nextStart = now;
+					break;
+				case BURST:
+					break;
+			}
+		}
+		long remaining = nextStart - now;
+		Thread current = Thread.currentThread();
+		while (remaining > SPIN_NANOS) {
+			if (current.isInterrupted()) {
+				// keep the interrupt status for the caller
+				return;
+			}
+			LockSupport.parkNanos(remaining - SPIN_NANOS);
+			remaining = nextStart - System.nanoTime();
+		}
+		while (remaining > 0) {
+			if (current.isInterrupted()) {
+				return;
+			}
+			Thread.yield();
+			remaining = nextStart - System.nanoTime();
+		}
+		if (late <= 0) {
+			record(-remaining);
+		}
+	}
+
+	private void record(long lateNanos) {
+		long micros = lateNanos / 1000;
+		int bucket = 64 - Long.numberOfLeadingZeros(micros);
+		lateness.incrementAndGet(Math.min(bucket, HISTOGRAM_BUCKETS - 1));
+	}
+
+	CatchUpPolicy getCatchUpPolicy() {
+		return policy;
+	}
+
+	void setCatchUpPolicy(CatchUpPolicy p) {
+		policy = p;
+	}
+
+	long getOverruns() {
+		return overruns;
+	}
+
+	long[] getLatenessHistogram() {
+		long[] histogram = new long[HISTOGRAM_BUCKETS];
+		for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+			histogram[i] = lateness.get(i);
+		}
+		return histogram;
+	}
+
+	void resetStatistics() {
+		overruns = 0;
+		for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+			lateness.set(i, 0);
+		}
+	}
+}
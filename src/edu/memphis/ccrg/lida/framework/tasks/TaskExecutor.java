@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2011 The University of Memphis.  All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the LIDA Software Framework Non-Commercial License v1.0 
+ * which accompanies this distribution, and is available at
+ * http://ccrg.cs.memphis.edu/assets/papers/2010/LIDA-framework-non-commercial-v1.0.pdf
+ *******************************************************************************/
+package edu.memphis.ccrg.lida.framework.tasks;
+
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executes the batch of {@link FrameworkTask}s of a tick, and the decaying of
+ * the modules, for the {@link TaskManager}. A call to
+ * {@link #invokeAll(Collection)} does not return until every task in the
+ * batch has finished, so the end of a tick is a barrier for all its tasks.
+ * 
+ * @see ThreadPoolTaskExecutor
+ * @see ForkJoinTaskExecutor
+ * @author agent
+ */
+public interface TaskExecutor {
+
+	/**
+	 * Executes all specified tasks and waits until they have all finished.
+	 * Exceptions thrown by a task do not stop the execution of the other
+	 * tasks.
+	 * 
+	 * @param <T>
+	 *            the result type of the tasks
+	 * @param tasks
+	 *            the tasks to execute
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 */
+	public <T> void invokeAll(Collection<? extends Callable<T>> tasks)
+			throws InterruptedException;
+
+	/**
+	 * Stops accepting new tasks. Tasks already executing are allowed to
+	 * finish.
+	 */
+	public void shutdown();
+
+	/**
+	 * Blocks until all executing tasks have finished after a
+	 * {@link #shutdown()}, or the timeout occurs.
+	 * 
+	 * @param timeout
+	 *            the maximum time to wait
+	 * @param unit
+	 *            the unit of the timeout
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 */
+	public void awaitTermination(long timeout, TimeUnit unit)
+			throws InterruptedException;
+
+	/**
+	 * Attempts to stop all executing tasks.
+	 */
+	public void shutdownNow();
+
+}
@@ -9,16 +9,14 @@ package edu.memphis.ccrg.lida.framework.tasks;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -29,16 +27,19 @@ import edu.memphis.ccrg.lida.framework.ModuleName;
 import edu.memphis.ccrg.lida.framework.gui.events.FrameworkGuiEvent;
 import edu.memphis.ccrg.lida.framework.gui.events.FrameworkGuiEventListener;
 import edu.memphis.ccrg.lida.framework.gui.events.GuiEventProvider;
-import edu.memphis.ccrg.lida.framework.shared.ConcurrentHashSet;
 
 /**
  * All tasks in the {@link Agent} system are executed by this class. Controls
  * the decay of all the {@link FrameworkModule}s in {@link Agent}. Keeps track
- * of the current tick, the unit of time in the application. Maintains a task
- * queue where each position represents the time (in ticks) when a task will be
- * executed. Multiple tasks can be scheduled for the same tick. Uses an
- * {@link ExecutorService} to obtain the threads to run all the tasks scheduled
- * in one tick concurrently.
+ * of the current tick, the unit of time in the application. Maintains a
+ * {@link TaskQueue} where each position represents the time (in ticks) when a
+ * task will be executed. Multiple tasks can be scheduled for the same tick. Uses a
+ * {@link TaskExecutor} to obtain the threads to run all the tasks scheduled
+ * in one tick concurrently. Tasks that block during their execution, see
+ * {@link FrameworkTask#isBlocking()}, are each run on their own thread, a
+ * virtual thread if the JVM supports them. Optionally, ticks without any scheduled task can be
+ * skipped, in which case the main loop jumps directly to the next tick that has
+ * scheduled tasks.
  * 
  * @author Javier Snaider
  * @author Ryan J. McCall
@@ -53,9 +54,14 @@ public class TaskManager implements GuiEventProvider {
 	 */
 	public static final int DEFAULT_TICK_DURATION = 1;
 	/**
-	 * Default number of threads in the {@link ExecutorService}
+	 * Default number of threads in the {@link ThreadPoolTaskExecutor}
 	 */
 	public static final int DEFAULT_NUMBER_OF_THREADS = 50;
+	/**
+	 * Default number of ticks executed in free running mode between checks of
+	 * the pause and interval state and between gui events
+	 */
+	public static final int DEFAULT_CHECK_INTERVAL = 100;
 	/*
 	 * Determines whether or not spawned tasks should run
 	 */
@@ -68,11 +74,15 @@ public class TaskManager implements GuiEventProvider {
 
 	private volatile long endOfNextInterval = 0L;
 	private volatile static long currentTick = 0L;
-	private volatile Long maxTick = 0L;
 	private volatile boolean inIntervalMode = false;
+	private volatile boolean skipEmptyTicks = false;
+	private volatile boolean freeRunning = false;
+	private volatile int checkInterval = DEFAULT_CHECK_INTERVAL;
+	private volatile long tickLimit = 0L;
+	private final RealTimePacer pacer = new RealTimePacer();
 	private final Object lock = new Object();
 
-	private ConcurrentMap<Long, Set<FrameworkTask>> taskQueue;
+	private TaskQueue taskQueue;
 	/*
 	 * Length of time of 1 tick in milliseconds. The actual time thats the tick
 	 * unit represents. In practice tickDuration affects the speed of tasks in
@@ -81,9 +91,19 @@ public class TaskManager implements GuiEventProvider {
 	private int tickDuration = DEFAULT_TICK_DURATION;
 
 	/*
-	 * Service used to execute the tasks
+	 * Executor used to execute the tasks
 	 */
-	private ExecutorService executorService;
+	private TaskExecutor taskExecutor;
+
+	/*
+	 * Service used to execute the blocking tasks, one thread per task
+	 */
+	private ExecutorService blockingExecutorService;
+	/*
+	 * Only used by the main loop to split the tasks of a tick
+	 */
+	private final List<FrameworkTask> nonBlockingTasks = new ArrayList<FrameworkTask>();
+	private final List<Future<FrameworkTask>> blockingTasks = new ArrayList<Future<FrameworkTask>>();
 
 	/*
 	 * Main thread of the system.
@@ -102,28 +122,48 @@ public class TaskManager implements GuiEventProvider {
 			ModuleName.Agent, "TicksEvent", null);
 
 	/**
-	 * Constructs a new TaskManager.
+	 * Constructs a new TaskManager using a {@link TimingWheelTaskQueue}.
 	 * @param tickDuration
 	 *            - length of time of 1 tick in milliseconds
 	 * @param maxPoolSize
 	 *            - max number of threads used by the ExecutorService
 	 */
 	public TaskManager(int tickDuration, int maxPoolSize) {
-		int corePoolSize = DEFAULT_NUMBER_OF_THREADS;
-		long keepAliveTime = 10;
+		this(tickDuration, maxPoolSize, new TimingWheelTaskQueue());
+	}
+
+	/**
+	 * Constructs a new TaskManager using a {@link ThreadPoolTaskExecutor}.
+	 * @param tickDuration
+	 *            - length of time of 1 tick in milliseconds
+	 * @param maxPoolSize
+	 *            - max number of threads used by the ExecutorService
+	 * @param queue
+	 *            - the {@link TaskQueue} holding the scheduled tasks
+	 */
+	public TaskManager(int tickDuration, int maxPoolSize, TaskQueue queue) {
+		this(tickDuration, queue, new ThreadPoolTaskExecutor(maxPoolSize));
+	}
+
+	/**
+	 * Constructs a new TaskManager.
+	 * @param tickDuration
+	 *            - length of time of 1 tick in milliseconds
+	 * @param queue
+	 *            - the {@link TaskQueue} holding the scheduled tasks
+	 * @param executor
+	 *            - the {@link TaskExecutor} running the tasks of each tick
+	 */
+	public TaskManager(int tickDuration, TaskQueue queue, TaskExecutor executor) {
 		if (tickDuration >= 0) {
 			this.tickDuration = tickDuration;
 		} else {
 			logger.log(Level.WARNING, "Tick duration must be 0 or greater",
 					currentTick);
 		}
-		if (corePoolSize > maxPoolSize) {
-			corePoolSize = maxPoolSize;
-		}
-		taskQueue = new ConcurrentHashMap<Long, Set<FrameworkTask>>();
-		executorService = new ThreadPoolExecutor(corePoolSize, maxPoolSize,
-				keepAliveTime, TimeUnit.SECONDS,
-				new LinkedBlockingQueue<Runnable>());
+		taskQueue = queue;
+		taskExecutor = executor;
+		blockingExecutorService = newBlockingExecutorService();
 
 		taskManagerThread = new Thread(new TaskManagerMainLoop());
 		taskManagerThread.start();
@@ -147,7 +187,7 @@ public class TaskManager implements GuiEventProvider {
 	 *         scheduled task(s).
 	 */
 	public long getMaxTick() {
-		return maxTick;
+		return taskQueue.getMaxTick();
 	}
 
 	/**
@@ -172,6 +212,7 @@ public class TaskManager implements GuiEventProvider {
 	public synchronized void setTickDuration(int d) {
 		if (d >= 0) {
 			tickDuration = d;
+			pacer.restart();
 		} else {
 			logger.log(Level.WARNING, "Tick duration must be 0 or greater",
 					currentTick);
@@ -185,6 +226,61 @@ public class TaskManager implements GuiEventProvider {
 		return tickDuration;
 	}
 
+	/**
+	 * @return the {@link CatchUpPolicy} used when a tick overruns in real time
+	 *         execution
+	 */
+	public CatchUpPolicy getCatchUpPolicy() {
+		return pacer.getCatchUpPolicy();
+	}
+
+	/**
+	 * Sets the {@link CatchUpPolicy} used when, with a tick duration greater
+	 * than 0, a tick finishes after the time the next tick is due to start.
+	 * Default is {@link CatchUpPolicy#SKIP}.
+	 * 
+	 * @param p
+	 *            the new policy
+	 */
+	public void setCatchUpPolicy(CatchUpPolicy p) {
+		if (p != null) {
+			pacer.setCatchUpPolicy(p);
+		} else {
+			logger.log(Level.WARNING, "CatchUpPolicy cannot be null",
+					currentTick);
+		}
+	}
+
+	/**
+	 * Returns the number of times, in real time execution, that a tick
+	 * finished after the time the next tick was due to start.
+	 * 
+	 * @return the number of overruns
+	 */
+	public long getOverrunCount() {
+		return pacer.getOverruns();
+	}
+
+	/**
+	 * Returns a histogram of how late ticks started, in real time execution,
+	 * with respect to their due time. Element 0 is the number of ticks
+	 * started less than 1 microsecond late. Element i is the number of ticks
+	 * started between 2^(i-1) and 2^i microseconds late. The last element
+	 * also counts all the ticks started later.
+	 * 
+	 * @return a copy of the lateness histogram
+	 */
+	public long[] getLatenessHistogram() {
+		return pacer.getLatenessHistogram();
+	}
+
+	/**
+	 * Sets the overrun count and the lateness histogram to 0
+	 */
+	public void resetPacingStatistics() {
+		pacer.resetStatistics();
+	}
+
 	/**
 	 * Sets guiEventsInterval
 	 * 
@@ -230,11 +326,105 @@ public class TaskManager implements GuiEventProvider {
 		}
 	}
 
+	/**
+	 * @return true if ticks without scheduled tasks are skipped
+	 */
+	public boolean isSkipEmptyTicks() {
+		return skipEmptyTicks;
+	}
+
+	/**
+	 * Sets skipEmptyTicks. When true, the main loop advances the current tick
+	 * directly to the next tick that has scheduled tasks instead of visiting
+	 * every tick. Modules are still decayed by the total number of ticks
+	 * elapsed since they were last decayed. In interval mode the current tick
+	 * never advances past the end of the current interval.
+	 * 
+	 * @param skip
+	 *            true to skip ticks without scheduled tasks, false to execute
+	 *            every tick.
+	 */
+	public void setSkipEmptyTicks(boolean skip) {
+		skipEmptyTicks = skip;
+	}
+
+	/**
+	 * @return true if the system is in free running mode
+	 */
+	public boolean isFreeRunning() {
+		return freeRunning;
+	}
+
+	/**
+	 * Sets freeRunning. In free running mode ticks are executed back to back
+	 * for maximum throughput: the tick duration is ignored and the pause state,
+	 * the interval mode and the gui events are only checked every
+	 * checkInterval ticks. A run ends when the tick limit is reached, when no
+	 * more tasks are scheduled, or when the tasks are paused. The number of
+	 * ticks and tasks executed per second are then logged and, if the tick
+	 * limit was reached, the tasks are paused.
+	 * 
+	 * @param b
+	 *            true to set the system to free running mode, false to exit.
+	 * @see #setCheckInterval(int)
+	 * @see #setTickLimit(long)
+	 */
+	public void setFreeRunning(boolean b) {
+		freeRunning = b;
+	}
+
+	/**
+	 * @return the number of ticks executed in free running mode between checks
+	 */
+	public int getCheckInterval() {
+		return checkInterval;
+	}
+
+	/**
+	 * Sets checkInterval
+	 * 
+	 * @param i
+	 *            the number of ticks executed in free running mode between
+	 *            checks of the pause and interval state and gui events. Must
+	 *            be 1 or greater.
+	 */
+	public void setCheckInterval(int i) {
+		if (i > 0) {
+			checkInterval = i;
+		} else {
+			logger.log(Level.WARNING, "checkInterval must be 1 or greater",
+					currentTick);
+		}
+	}
+
+	/**
+	 * @return the maximum number of ticks executed in one free running run
+	 */
+	public long getTickLimit() {
+		return tickLimit;
+	}
+
+	/**
+	 * Sets tickLimit
+	 * 
+	 * @param limit
+	 *            the maximum number of ticks executed in one free running run.
+	 *            With 0 there is no limit.
+	 */
+	public void setTickLimit(long limit) {
+		if (limit >= 0) {
+			tickLimit = limit;
+		} else {
+			logger.log(Level.WARNING, "tickLimit must be 0 or greater",
+					currentTick);
+		}
+	}
+
 	/**
 	 * @return UnmodifiableMap of the task queue
 	 */
 	public Map<Long, Set<FrameworkTask>> getTaskQueue() {
-		return Collections.unmodifiableMap(taskQueue);
+		return taskQueue.getTasks();
 	}
 
 	/**
@@ -262,7 +452,7 @@ public class TaskManager implements GuiEventProvider {
 					.log(
 							Level.INFO,
 							"Resuming execution of all tasks. Current tick is {0}. Last scheduled task at tick {1}.",
-							new Object[] { currentTick, maxTick });
+							new Object[] { currentTick, getMaxTick() });
 
 			tasksPaused = false;
 
@@ -284,10 +474,7 @@ public class TaskManager implements GuiEventProvider {
 		if (task != null) {
 			long time = task.getScheduledTick();
 			if (time > currentTick) {
-				Set<FrameworkTask> set = taskQueue.get(time);
-				if (set != null) {
-					return set.remove(task);
-				}
+				return taskQueue.remove(task);
 			}
 		} else {
 			logger.log(Level.WARNING, "Cannot cancel a null task", currentTick);
@@ -346,39 +533,40 @@ public class TaskManager implements GuiEventProvider {
 							new Object[] { currentTick, task, inXTicks });
 			return false;
 		}
-		Long time = currentTick + inXTicks;
-		Set<FrameworkTask> set = taskQueue.get(time);
-		if (set == null) {
-			Set<FrameworkTask> set2 = new ConcurrentHashSet<FrameworkTask>();
-			set = taskQueue.putIfAbsent(time, set2);
-			if (set == null) {// there wasn't a set already at key 'time'
-				set = set2;
-				synchronized (maxTick) {
-					if (time > maxTick) {
-						maxTick = time;
-						synchronized (lock) {
-							lock.notify();
-						}
-					}
-				}
+		task.setScheduledTick(currentTick + inXTicks);
+		if (taskQueue.add(task)) {// max tick increased
+			synchronized (lock) {
+				lock.notify();
 			}
 		}
-		task.setScheduledTick(time);
-		set.add(task);
 		return true;
 	}
 
-	private long goNextTick() {
-		// TODO optimize this method to skip ticks until the next tick with
-		// scheduled tasks is found
-		Set<FrameworkTask> set = taskQueue.get(++currentTick);
-		taskQueue.remove(currentTick);
+	/*
+	 * Executes the next tick, or the next tick with tasks if empty ticks are
+	 * skipped, but never advances beyond lastTick. Returns the number of
+	 * tasks executed.
+	 */
+	private int goNextTick(long lastTick) {
+		long nextTick = currentTick + 1;
+		if (skipEmptyTicks) {
+			long scheduled = taskQueue.getNextScheduledTick(nextTick);
+			if (scheduled < 0) {// every remaining task was canceled
+				scheduled = taskQueue.getMaxTick();
+			}
+			nextTick = Math.max(nextTick, scheduled);
+			if (nextTick > lastTick) {
+				nextTick = Math.max(lastTick, currentTick + 1);
+			}
+		}
+		currentTick = nextTick;
+		Collection<FrameworkTask> tasks = taskQueue.pollTasks(currentTick);
 		logger.log(Level.FINEST, "Tick {0} executed", currentTick);
-		if (set != null) {
+		if (!tasks.isEmpty()) {
 			try {
 				decayModules();
-				executorService.invokeAll(set); // Execute all tasks scheduled
-				// for this tick
+				executeTasks(tasks); // Execute all tasks scheduled for this
+				// tick
 			} catch (InterruptedException e) {
 				if (!shuttingDown) {
 					logger.log(Level.WARNING,
@@ -393,13 +581,68 @@ public class TaskManager implements GuiEventProvider {
 				}
 			}
 		}
-		return currentTick;
+		return tasks.size();
+	}
+
+	/*
+	 * The last tick the main loop may advance to without checking the
+	 * interval again.
+	 */
+	private long getLastTick() {
+		return inIntervalMode ? endOfNextInterval : Long.MAX_VALUE;
+	}
+
+	/*
+	 * Runs the blocking tasks on their own threads and the rest with the
+	 * taskExecutor. Returns when all of them have finished.
+	 */
+	private void executeTasks(Collection<FrameworkTask> tasks)
+			throws InterruptedException {
+		for (FrameworkTask task : tasks) {
+			if (task.isBlocking()) {
+				blockingTasks.add(blockingExecutorService.submit(task));
+			} else {
+				nonBlockingTasks.add(task);
+			}
+		}
+		try {
+			taskExecutor.invokeAll(nonBlockingTasks);
+			for (Future<FrameworkTask> future : blockingTasks) {
+				try {
+					future.get();
+				} catch (ExecutionException e) {
+					logger.log(Level.WARNING,
+							"Exception encountered during the execution of a blocking task. \n {1}",
+							new Object[] { currentTick, e.getCause() });
+				}
+			}
+		} finally {
+			nonBlockingTasks.clear();
+			blockingTasks.clear();
+		}
+	}
+
+	/*
+	 * Returns an ExecutorService that starts a new virtual thread per task if
+	 * the JVM supports virtual threads, and an unbounded cached thread pool
+	 * otherwise.
+	 */
+	private static ExecutorService newBlockingExecutorService() {
+		try {
+			return (ExecutorService) Executors.class.getMethod(
+					"newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (Exception e) {
+			logger.log(Level.FINE,
+					"Virtual threads not supported, using a cached thread pool for blocking tasks",
+					currentTick);
+			return Executors.newCachedThreadPool();
+		}
 	}
 
 	private void decayModules() {
 		DecayableWrapper.setDecayInterval(currentTick);
 		try {
-			executorService.invokeAll(decayables);
+			taskExecutor.invokeAll(decayables);
 		} catch (InterruptedException e) {
 			logger.log(Level.WARNING, "Decaying interrupted. Message: {1}",
 					new Object[] { currentTick, e.getMessage() });
@@ -436,10 +679,11 @@ public class TaskManager implements GuiEventProvider {
 		public void run() {
 			while (!shuttingDown) {
 				synchronized (lock) {
-					if ((currentTick >= maxTick)
+					if ((currentTick >= taskQueue.getMaxTick())
 							|| (inIntervalMode && (currentTick >= endOfNextInterval))
 							|| tasksPaused) {
 						try {
+							pacer.restart();
 							lock.wait();
 							continue;
 						} catch (InterruptedException e) {
@@ -450,28 +694,70 @@ public class TaskManager implements GuiEventProvider {
 					}
 				}
 
-				long initTime = System.currentTimeMillis(); // For real time
+				if (freeRunning) {
+					runFreely();
+					pacer.restart();
+					continue;
+				}
 
-				goNextTick(); // Execute one tick of the simulation
+				long initTick = currentTick;
 
-				long duration = System.currentTimeMillis() - initTime;
-				if (duration < tickDuration) {// TODO change this if multiple
-												// ticks are executed in
-												// goNextTick()
-					try {
-						Thread.sleep(tickDuration - duration);
-					} catch (InterruptedException e) {
-						return;
-					}
+				goNextTick(getLastTick()); // Execute one tick of the simulation
+
+				if (tickDuration > 0) {// For real time
+					// goNextTick() may advance several ticks if empty ticks
+					// are skipped
+					pacer.awaitNextTick(currentTick - initTick,
+							tickDuration * 1000000L);
 				}
-				// To update Gui
-				if (guiEventsInterval > 0 && !guiListeners.isEmpty()) {
-					if (currentTick - lastGuiEventTick >= guiEventsInterval) {
-						sendEventToGui(defaultGuiEvent);
-						lastGuiEventTick = currentTick;
-					}
+				updateGui();
+			}// while
+		}
+
+		/*
+		 * Executes ticks back to back, checking the pause and interval state
+		 * only every checkInterval ticks, until the tick limit is reached or
+		 * there is nothing more to execute.
+		 */
+		private void runFreely() {
+			long initTick = currentTick;
+			long initTime = System.nanoTime();
+			long tasksExecuted = 0;
+			long limit = (tickLimit > 0) ? initTick + tickLimit
+					: Long.MAX_VALUE;
+			while (!shuttingDown && !tasksPaused && freeRunning
+					&& currentTick < limit
+					&& currentTick < taskQueue.getMaxTick()) {
+				long lastTick = Math.min(getLastTick(), limit);
+				if (currentTick >= lastTick) {
+					break;
+				}
+				long chunkEnd = Math.min(lastTick, currentTick + checkInterval);
+				while (currentTick < chunkEnd) {
+					tasksExecuted += goNextTick(chunkEnd);
 				}
-			}// while
+				updateGui();
+			}
+			double seconds = (System.nanoTime() - initTime) / 1e9;
+			long ticks = currentTick - initTick;
+			if (ticks > 0 && seconds > 0) {
+				logger.log(Level.INFO,
+						"Free run executed {1} ticks and {2} tasks: {3} ticks/s, {4} tasks/s",
+						new Object[] { currentTick, ticks, tasksExecuted,
+								ticks / seconds, tasksExecuted / seconds });
+			}
+			if (currentTick >= limit) {
+				pauseTasks();
+			}
+		}
+
+		private void updateGui() {
+			if (guiEventsInterval > 0 && !guiListeners.isEmpty()) {
+				if (currentTick - lastGuiEventTick >= guiEventsInterval) {
+					sendEventToGui(defaultGuiEvent);
+					lastGuiEventTick = currentTick;
+				}
+			}
 		}
 	}// class
 
@@ -544,12 +830,14 @@ public class TaskManager implements GuiEventProvider {
 		taskManagerThread.interrupt();
 		// Now that we can be sure that active tasks will no longer be executed
 		// the executor service can be shutdown.
-		executorService.shutdown();
+		taskExecutor.shutdown();
+		blockingExecutorService.shutdown();
 		logger.log(Level.INFO, "All threads and tasks told to stop",
 				currentTick);
 		try {
-			executorService.awaitTermination(800, TimeUnit.MILLISECONDS);
-			executorService.shutdownNow();
+			taskExecutor.awaitTermination(800, TimeUnit.MILLISECONDS);
+			taskExecutor.shutdownNow();
+			blockingExecutorService.shutdownNow();
 			Thread.sleep(400);
 		} catch (InterruptedException e) {
 			e.printStackTrace();
@@ -583,10 +871,11 @@ public class TaskManager implements GuiEventProvider {
 	 * implemented in the framework in the future.
 	 */
 	void reset() {
-		taskQueue = new ConcurrentHashMap<Long, Set<FrameworkTask>>();
 		endOfNextInterval = 0L;
 		currentTick = 0L;
-		maxTick = 0L;
+		taskQueue.clear();
+		pacer.restart();
+		pacer.resetStatistics();
 		tasksPaused = true;
 		inIntervalMode = false;
 		DecayableWrapper.lastDecayTick = 0;
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2011 The University of Memphis.  All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the LIDA Software Framework Non-Commercial License v1.0 
+ * which accompanies this distribution, and is available at
+ * http://ccrg.cs.memphis.edu/assets/papers/2010/LIDA-framework-non-commercial-v1.0.pdf
+ *******************************************************************************/
+package edu.memphis.ccrg.lida.framework.tasks;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A pool of reusable {@link FrameworkTaskImpl}s of one kind, intended for
+ * short-lived tasks that are created at a high rate. A task obtained with
+ * {@link #acquire()} returns to its pool once it has been executed and its
+ * {@link TaskStatus} is {@link TaskStatus#CANCELED}. It is then reset and
+ * handed out again by a later call of {@link #acquire()}. A task must not be
+ * used after it has been canceled.
+ * <br/>
+ * Subclasses implement {@link #createTask()}. The pool holds at most its
+ * capacity of idle tasks; tasks beyond it are left to the garbage collector.
+ * 
+ * @param <T>
+ *            the type of the pooled tasks
+ * @author agent
+ */
+public abstract class TaskPool<T extends FrameworkTaskImpl> {
+
+	/**
+	 * Default number of idle tasks a pool can hold
+	 */
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	private final BlockingQueue<T> tasks;
+
+	/**
+	 * Constructs a new pool with the default capacity
+	 */
+	public TaskPool() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructs a new pool with specified capacity
+	 * 
+	 * @param capacity
+	 *            the maximum number of idle tasks kept by this pool
+	 */
+	public TaskPool(int capacity) {
+		tasks = new ArrayBlockingQueue<T>(capacity);
+	}
+
+	/**
+	 * Returns an idle task of this pool, reset to the {@link TaskStatus#RUNNING}
+	 * status and without a controlling {@link TaskSpawner}, or a new task if
+	 * there is none. The caller should set the task's specific values before
+	 * adding it to a {@link TaskSpawner}.
+	 * 
+	 * @return a task ready to be used
+	 */
+	public T acquire() {
+		T task = tasks.poll();
+		if (task == null) {
+			task = createTask();
+			task.setTaskPool(this);
+		} else {
+			task.resetTask();
+		}
+		return task;
+	}
+
+	/**
+	 * Creates a new task for this pool.
+	 * 
+	 * @return a new task
+	 */
+	protected abstract T createTask();
+
+	/*
+	 * Called by tasks of this pool once they are canceled. Only tasks created
+	 * by this pool are released to it.
+	 */
+	@SuppressWarnings("unchecked")
+	void release(FrameworkTaskImpl task) {
+		tasks.offer((T) task);
+	}
+
+	/**
+	 * @return the number of idle tasks in this pool
+	 */
+	public int size() {
+		return tasks.size();
+	}
+
+}
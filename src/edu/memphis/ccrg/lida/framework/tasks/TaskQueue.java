@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2011 The University of Memphis.  All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the LIDA Software Framework Non-Commercial License v1.0 
+ * which accompanies this distribution, and is available at
+ * http://ccrg.cs.memphis.edu/assets/papers/2010/LIDA-framework-non-commercial-v1.0.pdf
+ *******************************************************************************/
+package edu.memphis.ccrg.lida.framework.tasks;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The queue of {@link FrameworkTask}s scheduled for execution by the
+ * {@link TaskManager}. Each task is stored at the tick given by its
+ * {@link FrameworkTask#getScheduledTick()}. Implementations must allow
+ * multiple threads to add and remove tasks concurrently. Only the
+ * {@link TaskManager}'s main loop calls {@link #pollTasks(long)} and
+ * {@link #getNextScheduledTick(long)}.
+ *
+ * @see TimingWheelTaskQueue the default implementation
+ * @author agent
+ */
+public interface TaskQueue {
+
+	/**
+	 * Adds specified task at the tick returned by its
+	 * {@link FrameworkTask#getScheduledTick()}.
+	 *
+	 * @param task
+	 *            the task to add
+	 * @return true if the task was scheduled beyond the previous max tick,
+	 *         i.e., the max tick of this queue increased
+	 */
+	public boolean add(FrameworkTask task);
+
+	/**
+	 * Removes specified task from this queue if it has not been polled yet.
+	 *
+	 * @param task
+	 *            the task to remove
+	 * @return true if the task was removed
+	 */
+	public boolean remove(FrameworkTask task);
+
+	/**
+	 * Removes and returns all tasks scheduled for specified tick, along with
+	 * any task scheduled before it that has not been polled yet. The returned
+	 * {@link Collection} may be reused by the next call of this method.
+	 *
+	 * @param tick
+	 *            the tick to be executed
+	 * @return the tasks to execute, possibly empty but never null
+	 */
+	public Collection<FrameworkTask> pollTasks(long tick);
+
+	/**
+	 * Returns the first tick, at or after specified tick, that may have
+	 * scheduled tasks. No tick before the returned one has scheduled tasks.
+	 *
+	 * @param tick
+	 *            the first tick to consider
+	 * @return the next tick that may have tasks or -1 if there is none
+	 */
+	public long getNextScheduledTick(long tick);
+
+	/**
+	 * @return the farthest tick in the future for which a task has been
+	 *         scheduled
+	 */
+	public long getMaxTick();
+
+	/**
+	 * Returns a snapshot of the tasks in this queue.
+	 *
+	 * @return an unmodifiable Map of the tasks indexed by scheduled tick
+	 */
+	public Map<Long, Set<FrameworkTask>> getTasks();
+
+	/**
+	 * Removes all tasks and resets this queue to start at the tick after
+	 * {@link TaskManager#getCurrentTick()}.
+	 */
+	public void clear();
+
+}
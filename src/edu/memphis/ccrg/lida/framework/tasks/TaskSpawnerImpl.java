@@ -36,6 +36,11 @@ public class TaskSpawnerImpl extends InitializableImpl implements TaskSpawner {
 
 	private TaskManager taskManager;
 
+	/*
+	 * Whether the tasks added to this TaskSpawner block during their execution
+	 */
+	private boolean blockingTasks;
+
 	/**
 	 * This default constructor is used by the {@link AgentXmlFactory}.
 	 * {@link TaskManager} must be set using {@link TaskSpawner#setTaskManager(TaskManager)}
@@ -51,6 +56,16 @@ public class TaskSpawnerImpl extends InitializableImpl implements TaskSpawner {
 		taskManager = tm;
 	}
 
+	/**
+	 * Will set parameters with the following names:<br/><br/>
+	 * 
+	 * <b>taskSpawner.blockingTasks</b> if true, all tasks added to this TaskSpawner are set as blocking tasks, see {@link FrameworkTask#setBlocking(boolean)}<br/>
+	 */
+	@Override
+	public void init() {
+		blockingTasks = getParam("taskSpawner.blockingTasks", false);
+	}
+
 	@Override
 	public void setTaskManager(TaskManager tm) {
 		taskManager = tm;
@@ -74,6 +89,9 @@ public class TaskSpawnerImpl extends InitializableImpl implements TaskSpawner {
 					TaskManager.getCurrentTick(), task });
 		}else{
 			task.setControllingTaskSpawner(this);
+			if(blockingTasks){
+				task.setBlocking(true);
+			}
 			controlledTasks.add(task);
 			runTask(task);
 			logger.log(Level.FINEST, "Task {1} added", new Object[] {
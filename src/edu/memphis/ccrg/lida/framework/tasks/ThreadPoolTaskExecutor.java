@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2011 The University of Memphis.  All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the LIDA Software Framework Non-Commercial License v1.0 
+ * which accompanies this distribution, and is available at
+ * http://ccrg.cs.memphis.edu/assets/papers/2010/LIDA-framework-non-commercial-v1.0.pdf
+ *******************************************************************************/
+package edu.memphis.ccrg.lida.framework.tasks;
+
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link TaskExecutor} based on a {@link ThreadPoolExecutor} with a single
+ * shared work queue. This is the default {@link TaskExecutor} of the
+ * {@link TaskManager}.
+ * 
+ * @author Javier Snaider
+ * @author Ryan J. McCall
+ * @author agent
+ */
+public class ThreadPoolTaskExecutor implements TaskExecutor {
+
+	private static final long KEEP_ALIVE_TIME = 10;
+
+	/*
+	 * Service used to execute the tasks
+	 */
+	private ExecutorService executorService;
+
+	/**
+	 * Constructs a new executor with
+	 * {@link TaskManager#DEFAULT_NUMBER_OF_THREADS} core threads or
+	 * maxPoolSize if it is smaller.
+	 * 
+	 * @param maxPoolSize
+	 *            max number of threads used by the {@link ExecutorService}
+	 */
+	public ThreadPoolTaskExecutor(int maxPoolSize) {
+		int corePoolSize = TaskManager.DEFAULT_NUMBER_OF_THREADS;
+		if (corePoolSize > maxPoolSize) {
+			corePoolSize = maxPoolSize;
+		}
+		executorService = new ThreadPoolExecutor(corePoolSize, maxPoolSize,
+				KEEP_ALIVE_TIME, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>());
+	}
+
+	@Override
+	public <T> void invokeAll(Collection<? extends Callable<T>> tasks)
+			throws InterruptedException {
+		executorService.invokeAll(tasks);
+	}
+
+	@Override
+	public void shutdown() {
+		executorService.shutdown();
+	}
+
+	@Override
+	public void awaitTermination(long timeout, TimeUnit unit)
+			throws InterruptedException {
+		executorService.awaitTermination(timeout, unit);
+	}
+
+	@Override
+	public void shutdownNow() {
+		executorService.shutdownNow();
+	}
+
+}
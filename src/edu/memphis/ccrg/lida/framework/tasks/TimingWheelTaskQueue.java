@@ -0,0 +1,302 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2011 The University of Memphis.  All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the LIDA Software Framework Non-Commercial License v1.0 
+ * which accompanies this distribution, and is available at
+ * http://ccrg.cs.memphis.edu/assets/papers/2010/LIDA-framework-non-commercial-v1.0.pdf
+ *******************************************************************************/
+package edu.memphis.ccrg.lida.framework.tasks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.memphis.ccrg.lida.framework.shared.ConcurrentHashSet;
+
+/**
+ * A {@link TaskQueue} implemented as a hierarchical timing wheel. The first
+ * wheel has one slot per tick for the 256 ticks of the current block. Each
+ * following wheel has 64 slots, each slot holding all the tasks of one block
+ * of the previous wheel. Tasks beyond the range of the last wheel are kept in
+ * an overflow set. When the main loop enters a new block, the tasks of the
+ * corresponding higher-level slot are moved down to the lower wheels.
+ * <br/>
+ * All slots are created once, when the queue is created, and are reused as
+ * the wheels turn. Adding and removing a task are constant time operations
+ * and any number of threads may add and remove tasks concurrently with the
+ * main loop polling them.
+ *
+ * @author agent
+ */
+public class TimingWheelTaskQueue implements TaskQueue {
+
+	private static final int FIRST_WHEEL_BITS = 8;
+	private static final int WHEEL_BITS = 6;
+	private static final int NUMBER_OF_WHEELS = 4;
+
+	/*
+	 * For each wheel, the position of the lowest bit of a tick used as slot
+	 * index, the position of the first bit beyond the wheel's range, and the
+	 * mask of the slot index.
+	 */
+	private final int[] shift = new int[NUMBER_OF_WHEELS];
+	private final int[] span = new int[NUMBER_OF_WHEELS];
+	private final long[] mask = new long[NUMBER_OF_WHEELS];
+	private final Slot[][] wheels;
+	private final Set<FrameworkTask> overflow = new ConcurrentHashSet<FrameworkTask>();
+
+	/*
+	 * The next tick to be polled. Tasks are placed in the wheels relative to
+	 * this tick.
+	 */
+	private volatile long base;
+	/*
+	 * Incremented every time tasks are moved from a higher-level slot. Used
+	 * by adding and removing threads to detect that their slot may have been
+	 * moved while they were using it.
+	 */
+	private volatile long epoch;
+	private final AtomicLong maxTick = new AtomicLong();
+
+	/*
+	 * Only used by the polling thread
+	 */
+	private final List<FrameworkTask> polled = new ArrayList<FrameworkTask>();
+	private final List<FrameworkTask> moved = new ArrayList<FrameworkTask>();
+
+	/*
+	 * The tasks of one slot of a wheel
+	 */
+	private static class Slot extends ConcurrentHashSet<FrameworkTask> {
+		private static final long serialVersionUID = 1L;
+	}
+
+	/**
+	 * Constructs a new queue starting at the tick after
+	 * {@link TaskManager#getCurrentTick()}
+	 */
+	public TimingWheelTaskQueue() {
+		wheels = new Slot[NUMBER_OF_WHEELS][];
+		int low = 0;
+		for (int i = 0; i < NUMBER_OF_WHEELS; i++) {
+			int bits = (i == 0) ? FIRST_WHEEL_BITS : WHEEL_BITS;
+			shift[i] = low;
+			span[i] = low + bits;
+			mask[i] = (1L << bits) - 1;
+			wheels[i] = new Slot[1 << bits];
+			for (int j = 0; j < wheels[i].length; j++) {
+				wheels[i][j] = new Slot();
+			}
+			low += bits;
+		}
+		base = TaskManager.getCurrentTick() + 1;
+	}
+
+	/*
+	 * Returns the slot of specified tick when b is the next tick to be polled.
+	 */
+	private Set<FrameworkTask> getSlot(long tick, long b) {
+		for (int i = 0; i < NUMBER_OF_WHEELS; i++) {
+			if ((tick >>> span[i]) == (b >>> span[i])) {
+				return wheels[i][(int) ((tick >>> shift[i]) & mask[i])];
+			}
+		}
+		return overflow;
+	}
+
+	@Override
+	public boolean add(FrameworkTask task) {
+		long tick;
+		while (true) {
+			long e = epoch;
+			long b = base;
+			tick = task.getScheduledTick();
+			if (tick < b) {
+				// the tick was polled before the task could be added
+				tick = b;
+				task.setScheduledTick(tick);
+			}
+			Set<FrameworkTask> slot = getSlot(tick, b);
+			slot.add(task);
+			if (e == epoch && tick >= base) {
+				break;
+			}
+			// the slot was moved or polled meanwhile. If the task is not
+			// there anymore the main loop has taken care of it.
+			if (!slot.remove(task)) {
+				break;
+			}
+		}
+		long max = maxTick.get();
+		while (tick > max) {
+			if (maxTick.compareAndSet(max, tick)) {
+				return true;
+			}
+			max = maxTick.get();
+		}
+		return false;
+	}
+
+	@Override
+	public boolean remove(FrameworkTask task) {
+		while (true) {
+			long e = epoch;
+			long b = base;
+			long tick = task.getScheduledTick();
+			if (tick < b) {
+				return false;
+			}
+			if (getSlot(tick, b).remove(task)) {
+				return true;
+			}
+			if (e == epoch) {
+				return false;
+			}
+		}
+	}
+
+	@Override
+	public Collection<FrameworkTask> pollTasks(long tick) {
+		polled.clear();
+		while (base <= tick) {
+			long next = base;
+			if ((next & mask[0]) == 0) {
+				cascade(next);
+			}
+			long end = Math.min(tick, next | mask[0]);
+			// base is moved before draining so that a task added to a
+			// drained slot is detected and re-added by the adding thread
+			base = end + 1;
+			for (long t = next; t <= end; t++) {
+				drain(wheels[0][(int) (t & mask[0])], polled);
+			}
+		}
+		return polled;
+	}
+
+	/*
+	 * Moves down the tasks of every higher-level slot that starts at
+	 * specified tick.
+	 */
+	private void cascade(long next) {
+		epoch++;
+		int last = NUMBER_OF_WHEELS - 1;
+		if ((next & ((1L << span[last]) - 1)) == 0) {
+			redistribute(overflow, next);
+		}
+		for (int i = last; i > 0; i--) {
+			if ((next & ((1L << shift[i]) - 1)) == 0) {
+				redistribute(wheels[i][(int) ((next >>> shift[i]) & mask[i])],
+						next);
+			}
+		}
+	}
+
+	private void redistribute(Set<FrameworkTask> slot, long next) {
+		moved.clear();
+		drain(slot, moved);
+		for (FrameworkTask task : moved) {
+			long tick = task.getScheduledTick();
+			if (tick < next) {
+				tick = next;
+				task.setScheduledTick(tick);
+			}
+			getSlot(tick, next).add(task);
+		}
+	}
+
+	private static void drain(Set<FrameworkTask> slot,
+			List<FrameworkTask> destination) {
+		if (slot.isEmpty()) {
+			return;
+		}
+		Iterator<FrameworkTask> it = slot.iterator();
+		while (it.hasNext()) {
+			destination.add(it.next());
+			it.remove();
+		}
+	}
+
+	@Override
+	public long getNextScheduledTick(long tick) {
+		long b = base;
+		long first = Math.max(tick, b);
+		for (long t = first; t <= (b | mask[0]); t++) {
+			if (!wheels[0][(int) (t & mask[0])].isEmpty()) {
+				return t;
+			}
+		}
+		for (int i = 1; i < NUMBER_OF_WHEELS; i++) {
+			long index = (b >>> shift[i]) & mask[i];
+			if ((b & ((1L << shift[i]) - 1)) != 0) {
+				// slot of the current block has already been moved down
+				index++;
+			}
+			long spanStart = (b >>> span[i]) << span[i];
+			for (long j = index; j <= mask[i]; j++) {
+				if (!wheels[i][(int) j].isEmpty()) {
+					return Math.max(first, spanStart | (j << shift[i]));
+				}
+			}
+		}
+		if (!overflow.isEmpty()) {
+			int last = NUMBER_OF_WHEELS - 1;
+			long spanStart = (b >>> span[last]) << span[last];
+			if (spanStart != b) {
+				spanStart += 1L << span[last];
+			}
+			return Math.max(first, spanStart);
+		}
+		return -1;
+	}
+
+	@Override
+	public long getMaxTick() {
+		return maxTick.get();
+	}
+
+	@Override
+	public Map<Long, Set<FrameworkTask>> getTasks() {
+		Map<Long, Set<FrameworkTask>> tasks = new TreeMap<Long, Set<FrameworkTask>>();
+		for (Slot[] wheel : wheels) {
+			for (Set<FrameworkTask> slot : wheel) {
+				addTasks(slot, tasks);
+			}
+		}
+		addTasks(overflow, tasks);
+		return Collections.unmodifiableMap(tasks);
+	}
+
+	private static void addTasks(Set<FrameworkTask> slot,
+			Map<Long, Set<FrameworkTask>> tasks) {
+		for (FrameworkTask task : slot) {
+			Set<FrameworkTask> set = tasks.get(task.getScheduledTick());
+			if (set == null) {
+				set = new HashSet<FrameworkTask>();
+				tasks.put(task.getScheduledTick(), set);
+			}
+			set.add(task);
+		}
+	}
+
+	@Override
+	public void clear() {
+		epoch++;
+		for (Slot[] wheel : wheels) {
+			for (Set<FrameworkTask> slot : wheel) {
+				slot.clear();
+			}
+		}
+		overflow.clear();
+		base = TaskManager.getCurrentTick() + 1;
+		maxTick.set(0L);
+	}
+
+}
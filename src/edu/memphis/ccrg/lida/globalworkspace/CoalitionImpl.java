@@ -14,6 +14,7 @@ import edu.memphis.ccrg.lida.attentioncodelets.AttentionCodelet;
 import edu.memphis.ccrg.lida.attentioncodelets.AttentionCodeletImpl;
 import edu.memphis.ccrg.lida.framework.shared.Linkable;
 import edu.memphis.ccrg.lida.framework.shared.NodeStructure;
+import edu.memphis.ccrg.lida.framework.shared.PersistentNodeStructureImpl;
 import edu.memphis.ccrg.lida.framework.shared.UnmodifiableNodeStructureImpl;
 import edu.memphis.ccrg.lida.framework.shared.activation.ActivatibleImpl;
 import edu.memphis.ccrg.lida.framework.tasks.TaskManager;
@@ -53,14 +54,15 @@ public class CoalitionImpl extends ActivatibleImpl implements Coalition {
     }
 
     /**
-     * Constructs a {@link CoalitionImpl} with specified content that is being created by specified {@link AttentionCodelet}
+     * Constructs a {@link CoalitionImpl} with specified content that is being created by specified {@link AttentionCodelet}.
+     * The content is kept in a {@link PersistentNodeStructureImpl}, so that the broadcast and later copies of it share it.
      * @param ns the {@link BroadcastContent}
      * @param c The {@link AttentionCodelet} that created this Coalition
      * @see AttentionCodeletImpl
      */
     public CoalitionImpl(NodeStructure ns, AttentionCodelet c) {
     	this();
-        broadcastContent = (BroadcastContent) new UnmodifiableNodeStructureImpl(ns,true);
+        broadcastContent = (BroadcastContent) new UnmodifiableNodeStructureImpl(new PersistentNodeStructureImpl(ns),false);
         creatingAttentionCodelet = c;
         updateActivation();
     }
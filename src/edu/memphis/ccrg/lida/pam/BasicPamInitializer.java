@@ -7,6 +7,8 @@
  *******************************************************************************/
 package edu.memphis.ccrg.lida.pam;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -29,6 +31,10 @@ import edu.memphis.ccrg.lida.framework.tasks.TaskManager;
  * <br/>
  * The definition for 'links' is: <br/>
  * <b>sourceNodeLabel1:sinkNodeLabel2,...</b>
+ * <br/>
+ * Alternatively a parameter named 'snapshot' may contain the path of a
+ * {@link PamSnapshot} file, in which case PAM is loaded from the snapshot and
+ * 'nodes' and 'links' are ignored.
  * 
  * @author Javier Snaider
  * @author Ryan J. McCall
@@ -43,6 +49,21 @@ public class BasicPamInitializer implements Initializer {
         PerceptualAssociativeMemory pam = (PerceptualAssociativeMemory) module;
 //        ElementFactory factory = ElementFactory.getInstance();
 
+        String snapshot = (String) params.get("snapshot");
+        if (snapshot != null) {
+            if (params.get("nodes") != null || params.get("links") != null) {
+                logger.log(Level.WARNING, "PAM snapshot {1} is used, 'nodes' and 'links' are ignored",
+                        new Object[]{TaskManager.getCurrentTick(), snapshot});
+            }
+            try {
+                PamSnapshot.load(new File(snapshot), pam, true);
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Error loading PAM snapshot {1}: {2}",
+                        new Object[]{TaskManager.getCurrentTick(), snapshot, e});
+            }
+            return;
+        }
+
         String nodes = (String) params.get("nodes");
         if (nodes != null) {
             GlobalInitializer globalInitializer = GlobalInitializer.getInstance();
@@ -0,0 +1,248 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2011 The University of Memphis.  All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the LIDA Software Framework Non-Commercial License v1.0 
+ * which accompanies this distribution, and is available at
+ * http://ccrg.cs.memphis.edu/assets/papers/2010/LIDA-framework-non-commercial-v1.0.pdf
+ *******************************************************************************/
+package edu.memphis.ccrg.lida.pam;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import edu.memphis.ccrg.lida.framework.initialization.InitializableImpl;
+import edu.memphis.ccrg.lida.framework.shared.ExtendedId;
+import edu.memphis.ccrg.lida.framework.shared.Node;
+import edu.memphis.ccrg.lida.framework.strategies.DecayStrategy;
+import edu.memphis.ccrg.lida.framework.strategies.ExciteStrategy;
+import edu.memphis.ccrg.lida.framework.strategies.TotalActivationStrategy;
+import edu.memphis.ccrg.lida.framework.tasks.TaskManager;
+
+/**
+ * A lightweight {@link PamNode} whose attributes are stored in a
+ * {@link CompactPamNodeStore}. It only holds its id, so any number of
+ * instances may be created for the same node and they are all equal.
+ *
+ * @author agent
+ */
+class CompactPamNode extends InitializableImpl implements PamNode {
+
+	private static final Logger logger = Logger
+			.getLogger(CompactPamNode.class.getCanonicalName());
+
+	private final CompactPamNodeStore store;
+	private final int id;
+
+	/**
+	 * @param store
+	 *            the store of the node's attributes
+	 * @param id
+	 *            the node's id
+	 */
+	CompactPamNode(CompactPamNodeStore store, int id) {
+		this.store = store;
+		this.id = id;
+	}
+
+	@Override
+	public int getId() {
+		return id;
+	}
+
+	@Override
+	public void setId(int id) {
+		logger.log(Level.WARNING, "Cannot change the id of a compact PAM node",
+				TaskManager.getCurrentTick());
+	}
+
+	@Override
+	public ExtendedId getExtendedId() {
+		return new ExtendedId(id);
+	}
+
+	@Override
+	public ExtendedId getConditionId() {
+		return getExtendedId();
+	}
+
+	@Override
+	public String getLabel() {
+		return store.getLabel(id);
+	}
+
+	@Override
+	public void setLabel(String label) {
+		logger.log(Level.WARNING,
+				"Cannot change the label of a compact PAM node",
+				TaskManager.getCurrentTick());
+	}
+
+	@Override
+	public String getFactoryType() {
+		return store.getFactoryType(id);
+	}
+
+	@Override
+	public void setFactoryType(String t) {
+		store.setFactoryType(id, t);
+	}
+
+	@Override
+	public PamNode getGroundingPamNode() {
+		return this;
+	}
+
+	@Override
+	public void setGroundingPamNode(PamNode n) {
+		// a PAM node is its own grounding node
+	}
+
+	@Override
+	public void updateNodeValues(Node n) {
+		if (n instanceof PamNode) {
+			setBaseLevelActivation(((PamNode) n).getBaseLevelActivation());
+		}
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (o instanceof Node) {
+			return ((Node) o).getId() == id;
+		}
+		return false;
+	}
+
+	@Override
+	public int hashCode() {
+		return id;
+	}
+
+	@Override
+	public String toString() {
+		return getLabel() + "[" + id + "]";
+	}
+
+	// ACTIVATIBLE METHODS
+	@Override
+	public double getActivation() {
+		return store.getActivation(id);
+	}
+
+	@Override
+	public void setActivation(double activation) {
+		store.setActivation(id, activation);
+	}
+
+	@Override
+	public double getTotalActivation() {
+		return store.getTotalActivation(id);
+	}
+
+	@Override
+	public void excite(double amount) {
+		store.excite(id, amount);
+	}
+
+	@Override
+	public void setExciteStrategy(ExciteStrategy strategy) {
+		store.setExciteStrategy(id, strategy);
+	}
+
+	@Override
+	public ExciteStrategy getExciteStrategy() {
+		return store.getExciteStrategy(id);
+	}
+
+	@Override
+	public void decay(long ticks) {
+		store.decayBaseLevelActivation(id, ticks);
+		store.decay(id, ticks);
+	}
+
+	@Override
+	public void setDecayStrategy(DecayStrategy strategy) {
+		store.setDecayStrategy(id, strategy);
+	}
+
+	@Override
+	public DecayStrategy getDecayStrategy() {
+		return store.getDecayStrategy(id);
+	}
+
+	@Override
+	public void setActivatibleRemovalThreshold(double threshold) {
+		store.setRemovalThreshold(id, threshold);
+	}
+
+	@Override
+	public double getActivatibleRemovalThreshold() {
+		return store.getRemovalThreshold(id);
+	}
+
+	@Override
+	public boolean isRemovable() {
+		return getBaseLevelActivation() <= getLearnableRemovalThreshold();
+	}
+
+	// LEARNABLE METHODS
+	@Override
+	public double getBaseLevelActivation() {
+		return store.getBaseLevelActivation(id);
+	}
+
+	@Override
+	public void setBaseLevelActivation(double amount) {
+		store.setBaseLevelActivation(id, amount);
+	}
+
+	@Override
+	public void reinforceBaseLevelActivation(double amount) {
+		store.reinforceBaseLevelActivation(id, amount);
+	}
+
+	@Override
+	public void decayBaseLevelActivation(long ticks) {
+		store.decayBaseLevelActivation(id, ticks);
+	}
+
+	@Override
+	public void setBaseLevelExciteStrategy(ExciteStrategy strategy) {
+		store.setBaseLevelExciteStrategy(id, strategy);
+	}
+
+	@Override
+	public ExciteStrategy getBaseLevelExciteStrategy() {
+		return store.getBaseLevelExciteStrategy(id);
+	}
+
+	@Override
+	public void setBaseLevelDecayStrategy(DecayStrategy strategy) {
+		store.setBaseLevelDecayStrategy(id, strategy);
+	}
+
+	@Override
+	public DecayStrategy getBaseLevelDecayStrategy() {
+		return store.getBaseLevelDecayStrategy(id);
+	}
+
+	@Override
+	public void setBaseLevelRemovalThreshold(double threshold) {
+		store.setBaseLevelRemovalThreshold(id, threshold);
+	}
+
+	@Override
+	public double getLearnableRemovalThreshold() {
+		return store.getBaseLevelRemovalThreshold(id);
+	}
+
+	@Override
+	public TotalActivationStrategy getTotalActivationStrategy() {
+		return store.getTotalActivationStrategy(id);
+	}
+
+	@Override
+	public void setTotalActivationStrategy(TotalActivationStrategy strategy) {
+		store.setTotalActivationStrategy(id, strategy);
+	}
+
+}
@@ -0,0 +1,632 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2011 The University of Memphis.  All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the LIDA Software Framework Non-Commercial License v1.0 
+ * which accompanies this distribution, and is available at
+ * http://ccrg.cs.memphis.edu/assets/papers/2010/LIDA-framework-non-commercial-v1.0.pdf
+ *******************************************************************************/
+package edu.memphis.ccrg.lida.pam;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.memphis.ccrg.lida.framework.shared.Link;
+import edu.memphis.ccrg.lida.framework.strategies.DecayStrategy;
+import edu.memphis.ccrg.lida.framework.strategies.ExciteStrategy;
+import edu.memphis.ccrg.lida.framework.strategies.TotalActivationStrategy;
+
+/**
+ * Stores the attributes of {@link PamNode}s in parallel primitive arrays
+ * indexed by node id instead of one object graph per node. Strategies and
+ * factory types are stored as short ids into a table shared by all nodes.
+ * <br/>
+ * The arrays are split in chunks of {@link #CHUNK_SIZE} ids, allocated when
+ * the first id of the chunk is added. Chunks are never moved, so growing the
+ * store does not copy the stored values. Each chunk is also the lock of the
+ * values it holds.
+ *
+ * @author agent
+ */
+class CompactPamNodeStore {
+
+	private static final int CHUNK_BITS = 12;
+	/**
+	 * Number of node ids per chunk
+	 */
+	static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	private static final int INITIAL_LABEL_CAPACITY = 1024;
+
+	/*
+	 * Values of CHUNK_SIZE consecutive node ids
+	 */
+	private static class Chunk {
+		final String[] labels = new String[CHUNK_SIZE];
+		final double[] activations = new double[CHUNK_SIZE];
+		final double[] removalThresholds = new double[CHUNK_SIZE];
+		final double[] baseLevelActivations = new double[CHUNK_SIZE];
+		final double[] baseLevelRemovalThresholds = new double[CHUNK_SIZE];
+		final short[] factoryTypes = new short[CHUNK_SIZE];
+		final short[] exciteStrategies = new short[CHUNK_SIZE];
+		final short[] decayStrategies = new short[CHUNK_SIZE];
+		final short[] baseLevelExciteStrategies = new short[CHUNK_SIZE];
+		final short[] baseLevelDecayStrategies = new short[CHUNK_SIZE];
+		final short[] totalActivationStrategies = new short[CHUNK_SIZE];
+		final Link[][] outgoingLinks = new Link[CHUNK_SIZE][];
+		/*
+		 * Bit set of the nodes whose activation or base-level activation is
+		 * not 0, the only nodes decayAll visits
+		 */
+		final long[] active = new long[CHUNK_SIZE / 64];
+		int activeCount;
+	}
+
+	private static final Link[] NO_LINKS = new Link[0];
+
+	private volatile Chunk[] chunks = new Chunk[0];
+	private volatile int size;
+
+	/*
+	 * Strategies and factory types, indexed by their short id. Id 0 is null.
+	 */
+	private volatile Object[] table = new Object[] { null };
+	private final Map<Object, Short> tableIds = new HashMap<Object, Short>();
+	private final List<Object> tableEntries = new ArrayList<Object>();
+
+	/*
+	 * Open addressing table of node id + 1 by label hash, 0 for empty
+	 * entries. Guarded by labelLock.
+	 */
+	private int[] labelTable = new int[INITIAL_LABEL_CAPACITY];
+	private final Object labelLock = new Object();
+
+	CompactPamNodeStore() {
+		tableEntries.add(null);
+	}
+
+	/*
+	 * Returns the chunk of specified id or null.
+	 */
+	private Chunk getChunk(int id) {
+		Chunk[] c = chunks;
+		int index = id >>> CHUNK_BITS;
+		return (id >= 0 && index < c.length) ? c[index] : null;
+	}
+
+	/*
+	 * Returns the chunk of specified stored id.
+	 */
+	private Chunk chunk(int id) {
+		return chunks[id >>> CHUNK_BITS];
+	}
+
+	private synchronized Chunk allocateChunk(int id) {
+		int index = id >>> CHUNK_BITS;
+		Chunk[] c = chunks;
+		if (index >= c.length) {
+			c = Arrays.copyOf(c, Math.max(index + 1, 2 * c.length));
+		}
+		if (c[index] == null) {
+			c[index] = new Chunk();
+		}
+		chunks = c;
+		return c[index];
+	}
+
+	/*
+	 * Returns the short id of specified strategy or factory type, adding it
+	 * to the table if needed.
+	 */
+	private synchronized short getTableId(Object o) {
+		if (o == null) {
+			return 0;
+		}
+		Short id = tableIds.get(o);
+		if (id == null) {
+			if (tableEntries.size() > Short.MAX_VALUE) {
+				throw new IllegalStateException("Too many strategies and types");
+			}
+			id = (short) tableEntries.size();
+			tableEntries.add(o);
+			tableIds.put(o, id);
+			table = tableEntries.toArray();
+		}
+		return id;
+	}
+
+	private Object getTableEntry(short id) {
+		return table[id];
+	}
+
+	/**
+	 * Adds a node with specified id and label. Its other attributes are
+	 * copied from specified prototype. Several nodes may have the same
+	 * label; the label index keeps the first one added.
+	 *
+	 * @param id
+	 *            new node id
+	 * @param label
+	 *            new node label, must not be null
+	 * @param prototype
+	 *            node whose attributes are copied
+	 * @return true if the node was added, false if the id is already used
+	 */
+	boolean add(int id, String label, PamNode prototype) {
+		short type = getTableId(prototype.getFactoryType());
+		short excite = getTableId(prototype.getExciteStrategy());
+		short decay = getTableId(prototype.getDecayStrategy());
+		short baseLevelExcite = getTableId(prototype.getBaseLevelExciteStrategy());
+		short baseLevelDecay = getTableId(prototype.getBaseLevelDecayStrategy());
+		short totalActivation = getTableId(prototype.getTotalActivationStrategy());
+		Chunk c = getChunk(id);
+		if (c == null) {
+			c = allocateChunk(id);
+		}
+		int i = id & CHUNK_MASK;
+		synchronized (labelLock) {
+			if (c.labels[i] != null) {
+				return false;
+			}
+			synchronized (c) {
+				c.activations[i] = prototype.getActivation();
+				c.removalThresholds[i] = prototype.getActivatibleRemovalThreshold();
+				c.baseLevelActivations[i] = prototype.getBaseLevelActivation();
+				c.baseLevelRemovalThresholds[i] = prototype.getLearnableRemovalThreshold();
+				c.factoryTypes[i] = type;
+				c.exciteStrategies[i] = excite;
+				c.decayStrategies[i] = decay;
+				c.baseLevelExciteStrategies[i] = baseLevelExcite;
+				c.baseLevelDecayStrategies[i] = baseLevelDecay;
+				c.totalActivationStrategies[i] = totalActivation;
+				c.outgoingLinks[i] = NO_LINKS;
+				c.labels[i] = label;
+				updateActive(c, i);
+			}
+			if (getId(label) < 0) {
+				putLabel(label, id);
+			}
+			size++;
+		}
+		return true;
+	}
+
+	/**
+	 * @param id
+	 *            node id
+	 * @return true if this store has a node with specified id
+	 */
+	boolean contains(int id) {
+		Chunk c = getChunk(id);
+		if (c == null) {
+			return false;
+		}
+		synchronized (c) {
+			return c.labels[id & CHUNK_MASK] != null;
+		}
+	}
+
+	/**
+	 * @return the number of nodes in this store
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the first stored id greater than or equal to specified id.
+	 *
+	 * @param id
+	 *            first id to consider
+	 * @return next stored id or -1 if there is none
+	 */
+	int nextId(int id) {
+		Chunk[] cs = chunks;
+		for (int index = id >>> CHUNK_BITS; index < cs.length; index++) {
+			Chunk c = cs[index];
+			if (c == null) {
+				continue;
+			}
+			int start = (index == id >>> CHUNK_BITS) ? id & CHUNK_MASK : 0;
+			synchronized (c) {
+				for (int i = start; i < CHUNK_SIZE; i++) {
+					if (c.labels[i] != null) {
+						return (index << CHUNK_BITS) | i;
+					}
+				}
+			}
+		}
+		return -1;
+	}
+
+	/*
+	 * Label index, called holding labelLock
+	 */
+	private void putLabel(String label, int id) {
+		if (2 * (size + 1) > labelTable.length) {
+			int[] old = labelTable;
+			labelTable = new int[2 * old.length];
+			for (int entry : old) {
+				if (entry != 0) {
+					insertLabel(getLabel(entry - 1), entry - 1);
+				}
+			}
+		}
+		insertLabel(label, id);
+	}
+
+	private void insertLabel(String label, int id) {
+		int mask = labelTable.length - 1;
+		int slot = spread(label.hashCode()) & mask;
+		while (labelTable[slot] != 0) {
+			slot = (slot + 1) & mask;
+		}
+		labelTable[slot] = id + 1;
+	}
+
+	private static int spread(int h) {
+		h ^= (h >>> 16);
+		return h * 0x45d9f3b;
+	}
+
+	/**
+	 * @param label
+	 *            node label
+	 * @return the id of the first node added with specified label or -1
+	 */
+	int getId(String label) {
+		synchronized (labelLock) {
+			int mask = labelTable.length - 1;
+			int slot = spread(label.hashCode()) & mask;
+			int entry;
+			while ((entry = labelTable[slot]) != 0) {
+				if (label.equals(getLabel(entry - 1))) {
+					return entry - 1;
+				}
+				slot = (slot + 1) & mask;
+			}
+			return -1;
+		}
+	}
+
+	String getLabel(int id) {
+		Chunk c = chunk(id);
+		synchronized (c) {
+			return c.labels[id & CHUNK_MASK];
+		}
+	}
+
+	String getFactoryType(int id) {
+		Chunk c = chunk(id);
+		synchronized (c) {
+			return (String) getTableEntry(c.factoryTypes[id & CHUNK_MASK]);
+		}
+	}
+
+	void setFactoryType(int id, String type) {
+		short t = getTableId(type);
+		Chunk c = chunk(id);
+		synchronized (c) {
+			c.factoryTypes[id & CHUNK_MASK] = t;
+		}
+	}
+
+	double getActivation(int id) {
+		Chunk c = chunk(id);
+		synchronized (c) {
+			return c.activations[id & CHUNK_MASK];
+		}
+	}
+
+	void setActivation(int id, double a) {
+		if (a > 1.0) {
+			a = 1.0;
+		} else if (a < 0.0) {
+			a = 0.0;
+		}
+		Chunk c = chunk(id);
+		int i = id & CHUNK_MASK;
+		synchronized (c) {
+			c.activations[i] = a;
+			updateActive(c, i);
+		}
+	}
+
+	void excite(int id, double amount) {
+		Chunk c = chunk(id);
+		int i = id & CHUNK_MASK;
+		synchronized (c) {
+			ExciteStrategy s = (ExciteStrategy) getTableEntry(c.exciteStrategies[i]);
+			if (s != null) {
+				c.activations[i] = s.excite(c.activations[i], amount);
+				updateActive(c, i);
+			}
+		}
+	}
+
+	double getTotalActivation(int id) {
+		Chunk c = chunk(id);
+		int i = id & CHUNK_MASK;
+		synchronized (c) {
+			TotalActivationStrategy s = (TotalActivationStrategy) getTableEntry(c.totalActivationStrategies[i]);
+			if (s == null) {
+				return c.activations[i];
+			}
+			return s.calculateTotalActivation(c.baseLevelActivations[i],
+					c.activations[i]);
+		}
+	}
+
+	double getRemovalThreshold(int id) {
+		Chunk c = chunk(id);
+		synchronized (c) {
+			return c.removalThresholds[id & CHUNK_MASK];
+		}
+	}
+
+	void setRemovalThreshold(int id, double t) {
+		if (t > 1.0) {
+			t = 1.0;
+		}
+		Chunk c = chunk(id);
+		synchronized (c) {
+			c.removalThresholds[id & CHUNK_MASK] = t;
+		}
+	}
+
+	double getBaseLevelActivation(int id) {
+		Chunk c = chunk(id);
+		synchronized (c) {
+			return c.baseLevelActivations[id & CHUNK_MASK];
+		}
+	}
+
+	void setBaseLevelActivation(int id, double a) {
+		if (a < 0.0) {
+			a = 0.0;
+		} else if (a > 1.0) {
+			a = 1.0;
+		}
+		Chunk c = chunk(id);
+		int i = id & CHUNK_MASK;
+		synchronized (c) {
+			c.baseLevelActivations[i] = a;
+			updateActive(c, i);
+		}
+	}
+
+	void reinforceBaseLevelActivation(int id, double amount) {
+		Chunk c = chunk(id);
+		int i = id & CHUNK_MASK;
+		synchronized (c) {
+			ExciteStrategy s = (ExciteStrategy) getTableEntry(c.baseLevelExciteStrategies[i]);
+			if (s != null) {
+				c.baseLevelActivations[i] = s.excite(c.baseLevelActivations[i], amount);
+				updateActive(c, i);
+			}
+		}
+	}
+
+	double getBaseLevelRemovalThreshold(int id) {
+		Chunk c = chunk(id);
+		synchronized (c) {
+			return c.baseLevelRemovalThresholds[id & CHUNK_MASK];
+		}
+	}
+
+	void setBaseLevelRemovalThreshold(int id, double t) {
+		Chunk c = chunk(id);
+		synchronized (c) {
+			c.baseLevelRemovalThresholds[id & CHUNK_MASK] = t;
+		}
+	}
+
+	ExciteStrategy getExciteStrategy(int id) {
+		Chunk c = chunk(id);
+		synchronized (c) {
+			return (ExciteStrategy) getTableEntry(c.exciteStrategies[id & CHUNK_MASK]);
+		}
+	}
+
+	void setExciteStrategy(int id, ExciteStrategy s) {
+		short t = getTableId(s);
+		Chunk c = chunk(id);
+		synchronized (c) {
+			c.exciteStrategies[id & CHUNK_MASK] = t;
+		}
+	}
+
+	DecayStrategy getDecayStrategy(int id) {
+		Chunk c = chunk(id);
+		synchronized (c) {
+			return (DecayStrategy) getTableEntry(c.decayStrategies[id & CHUNK_MASK]);
+		}
+	}
+
+	void setDecayStrategy(int id, DecayStrategy s) {
+		short t = getTableId(s);
+		Chunk c = chunk(id);
+		synchronized (c) {
+			c.decayStrategies[id & CHUNK_MASK] = t;
+		}
+	}
+
+	ExciteStrategy getBaseLevelExciteStrategy(int id) {
+		Chunk c = chunk(id);
+		synchronized (c) {
+			return (ExciteStrategy) getTableEntry(c.baseLevelExciteStrategies[id & CHUNK_MASK]);
+		}
+	}
+
+	void setBaseLevelExciteStrategy(int id, ExciteStrategy s) {
+		short t = getTableId(s);
+		Chunk c = chunk(id);
+		synchronized (c) {
+			c.baseLevelExciteStrategies[id & CHUNK_MASK] = t;
+		}
+	}
+
+	DecayStrategy getBaseLevelDecayStrategy(int id) {
+		Chunk c = chunk(id);
+		synchronized (c) {
+			return (DecayStrategy) getTableEntry(c.baseLevelDecayStrategies[id & CHUNK_MASK]);
+		}
+	}
+
+	void setBaseLevelDecayStrategy(int id, DecayStrategy s) {
+		short t = getTableId(s);
+		Chunk c = chunk(id);
+		synchronized (c) {
+			c.baseLevelDecayStrategies[id & CHUNK_MASK] = t;
+		}
+	}
+
+	TotalActivationStrategy getTotalActivationStrategy(int id) {
+		Chunk c = chunk(id);
+		synchronized (c) {
+			return (TotalActivationStrategy) getTableEntry(c.totalActivationStrategies[id & CHUNK_MASK]);
+		}
+	}
+
+	void setTotalActivationStrategy(int id, TotalActivationStrategy s) {
+		short t = getTableId(s);
+		Chunk c = chunk(id);
+		synchronized (c) {
+			c.totalActivationStrategies[id & CHUNK_MASK] = t;
+		}
+	}
+
+	/**
+	 * Decays the activation of one node.
+	 *
+	 * @param id
+	 *            node id
+	 * @param ticks
+	 *            number of ticks to decay
+	 */
+	void decay(int id, long ticks) {
+		Chunk c = chunk(id);
+		int i = id & CHUNK_MASK;
+		synchronized (c) {
+			decay(c, i, ticks);
+			updateActive(c, i);
+		}
+	}
+
+	/**
+	 * Decays the base-level activation of one node.
+	 *
+	 * @param id
+	 *            node id
+	 * @param ticks
+	 *            number of ticks to decay
+	 */
+	void decayBaseLevelActivation(int id, long ticks) {
+		Chunk c = chunk(id);
+		int i = id & CHUNK_MASK;
+		synchronized (c) {
+			decayBaseLevel(c, i, ticks);
+			updateActive(c, i);
+		}
+	}
+
+	/**
+	 * Decays the activation and base-level activation of all nodes, locking
+	 * one chunk at a time. Only the nodes with a non-zero activation or
+	 * base-level activation are visited.
+	 *
+	 * @param ticks
+	 *            number of ticks to decay
+	 */
+	void decayAll(long ticks) {
+		for (Chunk c : chunks) {
+			if (c == null) {
+				continue;
+			}
+			synchronized (c) {
+				if (c.activeCount == 0) {
+					continue;
+				}
+				for (int w = 0; w < c.active.length; w++) {
+					long bits = c.active[w];
+					while (bits != 0) {
+						int i = (w << 6) | Long.numberOfTrailingZeros(bits);
+						bits &= bits - 1;
+						decayBaseLevel(c, i, ticks);
+						decay(c, i, ticks);
+						updateActive(c, i);
+					}
+				}
+			}
+		}
+	}
+
+	/*
+	 * Adds the node at specified index of specified chunk to the active set
+	 * or removes it, called holding the chunk lock
+	 */
+	private static void updateActive(Chunk c, int i) {
+		long bit = 1L << (i & 63);
+		boolean wasActive = (c.active[i >>> 6] & bit) != 0;
+		boolean isActive = c.activations[i] != 0.0
+				|| c.baseLevelActivations[i] != 0.0;
+		if (isActive && !wasActive) {
+			c.active[i >>> 6] |= bit;
+			c.activeCount++;
+		} else if (!isActive && wasActive) {
+			c.active[i >>> 6] &= ~bit;
+			c.activeCount--;
+		}
+	}
+
+	private void decay(Chunk c, int i, long ticks) {
+		DecayStrategy s = (DecayStrategy) getTableEntry(c.decayStrategies[i]);
+		if (s != null && c.activations[i] != 0.0) {
+			c.activations[i] = s.decay(c.activations[i], ticks);
+		}
+	}
+
+	private void decayBaseLevel(Chunk c, int i, long ticks) {
+		DecayStrategy s = (DecayStrategy) getTableEntry(c.baseLevelDecayStrategies[i]);
+		if (s != null) {
+			c.baseLevelActivations[i] = s.decay(c.baseLevelActivations[i], ticks);
+		}
+	}
+
+	/**
+	 * Returns the links whose source is the node of specified id. The
+	 * returned array is never modified and must not be modified.
+	 *
+	 * @param id
+	 *            node id
+	 * @return the outgoing links of the node
+	 */
+	Link[] getOutgoingLinks(int id) {
+		Chunk c = chunk(id);
+		synchronized (c) {
+			return c.outgoingLinks[id & CHUNK_MASK];
+		}
+	}
+
+	/**
+	 * Adds a link to the outgoing links of the node of specified id.
+	 *
+	 * @param id
+	 *            source node id
+	 * @param l
+	 *            the link
+	 */
+	void addOutgoingLink(int id, Link l) {
+		Chunk c = chunk(id);
+		int i = id & CHUNK_MASK;
+		synchronized (c) {
+			Link[] old = c.outgoingLinks[i];
+			Link[] links = Arrays.copyOf(old, old.length + 1);
+			links[old.length] = l;
+			c.outgoingLinks[i] = links;
+		}
+	}
+
+}
@@ -0,0 +1,490 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2011 The University of Memphis.  All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the LIDA Software Framework Non-Commercial License v1.0 
+ * which accompanies this distribution, and is available at
+ * http://ccrg.cs.memphis.edu/assets/papers/2010/LIDA-framework-non-commercial-v1.0.pdf
+ *******************************************************************************/
+package edu.memphis.ccrg.lida.pam;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import edu.memphis.ccrg.lida.framework.shared.ConcurrentLinkMap;
+import edu.memphis.ccrg.lida.framework.shared.ElementFactory;
+import edu.memphis.ccrg.lida.framework.shared.ExtendedId;
+import edu.memphis.ccrg.lida.framework.shared.Link;
+import edu.memphis.ccrg.lida.framework.shared.LinkCategory;
+import edu.memphis.ccrg.lida.framework.shared.Linkable;
+import edu.memphis.ccrg.lida.framework.shared.Node;
+import edu.memphis.ccrg.lida.framework.shared.NodeStructure;
+import edu.memphis.ccrg.lida.framework.shared.NodeStructureImpl;
+import edu.memphis.ccrg.lida.framework.shared.UnmodifiableNodeStructureImpl;
+import edu.memphis.ccrg.lida.framework.shared.activation.Activatible;
+import edu.memphis.ccrg.lida.framework.shared.activation.ActivatibleImpl;
+import edu.memphis.ccrg.lida.framework.shared.activation.ActivationListener;
+import edu.memphis.ccrg.lida.framework.tasks.TaskManager;
+
+/**
+ * A {@link PerceptualAssociativeMemory} for very large numbers of
+ * {@link PamNode}s. Instead of one {@link PamNodeImpl} object per node, with
+ * its internal {@link edu.memphis.ccrg.lida.framework.shared.activation.LearnableImpl}
+ * and its entries in a {@link NodeStructure}, the activation, base-level
+ * activation, removal thresholds, strategies and label of each node are kept
+ * in the parallel primitive arrays of a {@link CompactPamNodeStore} indexed by
+ * node id. Lightweight {@link PamNode} views of the stored values are created
+ * on demand, e.g. by {@link #getNode(int)}; views of the same node are equal.
+ * <br/>
+ * Links whose source is a stored node are kept in a map by
+ * {@link ExtendedId}, and in the store as the outgoing links of their source.
+ * The link categories, and the nodes added with
+ * {@link #addLinkCategory(LinkCategory)}, are kept as objects as in
+ * {@link PerceptualAssociativeMemoryImpl}. As in its
+ * {@link PerceptualAssociativeMemoryImpl.PamNodeStructure}, only the links
+ * activated since they last reached rest are decayed; an excited link is
+ * queued by its {@link ActivationListener}.
+ * <br/>
+ * Stored nodes do not support lazy decay nor activation listeners, and they
+ * are never removed. Activation is propagated by tasks only, since the sweep
+ * engine reads the nodes of {@link #pamNodeStructure}.
+ *
+ * @author agent
+ */
+public class CompactPerceptualAssociativeMemory extends
+		PerceptualAssociativeMemoryImpl {
+
+	private static final Logger logger = Logger
+			.getLogger(CompactPerceptualAssociativeMemory.class.getCanonicalName());
+	private static final ElementFactory factory = ElementFactory.getInstance();
+
+	private static final String DEFAULT_LABEL = "Node";
+
+	private final CompactPamNodeStore store = new CompactPamNodeStore();
+
+	/*
+	 * Links whose source is a stored node
+	 */
+	private final ConcurrentLinkMap links = new ConcurrentLinkMap();
+
+	/*
+	 * Links of the map activated since they last reached rest: queued by any
+	 * thread, then moved to the active list owned by the decaying thread.
+	 */
+	private final Queue<Link> dirtyLinks = new ConcurrentLinkedQueue<Link>();
+	private final ConcurrentMap<Link, Boolean> scheduledLinks = new ConcurrentHashMap<Link, Boolean>();
+	private final List<Link> activeLinks = new ArrayList<Link>();
+	private volatile int activeStoredLinkCount;
+
+	private final ActivationListener linkListener = new ActivationListener() {
+		@Override
+		public void receiveActivation(Activatible a) {
+			linkActivated((Link) a);
+		}
+	};
+
+	/*
+	 * A node of each type, whose attributes are copied into new stored nodes
+	 */
+	private final ConcurrentMap<String, PamNode> prototypes = new ConcurrentHashMap<String, PamNode>();
+
+	/**
+	 * Default constructor.
+	 */
+	public CompactPerceptualAssociativeMemory() {
+		super();
+	}
+
+	@Override
+	protected boolean supportsSweepPropagation() {
+		return false;
+	}
+
+	/*
+	 * Returns the prototype node of specified type or null if the factory
+	 * cannot create PamNodes of that type.
+	 */
+	private PamNode getPrototype(String type) {
+		PamNode prototype = prototypes.get(type);
+		if (prototype == null) {
+			Node n = factory.getNode(type);
+			if (!(n instanceof PamNode)) {
+				logger.log(Level.WARNING, "Node type {1} is not a PamNode type",
+						new Object[] { TaskManager.getCurrentTick(), type });
+				return null;
+			}
+			prototype = (PamNode) n;
+			PamNode previous = prototypes.putIfAbsent(type, prototype);
+			if (previous != null) {
+				prototype = previous;
+			}
+		}
+		return prototype;
+	}
+
+	/*
+	 * Adds a node of specified type to the store. Returns its view or null.
+	 */
+	private PamNode addStoredNode(int id, String type, String label) {
+		PamNode prototype = getPrototype(type);
+		if (prototype == null) {
+			return null;
+		}
+		if (!store.add(id, label, prototype)) {
+			return null;
+		}
+		return new CompactPamNode(store, id);
+	}
+
+	@Deprecated
+	@Override
+	public PamNode addDefaultNode(Node n) {
+		if (n == null) {
+			return null;
+		}
+		if (store.contains(n.getId())) {
+			return new CompactPamNode(store, n.getId());
+		}
+		String label = (n.getLabel() == null) ? DEFAULT_LABEL : n.getLabel();
+		PamNode node = addStoredNode(n.getId(), pamNodeStructure.getDefaultNodeType(), label);
+		if (node != null) {
+			node.setActivation(n.getActivation());
+			node.setActivatibleRemovalThreshold(n.getActivatibleRemovalThreshold());
+			node.updateNodeValues(n);
+		}
+		return node;
+	}
+
+	@Override
+	public PamNode addNode(String type, String label) {
+		if (label == null) {
+			logger.log(Level.WARNING, "Cannot add a Node to Pam with a null label",
+					TaskManager.getCurrentTick());
+			return null;
+		}
+		int id = store.getId(label);
+		if (id >= 0) {
+			logger.log(Level.WARNING, "A Node with the label {1} already exists in PAM",
+					new Object[] { TaskManager.getCurrentTick(), label });
+			return new CompactPamNode(store, id);
+		}
+		return addStoredNode(factory.getNewNodeId(), type, label);
+	}
+
+	@Deprecated
+	@Override
+	public PamLink addDefaultLink(Link link) {
+		if (link == null) {
+			return null;
+		}
+		if (!store.contains(link.getSource().getId())) {
+			return super.addDefaultLink(link);
+		}
+		return addLink(pamNodeStructure.getDefaultLinkType(), link.getSource(),
+				link.getSink(), link.getCategory());
+	}
+
+	@Override
+	public PamLink addLink(String type, Node src, Linkable snk, LinkCategory cat) {
+		if (src == null || snk == null) {
+			logger.log(Level.WARNING, "Cannot add new Link. Source or sink is null",
+					TaskManager.getCurrentTick());
+			return null;
+		}
+		if (!store.contains(src.getId())) {
+			return super.addLink(type, src, snk, cat);
+		}
+		if (cat == null || getLinkCategory(cat.getId()) == null) {
+			logger.log(Level.WARNING, "Cannot add new Link. Pam does not contain LinkCategory {1}",
+					new Object[] { TaskManager.getCurrentTick(), cat });
+			return null;
+		}
+		Linkable sink;
+		if (snk instanceof Node) {
+			sink = getNode(((Node) snk).getId());
+		} else {
+			sink = getLink(snk.getExtendedId());
+		}
+		if (sink == null) {
+			logger.log(Level.WARNING, "Cannot add new Link. Pam does not contain sink {1}",
+					new Object[] { TaskManager.getCurrentTick(), snk });
+			return null;
+		}
+		Link link = links.get(src.getId(), sink.getExtendedId(), cat.getId());
+		if (link == null) {
+			Node source = new CompactPamNode(store, src.getId());
+			Link newLink = factory.getLink(type, source, sink, cat);
+			if (!(newLink instanceof PamLink)) {
+				logger.log(Level.WARNING, "Link type {1} is not a PamLink type",
+						new Object[] { TaskManager.getCurrentTick(), type });
+				return null;
+			}
+			link = links.putIfAbsent(newLink.getExtendedId(), newLink);
+			if (link == null) {
+				link = newLink;
+				store.addOutgoingLink(src.getId(), link);
+				if (link instanceof ActivatibleImpl) {
+					((ActivatibleImpl) link).setActivationListener(linkListener);
+				}
+				linkActivated(link);
+			}
+		}
+		return (PamLink) link;
+	}
+
+	/**
+	 * Does nothing, the store grows by chunks of nodes.
+	 */
+	@Override
+	public void ensureCapacity(int nodeCount, int linkCount) {
+	}
+
+	@Override
+	public PamNode[] addDefaultNodes(String[] labels, int count) {
+		String type = pamNodeStructure.getDefaultNodeType();
+		PamNode[] added = new PamNode[count];
+		for (int i = 0; i < count; i++) {
+			if (labels[i] != null && store.getId(labels[i]) < 0) {
+				added[i] = addStoredNode(factory.getNewNodeId(), type, labels[i]);
+			} else {
+				logger.log(Level.WARNING, "Cannot add a Node with the label {1} to Pam",
+						new Object[] { TaskManager.getCurrentTick(), labels[i] });
+			}
+		}
+		return added;
+	}
+
+	@Override
+	public PamLink[] addDefaultLinks(Node[] sources, Linkable[] sinks,
+			LinkCategory[] categories, int count) {
+		String type = pamNodeStructure.getDefaultLinkType();
+		PamLink[] added = new PamLink[count];
+		for (int i = 0; i < count; i++) {
+			added[i] = addLink(type, sources[i], sinks[i], categories[i]);
+		}
+		return added;
+	}
+
+	@Override
+	protected void propagateActivationToParents(PamNode pn, double amount) {
+		if (store.contains(pn.getId())) {
+			for (Link link : store.getOutgoingLinks(pn.getId())) {
+				propagateActivation(link, amount);
+			}
+			return;
+		}
+		super.propagateActivationToParents(pn, amount);
+	}
+
+	@Override
+	public void decayModule(long ticks) {
+		store.decayAll(ticks);
+		decayLinks(ticks);
+		super.decayModule(ticks);
+	}
+
+	/*
+	 * Queues a link of the map for the next decay unless it is queued or
+	 * active already.
+	 */
+	private void linkActivated(Link l) {
+		if (scheduledLinks.putIfAbsent(l, Boolean.TRUE) == null) {
+			dirtyLinks.offer(l);
+		}
+	}
+
+	/*
+	 * Decays the active links of the map and drops those that reach rest.
+	 * Must only be called by one thread at a time.
+	 */
+	private void decayLinks(long ticks) {
+		Link l;
+		while ((l = dirtyLinks.poll()) != null) {
+			activeLinks.add(l);
+		}
+		int i = 0;
+		while (i < activeLinks.size()) {
+			l = activeLinks.get(i);
+			l.decay(ticks);
+			if (NodeStructureImpl.isAtRest(l)) {
+				int last = activeLinks.size() - 1;
+				activeLinks.set(i, activeLinks.get(last));
+				activeLinks.remove(last);
+				scheduledLinks.remove(l);
+				// it may have been excited before it was unscheduled
+				if (!NodeStructureImpl.isAtRest(l)) {
+					linkActivated(l);
+				}
+			} else {
+				i++;
+			}
+		}
+		activeStoredLinkCount = activeLinks.size();
+	}
+
+	/**
+	 * Returns the number of active links of the map plus those of the
+	 * PamNodeStructure.
+	 */
+	@Override
+	public int getActiveLinkCount() {
+		return activeStoredLinkCount + super.getActiveLinkCount();
+	}
+
+	/**
+	 * Returns the number of stored nodes plus the nodes of the
+	 * PamNodeStructure. Stored nodes are not counted by
+	 * {@link #getActiveNodeCount()}.
+	 */
+	@Override
+	public int getNodeCount() {
+		return store.size() + super.getNodeCount();
+	}
+
+	@Override
+	public boolean containsNode(Node node) {
+		return store.contains(node.getId()) || super.containsNode(node);
+	}
+
+	@Override
+	public boolean containsNode(ExtendedId id) {
+		return (id.isNodeId() && store.contains(id.getSourceNodeId()))
+				|| super.containsNode(id);
+	}
+
+	@Override
+	public boolean containsLink(Link l) {
+		return links.containsKey(l.getExtendedId()) || super.containsLink(l);
+	}
+
+	@Override
+	public boolean containsLink(ExtendedId id) {
+		return links.containsKey(id) || super.containsLink(id);
+	}
+
+	@Override
+	public Node getNode(int id) {
+		if (store.contains(id)) {
+			return new CompactPamNode(store, id);
+		}
+		return super.getNode(id);
+	}
+
+	@Override
+	public Node getNode(ExtendedId id) {
+		if (id.isNodeId() && store.contains(id.getSourceNodeId())) {
+			return new CompactPamNode(store, id.getSourceNodeId());
+		}
+		return super.getNode(id);
+	}
+
+	@Override
+	public Node getNode(String label) {
+		int id = store.getId(label);
+		if (id >= 0) {
+			return new CompactPamNode(store, id);
+		}
+		return super.getNode(label);
+	}
+
+	@Override
+	public Link getLink(ExtendedId id) {
+		Link l = links.get(id);
+		if (l != null) {
+			return l;
+		}
+		return super.getLink(id);
+	}
+
+	/**
+	 * Returns the nodes of this PAM. Views of the stored nodes are created
+	 * while iterating.
+	 */
+	@Override
+	public Collection<Node> getNodes() {
+		return new NodeCollection(super.getNodes());
+	}
+
+	@Override
+	public Collection<Link> getLinks() {
+		Collection<Link> all = new ArrayList<Link>(links.values());
+		all.addAll(super.getLinks());
+		return all;
+	}
+
+	/**
+	 * Returns a copy of this PAM as a {@link NodeStructure}. It holds a view
+	 * of every stored node and should only be used for inspection.
+	 */
+	@Override
+	public Object getModuleContent(Object... params) {
+		PamNodeStructure ns = new PamNodeStructure(
+				pamNodeStructure.getDefaultNodeType(),
+				pamNodeStructure.getDefaultLinkType());
+		for (Node n : getNodes()) {
+			ns.addNode(n, false);
+		}
+		for (Link l : getLinks()) {
+			ns.addDefaultLink(l);
+		}
+		return new UnmodifiableNodeStructureImpl(ns);
+	}
+
+	/*
+	 * The stored nodes followed by the nodes of the PamNodeStructure
+	 */
+	private class NodeCollection extends AbstractCollection<Node> {
+
+		private final Collection<Node> others;
+
+		NodeCollection(Collection<Node> others) {
+			this.others = others;
+		}
+
+		@Override
+		public int size() {
+			return store.size() + others.size();
+		}
+
+		@Override
+		public Iterator<Node> iterator() {
+			return new Iterator<Node>() {
+				private int next = store.nextId(0);
+				private final Iterator<Node> othersIterator = others.iterator();
+
+				@Override
+				public boolean hasNext() {
+					return next >= 0 || othersIterator.hasNext();
+				}
+
+				@Override
+				public Node next() {
+					if (next >= 0) {
+						Node n = new CompactPamNode(store, next);
+						next = store.nextId(next + 1);
+						return n;
+					}
+					if (othersIterator.hasNext()) {
+						return othersIterator.next();
+					}
+					throw new NoSuchElementException();
+				}
+
+				@Override
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+	}
+
+}
@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2011 The University of Memphis.  All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the LIDA Software Framework Non-Commercial License v1.0 
+ * which accompanies this distribution, and is available at
+ * http://ccrg.cs.memphis.edu/assets/papers/2010/LIDA-framework-non-commercial-v1.0.pdf
+ *******************************************************************************/
+package edu.memphis.ccrg.lida.pam;
+
+import java.util.Arrays;
+
+/**
+ * A {@link PamPartitioner} that never splits a connected component of the
+ * graph, so no excitation has to be exchanged between shards. Components are
+ * assigned, largest first, to the shard with the least nodes and links so
+ * far. A graph made of a single component ends in a single shard, in which
+ * case a {@link RangePamPartitioner} should be used instead.
+ *
+ * @author agent
+ */
+public class ComponentPamPartitioner implements PamPartitioner {
+
+	@Override
+	public int[] partition(int[] ids, int[] rowStart, int[] targets,
+			int shardCount) {
+		int n = ids.length;
+		int[] parent = new int[n];
+		for (int i = 0; i < n; i++) {
+			parent[i] = i;
+		}
+		for (int i = 0; i < n; i++) {
+			for (int e = rowStart[i]; e < rowStart[i + 1]; e++) {
+				if (targets[e] >= 0) {
+					union(parent, i, targets[e]);
+				}
+			}
+		}
+
+		// Weight of each component, stored at its root
+		long[] weight = new long[n];
+		int componentCount = 0;
+		for (int i = 0; i < n; i++) {
+			int root = find(parent, i);
+			if (weight[root] == 0) {
+				componentCount++;
+			}
+			weight[root] += 1 + rowStart[i + 1] - rowStart[i];
+		}
+		long[] components = new long[componentCount];
+		int c = 0;
+		for (int i = 0; i < n; i++) {
+			if (weight[i] > 0) {
+				components[c++] = (weight[i] << 32) | i;
+			}
+		}
+		Arrays.sort(components);
+
+		int[] componentShard = new int[n];
+		long[] load = new long[shardCount];
+		for (c = componentCount - 1; c >= 0; c--) {
+			int lightest = 0;
+			for (int s = 1; s < shardCount; s++) {
+				if (load[s] < load[lightest]) {
+					lightest = s;
+				}
+			}
+			int root = (int) components[c];
+			componentShard[root] = lightest;
+			load[lightest] += components[c] >>> 32;
+		}
+
+		int[] shards = new int[n];
+		for (int i = 0; i < n; i++) {
+			shards[i] = componentShard[find(parent, i)];
+		}
+		return shards;
+	}
+
+	private static int find(int[] parent, int i) {
+		while (parent[i] != i) {
+			parent[i] = parent[parent[i]];
+			i = parent[i];
+		}
+		return i;
+	}
+
+	private static void union(int[] parent, int i, int j) {
+		int a = find(parent, i);
+		int b = find(parent, j);
+		if (a < b) {
+			parent[b] = a;
+		} else if (b < a) {
+			parent[a] = b;
+		}
+	}
+
+}
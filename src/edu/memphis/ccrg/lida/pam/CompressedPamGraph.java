@@ -0,0 +1,203 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2011 The University of Memphis.  All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the LIDA Software Framework Non-Commercial License v1.0 
+ * which accompanies this distribution, and is available at
+ * http://ccrg.cs.memphis.edu/assets/papers/2010/LIDA-framework-non-commercial-v1.0.pdf
+ *******************************************************************************/
+package edu.memphis.ccrg.lida.pam;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import edu.memphis.ccrg.lida.framework.shared.Link;
+import edu.memphis.ccrg.lida.framework.shared.Linkable;
+import edu.memphis.ccrg.lida.framework.shared.Node;
+import edu.memphis.ccrg.lida.framework.shared.NodeStructure;
+
+/**
+ * An immutable snapshot of the {@link PamLink}s of a PAM {@link NodeStructure}
+ * in compressed sparse row form. {@link PamNode}s are numbered from 0 in
+ * increasing id order. The outgoing links of node i are the entries from
+ * {@link #getFirstLink(int)} inclusive to {@link #getFirstLink(int)} of i+1
+ * exclusive of the link arrays.
+ *
+ * @author agent
+ */
+class CompressedPamGraph {
+
+	private final int[] ids;
+	private final PamNode[] nodes;
+	private final int[] rowStart;
+	private final PamLink[] links;
+	private final PamLinkable[] sinks;
+	private final int[] targets;
+	private final int sourceNodeCount;
+	private final int sourceLinkCount;
+
+	/**
+	 * Builds the graph of the {@link PamNode}s and {@link PamLink}s currently
+	 * in specified {@link NodeStructure}.
+	 *
+	 * @param ns
+	 *            the PAM's {@link NodeStructure}
+	 */
+	CompressedPamGraph(NodeStructure ns) {
+		sourceNodeCount = ns.getNodeCount();
+		sourceLinkCount = ns.getLinkCount();
+
+		List<PamNode> nodeList = new ArrayList<PamNode>(sourceNodeCount);
+		for (Node n : ns.getNodes()) {
+			if (n instanceof PamNode) {
+				nodeList.add((PamNode) n);
+			}
+		}
+		int n = nodeList.size();
+		long[] keys = new long[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = ((long) nodeList.get(i).getId() << 32) | i;
+		}
+		Arrays.sort(keys);
+		ids = new int[n];
+		nodes = new PamNode[n];
+		for (int i = 0; i < n; i++) {
+			nodes[i] = nodeList.get((int) keys[i]);
+			ids[i] = nodes[i].getId();
+		}
+
+		Collection<Link> allLinks = ns.getLinks();
+		List<PamLink> linkList = new ArrayList<PamLink>(allLinks.size());
+		int[] sources = new int[allLinks.size()];
+		rowStart = new int[n + 1];
+		for (Link l : allLinks) {
+			if (!(l instanceof PamLink) || !(l.getSink() instanceof PamLinkable)) {
+				continue;
+			}
+			int source = indexOf(l.getSource().getId());
+			if (source < 0 || l.getSink().equals(l.getSource())) {
+				continue;
+			}
+			sources[linkList.size()] = source;
+			linkList.add((PamLink) l);
+			rowStart[source + 1]++;
+		}
+		for (int i = 0; i < n; i++) {
+			rowStart[i + 1] += rowStart[i];
+		}
+		int m = linkList.size();
+		links = new PamLink[m];
+		sinks = new PamLinkable[m];
+		targets = new int[m];
+		int[] next = Arrays.copyOf(rowStart, n);
+		for (int i = 0; i < m; i++) {
+			PamLink l = linkList.get(i);
+			int e = next[sources[i]]++;
+			links[e] = l;
+			Linkable sink = l.getSink();
+			sinks[e] = (PamLinkable) sink;
+			targets[e] = (sink instanceof PamNode) ? indexOf(((Node) sink)
+					.getId()) : -1;
+		}
+	}
+
+	/**
+	 * Returns the index of the {@link PamNode} with specified id.
+	 *
+	 * @param id
+	 *            node id
+	 * @return the node's index or a negative number if it is not in this graph
+	 */
+	int indexOf(int id) {
+		return Arrays.binarySearch(ids, id);
+	}
+
+	/**
+	 * @return the number of nodes in this graph
+	 */
+	int getNodeCount() {
+		return nodes.length;
+	}
+
+	/**
+	 * @return the number of links in this graph
+	 */
+	int getLinkCount() {
+		return links.length;
+	}
+
+	/**
+	 * @param i
+	 *            node index
+	 * @return the node with specified index
+	 */
+	PamNode getNode(int i) {
+		return nodes[i];
+	}
+
+	/**
+	 * @param i
+	 *            node index, up to {@link #getNodeCount()} inclusive
+	 * @return the index of the first outgoing link of the node
+	 */
+	int getFirstLink(int i) {
+		return rowStart[i];
+	}
+
+	/**
+	 * @param e
+	 *            link index
+	 * @return the link with specified index
+	 */
+	PamLink getLink(int e) {
+		return links[e];
+	}
+
+	/**
+	 * @param e
+	 *            link index
+	 * @return the sink of the link with specified index
+	 */
+	PamLinkable getSink(int e) {
+		return sinks[e];
+	}
+
+	/**
+	 * @param e
+	 *            link index
+	 * @return the index of the sink node of the link or -1 if the sink is not
+	 *         a node of this graph
+	 */
+	int getTarget(int e) {
+		return targets[e];
+	}
+
+	/**
+	 * Splits the nodes of this graph into shards with specified
+	 * {@link PamPartitioner}.
+	 *
+	 * @param partitioner
+	 *            the partitioner
+	 * @param shardCount
+	 *            the number of shards
+	 * @return the shard of each node
+	 */
+	int[] partition(PamPartitioner partitioner, int shardCount) {
+		return partitioner.partition(ids, rowStart, targets, shardCount);
+	}
+
+	/**
+	 * Returns whether this graph may be out of date with respect to specified
+	 * {@link NodeStructure}, judging by its number of nodes and links.
+	 *
+	 * @param ns
+	 *            the {@link NodeStructure} this graph was built from
+	 * @return true if the graph should be rebuilt
+	 */
+	boolean isStale(NodeStructure ns) {
+		return ns.getNodeCount() != sourceNodeCount
+				|| ns.getLinkCount() != sourceLinkCount;
+	}
+
+}
@@ -0,0 +1,444 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2011 The University of Memphis.  All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the LIDA Software Framework Non-Commercial License v1.0 
+ * which accompanies this distribution, and is available at
+ * http://ccrg.cs.memphis.edu/assets/papers/2010/LIDA-framework-non-commercial-v1.0.pdf
+ *******************************************************************************/
+package edu.memphis.ccrg.lida.pam;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import edu.memphis.ccrg.lida.framework.initialization.GlobalInitializer;
+import edu.memphis.ccrg.lida.framework.shared.LinkCategory;
+import edu.memphis.ccrg.lida.framework.shared.Linkable;
+import edu.memphis.ccrg.lida.framework.shared.Node;
+import edu.memphis.ccrg.lida.framework.tasks.TaskManager;
+
+/**
+ * Accumulates the nodes and links read by a PAM initializer in chunks and
+ * adds each chunk to a {@link PerceptualAssociativeMemory}. With a
+ * {@link PerceptualAssociativeMemoryImpl} elements of the default types are
+ * added in bulk, other elements are added one at a time.
+ * <br/>
+ * Nodes and links may optionally be recorded by index, in the order they are
+ * added, so that later records can refer to them.
+ *
+ * @author agent
+ */
+class PamBulkLoader {
+
+	private static final Logger logger = Logger
+			.getLogger(PamBulkLoader.class.getCanonicalName());
+
+	private final PerceptualAssociativeMemory pam;
+	private final PerceptualAssociativeMemoryImpl bulkPam;
+	private final int chunkSize;
+	private final boolean globalAttributes;
+	private final Map<String, LinkCategory> categories = new HashMap<String, LinkCategory>();
+
+	private final String[] labels;
+	private final double[] nodeActivations;
+	private final Set<String> pendingLabels = new HashSet<String>();
+	private int nodeChunk;
+	private PamNode[] nodesByIndex;
+	private int nodeIndex;
+
+	private final Node[] sources;
+	private final Linkable[] sinks;
+	private final LinkCategory[] linkCategories;
+	private final double[] linkActivations;
+	private int linkChunk;
+	private PamLink[] linksByIndex;
+	private int linkIndex;
+
+	private long nodesAdded;
+	private long linksAdded;
+	private long skipped;
+
+	/**
+	 * @param pam
+	 *            the PAM to load
+	 * @param chunkSize
+	 *            number of elements added at once
+	 * @param globalAttributes
+	 *            whether each node is added to the {@link GlobalInitializer}
+	 *            by label
+	 */
+	PamBulkLoader(PerceptualAssociativeMemory pam, int chunkSize,
+			boolean globalAttributes) {
+		this.pam = pam;
+		this.bulkPam = (pam instanceof PerceptualAssociativeMemoryImpl) ? (PerceptualAssociativeMemoryImpl) pam
+				: null;
+		this.chunkSize = chunkSize;
+		this.globalAttributes = globalAttributes;
+		labels = new String[chunkSize];
+		nodeActivations = new double[chunkSize];
+		sources = new Node[chunkSize];
+		sinks = new Linkable[chunkSize];
+		linkCategories = new LinkCategory[chunkSize];
+		linkActivations = new double[chunkSize];
+		for (LinkCategory c : pam.getLinkCategories()) {
+			categories.put(c.getLabel(), c);
+		}
+	}
+
+	/**
+	 * Pre-sizes the PAM for specified numbers of elements if supported.
+	 *
+	 * @param nodeCount
+	 *            expected number of nodes
+	 * @param linkCount
+	 *            expected number of links
+	 */
+	void ensureCapacity(int nodeCount, int linkCount) {
+		if (bulkPam != null && (nodeCount > 0 || linkCount > 0)) {
+			bulkPam.ensureCapacity(nodeCount, linkCount);
+		}
+	}
+
+	/**
+	 * Records the next specified number of nodes by index.
+	 *
+	 * @param count
+	 *            number of nodes to record
+	 */
+	void indexNodes(int count) {
+		flushNodes();
+		nodesByIndex = new PamNode[count];
+		nodeIndex = 0;
+	}
+
+	/**
+	 * Records the next specified number of links by index.
+	 *
+	 * @param count
+	 *            number of links to record
+	 */
+	void indexLinks(int count) {
+		flushLinks();
+		linksByIndex = new PamLink[count];
+		linkIndex = 0;
+	}
+
+	/**
+	 * @param label
+	 *            a label
+	 * @return the link category of PAM with specified label or null
+	 */
+	LinkCategory getCategory(String label) {
+		return categories.get(label);
+	}
+
+	/**
+	 * Adds a link category to PAM unless one with the same label exists.
+	 *
+	 * @param cat
+	 *            the category
+	 * @return the category of PAM with the label of cat
+	 */
+	LinkCategory addCategory(LinkCategory cat) {
+		LinkCategory c = categories.get(cat.getLabel());
+		if (c == null) {
+			pam.addLinkCategory(cat);
+			c = cat;
+			categories.put(c.getLabel(), c);
+		}
+		return c;
+	}
+
+	/**
+	 * @param index
+	 *            the index of a node
+	 * @return the node added with specified index or null
+	 */
+	PamNode getIndexedNode(int index) {
+		if (index >= nodeIndex - nodeChunk) {
+			flushNodes();
+		}
+		if (nodesByIndex == null || index < 0 || index >= nodeIndex) {
+			return null;
+		}
+		return nodesByIndex[index];
+	}
+
+	/**
+	 * @param index
+	 *            the index of a link
+	 * @return the link added with specified index or null
+	 */
+	PamLink getIndexedLink(int index) {
+		if (index >= linkIndex - linkChunk) {
+			flushLinks();
+		}
+		if (linksByIndex == null || index < 0 || index >= linkIndex) {
+			return null;
+		}
+		return linksByIndex[index];
+	}
+
+	/**
+	 * Adds a node of the default type to the current chunk.
+	 *
+	 * @param label
+	 *            the node label
+	 * @param baseLevelActivation
+	 *            the node base-level activation, or NaN to keep the
+	 *            default of the node type
+	 */
+	void addNode(String label, double baseLevelActivation) {
+		labels[nodeChunk] = label;
+		nodeActivations[nodeChunk] = baseLevelActivation;
+		nodeChunk++;
+		if (label != null) {
+			pendingLabels.add(label);
+		}
+		if (nodesByIndex != null) {
+			nodeIndex++;
+		}
+		if (nodeChunk == chunkSize) {
+			flushNodes();
+		}
+	}
+
+	/**
+	 * Adds a node of specified type. Nodes of other types than the default
+	 * one are added at once.
+	 *
+	 * @param type
+	 *            the node type or null for the default type
+	 * @param label
+	 *            the node label
+	 * @param baseLevelActivation
+	 *            the node base-level activation, or NaN to keep the
+	 *            default of the node type
+	 */
+	void addNode(String type, String label, double baseLevelActivation) {
+		if (type == null || isDefaultNodeType(type)) {
+			addNode(label, baseLevelActivation);
+			return;
+		}
+		flushNodes();
+		PamNode node = pam.addNode(type, label);
+		nodeAdded(node, label, baseLevelActivation);
+		if (nodesByIndex != null) {
+			nodesByIndex[nodeIndex++] = node;
+		}
+	}
+
+	/**
+	 * @param label
+	 *            a node label
+	 * @return true if a node with specified label is in the current chunk,
+	 *         i.e., not yet added to PAM
+	 */
+	boolean isPendingNode(String label) {
+		return pendingLabels.contains(label);
+	}
+
+	private boolean isDefaultNodeType(String type) {
+		return bulkPam != null
+				&& type.equals(bulkPam.pamNodeStructure.getDefaultNodeType());
+	}
+
+	/**
+	 * Adds a link of the default type to the current chunk.
+	 *
+	 * @param source
+	 *            the link source
+	 * @param sink
+	 *            the link sink
+	 * @param cat
+	 *            the link category
+	 * @param baseLevelActivation
+	 *            the link base-level activation, or NaN to keep the
+	 *            default of the link type
+	 * @param record
+	 *            identifies the record of the link in warnings
+	 */
+	void addLink(Node source, Linkable sink, LinkCategory cat,
+			double baseLevelActivation, Object record) {
+		if (source == null || sink == null || cat == null) {
+			logger.log(Level.WARNING,
+					"Cannot find source, sink or category of link record {1}",
+					new Object[] { TaskManager.getCurrentTick(), record });
+			skipped++;
+			if (linksByIndex != null) {
+				flushLinks();
+				linksByIndex[linkIndex++] = null;
+			}
+			return;
+		}
+		sources[linkChunk] = source;
+		sinks[linkChunk] = sink;
+		linkCategories[linkChunk] = cat;
+		linkActivations[linkChunk] = baseLevelActivation;
+		linkChunk++;
+		if (linksByIndex != null) {
+			linkIndex++;
+		}
+		if (linkChunk == chunkSize) {
+			flushLinks();
+		}
+	}
+
+	/**
+	 * Adds a link of specified type. Links of other types than the default
+	 * one are added at once.
+	 *
+	 * @param type
+	 *            the link type or null for the default type
+	 * @param source
+	 *            the link source
+	 * @param sink
+	 *            the link sink
+	 * @param cat
+	 *            the link category
+	 * @param baseLevelActivation
+	 *            the link base-level activation, or NaN to keep the
+	 *            default of the link type
+	 * @param record
+	 *            identifies the record of the link in warnings
+	 */
+	void addLink(String type, Node source, Linkable sink, LinkCategory cat,
+			double baseLevelActivation, Object record) {
+		if (type == null || source == null || sink == null || cat == null
+				|| isDefaultLinkType(type)) {
+			addLink(source, sink, cat, baseLevelActivation, record);
+			return;
+		}
+		flushLinks();
+		PamLink link = pam.addLink(type, source, sink, cat);
+		linkAdded(link, baseLevelActivation);
+		if (linksByIndex != null) {
+			linksByIndex[linkIndex++] = link;
+		}
+	}
+
+	private boolean isDefaultLinkType(String type) {
+		return bulkPam != null
+				&& type.equals(bulkPam.pamNodeStructure.getDefaultLinkType());
+	}
+
+	/**
+	 * Adds the pending elements to PAM.
+	 */
+	void flush() {
+		flushNodes();
+		flushLinks();
+	}
+
+	/**
+	 * Adds the pending nodes to PAM.
+	 */
+	void flushNodes() {
+		if (nodeChunk == 0) {
+			return;
+		}
+		PamNode[] added;
+		if (bulkPam != null) {
+			added = bulkPam.addDefaultNodes(labels, nodeChunk);
+		} else {
+			added = new PamNode[nodeChunk];
+			for (int i = 0; i < nodeChunk; i++) {
+				added[i] = pam.addDefaultNode(labels[i]);
+			}
+		}
+		int first = nodeIndex - nodeChunk;
+		for (int i = 0; i < nodeChunk; i++) {
+			nodeAdded(added[i], labels[i], nodeActivations[i]);
+			if (nodesByIndex != null) {
+				nodesByIndex[first + i] = added[i];
+			}
+			labels[i] = null;
+		}
+		pendingLabels.clear();
+		nodeChunk = 0;
+	}
+
+	private void nodeAdded(PamNode node, String label, double baseLevelActivation) {
+		if (node == null) {
+			skipped++;
+			return;
+		}
+		if (!Double.isNaN(baseLevelActivation)) {
+			node.setBaseLevelActivation(baseLevelActivation);
+		}
+		if (globalAttributes) {
+			GlobalInitializer.getInstance().setAttribute(label, node);
+		}
+		nodesAdded++;
+	}
+
+	/**
+	 * Adds the pending links to PAM.
+	 */
+	void flushLinks() {
+		if (linkChunk == 0) {
+			return;
+		}
+		PamLink[] added;
+		if (bulkPam != null) {
+			added = bulkPam.addDefaultLinks(sources, sinks, linkCategories,
+					linkChunk);
+		} else {
+			added = new PamLink[linkChunk];
+			for (int i = 0; i < linkChunk; i++) {
+				added[i] = pam.addDefaultLink(sources[i], sinks[i],
+						linkCategories[i]);
+			}
+		}
+		int first = linkIndex - linkChunk;
+		for (int i = 0; i < linkChunk; i++) {
+			linkAdded(added[i], linkActivations[i]);
+			if (linksByIndex != null) {
+				linksByIndex[first + i] = added[i];
+			}
+			sources[i] = null;
+			sinks[i] = null;
+			linkCategories[i] = null;
+		}
+		linkChunk = 0;
+	}
+
+	private void linkAdded(PamLink link, double baseLevelActivation) {
+		if (link == null) {
+			skipped++;
+			return;
+		}
+		if (!Double.isNaN(baseLevelActivation)) {
+			link.setBaseLevelActivation(baseLevelActivation);
+		}
+		linksAdded++;
+	}
+
+	/**
+	 * Counts a record that could not be read.
+	 */
+	void skip() {
+		skipped++;
+	}
+
+	/**
+	 * Logs the numbers of elements loaded and the load throughput.
+	 *
+	 * @param source
+	 *            the name of what was loaded
+	 * @param startTime
+	 *            the {@link System#nanoTime()} the load started at
+	 */
+	void report(String source, long startTime) {
+		double seconds = Math.max(System.nanoTime() - startTime, 1) / 1.0e9;
+		long records = nodesAdded + linksAdded;
+		logger.log(Level.INFO,
+				"Loaded {1} nodes and {2} links from {3} in {4} s ({5} records/s), {6} records skipped",
+				new Object[] { TaskManager.getCurrentTick(), nodesAdded,
+						linksAdded, source, seconds, (long) (records / seconds),
+						skipped });
+	}
+}
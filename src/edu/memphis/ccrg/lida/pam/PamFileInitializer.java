@@ -0,0 +1,264 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2011 The University of Memphis.  All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the LIDA Software Framework Non-Commercial License v1.0 
+ * which accompanies this distribution, and is available at
+ * http://ccrg.cs.memphis.edu/assets/papers/2010/LIDA-framework-non-commercial-v1.0.pdf
+ *******************************************************************************/
+package edu.memphis.ccrg.lida.pam;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import edu.memphis.ccrg.lida.framework.Agent;
+import edu.memphis.ccrg.lida.framework.initialization.FullyInitializable;
+import edu.memphis.ccrg.lida.framework.initialization.GlobalInitializer;
+import edu.memphis.ccrg.lida.framework.initialization.Initializer;
+import edu.memphis.ccrg.lida.framework.shared.LinkCategory;
+import edu.memphis.ccrg.lida.framework.tasks.TaskManager;
+
+/**
+ * An {@link Initializer} for {@link PerceptualAssociativeMemory} which streams
+ * the nodes and links of PAM from an external file, for concept graphs too
+ * large to be listed in the agent xml file as {@link BasicPamInitializer}
+ * requires. Records are read and added to PAM in chunks. With a
+ * {@link PerceptualAssociativeMemoryImpl} the internal maps are pre-sized and
+ * each chunk is stored in bulk, taking the PAM locks once per chunk.
+ * <br/>
+ * Parameters:<br/>
+ * <b>file</b> path of the file<br/>
+ * <b>format</b> 'csv', 'tsv' or 'binary'. By default 'tsv' for '.tsv' files,
+ * 'binary' for '.bin' files and 'csv' otherwise<br/>
+ * <b>chunkSize</b> number of records added at once, default 8192<br/>
+ * <b>nodeCount</b>, <b>linkCount</b> expected numbers of nodes and links of a
+ * text file, used to pre-size the PAM maps<br/>
+ * <b>globalAttributes</b> if true each node is added to the
+ * {@link GlobalInitializer} by label as {@link BasicPamInitializer} does,
+ * default false
+ * <br/>
+ * Text files hold one record per line, with fields separated by commas (csv)
+ * or tabs (tsv). Empty lines and lines starting with '#' are ignored. Labels
+ * cannot contain the separator. A link's source and sink must be defined on
+ * earlier lines; links to nodes of the chunk being read are deferred until
+ * that chunk is added. The link category defaults to
+ * {@link PerceptualAssociativeMemoryImpl#PARENT}; other categories must be
+ * link categories of PAM. Without a valid base-level activation an element
+ * keeps the default of its type.<br/>
+ * <b>N,nodeLabel[,baseLevelActivation]</b><br/>
+ * <b>L,sourceNodeLabel,sinkNodeLabel[,baseLevelActivation[,linkCategoryLabel]]</b>
+ * <br/>
+ * Binary files are {@link PamSnapshot} files, written with
+ * {@link PamSnapshot#save(PerceptualAssociativeMemory, java.io.File)}.
+ * <br/>
+ * The number of records loaded per second is logged when done.
+ *
+ * @author agent
+ */
+public class PamFileInitializer implements Initializer {
+
+	private static final Logger logger = Logger
+			.getLogger(PamFileInitializer.class.getCanonicalName());
+
+	private static final int DEFAULT_CHUNK_SIZE = 8192;
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	@Override
+	public void initModule(FullyInitializable module, Agent agent,
+			Map<String, ?> params) {
+		PerceptualAssociativeMemory pam = (PerceptualAssociativeMemory) module;
+		String file = (String) params.get("file");
+		if (file == null) {
+			logger.log(Level.WARNING, "No PAM file specified",
+					TaskManager.getCurrentTick());
+			return;
+		}
+		String format = (String) params.get("format");
+		if (format == null) {
+			if (file.endsWith(".tsv")) {
+				format = "tsv";
+			} else if (file.endsWith(".bin")) {
+				format = "binary";
+			} else {
+				format = "csv";
+			}
+		}
+		int chunkSize = getInt(params, "chunkSize", DEFAULT_CHUNK_SIZE);
+		if (chunkSize <= 0) {
+			chunkSize = DEFAULT_CHUNK_SIZE;
+		}
+		PamBulkLoader loader = new PamBulkLoader(pam, chunkSize,
+				Boolean.TRUE.equals(params.get("globalAttributes"))
+						|| "true".equals(params.get("globalAttributes")));
+
+		long start = System.nanoTime();
+		try {
+			if ("binary".equalsIgnoreCase(format)) {
+				PamSnapshot.read(new File(file), loader);
+			} else {
+				char separator = "tsv".equalsIgnoreCase(format) ? '\t' : ',';
+				loader.ensureCapacity(getInt(params, "nodeCount", 0), getInt(
+						params, "linkCount", 0));
+				BufferedReader reader = new BufferedReader(new InputStreamReader(
+						new FileInputStream(file), "UTF-8"), BUFFER_SIZE);
+				try {
+					readText(reader, separator, pam, loader, chunkSize);
+				} finally {
+					reader.close();
+				}
+			}
+		} catch (IOException e) {
+			logger.log(Level.SEVERE, "Error reading PAM file {1}: {2}",
+					new Object[] { TaskManager.getCurrentTick(), file, e });
+		}
+		loader.flush();
+		loader.report(file, start);
+	}
+
+	/*
+	 * Returns the int value of specified parameter, given as a number or a
+	 * string, or specified default.
+	 */
+	private static int getInt(Map<String, ?> params, String name, int def) {
+		Object value = params.get(name);
+		if (value instanceof Number) {
+			return ((Number) value).intValue();
+		}
+		if (value instanceof String) {
+			try {
+				return Integer.parseInt(((String) value).trim());
+			} catch (NumberFormatException e) {
+				logger.log(Level.WARNING, "Bad value {2} for parameter {1}",
+						new Object[] { TaskManager.getCurrentTick(), name, value });
+			}
+		}
+		return def;
+	}
+
+	/*
+	 * Link records whose source or sink is a node not yet added to PAM are
+	 * deferred until a chunk of them is ready, then the pending nodes are
+	 * added and the deferred links resolved, so that files interleaving node
+	 * and link records are still added in chunks.
+	 */
+	private static void readText(BufferedReader reader, char separator,
+			PerceptualAssociativeMemory pam, PamBulkLoader loader,
+			int chunkSize) throws IOException {
+		String[] fields = new String[5];
+		List<LinkRecord> deferred = new ArrayList<LinkRecord>();
+		String line;
+		int lineNumber = 0;
+		while ((line = reader.readLine()) != null) {
+			lineNumber++;
+			int n = split(line, separator, fields);
+			if (n == 0 || fields[0].startsWith("#")) {
+				continue;
+			}
+			if ("N".equals(fields[0]) && n >= 2) {
+				double a = (n > 2) ? parseDouble(fields[2], lineNumber)
+						: Double.NaN;
+				loader.addNode(fields[1], a);
+			} else if ("L".equals(fields[0]) && n >= 3) {
+				if (loader.isPendingNode(fields[1])
+						|| loader.isPendingNode(fields[2])) {
+					deferred.add(new LinkRecord(fields, n, lineNumber));
+					if (deferred.size() >= chunkSize) {
+						addDeferredLinks(deferred, pam, loader);
+					}
+				} else {
+					new LinkRecord(fields, n, lineNumber).add(pam, loader);
+				}
+			} else {
+				logger.log(Level.WARNING, "Bad PAM record on line {1}: {2}",
+						new Object[] { TaskManager.getCurrentTick(), lineNumber,
+								line });
+				loader.skip();
+			}
+		}
+		addDeferredLinks(deferred, pam, loader);
+	}
+
+	/*
+	 * Adds the pending nodes, then the deferred link records
+	 */
+	private static void addDeferredLinks(List<LinkRecord> deferred,
+			PerceptualAssociativeMemory pam, PamBulkLoader loader) {
+		if (deferred.isEmpty()) {
+			return;
+		}
+		loader.flushNodes();
+		for (LinkRecord record : deferred) {
+			record.add(pam, loader);
+		}
+		deferred.clear();
+	}
+
+	/*
+	 * The fields of a link record
+	 */
+	private static class LinkRecord {
+		private final String source;
+		private final String sink;
+		private final double baseLevelActivation;
+		private final String category;
+		private final int lineNumber;
+
+		LinkRecord(String[] fields, int n, int lineNumber) {
+			source = fields[1];
+			sink = fields[2];
+			baseLevelActivation = (n > 3) ? parseDouble(fields[3], lineNumber)
+					: Double.NaN;
+			category = (n > 4) ? fields[4] : null;
+			this.lineNumber = lineNumber;
+		}
+
+		void add(PerceptualAssociativeMemory pam, PamBulkLoader loader) {
+			LinkCategory cat = PerceptualAssociativeMemoryImpl.PARENT;
+			if (category != null) {
+				cat = loader.getCategory(category);
+			}
+			loader.addLink(pam.getNode(source), pam.getNode(sink), cat,
+					baseLevelActivation, lineNumber);
+		}
+	}
+
+	/*
+	 * Splits line into at most fields.length trimmed fields without
+	 * allocating intermediate arrays. Returns the number of fields.
+	 */
+	private static int split(String line, char separator, String[] fields) {
+		int count = 0;
+		int start = 0;
+		int length = line.length();
+		while (start <= length && count < fields.length) {
+			int end = line.indexOf(separator, start);
+			if (end < 0 || count == fields.length - 1) {
+				end = length;
+			}
+			fields[count++] = line.substring(start, end).trim();
+			start = end + 1;
+		}
+		if (count == 1 && fields[0].length() == 0) {
+			return 0;
+		}
+		return count;
+	}
+
+	private static double parseDouble(String s, int lineNumber) {
+		try {
+			return Double.parseDouble(s);
+		} catch (NumberFormatException e) {
+			logger.log(Level.WARNING,
+					"Bad base-level activation on line {1}: {2}",
+					new Object[] { TaskManager.getCurrentTick(), lineNumber, s });
+			return Double.NaN;
+		}
+	}
+}
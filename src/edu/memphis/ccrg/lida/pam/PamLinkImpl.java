@@ -105,6 +105,7 @@ public class PamLinkImpl extends LinkImpl implements PamLink {
 	@Override
 	public void setActivation(double activation) {
 		learnable.setActivation(activation);
+		notifyActivationListener();
 	}
 
 	@Override
@@ -115,6 +116,7 @@ public class PamLinkImpl extends LinkImpl implements PamLink {
 	@Override
 	public void excite(double amount) {
 		learnable.excite(amount);
+		notifyActivationListener();
 	}
 
 	@Override
@@ -166,11 +168,13 @@ public class PamLinkImpl extends LinkImpl implements PamLink {
 	@Override
 	public void setBaseLevelActivation(double amount) {
 		learnable.setBaseLevelActivation(amount);
+		notifyActivationListener();
 	}
 
 	@Override
 	public void reinforceBaseLevelActivation(double amount) {
 		learnable.reinforceBaseLevelActivation(amount);
+		notifyActivationListener();
 	}
 
 	@Override
@@ -98,6 +98,7 @@ public class PamNodeImpl extends NodeImpl implements PamNode {
     @Override
     public void setActivation(double a) {
         learnable.setActivation(a);
+        notifyActivationListener();
     }
 
     @Override
@@ -108,6 +109,7 @@ public class PamNodeImpl extends NodeImpl implements PamNode {
     @Override
     public void excite(double amount) {
         learnable.excite(amount);
+        notifyActivationListener();
     }
 
     @Override
@@ -158,11 +160,13 @@ public class PamNodeImpl extends NodeImpl implements PamNode {
     @Override
     public void setBaseLevelActivation(double amount) {
         learnable.setBaseLevelActivation(amount);
+        notifyActivationListener();
     }
 
     @Override
     public void reinforceBaseLevelActivation(double amount) {
         learnable.reinforceBaseLevelActivation(amount);
+        notifyActivationListener();
     }
 
     @Override
@@ -0,0 +1,47 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2011 The University of Memphis.  All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the LIDA Software Framework Non-Commercial License v1.0 
+ * which accompanies this distribution, and is available at
+ * http://ccrg.cs.memphis.edu/assets/papers/2010/LIDA-framework-non-commercial-v1.0.pdf
+ *******************************************************************************/
+package edu.memphis.ccrg.lida.pam;
+
+/**
+ * Splits the link graph of PAM into shards whose activation is propagated in
+ * parallel by the sweep engine. Excitation sent along a link whose source and
+ * sink are in different shards is exchanged between the shards at the end of
+ * each hop, so a partition with few such links runs best.
+ * <br/>
+ * The graph is given in compressed sparse row form. Node i has id ids[i],
+ * nodes being ordered by increasing id. Its outgoing links are the entries
+ * from rowStart[i] inclusive to rowStart[i+1] exclusive of targets, which
+ * holds the index of each link's sink node, or -1 if the sink is not a node.
+ * The arrays are shared with the engine and must not be modified.
+ * <br/>
+ * Implementations must have a public no-argument constructor.
+ *
+ * @see ComponentPamPartitioner
+ * @see RangePamPartitioner
+ * @author agent
+ */
+public interface PamPartitioner {
+
+	/**
+	 * Assigns each node of the graph to a shard.
+	 *
+	 * @param ids
+	 *            node ids, in increasing order
+	 * @param rowStart
+	 *            index of the first outgoing link of each node, with one extra
+	 *            entry holding the number of links
+	 * @param targets
+	 *            index of the sink node of each link or -1
+	 * @param shardCount
+	 *            the number of shards
+	 * @return the shard of each node, from 0 to shardCount - 1
+	 */
+	public int[] partition(int[] ids, int[] rowStart, int[] targets,
+			int shardCount);
+
+}
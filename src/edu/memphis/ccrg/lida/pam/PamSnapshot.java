@@ -0,0 +1,367 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2011 The University of Memphis.  All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the LIDA Software Framework Non-Commercial License v1.0 
+ * which accompanies this distribution, and is available at
+ * http://ccrg.cs.memphis.edu/assets/papers/2010/LIDA-framework-non-commercial-v1.0.pdf
+ *******************************************************************************/
+package edu.memphis.ccrg.lida.pam;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import edu.memphis.ccrg.lida.framework.shared.ElementFactory;
+import edu.memphis.ccrg.lida.framework.shared.ExtendedId;
+import edu.memphis.ccrg.lida.framework.shared.Link;
+import edu.memphis.ccrg.lida.framework.shared.LinkCategory;
+import edu.memphis.ccrg.lida.framework.shared.Linkable;
+import edu.memphis.ccrg.lida.framework.shared.Node;
+import edu.memphis.ccrg.lida.framework.tasks.TaskManager;
+
+/**
+ * Saves the contents of a {@link PerceptualAssociativeMemory} to a binary
+ * snapshot file and loads them back, so that agents with a large PAM need not
+ * rebuild it from the agent xml file at each start.
+ * <br/>
+ * A snapshot holds the labels of the link categories, the label, type and
+ * base-level activation of each node, and the source, sink, category, type
+ * and base-level activation of each link. It starts with {@link #MAGIC} and
+ * {@link #VERSION}; files of other versions are rejected. This is the only
+ * binary PAM format; {@link PamFileInitializer} also reads it with the
+ * 'binary' format. Snapshots are read
+ * through read-only memory mappings of the file, so pages are only loaded
+ * when read, and the elements are added to PAM in chunks as with
+ * {@link PamFileInitializer}.
+ * <br/>
+ * Node ids are not saved, the loaded nodes get new ids from the
+ * {@link ElementFactory}.
+ *
+ * @author agent
+ * @see BasicPamInitializer
+ */
+public class PamSnapshot {
+
+	private static final Logger logger = Logger.getLogger(PamSnapshot.class
+			.getCanonicalName());
+	private static final ElementFactory factory = ElementFactory.getInstance();
+
+	/**
+	 * First int of a PAM snapshot, 'PAMS'
+	 */
+	public static final int MAGIC = 0x50414D53;
+
+	/**
+	 * Version of the snapshot format written and read by this class
+	 */
+	public static final int VERSION = 1;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final String CATEGORY_NODE_TYPE = "NoDecayPamNode";
+	private static final int CHUNK_SIZE = 8192;
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private PamSnapshot() {
+	}
+
+	/**
+	 * Saves the nodes, links and link categories of specified PAM. PAM
+	 * should not be modified while it is saved.
+	 *
+	 * @param pam
+	 *            the {@link PerceptualAssociativeMemory} to save
+	 * @param file
+	 *            the snapshot file
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	public static void save(PerceptualAssociativeMemory pam, File file)
+			throws IOException {
+		List<String> types = new ArrayList<String>();
+		Map<String, Integer> typeIndices = new HashMap<String, Integer>();
+
+		List<LinkCategory> categories = new ArrayList<LinkCategory>(pam
+				.getLinkCategories());
+		Map<Integer, Integer> categoryIndices = new HashMap<Integer, Integer>();
+		for (int i = 0; i < categories.size(); i++) {
+			categoryIndices.put(categories.get(i).getId(), i);
+		}
+
+		List<PamNode> nodes = new ArrayList<PamNode>();
+		Map<Integer, Integer> nodeIndices = new HashMap<Integer, Integer>();
+		for (Node n : pam.getNodes()) {
+			if (n instanceof PamNode && !categoryIndices.containsKey(n.getId())) {
+				nodeIndices.put(n.getId(), nodes.size());
+				nodes.add((PamNode) n);
+			}
+		}
+
+		// Simple links first so that complex links refer to earlier links
+		List<PamLink> links = new ArrayList<PamLink>();
+		Map<ExtendedId, Integer> linkIndices = new HashMap<ExtendedId, Integer>();
+		for (Link l : pam.getLinks()) {
+			if (l instanceof PamLink && l.isSimpleLink()) {
+				addSavedLink((PamLink) l, links, linkIndices, nodeIndices,
+						categoryIndices);
+			}
+		}
+		for (Link l : pam.getLinks()) {
+			if (l instanceof PamLink && !l.isSimpleLink()) {
+				addSavedLink((PamLink) l, links, linkIndices, nodeIndices,
+						categoryIndices);
+			}
+		}
+		for (PamNode n : nodes) {
+			getTypeIndex(n.getFactoryType(), types, typeIndices);
+		}
+		for (PamLink l : links) {
+			getTypeIndex(l.getFactoryType(), types, typeIndices);
+		}
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(file), BUFFER_SIZE));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(types.size());
+			for (String t : types) {
+				writeString(out, t);
+			}
+			out.writeInt(categories.size());
+			for (LinkCategory c : categories) {
+				writeString(out, c.getLabel());
+			}
+			out.writeInt(nodes.size());
+			out.writeInt(links.size());
+			for (PamNode n : nodes) {
+				writeString(out, n.getLabel());
+				out.writeInt(typeIndices.get(n.getFactoryType()));
+				out.writeDouble(n.getBaseLevelActivation());
+			}
+			for (PamLink l : links) {
+				out.writeInt(nodeIndices.get(l.getSource().getId()));
+				Linkable sink = l.getSink();
+				if (sink instanceof Node) {
+					out.writeInt(nodeIndices.get(((Node) sink).getId()));
+				} else {
+					out.writeInt(-1 - linkIndices.get(sink.getExtendedId()));
+				}
+				out.writeInt(categoryIndices.get(l.getCategory().getId()));
+				out.writeInt(typeIndices.get(l.getFactoryType()));
+				out.writeDouble(l.getBaseLevelActivation());
+			}
+		} finally {
+			out.close();
+		}
+		logger.log(Level.INFO, "Saved {1} nodes and {2} links to {3}",
+				new Object[] { TaskManager.getCurrentTick(), nodes.size(),
+						links.size(), file });
+	}
+
+	/*
+	 * Adds a link to the saved links if its source, sink and category are
+	 * saved.
+	 */
+	private static void addSavedLink(PamLink l, List<PamLink> links,
+			Map<ExtendedId, Integer> linkIndices,
+			Map<Integer, Integer> nodeIndices,
+			Map<Integer, Integer> categoryIndices) {
+		Linkable sink = l.getSink();
+		boolean sinkSaved = (sink instanceof Node) ? nodeIndices
+				.containsKey(((Node) sink).getId()) : linkIndices
+				.containsKey(sink.getExtendedId());
+		if (!sinkSaved || !nodeIndices.containsKey(l.getSource().getId())
+				|| !categoryIndices.containsKey(l.getCategory().getId())) {
+			logger.log(Level.WARNING,
+					"Link {1} not saved, its source, sink or category is not a saved element",
+					new Object[] { TaskManager.getCurrentTick(), l });
+			return;
+		}
+		linkIndices.put(l.getExtendedId(), links.size());
+		links.add(l);
+	}
+
+	private static int getTypeIndex(String type, List<String> types,
+			Map<String, Integer> typeIndices) {
+		Integer index = typeIndices.get(type);
+		if (index == null) {
+			index = types.size();
+			types.add(type);
+			typeIndices.put(type, index);
+		}
+		return index;
+	}
+
+	private static void writeString(DataOutputStream out, String s)
+			throws IOException {
+		if (s == null) {
+			out.writeInt(-1);
+		} else {
+			byte[] bytes = s.getBytes(UTF8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+
+	/**
+	 * Adds the nodes, links and link categories of a snapshot to specified
+	 * PAM. Link categories are matched by label; missing ones are added.
+	 *
+	 * @param file
+	 *            the snapshot file
+	 * @param pam
+	 *            the {@link PerceptualAssociativeMemory} to load
+	 * @param globalAttributes
+	 *            whether each node is added to the
+	 *            {@link edu.memphis.ccrg.lida.framework.initialization.GlobalInitializer}
+	 *            by label
+	 * @throws IOException
+	 *             if the file cannot be read or is not a valid snapshot
+	 */
+	public static void load(File file, PerceptualAssociativeMemory pam,
+			boolean globalAttributes) throws IOException {
+		long start = System.nanoTime();
+		PamBulkLoader loader = new PamBulkLoader(pam, CHUNK_SIZE,
+				globalAttributes);
+		read(file, loader);
+		loader.report(file.getPath(), start);
+	}
+
+	/**
+	 * Adds the nodes, links and link categories of a snapshot to the PAM of
+	 * specified loader and adds the pending elements.
+	 *
+	 * @param file
+	 *            the snapshot file
+	 * @param loader
+	 *            the loader of the PAM
+	 * @throws IOException
+	 *             if the file cannot be read or is not a valid snapshot
+	 */
+	static void read(File file, PamBulkLoader loader) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			MappedReader in = new MappedReader(raf.getChannel());
+			if (in.readInt() != MAGIC) {
+				throw new IOException(file + " is not a PAM snapshot");
+			}
+			int version = in.readInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported PAM snapshot version "
+						+ version);
+			}
+			String[] types = new String[in.readInt()];
+			for (int i = 0; i < types.length; i++) {
+				types[i] = in.readString();
+			}
+			LinkCategory[] categories = new LinkCategory[in.readInt()];
+			for (int i = 0; i < categories.length; i++) {
+				String label = in.readString();
+				LinkCategory cat = loader.getCategory(label);
+				if (cat == null) {
+					cat = (LinkCategory) factory.getNode(CATEGORY_NODE_TYPE,
+							label);
+					cat = loader.addCategory(cat);
+				}
+				categories[i] = cat;
+			}
+			int nodeCount = in.readInt();
+			int linkCount = in.readInt();
+			loader.ensureCapacity(nodeCount, linkCount);
+			loader.indexNodes(nodeCount);
+			loader.indexLinks(linkCount);
+			for (int i = 0; i < nodeCount; i++) {
+				String label = in.readString();
+				String type = types[in.readInt()];
+				loader.addNode(type, label, in.readDouble());
+			}
+			loader.flushNodes();
+			for (int i = 0; i < linkCount; i++) {
+				Node source = loader.getIndexedNode(in.readInt());
+				int sinkIndex = in.readInt();
+				Linkable sink = (sinkIndex >= 0) ? loader
+						.getIndexedNode(sinkIndex) : loader
+						.getIndexedLink(-1 - sinkIndex);
+				LinkCategory cat = categories[in.readInt()];
+				String type = types[in.readInt()];
+				loader.addLink(type, source, sink, cat, in.readDouble(), i);
+			}
+			loader.flush();
+		} finally {
+			raf.close();
+		}
+	}
+
+	/*
+	 * Reads a file through successive read-only mappings of at most
+	 * WINDOW_SIZE bytes, since a single mapping cannot exceed 2GB.
+	 */
+	private static class MappedReader {
+
+		private static final long WINDOW_SIZE = 1L << 28;
+
+		private final FileChannel channel;
+		private final long size;
+		private long windowStart;
+		private MappedByteBuffer buffer;
+
+		MappedReader(FileChannel channel) throws IOException {
+			this.channel = channel;
+			this.size = channel.size();
+			map(0);
+		}
+
+		private void map(long position) throws IOException {
+			windowStart = position;
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, position,
+					Math.min(WINDOW_SIZE, size - position));
+		}
+
+		/*
+		 * Makes sure the next n bytes are mapped.
+		 */
+		private void ensure(int n) throws IOException {
+			if (buffer.remaining() < n) {
+				long position = windowStart + buffer.position();
+				if (position + n > size) {
+					throw new EOFException();
+				}
+				map(position);
+			}
+		}
+
+		int readInt() throws IOException {
+			ensure(4);
+			return buffer.getInt();
+		}
+
+		double readDouble() throws IOException {
+			ensure(8);
+			return buffer.getDouble();
+		}
+
+		String readString() throws IOException {
+			int length = readInt();
+			if (length < 0) {
+				return null;
+			}
+			ensure(length);
+			byte[] bytes = new byte[length];
+			buffer.get(bytes);
+			return new String(bytes, UTF8);
+		}
+	}
+}
@@ -0,0 +1,214 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2011 The University of Memphis.  All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the LIDA Software Framework Non-Commercial License v1.0 
+ * which accompanies this distribution, and is available at
+ * http://ccrg.cs.memphis.edu/assets/papers/2010/LIDA-framework-non-commercial-v1.0.pdf
+ *******************************************************************************/
+package edu.memphis.ccrg.lida.pam;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import edu.memphis.ccrg.lida.framework.shared.ExtendedId;
+import edu.memphis.ccrg.lida.framework.shared.Link;
+import edu.memphis.ccrg.lida.framework.shared.Linkable;
+import edu.memphis.ccrg.lida.framework.shared.Node;
+import edu.memphis.ccrg.lida.framework.shared.NodeStructure;
+import edu.memphis.ccrg.lida.framework.shared.NodeStructureImpl;
+
+/**
+ * Collects the {@link Node}s and {@link Link}s added to the percept until
+ * they are drained into a single {@link NodeStructure}. An element added
+ * several times before a drain is delivered once, with its latest state.
+ * <br/>
+ * With a positive debounce, an element delivered at some tick is not
+ * delivered again before debounce ticks have passed, so that an element
+ * staying over the percept threshold is not sent every tick.
+ * <br/>
+ * Elements may be added by any thread; only one thread at a time may drain.
+ *
+ * @author agent
+ */
+class PerceptBatch {
+
+	private static final int MIN_PRUNE_SIZE = 1024;
+
+	private Map<Integer, Node> nodes = new HashMap<Integer, Node>();
+	private Map<ExtendedId, Link> links = new HashMap<ExtendedId, Link>();
+	private Map<Integer, Node> drainedNodes = new HashMap<Integer, Node>();
+	private Map<ExtendedId, Link> drainedLinks = new HashMap<ExtendedId, Link>();
+
+	/*
+	 * Tick each element was last delivered at. Only used by the draining
+	 * thread and only when the debounce is positive.
+	 */
+	private final Map<Integer, Long> nodesSent = new HashMap<Integer, Long>();
+	private final Map<ExtendedId, Long> linksSent = new HashMap<ExtendedId, Long>();
+	private int pruneSize = MIN_PRUNE_SIZE;
+	private final List<Link> dueLinks = new ArrayList<Link>();
+
+	private volatile int debounce;
+
+	/**
+	 * Sets the number of ticks during which a delivered element is not
+	 * delivered again.
+	 *
+	 * @param ticks
+	 *            the debounce, 0 or less to deliver every element added
+	 */
+	void setDebounce(int ticks) {
+		debounce = ticks;
+	}
+
+	/**
+	 * @return the number of ticks during which a delivered element is not
+	 *         delivered again
+	 */
+	int getDebounce() {
+		return debounce;
+	}
+
+	/**
+	 * Adds a {@link Node} to the next percept.
+	 *
+	 * @param n
+	 *            the node
+	 * @return true if the batch was empty
+	 */
+	synchronized boolean addNode(Node n) {
+		boolean first = isEmpty();
+		nodes.put(n.getId(), n);
+		return first;
+	}
+
+	/**
+	 * Adds a {@link Link} to the next percept. Its source and its sink, if a
+	 * node, are delivered along with it.
+	 *
+	 * @param l
+	 *            the link
+	 * @return true if the batch was empty
+	 */
+	synchronized boolean addLink(Link l) {
+		boolean first = isEmpty();
+		links.put(l.getExtendedId(), l);
+		return first;
+	}
+
+	/**
+	 * Adds all the elements of a {@link NodeStructure} to the next percept.
+	 *
+	 * @param ns
+	 *            the node structure
+	 * @return true if the batch was empty
+	 */
+	synchronized boolean addNodeStructure(NodeStructure ns) {
+		boolean first = isEmpty();
+		for (Node n : ns.getNodes()) {
+			nodes.put(n.getId(), n);
+		}
+		for (Link l : ns.getLinks()) {
+			links.put(l.getExtendedId(), l);
+		}
+		return first && !isEmpty();
+	}
+
+	private boolean isEmpty() {
+		return nodes.isEmpty() && links.isEmpty();
+	}
+
+	/**
+	 * Removes the elements added since the last drain and copies those not
+	 * debounced into a new {@link NodeStructure} of default node and link
+	 * types.
+	 *
+	 * @param tick
+	 *            the current tick
+	 * @return the percept or null if no element is to be delivered
+	 */
+	NodeStructure drain(long tick) {
+		synchronized (this) {
+			Map<Integer, Node> auxNodes = drainedNodes;
+			drainedNodes = nodes;
+			nodes = auxNodes;
+			Map<ExtendedId, Link> auxLinks = drainedLinks;
+			drainedLinks = links;
+			links = auxLinks;
+		}
+		int ticks = debounce;
+		NodeStructure percept = new NodeStructureImpl();
+		for (Node n : drainedNodes.values()) {
+			if (isDue(nodesSent, n.getId(), tick, ticks)) {
+				percept.addDefaultNode(n);
+			}
+		}
+		for (Link l : drainedLinks.values()) {
+			if (isDue(linksSent, l.getExtendedId(), tick, ticks)) {
+				dueLinks.add(l);
+				percept.addDefaultNode(l.getSource());
+				Linkable sink = l.getSink();
+				if (sink instanceof Node) {
+					percept.addDefaultNode((Node) sink);
+				}
+			}
+		}
+		// Simple links first, so that complex links find their sinks
+		for (Link l : dueLinks) {
+			if (l.isSimpleLink()) {
+				percept.addDefaultLink(l);
+			}
+		}
+		for (Link l : dueLinks) {
+			if (!l.isSimpleLink()) {
+				percept.addDefaultLink(l);
+			}
+		}
+		dueLinks.clear();
+		drainedNodes.clear();
+		drainedLinks.clear();
+		if (ticks > 0 && nodesSent.size() + linksSent.size() > pruneSize) {
+			prune(nodesSent, tick, ticks);
+			prune(linksSent, tick, ticks);
+			pruneSize = Math.max(MIN_PRUNE_SIZE,
+					2 * (nodesSent.size() + linksSent.size()));
+		}
+		if (percept.getNodeCount() == 0 && percept.getLinkCount() == 0) {
+			return null;
+		}
+		return percept;
+	}
+
+	/*
+	 * Returns whether the element of specified key is not debounced, in which
+	 * case it is recorded as sent at specified tick.
+	 */
+	private static <K> boolean isDue(Map<K, Long> sent, K key, long tick,
+			int ticks) {
+		if (ticks <= 0) {
+			return true;
+		}
+		Long last = sent.get(key);
+		if (last != null && tick - last < ticks) {
+			return false;
+		}
+		sent.put(key, tick);
+		return true;
+	}
+
+	/*
+	 * Removes the elements whose debounce has expired.
+	 */
+	private static <K> void prune(Map<K, Long> sent, long tick, int ticks) {
+		Iterator<Long> it = sent.values().iterator();
+		while (it.hasNext()) {
+			if (tick - it.next() >= ticks) {
+				it.remove();
+			}
+		}
+	}
+
+}
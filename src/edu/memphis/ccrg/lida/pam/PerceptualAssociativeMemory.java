@@ -17,6 +17,7 @@ import edu.memphis.ccrg.lida.framework.shared.LinkCategory;
 import edu.memphis.ccrg.lida.framework.shared.Linkable;
 import edu.memphis.ccrg.lida.framework.shared.Node;
 import edu.memphis.ccrg.lida.framework.shared.NodeStructure;
+import edu.memphis.ccrg.lida.framework.tasks.TaskSpawner;
 import edu.memphis.ccrg.lida.pam.tasks.BasicDetectionAlgorithm;
 import edu.memphis.ccrg.lida.pam.tasks.DetectionAlgorithm;
 import edu.memphis.ccrg.lida.pam.tasks.ExcitationTask;
@@ -120,6 +121,22 @@ public interface PerceptualAssociativeMemory extends FrameworkModule{
 	 * @param fd {@link DetectionAlgorithm}
 	 */
 	public void addDetectionAlgorithm(DetectionAlgorithm fd);
+
+	/**
+	 * Adds specified {@link DetectionAlgorithm}, already run as a task by
+	 * specified {@link TaskSpawner}, to a
+	 * {@link edu.memphis.ccrg.lida.pam.tasks.DetectorBank} run by the same
+	 * TaskSpawner if this PAM groups detectors in banks. By default detectors
+	 * are not grouped.
+	 * @param detector the {@link DetectionAlgorithm}
+	 * @param spawner the {@link TaskSpawner} running the detector
+	 * @return true if the detector was added to a bank and should no longer
+	 *         run as its own task
+	 * @see BasicDetectionAlgorithm
+	 */
+	public default boolean addToDetectorBank(DetectionAlgorithm detector, TaskSpawner spawner) {
+		return false;
+	}
 		
 	/**
 	 * Adds {@link PamListener}.
@@ -156,6 +173,21 @@ public interface PerceptualAssociativeMemory extends FrameworkModule{
 	 * @param amount amount of activation
 	 */
 	public void receiveExcitation(Set<PamLinkable> linkables, double amount);
+
+	/**
+	 * Excites several {@link PamLinkable}s each with its own amount of
+	 * activation. The first count elements of the arrays are used. By default
+	 * each PamLinkable is excited with {@link #receiveExcitation(PamLinkable, double)}.
+	 * @param linkables the PamLinkables to be excited
+	 * @param amounts amount of activation of each PamLinkable
+	 * @param count number of PamLinkables to excite
+	 * @see edu.memphis.ccrg.lida.pam.tasks.DetectorBank
+	 */
+	public default void receiveExcitation(PamLinkable[] linkables, double[] amounts, int count) {
+		for (int i = 0; i < count; i++) {
+			receiveExcitation(linkables[i], amounts[i]);
+		}
+	}
 	
 	/**
 	 * Propagates activation from a {@link PamNode} to its parents.
@@ -14,8 +14,12 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -24,6 +28,8 @@ import edu.memphis.ccrg.lida.framework.FrameworkModuleImpl;
 import edu.memphis.ccrg.lida.framework.ModuleListener;
 import edu.memphis.ccrg.lida.framework.ModuleName;
 import edu.memphis.ccrg.lida.framework.initialization.Initializable;
+import edu.memphis.ccrg.lida.framework.shared.ConnectionVisitor;
+import edu.memphis.ccrg.lida.framework.shared.ConcurrentIntMap;
 import edu.memphis.ccrg.lida.framework.shared.ElementFactory;
 import edu.memphis.ccrg.lida.framework.shared.ExtendedId;
 import edu.memphis.ccrg.lida.framework.shared.Link;
@@ -33,10 +39,17 @@ import edu.memphis.ccrg.lida.framework.shared.Node;
 import edu.memphis.ccrg.lida.framework.shared.NodeStructure;
 import edu.memphis.ccrg.lida.framework.shared.NodeStructureImpl;
 import edu.memphis.ccrg.lida.framework.shared.UnmodifiableNodeStructureImpl;
+import edu.memphis.ccrg.lida.framework.shared.activation.Activatible;
+import edu.memphis.ccrg.lida.framework.tasks.FrameworkTaskImpl;
 import edu.memphis.ccrg.lida.framework.tasks.TaskManager;
+import edu.memphis.ccrg.lida.framework.tasks.TaskPool;
+import edu.memphis.ccrg.lida.framework.tasks.TaskSpawner;
 import edu.memphis.ccrg.lida.globalworkspace.BroadcastListener;
 import edu.memphis.ccrg.lida.globalworkspace.Coalition;
+import edu.memphis.ccrg.lida.pam.tasks.AddNodeStructureToPerceptTask;
+import edu.memphis.ccrg.lida.pam.tasks.BasicDetectionAlgorithm;
 import edu.memphis.ccrg.lida.pam.tasks.DetectionAlgorithm;
+import edu.memphis.ccrg.lida.pam.tasks.DetectorBank;
 import edu.memphis.ccrg.lida.pam.tasks.ExcitationTask;
 import edu.memphis.ccrg.lida.pam.tasks.PropagationTask;
 import edu.memphis.ccrg.lida.workspace.WorkspaceContent;
@@ -76,7 +89,7 @@ public class PerceptualAssociativeMemoryImpl extends FrameworkModuleImpl
 	/*
 	 * How PAM calculates the amount of activation to propagate
 	 */
-	private PropagationStrategy propagationStrategy = new UpscalePropagationStrategy();
+	private volatile PropagationStrategy propagationStrategy = new UpscalePropagationStrategy();
 
 	private static final int DEFAULT_EXCITATION_TASK_TICKS = 1;
 	private int excitationTaskTicksPerRun = DEFAULT_EXCITATION_TASK_TICKS;
@@ -98,6 +111,80 @@ public class PerceptualAssociativeMemoryImpl extends FrameworkModuleImpl
 
 	private Map<Integer, LinkCategory> linkCategories = new HashMap<Integer, LinkCategory>();
 
+	private static final String DEFAULT_PROPAGATION_ENGINE = "task";
+	private boolean sweepPropagation;
+
+	private static final int DEFAULT_SWEEP_HOPS = 3;
+	private int sweepHops = DEFAULT_SWEEP_HOPS;
+
+	private static final int DEFAULT_SWEEP_PARALLELISM = 1;
+	private static final String DEFAULT_SWEEP_PARTITIONER = ComponentPamPartitioner.class.getName();
+
+	/*
+	 * Used instead of PropagationTasks when the sweep engine is selected
+	 */
+	private SweepPropagationEngine sweepEngine = new SweepPropagationEngine();
+
+	private static final boolean DEFAULT_BATCH_PERCEPTS = false;
+	private boolean batchPercepts = DEFAULT_BATCH_PERCEPTS;
+
+	private static final int DEFAULT_PERCEPT_DEBOUNCE_TICKS = 0;
+
+	/*
+	 * Collects the elements added to the percept when percepts are batched
+	 */
+	private final PerceptBatch perceptBatch = new PerceptBatch();
+
+	private static final boolean DEFAULT_COALESCE_EXCITATION = true;
+	private boolean coalesceExcitation = DEFAULT_COALESCE_EXCITATION;
+
+	private static final boolean DEFAULT_DETECTOR_BANKS = false;
+	private boolean useDetectorBanks = DEFAULT_DETECTOR_BANKS;
+
+	private static final boolean DEFAULT_DETECTOR_BANK_PARALLEL = false;
+
+	/*
+	 * Banks of the detection algorithms indexed by the task spawner running
+	 * them, then by modality and ticks per run
+	 */
+	private final Map<TaskSpawner, Map<String, DetectorBank>> detectorBanks = new HashMap<TaskSpawner, Map<String, DetectorBank>>();
+	private boolean parallelDetectorBanks = DEFAULT_DETECTOR_BANK_PARALLEL;
+
+	/*
+	 * Excitation tasks not run yet indexed by the id of the node they excite.
+	 * A task removes its entry when it runs.
+	 */
+	private final ConcurrentIntMap<ExcitationTask> pendingExcitations = new ConcurrentIntMap<ExcitationTask>();
+
+	/*
+	 * Pools of the short-lived excitation and propagation tasks
+	 */
+	private final TaskPool<ExcitationTask> excitationTaskPool = new TaskPool<ExcitationTask>() {
+		@Override
+		protected ExcitationTask createTask() {
+			return new ExcitationTask(excitationTaskTicksPerRun, null, 0.0,
+					PerceptualAssociativeMemoryImpl.this);
+		}
+	};
+	private final TaskPool<PropagationTask> propagationTaskPool = new TaskPool<PropagationTask>() {
+		@Override
+		protected PropagationTask createTask() {
+			return new PropagationTask(propagationTaskTicksPerRun, null, 0.0,
+					PerceptualAssociativeMemoryImpl.this);
+		}
+	};
+
+	/*
+	 * Visitor propagating activation to the parents of a node, one per
+	 * thread so that propagating does not allocate one per node
+	 */
+	private final ThreadLocal<ParentPropagation> parentPropagations = new ThreadLocal<ParentPropagation>() {
+		@Override
+		protected ParentPropagation initialValue() {
+			return new ParentPropagation();
+		}
+	};
+
 	/**
 	 * Primitive {@link LinkCategory} NONE
 	 */
@@ -142,6 +229,15 @@ public class PerceptualAssociativeMemoryImpl extends FrameworkModuleImpl
      * <b>pam.excitationTicksPerRun</b> the delay (in ticks) on the excitation of Nodes and Links after they receive some activation, default is 1 tick<br/>
      * <b>pam.propagationTicksPerRun</b> the delay (in ticks) on the propagation of activation from a Node or Link, default is 1 tick<br/>
      * <b>pam.propagateActivationThreshold</b> the amount of activation necessary to be propagated i.e. a lesser amount is not (worth being) passed<br/>
+     * <b>pam.propagationEngine</b> either 'task', activation is propagated one link per task and one tick per link, or 'sweep', activation is propagated several links at once in one task per tick, default is 'task'<br/>
+     * <b>pam.sweepHops</b> with the 'sweep' engine, the maximum number of links activation is propagated through in one tick, default is 3<br/>
+     * <b>pam.sweepParallelism</b> with the 'sweep' engine, the number of shards PAM is split into, whose activation is propagated in parallel on the common {@link ForkJoinPool}, default is 1<br/>
+     * <b>pam.sweepPartitioner</b> with the 'sweep' engine and more than one shard, the name of the {@link PamPartitioner} class splitting PAM into shards, default is {@link ComponentPamPartitioner}<br/>
+     * <b>pam.batchPercepts</b> if true, the Nodes and Links added to the percept during a tick are sent to the listeners as a single NodeStructure at the next tick, each element at most once, default is false<br/>
+     * <b>pam.perceptDebounceTicks</b> with batched percepts, the number of ticks during which an element sent to the listeners is not sent again, default is 0<br/>
+     * <b>pam.coalesceExcitation</b> if true, the excitations a Node receives before its pending excitation task runs are summed into that task, default is true<br/>
+     * <b>pam.detectorBanks</b> if true, the {@link BasicDetectionAlgorithm}s with a modality are run by one {@link DetectorBank} per task spawner, modality and ticks per run, default is false. Algorithms added to PAM join a bank of PAM's task spawner, algorithms listed as tasks in the agent xml file join a bank of their declared task spawner after their first run<br/>
+     * <b>pam.detectorBankParallel</b> with detector banks, if true the algorithms of large banks are evaluated in parallel on the common {@link ForkJoinPool}, default is false<br/>
      * @see Initializable
      */
 	@Override
@@ -156,6 +252,58 @@ public class PerceptualAssociativeMemoryImpl extends FrameworkModuleImpl
 		propagationTaskTicksPerRun = (Integer) getParam(
 				"pam.propagationTicksPerRun", DEFAULT_PROPAGATION_TASK_TICKS);
 		propagateActivationThreshold = (Double)getParam("pam.propagateActivationThreshold",DEFAULT_PROPAGATION_THRESHOLD);
+		coalesceExcitation = getParam("pam.coalesceExcitation", DEFAULT_COALESCE_EXCITATION);
+		batchPercepts = getParam("pam.batchPercepts", DEFAULT_BATCH_PERCEPTS);
+		useDetectorBanks = getParam("pam.detectorBanks", DEFAULT_DETECTOR_BANKS);
+		if (useDetectorBanks) {
+			parallelDetectorBanks = getParam("pam.detectorBankParallel", DEFAULT_DETECTOR_BANK_PARALLEL);
+		}
+		perceptBatch.setDebounce(getParam("pam.perceptDebounceTicks", DEFAULT_PERCEPT_DEBOUNCE_TICKS));
+		String engine = getParam("pam.propagationEngine", DEFAULT_PROPAGATION_ENGINE);
+		if ("sweep".equalsIgnoreCase(engine)) {
+			if (supportsSweepPropagation()) {
+				sweepPropagation = true;
+			} else {
+				logger.log(Level.WARNING, "This PAM does not support the sweep engine, using {1}",
+						new Object[] { TaskManager.getCurrentTick(), DEFAULT_PROPAGATION_ENGINE });
+			}
+		} else if (!"task".equalsIgnoreCase(engine)) {
+			logger.log(Level.WARNING, "Unknown propagation engine {1}, using {2}",
+					new Object[] { TaskManager.getCurrentTick(), engine, DEFAULT_PROPAGATION_ENGINE });
+		}
+		sweepHops = getParam("pam.sweepHops", DEFAULT_SWEEP_HOPS);
+		if (sweepPropagation) {
+			int parallelism = getParam("pam.sweepParallelism", DEFAULT_SWEEP_PARALLELISM);
+			if (parallelism > 1) {
+				String partitionerName = getParam("pam.sweepPartitioner", DEFAULT_SWEEP_PARTITIONER);
+				sweepEngine = new SweepPropagationEngine(parallelism,
+						ForkJoinPool.commonPool(), createPartitioner(partitionerName));
+			}
+		}
+	}
+
+	/*
+	 * Instantiates the PamPartitioner of specified class name, or the default
+	 * one if it cannot be instantiated.
+	 */
+	private PamPartitioner createPartitioner(String className) {
+		try {
+			return (PamPartitioner) Class.forName(className).getDeclaredConstructor().newInstance();
+		} catch (Exception e) {
+			logger.log(Level.WARNING, "Cannot create partitioner {1}, using {2}",
+					new Object[] { TaskManager.getCurrentTick(), className, DEFAULT_SWEEP_PARTITIONER });
+			return new ComponentPamPartitioner();
+		}
+	}
+
+	/**
+	 * Returns whether this PAM can propagate activation with the sweep
+	 * engine, which reads the nodes and links of {@link #pamNodeStructure}.
+	 * 
+	 * @return true by default
+	 */
+	protected boolean supportsSweepPropagation() {
+		return true;
 	}
 
 	@Override
@@ -202,6 +350,7 @@ public class PerceptualAssociativeMemoryImpl extends FrameworkModuleImpl
 			return null;
 		}
 		PamNode node = (PamNode) pamNodeStructure.addDefaultNode(n);
+		sweepEngine.invalidate();
 		if (node.getLabel() != null) {
 			nodesByLabel.put(node.getLabel(), node);
 		}
@@ -228,6 +377,7 @@ public class PerceptualAssociativeMemoryImpl extends FrameworkModuleImpl
 			return null;
 		}
 		PamLink newlink = (PamLink) pamNodeStructure.addDefaultLink(link);
+		sweepEngine.invalidate();
 		return newlink;
 	}
 	
@@ -250,6 +400,7 @@ public class PerceptualAssociativeMemoryImpl extends FrameworkModuleImpl
 					new Object[]{TaskManager.getCurrentTick(),label});
 		}else{		
 			n = (PamNode) pamNodeStructure.addNode(type,label,0.0,0.0);
+			sweepEngine.invalidate();
 			if(n != null){
 				nodesByLabel.put(n.getLabel(), n);
 			}
@@ -274,9 +425,115 @@ public class PerceptualAssociativeMemoryImpl extends FrameworkModuleImpl
 					TaskManager.getCurrentTick());
 			return null;
 		}
+		sweepEngine.invalidate();
 		return (PamLink)pamNodeStructure.addLink(type,src,snk,cat,0.0,0.0);
 	}
 
+	/**
+	 * Pre-sizes the internal maps of this PAM for a bulk load of specified
+	 * numbers of nodes and links.
+	 * 
+	 * @param nodeCount
+	 *            expected number of {@link PamNode}s
+	 * @param linkCount
+	 *            expected number of {@link PamLink}s
+	 */
+	public void ensureCapacity(int nodeCount, int linkCount) {
+		pamNodeStructure.ensureCapacity(nodeCount, linkCount);
+		if (nodeCount > nodesByLabel.size()) {
+			Map<String, PamNode> newNodesByLabel = new ConcurrentHashMap<String, PamNode>(
+					nodeCount);
+			newNodesByLabel.putAll(nodesByLabel);
+			nodesByLabel = newNodesByLabel;
+		}
+	}
+
+	/**
+	 * Adds new {@link PamNode}s of the default type with specified labels in
+	 * bulk. The nodes are created first and then stored taking the lock of
+	 * the PAM {@link NodeStructure} once.
+	 * 
+	 * @param labels
+	 *            labels of the new nodes
+	 * @param count
+	 *            number of labels to add
+	 * @return an array holding the new node of each label, or null where the
+	 *         label is null or already used
+	 */
+	public PamNode[] addDefaultNodes(String[] labels, int count) {
+		String type = pamNodeStructure.getDefaultNodeType();
+		PamNode[] added = new PamNode[count];
+		for (int i = 0; i < count; i++) {
+			String label = labels[i];
+			if (label == null || nodesByLabel.containsKey(label)) {
+				logger.log(Level.WARNING, "Cannot add a Node with the label {1} to Pam",
+						new Object[]{TaskManager.getCurrentTick(),label});
+				continue;
+			}
+			Node n = factory.getNode(type, null, type);
+			if (n instanceof PamNode) {
+				n.setLabel(label);
+				n.setActivation(0.0);
+				n.setActivatibleRemovalThreshold(0.0);
+				added[i] = (PamNode) n;
+			}
+		}
+		pamNodeStructure.addNodes(added, count);
+		sweepEngine.invalidate();
+		for (int i = 0; i < count; i++) {
+			PamNode n = added[i];
+			if (n != null && nodesByLabel.containsKey(n.getLabel())) {
+				// label repeated within the batch
+				pamNodeStructure.removeNode(n);
+				added[i] = null;
+			} else if (n != null) {
+				nodesByLabel.put(n.getLabel(), n);
+			}
+		}
+		return added;
+	}
+
+	/**
+	 * Adds new {@link PamLink}s of the default type in bulk. The links are
+	 * created first and then stored taking the lock of the PAM
+	 * {@link NodeStructure} once. Sources and sinks must be elements of this
+	 * PAM, e.g. returned by {@link #addDefaultNodes(String[], int)}.
+	 * 
+	 * @param sources
+	 *            sources of the new links
+	 * @param sinks
+	 *            sinks of the new links
+	 * @param categories
+	 *            categories of the new links
+	 * @param count
+	 *            number of links to add
+	 * @return an array holding each new link, or null where the link could
+	 *         not be added
+	 */
+	public PamLink[] addDefaultLinks(Node[] sources, Linkable[] sinks,
+			LinkCategory[] categories, int count) {
+		String type = pamNodeStructure.getDefaultLinkType();
+		PamLink[] added = new PamLink[count];
+		for (int i = 0; i < count; i++) {
+			LinkCategory cat = categories[i];
+			if (sources[i] == null || sinks[i] == null || cat == null
+					|| !linkCategories.containsKey(cat.getId())) {
+				logger.log(Level.WARNING, "Cannot add new Link from {1} to {2}",
+						new Object[]{TaskManager.getCurrentTick(),sources[i],sinks[i]});
+				continue;
+			}
+			Link l = factory.getLink(type, type, sources[i], sinks[i], cat);
+			if (l instanceof PamLink) {
+				l.setActivation(0.0);
+				l.setActivatibleRemovalThreshold(0.0);
+				added[i] = (PamLink) l;
+			}
+		}
+		pamNodeStructure.addLinks(added, count);
+		sweepEngine.invalidate();
+		return added;
+	}
+
 	@Override
 	public void addDetectionAlgorithm(DetectionAlgorithm detector) {
 		PamLinkable pl = detector.getPamLinkable();
@@ -287,7 +544,7 @@ public class PerceptualAssociativeMemoryImpl extends FrameworkModuleImpl
 					new Object[] { TaskManager.getCurrentTick(),detector});
 			return;
 		}
-		if ( !pamNodeStructure.containsLinkable(pl)) {
+		if (!containsNode(pl.getExtendedId()) && !containsLink(pl.getExtendedId())) {
 			logger.log(
 							Level.WARNING,
 							"Adding detection algorithm {1} but, detector's pam linkable {2} is not in PAM.",
@@ -295,11 +552,64 @@ public class PerceptualAssociativeMemoryImpl extends FrameworkModuleImpl
 									detector, detector.getPamLinkable() });
 		}
 
-		taskSpawner.addTask(detector);
+		if (!addToDetectorBank(detector, taskSpawner)) {
+			taskSpawner.addTask(detector);
+		}
 		logger.log(Level.FINE, "Added feature detector to PAM", TaskManager
 				.getCurrentTick());
 	}
 
+	/**
+	 * Adds specified detector to the {@link DetectorBank} of its modality and
+	 * ticks per run that is run by specified {@link TaskSpawner} if detector banks are
+	 * used and the detector is a {@link BasicDetectionAlgorithm} with a
+	 * modality. The bank is created and added to the spawner if needed.
+	 * 
+	 * @param detector
+	 *            the detector
+	 * @param spawner
+	 *            the {@link TaskSpawner} running the detector
+	 * @return true if the detector was added to a bank, false if it must be
+	 *         run as its own task
+	 */
+	@Override
+	public boolean addToDetectorBank(DetectionAlgorithm detector, TaskSpawner spawner) {
+		if (useDetectorBanks && spawner != null
+				&& detector instanceof BasicDetectionAlgorithm
+				&& ((BasicDetectionAlgorithm) detector).getModality() != null) {
+			addToBank((BasicDetectionAlgorithm) detector, spawner);
+			return true;
+		}
+		return false;
+	}
+
+	/*
+	 * Adds specified detector to the bank of its modality and ticks per run
+	 * that is run by specified spawner, creating and scheduling the bank if needed.
+	 */
+	private synchronized void addToBank(BasicDetectionAlgorithm detector, TaskSpawner spawner) {
+		String modality = detector.getModality();
+		int ticksPerRun = detector.getTicksPerRun();
+		String key = modality + ":" + ticksPerRun;
+		Map<String, DetectorBank> banks = detectorBanks.get(spawner);
+		if (banks == null) {
+			banks = new HashMap<String, DetectorBank>();
+			detectorBanks.put(spawner, banks);
+		}
+		DetectorBank bank = banks.get(key);
+		if (bank == null) {
+			bank = new DetectorBank(modality, ticksPerRun, this);
+			if (parallelDetectorBanks) {
+				bank.setPool(ForkJoinPool.commonPool());
+			}
+			banks.put(key, bank);
+			bank.addDetector(detector);
+			spawner.addTask(bank);
+		} else {
+			bank.addDetector(detector);
+		}
+	}
+
 	@Override
 	public void addPamListener(PamListener pl) {
 		pamListeners.add(pl);
@@ -332,6 +642,39 @@ public class PerceptualAssociativeMemoryImpl extends FrameworkModuleImpl
 	@Override
 	public void decayModule(long ticks) {
 		pamNodeStructure.decayNodeStructure(ticks);
+		logger.log(Level.FINEST, "Decayed {1} active nodes of {2}",
+				new Object[]{TaskManager.getCurrentTick(),
+				getActiveNodeCount(), getNodeCount()});
+	}
+
+	/**
+	 * Returns the number of nodes that were not at rest at the last decay of
+	 * this PAM. Only those nodes, and the nodes excited since, are visited by
+	 * the next decay.
+	 * 
+	 * @return the number of active nodes
+	 * @see #getNodeCount()
+	 */
+	public int getActiveNodeCount() {
+		return pamNodeStructure.getActiveNodeCount();
+	}
+
+	/**
+	 * Returns the number of links that were not at rest at the last decay of
+	 * this PAM.
+	 * 
+	 * @return the number of active links
+	 */
+	public int getActiveLinkCount() {
+		return pamNodeStructure.getActiveLinkCount();
+	}
+
+	/**
+	 * @return the total number of nodes of this PAM, including the link
+	 *         category nodes
+	 */
+	public int getNodeCount() {
+		return pamNodeStructure.getNodeCount();
 	}
 
 	@Override
@@ -342,21 +685,56 @@ public class PerceptualAssociativeMemoryImpl extends FrameworkModuleImpl
 			return;
 		}
 
-		PamNode linkable = (PamNode) pamNodeStructure.getNode(pl.getExtendedId());
+		PamNode linkable = (PamNode) getNode(pl.getExtendedId());
 		if (linkable != null) {
 			if(logger.isLoggable(Level.FINEST)){
 				logger.log(Level.FINEST, "{1} receives excitation of: {2}",
 					new Object[] { TaskManager.getCurrentTick(), linkable,amount});
 			}
-			ExcitationTask task = new ExcitationTask(excitationTaskTicksPerRun,
-					linkable, amount, this);
-			taskSpawner.addTask(task);
+			if (coalesceExcitation) {
+				coalesceExcitation(linkable, amount);
+			} else {
+				ExcitationTask task = excitationTaskPool.acquire();
+				task.setTicksPerRun(excitationTaskTicksPerRun);
+				task.setExcitation(linkable, amount);
+				taskSpawner.addTask(task);
+			}
 		} else {
 			logger.log(Level.WARNING, "Cannot find pamnode: {1}", new Object[] {
 					TaskManager.getCurrentTick(), linkable });
 		}
 	}
 
+	/*
+	 * Adds specified amount to the pending excitation task of specified node.
+	 * If there is none, a new task is scheduled and becomes the node's
+	 * pending task. A new task only accepts more excitation once it is
+	 * pending, so no amount is lost if two threads race to schedule one.
+	 */
+	private void coalesceExcitation(PamNode node, double amount) {
+		int id = node.getId();
+		ExcitationTask task = null;
+		while (true) {
+			ExcitationTask pending = pendingExcitations.get(id);
+			if (pending != null && pending.addExcitation(node, amount)) {
+				return;
+			}
+			if (task == null) {
+				task = excitationTaskPool.acquire();
+				task.setTicksPerRun(excitationTaskTicksPerRun);
+				task.setExcitation(node, amount);
+			}
+			boolean scheduled = (pending == null) ? pendingExcitations
+					.putIfAbsent(id, task) == null : pendingExcitations
+					.replace(id, pending, task);
+			if (scheduled) {
+				task.openExcitation(pendingExcitations);
+				taskSpawner.addTask(task);
+				return;
+			}
+		}
+	}
+
 	@Override
 	public void receiveExcitation(Set<PamLinkable> linkables, double amount) {
 		for (PamLinkable linkable : linkables) {
@@ -364,45 +742,113 @@ public class PerceptualAssociativeMemoryImpl extends FrameworkModuleImpl
 		}
 	}
 
-	private Map<String, Object> propagateParams = new HashMap<String, Object>();
-	
 	@Override
 	public void propagateActivationToParents(PamNode pn) {
 		double nodeActivation = pn.getTotalActivation();
 		if(nodeActivation < propagateActivationThreshold){
 			return;
 		}
+		if (sweepPropagation) {
+			if (sweepEngine.addSeed(pn)) {
+				taskSpawner.addTask(new PropagationSweepTask(propagationTaskTicksPerRun));
+			}
+			return;
+		}
 		
 		// Calculate the amount to propagate
-		propagateParams.put("upscale", upscaleFactor);
-		propagateParams.put("totalActivation", nodeActivation);
-		double amountToPropagate = propagationStrategy.getActivationToPropagate(propagateParams);
+		double amountToPropagate = propagationStrategy.propagate(nodeActivation, upscaleFactor);
+
+		// Excite the links to the parents of pamNode and the parents
+		propagateActivationToParents(pn, amountToPropagate);
+	}
 
-		// Get parents of pamNode and the connecting link
-		Map<Linkable, Link> parentLinkMap = pamNodeStructure.getConnectedSinks(pn);
-		for (Linkable parent : parentLinkMap.keySet()) {
-			// Excite the connecting link and the parent
-			propagateActivation(parentLinkMap.get(parent),amountToPropagate);
+	/**
+	 * Propagates specified amount of activation along the links connecting
+	 * specified node to its parents.
+	 * 
+	 * @param pn
+	 *            a {@link PamNode} of this PAM
+	 * @param amount
+	 *            the activation propagated along each link whose source is pn
+	 */
+	protected void propagateActivationToParents(PamNode pn, double amount) {
+		ParentPropagation visitor = parentPropagations.get();
+		double previous = visitor.amount;
+		visitor.amount = amount;
+		try {
+			pamNodeStructure.forEachSink(pn, visitor);
+		} finally {
+			visitor.amount = previous;
+		}
+	}
+
+	/*
+	 * Propagates its amount of activation along each link visited. The amount
+	 * is restored after a traversal in case of nested traversals.
+	 */
+	private class ParentPropagation implements ConnectionVisitor<Linkable> {
+
+		private double amount;
+
+		@Override
+		public void visit(Linkable parent, Link link) {
+			propagateActivation(link, amount);
 		}
 	}
 
 	/*
+	 * Propagates the activation of the nodes collected by the sweep engine
+	 * and adds the resulting percept, if any, in a single task.
+	 */
+	private class PropagationSweepTask extends FrameworkTaskImpl {
+
+		public PropagationSweepTask(int ticksPerRun) {
+			super(ticksPerRun);
+		}
+
+		@Override
+		protected void runThisFrameworkTask() {
+			NodeStructure percept = sweepEngine.sweep(pamNodeStructure,
+					PerceptualAssociativeMemoryImpl.this, sweepHops,
+					propagateActivationThreshold, upscaleFactor,
+					propagationStrategy);
+			if (percept != null) {
+				taskSpawner.addTask(new AddNodeStructureToPerceptTask(percept,
+						PerceptualAssociativeMemoryImpl.this));
+			}
+			cancel();
+		}
+	}
+
+	/**
 	 * Propagates specified activation along specified link to link's sink.
+	 * 
+	 * @param link
+	 *            a {@link PamLink} of this PAM
+	 * @param activation
+	 *            the activation propagated
 	 */
-	private void propagateActivation(Link link, double activation) {
+	protected void propagateActivation(Link link, double activation) {
 		if (logger.isLoggable(Level.FINEST)) {
 			logger.log(Level.FINEST,
 					"exciting parent: {1} and connecting link {2} amount: {3}",
 					new Object[] { TaskManager.getCurrentTick(),
 							link.getSink(), link, activation });
 		}
-		PropagationTask task = new PropagationTask(propagationTaskTicksPerRun,
-				(PamLink) link, activation, this);
+		PropagationTask task = propagationTaskPool.acquire();
+		task.setTicksPerRun(propagationTaskTicksPerRun);
+		task.setPropagation((PamLink) link, activation);
 		taskSpawner.addTask(task);
 	}
 	
 	@Override
 	public void addToPercept(NodeStructure ns) {
+		if (batchPercepts) {
+			if (perceptBatch.addNodeStructure(ns)) {
+				taskSpawner.addTask(new PerceptBatchTask());
+			}
+			return;
+		}
 		ns = convertNodeStructure(ns);
 		for (PamListener pl : pamListeners) {
 			pl.receivePercept(ns);
@@ -411,6 +857,12 @@ public class PerceptualAssociativeMemoryImpl extends FrameworkModuleImpl
 
 	@Override
 	public void addToPercept(Link l) {
+		if (batchPercepts) {
+			if (perceptBatch.addLink(l)) {
+				taskSpawner.addTask(new PerceptBatchTask());
+			}
+			return;
+		}
 		Link converted = convertLink(l);
 		for (PamListener pl : pamListeners) {
 			pl.receivePercept(converted);
@@ -419,11 +871,36 @@ public class PerceptualAssociativeMemoryImpl extends FrameworkModuleImpl
 
 	@Override
 	public void addToPercept(Node n) {
+		if (batchPercepts) {
+			if (perceptBatch.addNode(n)) {
+				taskSpawner.addTask(new PerceptBatchTask());
+			}
+			return;
+		}
 		Node converted = convertNode(n);
 		for (PamListener pl : pamListeners) {
 			pl.receivePercept(converted);
 		}
 	}
+
+	/*
+	 * Sends the elements collected by the percept batch to the listeners as
+	 * a single NodeStructure.
+	 */
+	private class PerceptBatchTask extends FrameworkTaskImpl {
+
+		@Override
+		protected void runThisFrameworkTask() {
+			NodeStructure percept = perceptBatch.drain(TaskManager.getCurrentTick());
+			if (percept != null) {
+				for (PamListener pl : pamListeners) {
+					pl.receivePercept(percept);
+				}
+			}
+			cancel();
+		}
+	}
+
 	//TODO a more sophisticated mapping
 	private NodeStructure convertNodeStructure(NodeStructure ns){
 		NodeStructure copy = new NodeStructureImpl();
@@ -611,8 +1088,23 @@ public class PerceptualAssociativeMemoryImpl extends FrameworkModuleImpl
 	/**
 	 * Internal implementation of {@link NodeStructureImpl}. Allows {@link Node}
 	 * to be added without copying them.
+	 * <br/>
+	 * Only decays the linkables activated since they last reached rest. Each
+	 * excitation of a linkable, e.g. by an {@link ExcitationTask}, a
+	 * {@link PropagationTask} or a sweep, pushes it onto a lock-free dirty
+	 * queue unless it is already scheduled. Each decay moves the queued
+	 * linkables to the active list owned by the decaying thread and drops
+	 * those that reach rest, so that dormant nodes, and link category nodes
+	 * which never decay, are not visited.
 	 */
 	protected static class PamNodeStructure extends NodeStructureImpl {
+
+		private final Queue<Linkable> dirty = new ConcurrentLinkedQueue<Linkable>();
+		private final ConcurrentMap<Linkable, Boolean> scheduled = new ConcurrentHashMap<Linkable, Boolean>();
+		private final List<Linkable> active = new ArrayList<Linkable>();
+		private volatile int activeNodeCount;
+		private volatile int activeLinkCount;
+
 		/**
 		 * @param nodeType
 		 *            Default node type
@@ -627,6 +1119,91 @@ public class PerceptualAssociativeMemoryImpl extends FrameworkModuleImpl
 		public Node addNode(Node n, boolean copy) {
 			return super.addNode(n, copy);
 		}
+
+		@Override
+		public int addNodes(Node[] ns, int count) {
+			return super.addNodes(ns, count);
+		}
+
+		@Override
+		public int addLinks(Link[] ls, int count) {
+			return super.addLinks(ls, count);
+		}
+
+		@Override
+		protected void linkableActivated(Linkable l) {
+			if (scheduled.putIfAbsent(l, Boolean.TRUE) == null) {
+				dirty.offer(l);
+			}
+		}
+
+		/*
+		 * Must only be called by one thread at a time.
+		 */
+		@Override
+		public void decayNodeStructure(long ticks) {
+			Linkable l;
+			while ((l = dirty.poll()) != null) {
+				active.add(l);
+			}
+			int nodeCount = 0;
+			int linkCount = 0;
+			int i = 0;
+			while (i < active.size()) {
+				l = active.get(i);
+				if (!containsLinkable(l)) {
+					unschedule(i);
+					continue;
+				}
+				if (l instanceof Node) {
+					nodeCount++;
+				} else {
+					linkCount++;
+				}
+				Activatible a = (Activatible) l;
+				a.decay(ticks);
+				if (a.isRemovable()) {
+					unschedule(i);
+					removeLinkable(l);
+				} else if (isAtRest(a)) {
+					unschedule(i);
+					// it may have been excited before it was unscheduled
+					if (!isAtRest(a)) {
+						linkableActivated(l);
+					}
+				} else {
+					i++;
+				}
+			}
+			activeNodeCount = nodeCount;
+			activeLinkCount = linkCount;
+		}
+
+		/*
+		 * Removes the active linkable at specified index, replacing it by the
+		 * last one.
+		 */
+		private void unschedule(int i) {
+			int last = active.size() - 1;
+			Linkable l = active.get(i);
+			active.set(i, active.get(last));
+			active.remove(last);
+			scheduled.remove(l);
+		}
+
+		/**
+		 * @return the number of nodes visited by the last decay
+		 */
+		public int getActiveNodeCount() {
+			return activeNodeCount;
+		}
+
+		/**
+		 * @return the number of links visited by the last decay
+		 */
+		public int getActiveLinkCount() {
+			return activeLinkCount;
+		}
 	}
 
 	@Override
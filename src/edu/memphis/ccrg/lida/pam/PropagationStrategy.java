@@ -7,6 +7,7 @@
  *******************************************************************************/
 package edu.memphis.ccrg.lida.pam;
 
+import java.util.HashMap;
 import java.util.Map;
 
 import edu.memphis.ccrg.lida.framework.strategies.Strategy;
@@ -18,12 +19,34 @@ import edu.memphis.ccrg.lida.framework.strategies.Strategy;
  */
 public interface PropagationStrategy extends Strategy{
 	
+	/**
+	 * Calculates the activation to propagate from primitive parameters.
+	 * Implementations should override this method without allocating or
+	 * keeping state between calls, since it is called concurrently by the
+	 * propagating threads of PAM. By default the parameters are put in a
+	 * map passed to {@link #getActivationToPropagate(Map)}, so that
+	 * strategies written before this method still work.
+	 *
+	 * @param totalActivation total activation of the propagating node
+	 * @param upscale upscale factor of PAM
+	 * @return the calculated activation to propagate
+	 */
+	public default double propagate(double totalActivation, double upscale) {
+		Map<String, Object> params = new HashMap<String, Object>();
+		params.put("totalActivation", totalActivation);
+		params.put("upscale", upscale);
+		return getActivationToPropagate(params);
+	}
+
 	/**
 	 * Various parameters can be passed to this method for the
 	 * calculation of activation to propagate.
 	 *
 	 * @param params Map of parameters
 	 * @return the calculated activation to propagate
+	 * @deprecated PAM calls {@link #propagate(double, double)}, which does not
+	 *             box its parameters
 	 */
+	@Deprecated
 	public double getActivationToPropagate(Map<String, Object> params);
 }
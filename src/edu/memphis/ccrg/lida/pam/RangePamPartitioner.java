@@ -0,0 +1,33 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2011 The University of Memphis.  All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the LIDA Software Framework Non-Commercial License v1.0 
+ * which accompanies this distribution, and is available at
+ * http://ccrg.cs.memphis.edu/assets/papers/2010/LIDA-framework-non-commercial-v1.0.pdf
+ *******************************************************************************/
+package edu.memphis.ccrg.lida.pam;
+
+/**
+ * A {@link PamPartitioner} that splits the nodes, in id order, into
+ * contiguous ranges with about the same number of nodes and outgoing links.
+ * It balances the shards of graphs made of a single large component, at the
+ * cost of exchanging the excitation of the links crossing ranges.
+ *
+ * @author agent
+ */
+public class RangePamPartitioner implements PamPartitioner {
+
+	@Override
+	public int[] partition(int[] ids, int[] rowStart, int[] targets,
+			int shardCount) {
+		int n = ids.length;
+		long total = (long) n + rowStart[n];
+		int[] shards = new int[n];
+		for (int i = 0; i < n; i++) {
+			long before = (long) i + rowStart[i];
+			shards[i] = (int) (before * shardCount / Math.max(1, total));
+		}
+		return shards;
+	}
+
+}
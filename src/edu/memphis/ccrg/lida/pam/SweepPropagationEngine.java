@@ -0,0 +1,531 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2011 The University of Memphis.  All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the LIDA Software Framework Non-Commercial License v1.0 
+ * which accompanies this distribution, and is available at
+ * http://ccrg.cs.memphis.edu/assets/papers/2010/LIDA-framework-non-commercial-v1.0.pdf
+ *******************************************************************************/
+package edu.memphis.ccrg.lida.pam;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import edu.memphis.ccrg.lida.framework.shared.NodeStructure;
+import edu.memphis.ccrg.lida.framework.shared.NodeStructureImpl;
+import edu.memphis.ccrg.lida.framework.tasks.TaskManager;
+
+/**
+ * Spreads activation upwards through PAM in synchronous sweeps instead of a
+ * chain of {@link edu.memphis.ccrg.lida.pam.tasks.PropagationTask}s. Nodes
+ * whose activation should be propagated are collected as seeds. A sweep then
+ * runs up to a number of hops at once over a {@link CompressedPamGraph}. In
+ * each hop every node of the frontier whose total activation reaches the
+ * propagation threshold excites its outgoing links and their sinks. The
+ * excitation a node receives in a hop is summed in a primitive array and
+ * applied with a single call of {@link PamNode#excite(double)}. The excited
+ * nodes form the next frontier.
+ * <br/>
+ * With more than one shard, the nodes are split by a {@link PamPartitioner}
+ * and each hop runs in two phases on a {@link ForkJoinPool}. First every
+ * shard propagates the activation of its part of the frontier, summing the
+ * excitation of its own nodes and buffering the excitation of other shards'
+ * nodes. Then every shard adds the excitation buffered for it and excites its
+ * nodes. Since a node only reads activation set in previous hops, the result
+ * is the same as with a single shard, up to the order of the additions.
+ * <br/>
+ * Links whose sink node ends a hop over the percept threshold are collected
+ * and returned in a single {@link NodeStructure} at the end of the sweep.
+ * <br/>
+ * Seeds may be added by any thread; only one thread at a time may sweep.
+ *
+ * @author agent
+ */
+class SweepPropagationEngine {
+
+	private static final Logger logger = Logger
+			.getLogger(SweepPropagationEngine.class.getCanonicalName());
+
+	private static final int INITIAL_BUFFER_CAPACITY = 16;
+
+	private CompressedPamGraph graph;
+	private volatile boolean invalid = true;
+
+	private List<PamNode> seeds = new ArrayList<PamNode>();
+	private List<PamNode> sweepSeeds = new ArrayList<PamNode>();
+
+	/*
+	 * Working arrays, indexed by node or link index, reused by every sweep.
+	 * With several shards, each shard uses its own segment of the frontier,
+	 * next and candidates arrays and only writes the entries of its nodes and
+	 * of their outgoing links in the others.
+	 */
+	private int[] frontier;
+	private int[] next;
+	private int[] nodeStamps;
+	private double[] excitation;
+	private int[] linkStamps;
+	private int[] candidates;
+	private int stamp;
+	private int hopStamp;
+	private int sweepStamp;
+
+	/*
+	 * Only used with more than one shard
+	 */
+	private final int shardCount;
+	private final ForkJoinPool pool;
+	private final PamPartitioner partitioner;
+	private Shard[] shards;
+	private int[] shardOf;
+
+	/**
+	 * Constructs a new engine propagating activation in the calling thread.
+	 */
+	SweepPropagationEngine() {
+		this(1, null, null);
+	}
+
+	/**
+	 * Constructs a new engine propagating activation in parallel.
+	 *
+	 * @param shardCount
+	 *            number of shards the graph is split into
+	 * @param pool
+	 *            the pool running the shards
+	 * @param partitioner
+	 *            assigns the nodes to the shards
+	 */
+	SweepPropagationEngine(int shardCount, ForkJoinPool pool,
+			PamPartitioner partitioner) {
+		this.shardCount = Math.max(1, shardCount);
+		this.pool = pool;
+		this.partitioner = partitioner;
+	}
+
+	/**
+	 * Adds a node whose activation should be propagated by the next sweep.
+	 *
+	 * @param n
+	 *            the seed {@link PamNode}
+	 * @return true if it is the first seed added since the last sweep started
+	 */
+	synchronized boolean addSeed(PamNode n) {
+		seeds.add(n);
+		return seeds.size() == 1;
+	}
+
+	/**
+	 * Forces the graph to be rebuilt at the start of the next sweep. Must be
+	 * called when PAM nodes or links are added or removed.
+	 */
+	void invalidate() {
+		invalid = true;
+	}
+
+	/*
+	 * Rebuilds the graph and the working arrays if needed.
+	 */
+	private void updateGraph(NodeStructure ns) {
+		if (!invalid && graph != null && !graph.isStale(ns)) {
+			return;
+		}
+		invalid = false;
+		graph = new CompressedPamGraph(ns);
+		int n = graph.getNodeCount();
+		int m = graph.getLinkCount();
+		frontier = new int[n];
+		next = new int[n];
+		nodeStamps = new int[n];
+		excitation = new double[n];
+		linkStamps = new int[m];
+		candidates = new int[m];
+		stamp = 0;
+		if (shardCount > 1) {
+			updateShards();
+		}
+	}
+
+	/*
+	 * Partitions the graph and gives each shard its segments of the working
+	 * arrays.
+	 */
+	private void updateShards() {
+		int n = graph.getNodeCount();
+		shardOf = graph.partition(partitioner, shardCount);
+		int[] nodeCounts = new int[shardCount];
+		int[] linkCounts = new int[shardCount];
+		boolean valid = true;
+		for (int i = 0; i < n; i++) {
+			int s = shardOf[i];
+			if (s < 0 || s >= shardCount) {
+				valid = false;
+				s = shardOf[i] = 0;
+			}
+			nodeCounts[s]++;
+			linkCounts[s] += graph.getFirstLink(i + 1) - graph.getFirstLink(i);
+		}
+		if (!valid) {
+			logger.log(Level.WARNING,
+					"Partitioner {1} assigned nodes to invalid shards, using shard 0 instead",
+					new Object[] { TaskManager.getCurrentTick(), partitioner });
+		}
+		shards = new Shard[shardCount];
+		int nodeStart = 0;
+		int linkStart = 0;
+		for (int s = 0; s < shardCount; s++) {
+			shards[s] = new Shard(s, nodeStart, linkStart);
+			nodeStart += nodeCounts[s];
+			linkStart += linkCounts[s];
+		}
+	}
+
+	/*
+	 * Returns a new stamp, different from any value in the stamp arrays.
+	 */
+	private int nextStamp() {
+		if (stamp == Integer.MAX_VALUE) {
+			Arrays.fill(nodeStamps, 0);
+			Arrays.fill(linkStamps, 0);
+			stamp = 0;
+		}
+		return ++stamp;
+	}
+
+	/**
+	 * Propagates the activation of the seeds added since the last sweep.
+	 *
+	 * @param ns
+	 *            the PAM's {@link NodeStructure}
+	 * @param pam
+	 *            the PAM, used to check the percept threshold
+	 * @param hops
+	 *            maximum number of links activation travels from a seed
+	 * @param threshold
+	 *            minimum total activation for a node to propagate
+	 * @param upscale
+	 *            upscale factor passed to the {@link PropagationStrategy}
+	 * @param strategy
+	 *            calculates the amount each node propagates
+	 * @return the links, with their source and sink nodes, whose sink is over
+	 *         the percept threshold, or null if there is none
+	 */
+	NodeStructure sweep(NodeStructure ns, PerceptualAssociativeMemory pam,
+			int hops, double threshold, double upscale,
+			PropagationStrategy strategy) {
+		synchronized (this) {
+			List<PamNode> aux = sweepSeeds;
+			sweepSeeds = seeds;
+			seeds = aux;
+		}
+		updateGraph(ns);
+		int candidateCount;
+		if (shardCount == 1) {
+			candidateCount = spread(hops, threshold, upscale, strategy);
+		} else {
+			candidateCount = spreadInShards(hops, threshold, upscale, strategy);
+		}
+		sweepSeeds.clear();
+		return getPercept(pam, candidateCount);
+	}
+
+	/*
+	 * Runs the hops of a sweep in the calling thread. Returns the number of
+	 * candidate links.
+	 */
+	private int spread(int hops, double threshold, double upscale,
+			PropagationStrategy strategy) {
+		int frontierSize = 0;
+		hopStamp = nextStamp();
+		for (PamNode n : sweepSeeds) {
+			int i = graph.indexOf(n.getId());
+			if (i >= 0 && nodeStamps[i] != hopStamp) {
+				nodeStamps[i] = hopStamp;
+				frontier[frontierSize++] = i;
+			}
+		}
+
+		int candidateCount = 0;
+		sweepStamp = nextStamp();
+		for (int hop = 0; hop < hops && frontierSize > 0; hop++) {
+			hopStamp = nextStamp();
+			int nextSize = 0;
+			for (int f = 0; f < frontierSize; f++) {
+				int u = frontier[f];
+				double total = graph.getNode(u).getTotalActivation();
+				if (total < threshold) {
+					continue;
+				}
+				double amount = strategy.propagate(total, upscale);
+				int end = graph.getFirstLink(u + 1);
+				for (int e = graph.getFirstLink(u); e < end; e++) {
+					PamLink link = graph.getLink(e);
+					link.setActivation(amount);
+					double linkExcitation = amount * link.getBaseLevelActivation();
+					int v = graph.getTarget(e);
+					if (v < 0) {
+						graph.getSink(e).excite(linkExcitation);
+						continue;
+					}
+					excitation[v] += linkExcitation;
+					if (nodeStamps[v] != hopStamp) {
+						nodeStamps[v] = hopStamp;
+						next[nextSize++] = v;
+					}
+					if (linkStamps[e] != sweepStamp) {
+						linkStamps[e] = sweepStamp;
+						candidates[candidateCount++] = e;
+					}
+				}
+			}
+			for (int i = 0; i < nextSize; i++) {
+				int v = next[i];
+				graph.getNode(v).excite(excitation[v]);
+				excitation[v] = 0.0;
+			}
+			int[] aux = frontier;
+			frontier = next;
+			next = aux;
+			frontierSize = nextSize;
+		}
+		return candidateCount;
+	}
+
+	/*
+	 * Runs the hops of a sweep in parallel, one task per shard and phase.
+	 * Returns the number of candidate links, which are moved to the start of
+	 * the candidates array.
+	 */
+	private int spreadInShards(int hops, double threshold, double upscale,
+			PropagationStrategy strategy) {
+		hopStamp = nextStamp();
+		for (Shard shard : shards) {
+			shard.startSweep(upscale);
+		}
+		int frontierSize = 0;
+		for (PamNode n : sweepSeeds) {
+			int i = graph.indexOf(n.getId());
+			if (i >= 0 && nodeStamps[i] != hopStamp) {
+				nodeStamps[i] = hopStamp;
+				shards[shardOf[i]].addToFrontier(i);
+				frontierSize++;
+			}
+		}
+
+		sweepStamp = nextStamp();
+		for (int hop = 0; hop < hops && frontierSize > 0; hop++) {
+			hopStamp = nextStamp();
+			for (Shard shard : shards) {
+				shard.startPropagation(threshold, strategy);
+			}
+			runShards();
+			for (Shard shard : shards) {
+				shard.startExchange();
+			}
+			runShards();
+			int[] aux = frontier;
+			frontier = next;
+			next = aux;
+			frontierSize = 0;
+			for (Shard shard : shards) {
+				frontierSize += shard.frontierSize;
+			}
+		}
+
+		int candidateCount = 0;
+		for (Shard shard : shards) {
+			System.arraycopy(candidates, shard.linkStart, candidates,
+					candidateCount, shard.candidateCount);
+			candidateCount += shard.candidateCount;
+		}
+		return candidateCount;
+	}
+
+	/*
+	 * Runs the current phase of every shard and waits for all of them.
+	 */
+	private void runShards() {
+		pool.invoke(new RecursiveAction() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void compute() {
+				invokeAll(shards);
+			}
+		});
+	}
+
+	/*
+	 * The nodes of one shard, their frontier and the excitation they send to
+	 * the nodes of other shards.
+	 */
+	private class Shard extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int index;
+		private final int nodeStart;
+		private final int linkStart;
+
+		private int frontierSize;
+		private int nextSize;
+		private int candidateCount;
+
+		/*
+		 * Excitation for the nodes of each other shard, indexed by shard
+		 */
+		private final int[][] outTargets = new int[shardCount][];
+		private final double[][] outAmounts = new double[shardCount][];
+		private final int[] outSizes = new int[shardCount];
+
+		private boolean exchange;
+		private double threshold;
+		private double upscale;
+		private PropagationStrategy strategy;
+
+		Shard(int index, int nodeStart, int linkStart) {
+			this.index = index;
+			this.nodeStart = nodeStart;
+			this.linkStart = linkStart;
+		}
+
+		void startSweep(double upscale) {
+			frontierSize = 0;
+			nextSize = 0;
+			candidateCount = 0;
+			this.upscale = upscale;
+		}
+
+		void addToFrontier(int u) {
+			frontier[nodeStart + frontierSize++] = u;
+		}
+
+		void startPropagation(double threshold, PropagationStrategy strategy) {
+			reinitialize();
+			exchange = false;
+			this.threshold = threshold;
+			this.strategy = strategy;
+		}
+
+		void startExchange() {
+			reinitialize();
+			exchange = true;
+		}
+
+		@Override
+		protected void compute() {
+			if (exchange) {
+				exchange();
+			} else {
+				propagate();
+			}
+		}
+
+		/*
+		 * Propagates the activation of the frontier of this shard.
+		 */
+		private void propagate() {
+			for (int f = 0; f < frontierSize; f++) {
+				int u = frontier[nodeStart + f];
+				double total = graph.getNode(u).getTotalActivation();
+				if (total < threshold) {
+					continue;
+				}
+				double amount = strategy.propagate(total, upscale);
+				int end = graph.getFirstLink(u + 1);
+				for (int e = graph.getFirstLink(u); e < end; e++) {
+					PamLink link = graph.getLink(e);
+					link.setActivation(amount);
+					double linkExcitation = amount * link.getBaseLevelActivation();
+					int v = graph.getTarget(e);
+					if (v < 0) {
+						graph.getSink(e).excite(linkExcitation);
+						continue;
+					}
+					int s = shardOf[v];
+					if (s == index) {
+						receive(v, linkExcitation);
+					} else {
+						send(s, v, linkExcitation);
+					}
+					if (linkStamps[e] != sweepStamp) {
+						linkStamps[e] = sweepStamp;
+						candidates[linkStart + candidateCount++] = e;
+					}
+				}
+			}
+		}
+
+		/*
+		 * Adds the excitation buffered for this shard by the others and
+		 * excites the nodes of this shard.
+		 */
+		private void exchange() {
+			for (Shard sender : shards) {
+				int size = sender.outSizes[index];
+				int[] targets = sender.outTargets[index];
+				double[] amounts = sender.outAmounts[index];
+				for (int i = 0; i < size; i++) {
+					receive(targets[i], amounts[i]);
+				}
+				sender.outSizes[index] = 0;
+			}
+			for (int i = 0; i < nextSize; i++) {
+				int v = next[nodeStart + i];
+				graph.getNode(v).excite(excitation[v]);
+				excitation[v] = 0.0;
+			}
+			frontierSize = nextSize;
+			nextSize = 0;
+		}
+
+		private void receive(int v, double amount) {
+			excitation[v] += amount;
+			if (nodeStamps[v] != hopStamp) {
+				nodeStamps[v] = hopStamp;
+				next[nodeStart + nextSize++] = v;
+			}
+		}
+
+		private void send(int s, int v, double amount) {
+			int size = outSizes[s];
+			if (outTargets[s] == null) {
+				outTargets[s] = new int[INITIAL_BUFFER_CAPACITY];
+				outAmounts[s] = new double[INITIAL_BUFFER_CAPACITY];
+			} else if (size == outTargets[s].length) {
+				outTargets[s] = Arrays.copyOf(outTargets[s], 2 * size);
+				outAmounts[s] = Arrays.copyOf(outAmounts[s], 2 * size);
+			}
+			outTargets[s][size] = v;
+			outAmounts[s][size] = amount;
+			outSizes[s] = size + 1;
+		}
+	}
+
+	/*
+	 * Returns the traversed links whose sink is over the percept threshold.
+	 */
+	private NodeStructure getPercept(PerceptualAssociativeMemory pam,
+			int candidateCount) {
+		NodeStructure percept = null;
+		for (int i = 0; i < candidateCount; i++) {
+			int e = candidates[i];
+			PamNode sink = graph.getNode(graph.getTarget(e));
+			if (pam.isOverPerceptThreshold(sink)) {
+				if (percept == null) {
+					percept = new NodeStructureImpl();
+				}
+				PamLink link = graph.getLink(e);
+				percept.addDefaultNode(link.getSource());
+				percept.addDefaultNode(sink);
+				percept.addDefaultLink(link);
+			}
+		}
+		return percept;
+	}
+
+}
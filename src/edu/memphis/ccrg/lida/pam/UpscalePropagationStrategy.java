@@ -23,6 +23,20 @@ public class UpscalePropagationStrategy extends StrategyImpl implements Propagat
 	
 	private Logger logger = Logger.getLogger(UpscalePropagationStrategy.class.getCanonicalName());
 
+	/**
+	 * Returns the total activation scaled by the upscale factor.
+	 * 
+	 * @param totalActivation
+	 *            total activation of the propagating node
+	 * @param upscale
+	 *            upscale factor
+	 * @return the activation to propagate
+	 */
+	@Override
+	public double propagate(double totalActivation, double upscale) {
+		return totalActivation * upscale;
+	}
+
 	/*
 	 * Calculate and return an activation to propagate.
 	 * 
@@ -31,9 +45,10 @@ public class UpscalePropagationStrategy extends StrategyImpl implements Propagat
 	 * @return the activation to propagate
 	 */
 	@Override
+	@Deprecated
 	public double getActivationToPropagate(Map<String, Object> params) {
 		if(params.containsKey("totalActivation") && params.containsKey("upscale")){
-			return (Double)params.get("totalActivation") * (Double)params.get("upscale");
+			return propagate((Double)params.get("totalActivation"), (Double)params.get("upscale"));
 		}else{
 			logger.log(Level.WARNING,"Unable to obtain parameters",TaskManager.getCurrentTick());
 			return 0.0;
@@ -7,6 +7,7 @@
  *******************************************************************************/
 package edu.memphis.ccrg.lida.pam.tasks;
 
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -28,7 +29,11 @@ import edu.memphis.ccrg.lida.sensorymemory.SensoryMemory;
  * class. This method can be overwritten as well. This implementation is
  * oriented to detect features from sensoryMemory, but the implementation can be
  * used to detect and burstActivation from other modules, like Workspace,
- * emotions or internal states.
+ * emotions or internal states.<br/>
+ * After its first run, an algorithm with a modality offers itself to
+ * {@link PerceptualAssociativeMemory#addToDetectorBank(DetectionAlgorithm, edu.memphis.ccrg.lida.framework.tasks.TaskSpawner)}
+ * and, if accepted, stops running as its own task and is run by a
+ * {@link DetectorBank} of the same task spawner.
  * 
  * @author Ryan J. McCall
  * @author Javier Snaider
@@ -52,6 +57,15 @@ public abstract class BasicDetectionAlgorithm extends FrameworkTaskImpl
 	 * {@link PamLinkable} this algorithm detects
 	 */
 	protected PamLinkable linkable;
+	/**
+	 * the modality of the {@link SensoryMemory} content this algorithm reads
+	 */
+	protected String modality;
+
+	/*
+	 * Whether this algorithm was already offered to a detector bank of pam
+	 */
+	private boolean bankOffered;
 
 	/**
 	 * Default constructor. Associated {@link Linkable},
@@ -87,12 +101,20 @@ public abstract class BasicDetectionAlgorithm extends FrameworkTaskImpl
 	 * This task can be initialized with the following parameters:<br><br/>
 	 * 
 	 * <b>node type=string</b>label of the Node in {@link PerceptualAssociativeMemory} this algorithm detects<br/>
+	 * <b>modality type=string</b>modality of the {@link SensoryMemory} content this algorithm reads, used to group it in a {@link DetectorBank}<br/>
 	 * 
 	 * @see Initializable
 	 */
 	@Override
 	public void init() {
 		super.init();
+		// optional, read from the parameter map to avoid warnings when absent
+		Map<String, ?> params = getParameters();
+		Object m = (params == null) ? null : params.get("modality");
+		modality = null;
+		if (m instanceof String && ((String) m).trim().length() > 0) {
+			modality = ((String) m).trim();
+		}
 		String nodeLabel = (String) getParam("node", "");
 		if (nodeLabel != null) {
 			nodeLabel = nodeLabel.trim();
@@ -126,6 +148,16 @@ public abstract class BasicDetectionAlgorithm extends FrameworkTaskImpl
 			}
 			pam.receiveExcitation(linkable, amount);
 		}
+		// after the first run, join a bank of the spawner running this task
+		if (!bankOffered) {
+			bankOffered = true;
+			if (pam != null
+					&& pam.addToDetectorBank(this, getControllingTaskSpawner())) {
+				logger.log(Level.FINE, "{1} joined a detector bank",
+						new Object[] { TaskManager.getCurrentTick(), this });
+				cancel();
+			}
+		}
 	}
 
 	/**
@@ -136,4 +168,41 @@ public abstract class BasicDetectionAlgorithm extends FrameworkTaskImpl
 	@Override
 	public abstract double detect();
 
+	/**
+	 * Detects the feature in specified {@link SensoryMemory} content, already
+	 * obtained by a {@link DetectorBank} for all its algorithms. By default
+	 * calls {@link #detect()}, which reads the content again, so a banked
+	 * algorithm that does not override this method only saves the dispatch of
+	 * its own task.
+	 * 
+	 * @param sensoryContent
+	 *            content of the {@link SensoryMemory} for this algorithm's
+	 *            modality
+	 * @return degree [0,1] to which the feature was detected
+	 */
+	public double detect(Object sensoryContent) {
+		return detect();
+	}
+
+	/**
+	 * Returns the modality of the {@link SensoryMemory} content this
+	 * algorithm reads.
+	 * 
+	 * @return the modality or null if not specified
+	 */
+	public String getModality() {
+		return modality;
+	}
+
+	/**
+	 * Sets the modality of the {@link SensoryMemory} content this algorithm
+	 * reads.
+	 * 
+	 * @param modality
+	 *            the modality
+	 */
+	public void setModality(String modality) {
+		this.modality = modality;
+	}
+
 }
\ No newline at end of file
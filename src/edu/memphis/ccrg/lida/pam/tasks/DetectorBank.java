@@ -0,0 +1,275 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2011 The University of Memphis.  All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the LIDA Software Framework Non-Commercial License v1.0 
+ * which accompanies this distribution, and is available at
+ * http://ccrg.cs.memphis.edu/assets/papers/2010/LIDA-framework-non-commercial-v1.0.pdf
+ *******************************************************************************/
+package edu.memphis.ccrg.lida.pam.tasks;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import edu.memphis.ccrg.lida.framework.tasks.FrameworkTaskImpl;
+import edu.memphis.ccrg.lida.framework.tasks.TaskManager;
+import edu.memphis.ccrg.lida.pam.PamLinkable;
+import edu.memphis.ccrg.lida.pam.PerceptualAssociativeMemory;
+import edu.memphis.ccrg.lida.sensorymemory.SensoryMemory;
+
+/**
+ * A task running a group of {@link BasicDetectionAlgorithm}s reading the same
+ * {@link SensoryMemory} modality, instead of one task per algorithm. Each run
+ * gets the sensory content once, passes it to
+ * {@link BasicDetectionAlgorithm#detect(Object)} of every algorithm, and sends
+ * all the excitations to {@link PerceptualAssociativeMemory} in a single
+ * {@link PerceptualAssociativeMemory#receiveExcitation(PamLinkable[], double[], int)}
+ * call. If a {@link ForkJoinPool} is set, banks with at least
+ * {@link #getParallelThreshold()} algorithms evaluate them in parallel, so
+ * {@link BasicDetectionAlgorithm#detect(Object)} must then be thread safe.
+ * <br/>
+ * The algorithms of a bank are not run as tasks themselves. Algorithms that do
+ * not override {@link BasicDetectionAlgorithm#detect(Object)} read the content
+ * again through {@link BasicDetectionAlgorithm#detect()}, so banking them only
+ * saves the dispatch of their tasks; a warning is logged once per such class.
+ *
+ * @author agent
+ * @see PerceptualAssociativeMemory#addDetectionAlgorithm(DetectionAlgorithm)
+ */
+public class DetectorBank extends FrameworkTaskImpl {
+
+	private static final Logger logger = Logger.getLogger(DetectorBank.class
+			.getCanonicalName());
+
+	/**
+	 * Default minimum number of algorithms evaluated in parallel
+	 */
+	public static final int DEFAULT_PARALLEL_THRESHOLD = 256;
+
+	/*
+	 * Maximum number of algorithms evaluated sequentially by a worker
+	 */
+	private static final int BATCH_SIZE = 64;
+
+	/*
+	 * Classes already warned about not overriding detect(Object)
+	 */
+	private static final Set<Class<?>> warnedClasses = ConcurrentHashMap.newKeySet();
+
+	private final String modality;
+	private final Map<String, Object> contentParams = new HashMap<String, Object>();
+	private PerceptualAssociativeMemory pam;
+	private SensoryMemory sensoryMemory;
+	private ForkJoinPool pool;
+	private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+
+	/*
+	 * Replaced by a larger copy when an algorithm is added, so that a run
+	 * reads a consistent array without locking.
+	 */
+	private volatile BasicDetectionAlgorithm[] detectors = new BasicDetectionAlgorithm[0];
+
+	/*
+	 * Buffers of the runs, only used by the running task
+	 */
+	private double[] detected = new double[0];
+	private PamLinkable[] excited = new PamLinkable[0];
+	private double[] amounts = new double[0];
+
+	/**
+	 * Constructs a new bank.
+	 *
+	 * @param modality
+	 *            the {@link SensoryMemory} modality read by the algorithms
+	 * @param ticksPerRun
+	 *            the bank's run frequency
+	 * @param pam
+	 *            the {@link PerceptualAssociativeMemory} receiving the
+	 *            excitations
+	 */
+	public DetectorBank(String modality, int ticksPerRun,
+			PerceptualAssociativeMemory pam) {
+		super(ticksPerRun);
+		this.modality = modality;
+		this.pam = pam;
+	}
+
+	/**
+	 * Adds a {@link BasicDetectionAlgorithm} to this bank. The bank uses the
+	 * {@link SensoryMemory} of the first algorithm added.
+	 *
+	 * @param detector
+	 *            the algorithm
+	 */
+	public synchronized void addDetector(BasicDetectionAlgorithm detector) {
+		Class<?> c = detector.getClass();
+		if (!overridesDetect(c) && warnedClasses.add(c)) {
+			logger.log(Level.WARNING,
+					"{1} does not override detect(Object), banking it only saves task dispatch",
+					new Object[] { TaskManager.getCurrentTick(), c.getName() });
+		}
+		if (sensoryMemory == null) {
+			sensoryMemory = detector.sensoryMemory;
+		}
+		BasicDetectionAlgorithm[] ds = Arrays.copyOf(detectors,
+				detectors.length + 1);
+		ds[ds.length - 1] = detector;
+		detectors = ds;
+	}
+
+	/*
+	 * Whether specified class overrides detect(Object) of
+	 * BasicDetectionAlgorithm
+	 */
+	private static boolean overridesDetect(Class<?> c) {
+		try {
+			return c.getMethod("detect", Object.class).getDeclaringClass() != BasicDetectionAlgorithm.class;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * @return the number of algorithms of this bank
+	 */
+	public int getDetectorCount() {
+		return detectors.length;
+	}
+
+	/**
+	 * @return the {@link SensoryMemory} modality read by the algorithms
+	 */
+	public String getModality() {
+		return modality;
+	}
+
+	/**
+	 * Returns the parameters passed to
+	 * {@link SensoryMemory#getSensoryContent(String, Map)}. Entries may be
+	 * added before the bank runs.
+	 *
+	 * @return the parameters
+	 */
+	public Map<String, Object> getSensoryContentParams() {
+		return contentParams;
+	}
+
+	/**
+	 * Sets the {@link SensoryMemory} the content is read from.
+	 *
+	 * @param sm
+	 *            the {@link SensoryMemory}
+	 */
+	public void setSensoryMemory(SensoryMemory sm) {
+		sensoryMemory = sm;
+	}
+
+	/**
+	 * Sets the pool evaluating the algorithms in parallel.
+	 *
+	 * @param pool
+	 *            a {@link ForkJoinPool} or null to evaluate them sequentially
+	 */
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * @return the minimum number of algorithms evaluated in parallel
+	 */
+	public int getParallelThreshold() {
+		return parallelThreshold;
+	}
+
+	/**
+	 * @param threshold
+	 *            the minimum number of algorithms evaluated in parallel
+	 */
+	public void setParallelThreshold(int threshold) {
+		parallelThreshold = Math.max(1, threshold);
+	}
+
+	@Override
+	protected void runThisFrameworkTask() {
+		BasicDetectionAlgorithm[] ds = detectors;
+		int n = ds.length;
+		if (n == 0 || sensoryMemory == null) {
+			return;
+		}
+		if (detected.length < n) {
+			detected = new double[n];
+			excited = new PamLinkable[n];
+			amounts = new double[n];
+		}
+		Object content = sensoryMemory.getSensoryContent(modality,
+				contentParams);
+		if (pool != null && n >= parallelThreshold) {
+			pool.invoke(new Evaluation(ds, content, 0, n));
+		} else {
+			evaluate(ds, content, 0, n);
+		}
+
+		int count = 0;
+		for (int i = 0; i < n; i++) {
+			if (detected[i] > 0.0) {
+				excited[count] = ds[i].getPamLinkable();
+				amounts[count] = detected[i];
+				count++;
+			}
+		}
+		if (logger.isLoggable(Level.FINEST)) {
+			logger.log(Level.FINEST, "{1} of {2} detectors of modality {3} detected",
+					new Object[] { TaskManager.getCurrentTick(), count, n,
+							modality });
+		}
+		if (count > 0) {
+			pam.receiveExcitation(excited, amounts, count);
+			Arrays.fill(excited, 0, count, null);
+		}
+	}
+
+	private void evaluate(BasicDetectionAlgorithm[] ds, Object content,
+			int from, int to) {
+		for (int i = from; i < to; i++) {
+			detected[i] = ds[i].detect(content);
+		}
+	}
+
+	/*
+	 * Evaluates a range of the algorithms, split in halves until at most
+	 * BATCH_SIZE are left.
+	 */
+	private class Evaluation extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+		private final BasicDetectionAlgorithm[] ds;
+		private final Object content;
+		private final int from;
+		private final int to;
+
+		Evaluation(BasicDetectionAlgorithm[] ds, Object content, int from,
+				int to) {
+			this.ds = ds;
+			this.content = content;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= BATCH_SIZE) {
+				evaluate(ds, content, from, to);
+			} else {
+				int mid = (from + to) >>> 1;
+				invokeAll(new Evaluation(ds, content, from, mid),
+						new Evaluation(ds, content, mid, to));
+			}
+		}
+	}
+}
@@ -10,9 +10,11 @@ package edu.memphis.ccrg.lida.pam.tasks;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import edu.memphis.ccrg.lida.framework.shared.ConcurrentIntMap;
 import edu.memphis.ccrg.lida.framework.tasks.FrameworkTask;
 import edu.memphis.ccrg.lida.framework.tasks.FrameworkTaskImpl;
 import edu.memphis.ccrg.lida.framework.tasks.TaskManager;
+import edu.memphis.ccrg.lida.framework.tasks.TaskPool;
 import edu.memphis.ccrg.lida.pam.PamLinkable;
 import edu.memphis.ccrg.lida.pam.PamNode;
 import edu.memphis.ccrg.lida.pam.PerceptualAssociativeMemory;
@@ -45,6 +47,17 @@ public class ExcitationTask extends FrameworkTaskImpl {
 	 */
 	private PerceptualAssociativeMemory pam;
 
+	/*
+	 * Whether more excitation can be added to this task before it runs
+	 */
+	private boolean open;
+
+	/*
+	 * Pending tasks indexed by node id, from which this task removes itself
+	 * when it runs
+	 */
+	private ConcurrentIntMap<ExcitationTask> pendingTasks;
+
 	/**
 	 * Instantiates a new excitation task to excite supplied {@link PamNode}
 	 * specified amount.
@@ -65,16 +78,78 @@ public class ExcitationTask extends FrameworkTaskImpl {
 		this.pam = pam;
 	}
 
+	/**
+	 * Sets the {@link PamNode} to be excited and the amount to excite. Used
+	 * to set up a task obtained from a {@link TaskPool}.
+	 * 
+	 * @param n
+	 *            to be excited
+	 * @param excitation
+	 *            amount to excite
+	 */
+	public synchronized void setExcitation(PamNode n, double excitation) {
+		node = n;
+		excitationAmount = excitation;
+		open = false;
+		pendingTasks = null;
+	}
+
+	/**
+	 * Allows excitation of the same {@link PamNode} to be added to this task
+	 * with {@link #addExcitation(PamNode, double)} until the task runs. When
+	 * it runs, the task removes its entry from specified map.
+	 * 
+	 * @param pendingTasks
+	 *            the map where this task is the pending task of its node's
+	 *            id, or null
+	 */
+	public synchronized void openExcitation(ConcurrentIntMap<ExcitationTask> pendingTasks) {
+		open = true;
+		this.pendingTasks = pendingTasks;
+	}
+
+	/**
+	 * Adds specified amount to the excitation of this task if it is open and
+	 * excites specified {@link PamNode}.
+	 * 
+	 * @param n
+	 *            the node to be excited
+	 * @param excitation
+	 *            amount to add
+	 * @return true if the amount was added, false if this task is closed or
+	 *         excites a node with another id
+	 * @see #openExcitation(ConcurrentIntMap)
+	 */
+	public synchronized boolean addExcitation(PamNode n, double excitation) {
+		if (!open || node.getId() != n.getId()) {
+			return false;
+		}
+		excitationAmount += excitation;
+		return true;
+	}
+
 	/**
 	 * This method first excites the {@link PamNode}, if this puts the {@link PamNode}
 	 * over the percept threshold it creates an {@link AddNodeToPerceptTask} to
 	 * add it to the percept. In either case it calls
 	 * {@link PerceptualAssociativeMemory#propagateActivationToParents(PamNode)}
 	 * to pass the node's activation, then the tasks finishes.
+	 * No more excitation can be added once this method starts.
 	 */
 	@Override
 	protected void runThisFrameworkTask() {
-		node.excite(excitationAmount);
+		double amount;
+		ConcurrentIntMap<ExcitationTask> pending;
+		synchronized (this) {
+			open = false;
+			amount = excitationAmount;
+			pending = pendingTasks;
+			pendingTasks = null;
+		}
+		if (pending != null) {
+			pending.remove(node.getId(), this);
+		}
+		node.excite(amount);
 		if (pam.isOverPerceptThreshold(node)) {
 			if (logger.isLoggable(Level.FINEST)) {
 				logger.log(Level.FINEST, "PamNode {1} over threshold",
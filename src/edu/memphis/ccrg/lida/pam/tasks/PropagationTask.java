@@ -8,6 +8,7 @@
 package edu.memphis.ccrg.lida.pam.tasks;
 
 import edu.memphis.ccrg.lida.framework.tasks.FrameworkTaskImpl;
+import edu.memphis.ccrg.lida.framework.tasks.TaskPool;
 import edu.memphis.ccrg.lida.pam.PamLink;
 import edu.memphis.ccrg.lida.pam.PamLinkable;
 import edu.memphis.ccrg.lida.pam.PamNode;
@@ -40,10 +41,23 @@ public class PropagationTask extends FrameworkTaskImpl {
 	public PropagationTask(int ticksPerRun, PamLink link, double amount,
 						   PerceptualAssociativeMemory pam) {
 		super(ticksPerRun);
+		this.pam = pam;	
+		setPropagation(link, amount);
+	}
+
+	/**
+	 * Sets the link to propagate along and the amount to propagate. Used to
+	 * set up a task obtained from a {@link TaskPool}.
+	 * 
+	 * @param link
+	 *            the link from the source to the parent
+	 * @param amount
+	 *            the amount to excite
+	 */
+	public void setPropagation(PamLink link, double amount) {
 		this.link = link;
-		this.sink = (PamLinkable) link.getSink();
+		this.sink = (link == null) ? null : (PamLinkable) link.getSink();
 		this.excitationAmount = amount;
-		this.pam = pam;	
 	}
 
 	/**
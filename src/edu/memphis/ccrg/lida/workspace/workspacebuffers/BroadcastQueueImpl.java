@@ -18,8 +18,7 @@ import edu.memphis.ccrg.lida.framework.FrameworkModuleImpl;
 import edu.memphis.ccrg.lida.framework.initialization.Initializable;
 import edu.memphis.ccrg.lida.framework.shared.Linkable;
 import edu.memphis.ccrg.lida.framework.shared.NodeStructure;
-import edu.memphis.ccrg.lida.framework.shared.NodeStructureImpl;
-import edu.memphis.ccrg.lida.framework.shared.UnmodifiableNodeStructureImpl;
+import edu.memphis.ccrg.lida.framework.shared.PersistentNodeStructureImpl;
 import edu.memphis.ccrg.lida.framework.tasks.TaskManager;
 import edu.memphis.ccrg.lida.globalworkspace.Coalition;
 import edu.memphis.ccrg.lida.workspace.WorkspaceContent;
@@ -71,10 +70,10 @@ public class BroadcastQueueImpl extends FrameworkModuleImpl implements
 
 	@Override
 	public void receiveBroadcast(Coalition c) {
-		UnmodifiableNodeStructureImpl content = (UnmodifiableNodeStructureImpl) c.getContent();
+		NodeStructure content = (NodeStructure) c.getContent();
 		//Since content is not modifiable, a copy must be made. In this class the copy (of the content) will be decayed (modified).
-		NodeStructure contentCopy = new NodeStructureImpl();
-		contentCopy.mergeWith(content);
+		//The copy shares the content and copies only the Nodes and Links decaying modifies.
+		NodeStructure contentCopy = new PersistentNodeStructureImpl(content);
 		addBufferContent((WorkspaceContent) contentCopy);
 		while (broadcastQueue.size() > broadcastQueueCapacity) {
 			broadcastQueue.removeLast();// remove oldest
@@ -12,6 +12,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import edu.memphis.ccrg.lida.framework.FrameworkModuleImpl;
+import edu.memphis.ccrg.lida.framework.shared.ConcurrentNodeStructureImpl;
 import edu.memphis.ccrg.lida.framework.shared.NodeStructure;
 import edu.memphis.ccrg.lida.framework.shared.NodeStructureImpl;
 import edu.memphis.ccrg.lida.framework.shared.UnmodifiableNodeStructureImpl;
@@ -35,6 +36,19 @@ public class WorkspaceBufferImpl extends FrameworkModuleImpl implements Workspac
 	 */
 	public WorkspaceBufferImpl() {
 	}
+
+	/**
+	 * Will set parameters with the following names:<br/><br/>
+	 * 
+	 * <b>workspaceBuffer.concurrent</b> if true, the content is a {@link ConcurrentNodeStructureImpl} so that tasks modifying unrelated Nodes and Links do not wait for each other, default is false<br/>
+	 */
+	@Override
+	public void init() {
+		boolean concurrent = getParam("workspaceBuffer.concurrent", false);
+		if (concurrent && !(buffer instanceof ConcurrentNodeStructureImpl)) {
+			buffer = new ConcurrentNodeStructureImpl(buffer);
+		}
+	}
 	
 	/*
 	 * Note that this method <i>merges</i> the specified content into the buffer.
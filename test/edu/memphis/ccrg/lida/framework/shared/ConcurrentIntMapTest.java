@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2011 The University of Memphis.  All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the LIDA Software Framework Non-Commercial License v1.0 
+ * which accompanies this distribution, and is available at
+ * http://ccrg.cs.memphis.edu/assets/papers/2010/LIDA-framework-non-commercial-v1.0.pdf
+ *******************************************************************************/
+package edu.memphis.ccrg.lida.framework.shared;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of {@link ConcurrentIntMap}.
+ *
+ * @author agent
+ */
+public class ConcurrentIntMapTest {
+
+	private ConcurrentIntMap<String> map;
+
+	@Before
+	public void setUp() {
+		map = new ConcurrentIntMap<String>();
+	}
+
+	@Test
+	public void testPutGetRemove() {
+		assertNull(map.put(1, "a"));
+		assertNull(map.put(-7, "b"));
+		assertEquals("a", map.get(1));
+		assertEquals("b", map.get(-7));
+		assertNull(map.get(2));
+		assertEquals(2, map.size());
+
+		assertEquals("a", map.put(1, "c"));
+		assertEquals("c", map.get(1));
+		assertEquals(2, map.size());
+
+		assertEquals("c", map.remove(1));
+		assertNull(map.remove(1));
+		assertFalse(map.containsKey(1));
+		assertTrue(map.containsKey(-7));
+		assertEquals(1, map.size());
+	}
+
+	@Test
+	public void testConditionalUpdates() {
+		assertNull(map.putIfAbsent(3, "a"));
+		assertEquals("a", map.putIfAbsent(3, "b"));
+		assertFalse(map.replace(3, "b", "c"));
+		assertTrue(map.replace(3, "a", "c"));
+		assertEquals("c", map.get(3));
+		assertFalse(map.remove(3, "a"));
+		assertTrue(map.remove(3, "c"));
+		assertTrue(map.isEmpty());
+	}
+
+	@Test
+	public void testAgainstHashMap() {
+		Map<Integer, String> expected = new HashMap<Integer, String>();
+		Random r = new Random(1);
+		for (int i = 0; i < 100000; i++) {
+			int key = r.nextInt(5000) - 2500;
+			if (r.nextInt(3) == 0) {
+				assertEquals(expected.remove(key), map.remove(key));
+			} else {
+				String value = "v" + i;
+				assertEquals(expected.put(key, value), map.put(key, value));
+			}
+		}
+		assertEquals(expected.size(), map.size());
+		for (int key = -2500; key < 2500; key++) {
+			assertEquals(expected.get(key), map.get(key));
+		}
+		assertEquals(new HashSet<String>(expected.values()),
+				new HashSet<String>(map.values()));
+		assertEquals(expected.size(), map.values().size());
+	}
+
+	@Test
+	public void testClear() {
+		for (int i = 0; i < 100; i++) {
+			map.put(i, "v" + i);
+		}
+		map.clear();
+		assertTrue(map.isEmpty());
+		assertNull(map.get(5));
+		assertFalse(map.values().iterator().hasNext());
+		map.put(5, "a");
+		assertEquals("a", map.get(5));
+	}
+
+	@Test
+	public void testReadersNeverMissStableEntries() throws InterruptedException {
+		final int stable = 1000;
+		for (int i = 0; i < stable; i++) {
+			map.put(i, "s" + i);
+		}
+		final AtomicBoolean done = new AtomicBoolean();
+		final AtomicInteger misses = new AtomicInteger();
+		Thread reader = new Thread() {
+			@Override
+			public void run() {
+				while (!done.get()) {
+					for (int i = 0; i < stable; i++) {
+						if (map.get(i) == null) {
+							misses.incrementAndGet();
+						}
+					}
+				}
+			}
+		};
+		reader.start();
+		// growth and removal markers while the reader runs
+		for (int i = 0; i < 50000; i++) {
+			map.put(stable + i, "t");
+			if (i % 2 == 0) {
+				map.remove(stable + i);
+			}
+		}
+		done.set(true);
+		reader.join();
+		assertEquals(0, misses.get());
+		assertEquals(stable + 25000, map.size());
+	}
+
+}
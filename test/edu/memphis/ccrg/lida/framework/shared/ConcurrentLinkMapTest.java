@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2011 The University of Memphis.  All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the LIDA Software Framework Non-Commercial License v1.0 
+ * which accompanies this distribution, and is available at
+ * http://ccrg.cs.memphis.edu/assets/papers/2010/LIDA-framework-non-commercial-v1.0.pdf
+ *******************************************************************************/
+package edu.memphis.ccrg.lida.framework.shared;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.memphis.ccrg.lida.pam.PerceptualAssociativeMemoryImpl;
+
+/**
+ * Tests of {@link ConcurrentLinkMap}.
+ *
+ * @author agent
+ */
+public class ConcurrentLinkMapTest {
+
+	private static final LinkCategory PARENT = PerceptualAssociativeMemoryImpl.PARENT;
+	private static final LinkCategory LATERAL = PerceptualAssociativeMemoryImpl.LATERAL;
+
+	private ElementFactory factory = ElementFactory.getInstance();
+	private ConcurrentLinkMap map;
+	private Node a;
+	private Node b;
+	private Link ab;
+
+	@Before
+	public void setUp() {
+		map = new ConcurrentLinkMap();
+		a = factory.getNode();
+		b = factory.getNode();
+		ab = new LinkImpl(a, b, PARENT);
+	}
+
+	@Test
+	public void testPutGetRemove() {
+		assertNull(map.put(ab.getExtendedId(), ab));
+		assertSame(ab, map.get(ab.getExtendedId()));
+		assertSame(ab, map.get(new ExtendedId(a.getId(), b.getExtendedId(),
+				PARENT.getId())));
+		assertTrue(map.containsKey(ab.getExtendedId()));
+		assertEquals(1, map.size());
+
+		assertSame(ab, map.remove(ab.getExtendedId()));
+		assertNull(map.get(ab.getExtendedId()));
+		assertTrue(map.isEmpty());
+	}
+
+	@Test
+	public void testGetWithoutId() {
+		map.put(ab.getExtendedId(), ab);
+		assertSame(ab, map.get(a.getId(), b.getExtendedId(), PARENT.getId()));
+		assertNull(map.get(a.getId(), b.getExtendedId(), LATERAL.getId()));
+		assertNull(map.get(b.getId(), a.getExtendedId(), PARENT.getId()));
+	}
+
+	@Test
+	public void testComplexLinks() {
+		Node c = factory.getNode();
+		Link complex = new LinkImpl(c, ab, LATERAL);
+		map.put(ab.getExtendedId(), ab);
+		map.put(complex.getExtendedId(), complex);
+		assertSame(complex, map.get(c.getId(), ab.getExtendedId(), LATERAL
+				.getId()));
+		assertSame(ab, map.get(ab.getExtendedId()));
+	}
+
+	@Test
+	public void testPutIfAbsent() {
+		Link other = new LinkImpl(a, b, PARENT);
+		assertNull(map.putIfAbsent(ab.getExtendedId(), ab));
+		assertSame(ab, map.putIfAbsent(other.getExtendedId(), other));
+		assertSame(ab, map.get(other.getExtendedId()));
+	}
+
+	@Test
+	public void testManyLinks() {
+		List<Node> nodes = new ArrayList<Node>();
+		for (int i = 0; i < 300; i++) {
+			nodes.add(factory.getNode());
+		}
+		List<Link> links = new ArrayList<Link>();
+		for (int i = 0; i < nodes.size(); i++) {
+			for (int j = 1; j <= 20; j++) {
+				Link l = new LinkImpl(nodes.get(i), nodes.get((i + j)
+						% nodes.size()), (j % 2 == 0) ? PARENT : LATERAL);
+				links.add(l);
+				map.put(l.getExtendedId(), l);
+			}
+		}
+		assertEquals(links.size(), map.size());
+		for (int i = 0; i < links.size(); i += 2) {
+			map.remove(links.get(i).getExtendedId());
+		}
+		assertEquals(links.size() / 2, map.size());
+		for (int i = 0; i < links.size(); i++) {
+			Link l = links.get(i);
+			Link found = map.get(l.getSource().getId(), l.getSink()
+					.getExtendedId(), l.getCategory().getId());
+			if (i % 2 == 0) {
+				assertNull(found);
+				assertFalse(map.containsKey(l.getExtendedId()));
+			} else {
+				assertSame(l, found);
+			}
+		}
+		assertEquals(map.size(), new HashSet<Link>(map.values()).size());
+		map.clear();
+		assertTrue(map.isEmpty());
+	}
+
+}
@@ -0,0 +1,23 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2011 The University of Memphis.  All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the LIDA Software Framework Non-Commercial License v1.0 
+ * which accompanies this distribution, and is available at
+ * http://ccrg.cs.memphis.edu/assets/papers/2010/LIDA-framework-non-commercial-v1.0.pdf
+ *******************************************************************************/
+package edu.memphis.ccrg.lida.framework.shared;
+
+/**
+ * Runs the tests of {@link NodeStructureImplTest} on a
+ * {@link ConcurrentNodeStructureImpl}.
+ *
+ * @author agent
+ */
+public class ConcurrentNodeStructureImplTest extends NodeStructureImplTest {
+
+	@Override
+	NodeStructure createNodeStructure() {
+		return new ConcurrentNodeStructureImpl();
+	}
+
+}
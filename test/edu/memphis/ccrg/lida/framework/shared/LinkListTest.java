@@ -0,0 +1,218 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2011 The University of Memphis.  All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the LIDA Software Framework Non-Commercial License v1.0 
+ * which accompanies this distribution, and is available at
+ * http://ccrg.cs.memphis.edu/assets/papers/2010/LIDA-framework-non-commercial-v1.0.pdf
+ *******************************************************************************/
+package edu.memphis.ccrg.lida.framework.shared;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.memphis.ccrg.lida.pam.PerceptualAssociativeMemoryImpl;
+
+/**
+ * Tests of {@link LinkList}.
+ *
+ * @author agent
+ */
+public class LinkListTest {
+
+	private static final LinkCategory PARENT = PerceptualAssociativeMemoryImpl.PARENT;
+
+	private ElementFactory factory = ElementFactory.getInstance();
+	private LinkList list;
+	private Node source;
+	private List<Link> links;
+
+	@Before
+	public void setUp() {
+		list = new LinkList();
+		source = factory.getNode();
+		links = new ArrayList<Link>();
+		for (int i = 0; i < 4 * LinkList.INDEX_THRESHOLD; i++) {
+			links.add(new LinkImpl(source, factory.getNode(), PARENT));
+		}
+	}
+
+	@Test
+	public void testEmpty() {
+		assertEquals(0, list.size());
+		assertFalse(list.contains(links.get(0)));
+		assertFalse(list.iterator().hasNext());
+		assertFalse(list.remove(links.get(0)));
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void testIteratorPastEnd() {
+		list.iterator().next();
+	}
+
+	@Test
+	public void testAddRemove() {
+		Link l0 = links.get(0);
+		Link l1 = links.get(1);
+		Link l2 = links.get(2);
+		list.add(l0);
+		list.add(l1);
+		list.add(l2);
+		assertEquals(3, list.size());
+		assertTrue(list.contains(l1));
+
+		assertTrue(list.remove(l0));
+		assertFalse(list.remove(l0));
+		assertFalse(list.contains(l0));
+		assertEquals(2, list.size());
+		assertEquals(setOf(l1, l2), contents(list));
+
+		assertTrue(list.remove(l2));
+		assertTrue(list.remove(l1));
+		assertEquals(0, list.size());
+		assertFalse(list.iterator().hasNext());
+	}
+
+	@Test
+	public void testRemoveMovesLastLink() {
+		for (int i = 0; i < 5; i++) {
+			list.add(links.get(i));
+		}
+		list.remove(links.get(1));
+		Iterator<Link> it = list.iterator();
+		assertSame(links.get(0), it.next());
+		assertSame(links.get(4), it.next());
+		assertSame(links.get(2), it.next());
+		assertSame(links.get(3), it.next());
+		assertFalse(it.hasNext());
+	}
+
+	@Test
+	public void testAcrossIndexThreshold() {
+		Set<Link> expected = new HashSet<Link>();
+		int top = 2 * LinkList.INDEX_THRESHOLD;
+		for (int round = 0; round < 3; round++) {
+			for (int i = expected.size(); i < top; i++) {
+				list.add(links.get(i));
+				expected.add(links.get(i));
+			}
+			assertEquals(expected, contents(list));
+			for (int i = top - 1; i >= LinkList.INDEX_THRESHOLD / 8; i--) {
+				assertTrue(list.remove(links.get(i)));
+				expected.remove(links.get(i));
+				assertFalse(list.contains(links.get(i)));
+				assertEquals(expected.size(), list.size());
+			}
+			assertEquals(expected, contents(list));
+		}
+	}
+
+	@Test
+	public void testRandomAddRemove() {
+		Random r = new Random(1);
+		Set<Link> expected = new HashSet<Link>();
+		for (int i = 0; i < 20000; i++) {
+			Link l = links.get(r.nextInt(links.size()));
+			if (expected.contains(l)) {
+				assertTrue(list.remove(l));
+				expected.remove(l);
+			} else {
+				list.add(l);
+				expected.add(l);
+			}
+			assertEquals(expected.size(), list.size());
+			if (i % 100 == 0) {
+				assertEquals(expected, contents(list));
+				for (Link x : links) {
+					assertEquals(expected.contains(x), list.contains(x));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testIteratorIsSnapshot() {
+		list.add(links.get(0));
+		list.add(links.get(1));
+		Iterator<Link> it = list.iterator();
+		list.add(links.get(2));
+		Set<Link> seen = new HashSet<Link>();
+		while (it.hasNext()) {
+			seen.add(it.next());
+		}
+		assertEquals(setOf(links.get(0), links.get(1)), seen);
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testIteratorRemove() {
+		list.add(links.get(0));
+		Iterator<Link> it = list.iterator();
+		it.next();
+		it.remove();
+	}
+
+	@Test
+	public void testVisit() {
+		for (int i = 0; i < 10; i++) {
+			list.add(links.get(i));
+		}
+		list.remove(links.get(3));
+		final Set<Linkable> sinks = new HashSet<Linkable>();
+		final Set<Link> visited = new HashSet<Link>();
+		list.visitSinks(new ConnectionVisitor<Linkable>() {
+			@Override
+			public void visit(Linkable connected, Link link) {
+				assertSame(link.getSink(), connected);
+				sinks.add(connected);
+				visited.add(link);
+			}
+		});
+		assertEquals(contents(list), visited);
+		assertEquals(9, sinks.size());
+		assertFalse(sinks.contains(links.get(3).getSink()));
+
+		final List<Node> sources = new ArrayList<Node>();
+		list.visitSources(new ConnectionVisitor<Node>() {
+			@Override
+			public void visit(Node connected, Link link) {
+				assertSame(link.getSource(), connected);
+				sources.add(connected);
+			}
+		});
+		assertEquals(9, sources.size());
+		assertEquals(setOf(source), new HashSet<Node>(sources));
+	}
+
+	private static Set<Link> contents(LinkList list) {
+		Set<Link> s = new HashSet<Link>();
+		Iterator<Link> it = list.iterator();
+		int n = 0;
+		while (it.hasNext()) {
+			s.add(it.next());
+			n++;
+		}
+		assertEquals("duplicate Link", s.size(), n);
+		return s;
+	}
+
+	private static <T> Set<T> setOf(T... elements) {
+		Set<T> s = new HashSet<T>();
+		for (T e : elements) {
+			s.add(e);
+		}
+		return s;
+	}
+
+}
@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2011 The University of Memphis.  All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the LIDA Software Framework Non-Commercial License v1.0 
+ * which accompanies this distribution, and is available at
+ * http://ccrg.cs.memphis.edu/assets/papers/2010/LIDA-framework-non-commercial-v1.0.pdf
+ *******************************************************************************/
+package edu.memphis.ccrg.lida.framework.shared;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.memphis.ccrg.lida.pam.PerceptualAssociativeMemoryImpl;
+
+/**
+ * Tests of {@link NodeStructureImpl}.
+ *
+ * @author agent
+ */
+public class NodeStructureImplTest {
+
+	private static final LinkCategory PARENT = PerceptualAssociativeMemoryImpl.PARENT;
+	private static final LinkCategory LATERAL = PerceptualAssociativeMemoryImpl.LATERAL;
+
+	private NodeStructure ns;
+	private Node a;
+	private Node b;
+
+	@Before
+	public void setUp() {
+		ns = createNodeStructure();
+		a = ns.addDefaultNode("a", 0.0, -1.0);
+		b = ns.addDefaultNode("b", 0.0, -1.0);
+	}
+
+	NodeStructure createNodeStructure() {
+		return new NodeStructureImpl();
+	}
+
+	@Test
+	public void testCategoryViewBeforeFirstLink() {
+		Set<Link> parents = ns.getLinks(PARENT);
+		Set<Link> attached = ns.getAttachedLinks(a, PARENT);
+		assertTrue(parents.isEmpty());
+		assertTrue(attached.isEmpty());
+
+		Link ab = ns.addDefaultLink(a, b, PARENT, 1.0, -1.0);
+		ns.addDefaultLink(b, a, LATERAL, 1.0, -1.0);
+		assertEquals(1, parents.size());
+		assertTrue(parents.contains(ab));
+		assertEquals(ab, parents.iterator().next());
+		assertEquals(1, attached.size());
+		assertTrue(attached.contains(ab));
+
+		ns.removeLink(ab);
+		assertTrue(parents.isEmpty());
+		assertFalse(attached.contains(ab));
+	}
+
+	@Test
+	public void testAttachedLinksContains() {
+		Node hub = ns.addDefaultNode("hub", 0.0, -1.0);
+		List<Link> links = new ArrayList<Link>();
+		for (int i = 0; i < 2 * LinkList.INDEX_THRESHOLD; i++) {
+			Node n = ns.addDefaultNode("n" + i, 0.0, -1.0);
+			LinkCategory cat = (i % 2 == 0) ? PARENT : LATERAL;
+			links.add((i % 3 == 0) ? ns.addDefaultLink(n, hub, cat, 1.0, -1.0)
+					: ns.addDefaultLink(hub, n, cat, 1.0, -1.0));
+		}
+		Link other = ns.addDefaultLink(a, b, PARENT, 1.0, -1.0);
+		Set<Link> attached = ns.getAttachedLinks(hub);
+		assertEquals(links.size(), attached.size());
+		for (Link l : links) {
+			assertTrue(attached.contains(l));
+		}
+		assertFalse(attached.contains(other));
+		assertFalse(attached.contains(a));
+
+		for (int i = 0; i < links.size(); i += 2) {
+			ns.removeLink(links.get(i));
+		}
+		for (int i = 0; i < links.size(); i++) {
+			assertEquals(i % 2 != 0, attached.contains(links.get(i)));
+		}
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testCategoryViewUnmodifiable() {
+		ns.addDefaultLink(a, b, PARENT, 1.0, -1.0);
+		ns.getLinks(PARENT).clear();
+	}
+
+}
@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2011 The University of Memphis.  All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the LIDA Software Framework Non-Commercial License v1.0 
+ * which accompanies this distribution, and is available at
+ * http://ccrg.cs.memphis.edu/assets/papers/2010/LIDA-framework-non-commercial-v1.0.pdf
+ *******************************************************************************/
+package edu.memphis.ccrg.lida.framework.shared;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests of {@link PersistentIdMap}.
+ *
+ * @author agent
+ */
+public class PersistentIdMapTest {
+
+	@Test
+	public void testEmpty() {
+		PersistentIdMap<String> map = PersistentIdMap.empty();
+		assertTrue(map.isEmpty());
+		assertNull(map.get(new ExtendedId(1)));
+		assertNull(map.get(1));
+		assertSame(map, map.minus(new ExtendedId(1)));
+		assertFalse(map.values().iterator().hasNext());
+	}
+
+	@Test
+	public void testOlderMapsUnchanged() {
+		ExtendedId one = new ExtendedId(1);
+		ExtendedId two = new ExtendedId(2);
+		PersistentIdMap<String> empty = PersistentIdMap.empty();
+		PersistentIdMap<String> m1 = empty.plus(one, "a");
+		PersistentIdMap<String> m2 = m1.plus(two, "b");
+		PersistentIdMap<String> m3 = m2.plus(one, "c");
+		PersistentIdMap<String> m4 = m3.minus(two);
+
+		assertTrue(empty.isEmpty());
+		assertEquals("a", m1.get(one));
+		assertNull(m1.get(two));
+		assertEquals(1, m1.size());
+		assertEquals("a", m2.get(one));
+		assertEquals("b", m2.get(two));
+		assertEquals(2, m2.size());
+		assertEquals("c", m3.get(one));
+		assertEquals(2, m3.size());
+		assertEquals("c", m4.get(one));
+		assertFalse(m4.containsKey(two));
+		assertEquals(1, m4.size());
+	}
+
+	@Test
+	public void testUnchangedMapReturned() {
+		ExtendedId one = new ExtendedId(1);
+		String value = "a";
+		PersistentIdMap<String> m = PersistentIdMap.<String> empty().plus(one,
+				value);
+		assertSame(m, m.plus(one, value));
+		assertSame(m, m.minus(new ExtendedId(2)));
+		assertTrue(m.minus(one).isEmpty());
+	}
+
+	@Test
+	public void testGetWithoutId() {
+		ExtendedId node = new ExtendedId(4);
+		ExtendedId link = new ExtendedId(4, new ExtendedId(9), 2);
+		PersistentIdMap<String> m = PersistentIdMap.<String> empty().plus(
+				node, "node").plus(link, "link");
+		assertEquals("node", m.get(4));
+		assertNull(m.get(9));
+		assertEquals("link", m.get(4, new ExtendedId(9), 2));
+		assertNull(m.get(4, new ExtendedId(9), 3));
+		assertNull(m.get(4, null, 2));
+	}
+
+	@Test
+	public void testAgainstHashMap() {
+		Random r = new Random(1);
+		List<ExtendedId> ids = new ArrayList<ExtendedId>();
+		for (int i = 0; i < 2000; i++) {
+			ids.add(new ExtendedId(i));
+			ids.add(new ExtendedId(i, new ExtendedId(r.nextInt(2000)), r
+					.nextInt(3)));
+		}
+		Map<ExtendedId, Integer> expected = new HashMap<ExtendedId, Integer>();
+		PersistentIdMap<Integer> map = PersistentIdMap.empty();
+		List<PersistentIdMap<Integer>> versions = new ArrayList<PersistentIdMap<Integer>>();
+		List<Map<ExtendedId, Integer>> expectedVersions = new ArrayList<Map<ExtendedId, Integer>>();
+		for (int i = 0; i < 20000; i++) {
+			ExtendedId id = ids.get(r.nextInt(ids.size()));
+			if (r.nextInt(3) == 0) {
+				expected.remove(id);
+				map = map.minus(id);
+			} else {
+				expected.put(id, i);
+				map = map.plus(id, i);
+			}
+			if (i % 5000 == 0) {
+				versions.add(map);
+				expectedVersions.add(new HashMap<ExtendedId, Integer>(expected));
+			}
+		}
+		versions.add(map);
+		expectedVersions.add(expected);
+		for (int v = 0; v < versions.size(); v++) {
+			PersistentIdMap<Integer> m = versions.get(v);
+			Map<ExtendedId, Integer> e = expectedVersions.get(v);
+			assertEquals(e.size(), m.size());
+			for (ExtendedId id : ids) {
+				assertEquals(e.get(id), m.get(id));
+			}
+			assertEquals(new HashSet<Integer>(e.values()), new HashSet<Integer>(
+					m.values()));
+		}
+	}
+
+}
@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2011 The University of Memphis.  All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the LIDA Software Framework Non-Commercial License v1.0 
+ * which accompanies this distribution, and is available at
+ * http://ccrg.cs.memphis.edu/assets/papers/2010/LIDA-framework-non-commercial-v1.0.pdf
+ *******************************************************************************/
+package edu.memphis.ccrg.lida.framework.tasks;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of {@link RealTimePacer}.
+ *
+ * @author agent
+ */
+public class RealTimePacerTest {
+
+	private static final long TICK_NANOS = 1000000L;
+
+	private RealTimePacer pacer;
+
+	@Before
+	public void setUp() {
+		pacer = new RealTimePacer();
+	}
+
+	@Test
+	public void testOnTime() {
+		pacer.awaitNextTick(0, TICK_NANOS);
+		pacer.awaitNextTick(1, TICK_NANOS);
+		assertEquals(0, pacer.getOverruns());
+		assertEquals(2, total(pacer.getLatenessHistogram()));
+	}
+
+	@Test
+	public void testOverrunRecordedSkip() throws InterruptedException {
+		assertOverrunRecorded(CatchUpPolicy.SKIP);
+	}
+
+	@Test
+	public void testOverrunRecordedStretch() throws InterruptedException {
+		assertOverrunRecorded(CatchUpPolicy.STRETCH);
+	}
+
+	@Test
+	public void testOverrunRecordedBurst() throws InterruptedException {
+		assertOverrunRecorded(CatchUpPolicy.BURST);
+	}
+
+	private void assertOverrunRecorded(CatchUpPolicy policy)
+			throws InterruptedException {
+		pacer.setCatchUpPolicy(policy);
+		pacer.awaitNextTick(0, TICK_NANOS);
+		Thread.sleep(10);
+		pacer.awaitNextTick(1, TICK_NANOS);
+		assertEquals(1, pacer.getOverruns());
+		long[] histogram = pacer.getLatenessHistogram();
+		assertEquals(2, total(histogram));
+		// the overrun tick started over 2^12 microseconds late
+		long late = 0;
+		for (int i = 13; i < histogram.length; i++) {
+			late += histogram[i];
+		}
+		assertEquals(1, late);
+	}
+
+	private static long total(long[] histogram) {
+		long n = 0;
+		for (long c : histogram) {
+			n += c;
+		}
+		return n;
+	}
+
+}
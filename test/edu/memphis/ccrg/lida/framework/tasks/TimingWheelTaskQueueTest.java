@@ -0,0 +1,176 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2011 The University of Memphis.  All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the LIDA Software Framework Non-Commercial License v1.0 
+ * which accompanies this distribution, and is available at
+ * http://ccrg.cs.memphis.edu/assets/papers/2010/LIDA-framework-non-commercial-v1.0.pdf
+ *******************************************************************************/
+package edu.memphis.ccrg.lida.framework.tasks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of {@link TimingWheelTaskQueue}.
+ *
+ * @author agent
+ */
+public class TimingWheelTaskQueueTest {
+
+	private TimingWheelTaskQueue queue;
+	private int polls;
+
+	private static class MockTask extends FrameworkTaskImpl {
+		MockTask(long tick) {
+			setScheduledTick(tick);
+		}
+
+		@Override
+		protected void runThisFrameworkTask() {
+		}
+	}
+
+	@Before
+	public void setUp() {
+		queue = new TimingWheelTaskQueue();
+	}
+
+	/*
+	 * Polls every tick that may have tasks until none is left, checking each
+	 * task is polled at its scheduled tick. Returns the polled tasks.
+	 */
+	private Set<FrameworkTask> pollAll(long from) {
+		Set<FrameworkTask> polled = new HashSet<FrameworkTask>();
+		long tick = queue.getNextScheduledTick(from);
+		while (tick >= 0) {
+			polls++;
+			for (FrameworkTask t : queue.pollTasks(tick)) {
+				assertEquals(tick, t.getScheduledTick());
+				assertTrue(polled.add(t));
+			}
+			tick = queue.getNextScheduledTick(tick + 1);
+		}
+		return polled;
+	}
+
+	@Test
+	public void testPollAtScheduledTick() {
+		MockTask a = new MockTask(1);
+		MockTask b = new MockTask(3);
+		queue.add(a);
+		queue.add(b);
+
+		Collection<FrameworkTask> polled = queue.pollTasks(1);
+		assertEquals(1, polled.size());
+		assertTrue(polled.contains(a));
+		assertTrue(queue.pollTasks(2).isEmpty());
+		polled = queue.pollTasks(3);
+		assertEquals(1, polled.size());
+		assertTrue(polled.contains(b));
+	}
+
+	@Test
+	public void testPollIncludesEarlierTicks() {
+		MockTask a = new MockTask(2);
+		MockTask b = new MockTask(5);
+		queue.add(a);
+		queue.add(b);
+
+		Collection<FrameworkTask> polled = queue.pollTasks(5);
+		assertEquals(2, polled.size());
+		assertTrue(polled.contains(a));
+		assertTrue(polled.contains(b));
+	}
+
+	@Test
+	public void testAddBeforeNextTick() {
+		queue.pollTasks(10);
+		MockTask late = new MockTask(4);
+		queue.add(late);
+		assertEquals(11, late.getScheduledTick());
+		assertTrue(queue.pollTasks(11).contains(late));
+	}
+
+	@Test
+	public void testRemove() {
+		MockTask a = new MockTask(7);
+		queue.add(a);
+		assertTrue(queue.remove(a));
+		assertFalse(queue.remove(a));
+		assertTrue(queue.pollTasks(7).isEmpty());
+	}
+
+	@Test
+	public void testNextScheduledTickSkipsEmptyTicks() {
+		assertEquals(-1, queue.getNextScheduledTick(1));
+		MockTask near = new MockTask(42);
+		MockTask far = new MockTask(100000);
+		queue.add(near);
+		queue.add(far);
+		assertEquals(42, queue.getNextScheduledTick(1));
+		assertEquals(100000, queue.getMaxTick());
+
+		// ticks between them are skipped a block at a time at least
+		Set<FrameworkTask> polled = pollAll(1);
+		assertTrue(polled.contains(near));
+		assertTrue(polled.contains(far));
+		assertTrue(polls < 10);
+	}
+
+	@Test
+	public void testTasksOfAllWheelsAndOverflow() {
+		long[] ticks = { 1, 255, 256, 257, 1000, 16384, 16385, 1L << 20,
+				(1L << 26) - 1, 1L << 26, (1L << 26) + 5, (1L << 27) + 3 };
+		List<MockTask> tasks = new ArrayList<MockTask>();
+		for (long t : ticks) {
+			MockTask task = new MockTask(t);
+			tasks.add(task);
+			queue.add(task);
+		}
+		assertEquals((1L << 27) + 3, queue.getMaxTick());
+		assertEquals(new HashSet<FrameworkTask>(tasks), pollAll(1));
+		assertEquals(-1, queue.getNextScheduledTick(1));
+	}
+
+	@Test
+	public void testRandomSchedule() {
+		Random r = new Random(1);
+		Set<FrameworkTask> expected = new HashSet<FrameworkTask>();
+		List<MockTask> tasks = new ArrayList<MockTask>();
+		for (int i = 0; i < 5000; i++) {
+			long tick = 1 + ((i % 10 == 0) ? r.nextInt(100000000) : r
+					.nextInt(2000));
+			MockTask task = new MockTask(tick);
+			tasks.add(task);
+			expected.add(task);
+			queue.add(task);
+		}
+		for (int i = 0; i < 500; i++) {
+			MockTask task = tasks.get(r.nextInt(tasks.size()));
+			assertEquals(expected.remove(task), queue.remove(task));
+		}
+		assertEquals(expected, pollAll(1));
+	}
+
+	@Test
+	public void testClear() {
+		queue.add(new MockTask(5));
+		queue.add(new MockTask(1L << 30));
+		queue.clear();
+		assertEquals(-1, queue.getNextScheduledTick(1));
+		assertTrue(queue.getTasks().isEmpty());
+		assertEquals(0, queue.getMaxTick());
+	}
+
+}
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2011 The University of Memphis.  All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the LIDA Software Framework Non-Commercial License v1.0 
+ * which accompanies this distribution, and is available at
+ * http://ccrg.cs.memphis.edu/assets/papers/2010/LIDA-framework-non-commercial-v1.0.pdf
+ *******************************************************************************/
+package edu.memphis.ccrg.lida.pam;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of the decay of {@link CompactPerceptualAssociativeMemory}.
+ *
+ * @author agent
+ */
+public class CompactPerceptualAssociativeMemoryTest {
+
+	private CompactPerceptualAssociativeMemory pam;
+	private List<PamLink> links;
+
+	@Before
+	public void setUp() {
+		Logger.getLogger("").setLevel(Level.SEVERE);
+		pam = new CompactPerceptualAssociativeMemory();
+		pam.init(new HashMap<String, Object>());
+		PamNode hub = pam.addDefaultNode("hub");
+		links = new ArrayList<PamLink>();
+		for (int i = 0; i < 1000; i++) {
+			PamNode n = pam.addDefaultNode("n" + i);
+			links.add(pam.addDefaultLink(hub, n,
+					PerceptualAssociativeMemoryImpl.PARENT));
+		}
+	}
+
+	@Test
+	public void testOnlyActiveLinksDecayed() {
+		pam.decayModule(1);
+		assertEquals(0, pam.getActiveLinkCount());
+
+		PamLink excited = links.get(7);
+		excited.setActivation(0.5);
+		pam.decayModule(1);
+		assertEquals(1, pam.getActiveLinkCount());
+		double activation = excited.getActivation();
+		assertTrue(activation < 0.5);
+
+		pam.decayModule(1);
+		assertTrue(excited.getActivation() < activation);
+		for (int i = 0; i < 1000 && excited.getActivation() > 0.0; i++) {
+			pam.decayModule(1);
+		}
+		assertEquals(0.0, excited.getActivation(), 0.0);
+		pam.decayModule(1);
+		assertEquals(0, pam.getActiveLinkCount());
+	}
+
+	@Test
+	public void testExcitedAgainAfterRest() {
+		pam.decayModule(1);
+		PamLink l = links.get(3);
+		l.setActivation(0.01);
+		for (int i = 0; i < 1000 && l.getActivation() > 0.0; i++) {
+			pam.decayModule(1);
+		}
+		pam.decayModule(1);
+		assertEquals(0, pam.getActiveLinkCount());
+
+		l.setActivation(0.5);
+		pam.decayModule(1);
+		assertTrue(l.getActivation() < 0.5);
+		assertEquals(1, pam.getActiveLinkCount());
+	}
+
+}
@@ -0,0 +1,177 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2011 The University of Memphis.  All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the LIDA Software Framework Non-Commercial License v1.0 
+ * which accompanies this distribution, and is available at
+ * http://ccrg.cs.memphis.edu/assets/papers/2010/LIDA-framework-non-commercial-v1.0.pdf
+ *******************************************************************************/
+package edu.memphis.ccrg.lida.pam;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.memphis.ccrg.lida.framework.tasks.FrameworkTask;
+import edu.memphis.ccrg.lida.framework.tasks.TaskManager;
+import edu.memphis.ccrg.lida.framework.tasks.TaskSpawnerImpl;
+import edu.memphis.ccrg.lida.pam.tasks.ExcitationTask;
+
+/**
+ * Tests of the excitation coalescing of {@link PerceptualAssociativeMemoryImpl}.
+ *
+ * @author agent
+ */
+public class ExcitationCoalescingTest {
+
+	private static final double EPSILON = 1e-9;
+
+	private List<FrameworkTask> added;
+
+	@Before
+	public void setUp() {
+		Logger.getLogger("").setLevel(Level.SEVERE);
+		added = new ArrayList<FrameworkTask>();
+	}
+
+	@Test
+	public void testCoalesce() {
+		PerceptualAssociativeMemoryImpl pam = createPam(
+				new PerceptualAssociativeMemoryImpl(), true);
+		PamNode node = pam.addDefaultNode("a");
+		double start = node.getActivation();
+
+		pam.receiveExcitation(node, 0.2);
+		pam.receiveExcitation(node, 0.3);
+		List<ExcitationTask> tasks = excitationTasks();
+		assertEquals(1, tasks.size());
+
+		tasks.get(0).call();
+		assertEquals(start + 0.5, node.getActivation(), EPSILON);
+
+		added.clear();
+		pam.receiveExcitation(node, 0.1);
+		tasks = excitationTasks();
+		assertEquals(1, tasks.size());
+		tasks.get(0).call();
+		assertEquals(start + 0.6, node.getActivation(), EPSILON);
+	}
+
+	@Test
+	public void testCoalesceByNodeId() {
+		PerceptualAssociativeMemoryImpl pam = createPam(
+				new PerceptualAssociativeMemoryImpl(), true);
+		PamNode a = pam.addDefaultNode("a");
+		PamNode b = pam.addDefaultNode("b");
+
+		pam.receiveExcitation(a, 0.2);
+		pam.receiveExcitation(b, 0.2);
+		pam.receiveExcitation(a, 0.2);
+		assertEquals(2, excitationTasks().size());
+	}
+
+	@Test
+	public void testCoalesceCompactViews() {
+		PerceptualAssociativeMemoryImpl pam = createPam(
+				new CompactPerceptualAssociativeMemory(), true);
+		int id = pam.addDefaultNode("a").getId();
+		PamNode view1 = (PamNode) pam.getNode(id);
+		PamNode view2 = (PamNode) pam.getNode("a");
+		assertNotSame(view1, view2);
+		double start = view1.getActivation();
+
+		pam.receiveExcitation(view1, 0.2);
+		pam.receiveExcitation(view2, 0.3);
+		List<ExcitationTask> tasks = excitationTasks();
+		assertEquals(1, tasks.size());
+		tasks.get(0).call();
+		assertEquals(start + 0.5, pam.getNode(id).getActivation(), EPSILON);
+	}
+
+	@Test
+	public void testWithoutCoalescing() {
+		PerceptualAssociativeMemoryImpl pam = createPam(
+				new PerceptualAssociativeMemoryImpl(), false);
+		PamNode node = pam.addDefaultNode("a");
+		double start = node.getActivation();
+
+		pam.receiveExcitation(node, 0.2);
+		pam.receiveExcitation(node, 0.3);
+		List<ExcitationTask> tasks = excitationTasks();
+		assertEquals(2, tasks.size());
+		for (ExcitationTask t : tasks) {
+			t.call();
+		}
+		assertEquals(start + 0.5, node.getActivation(), EPSILON);
+	}
+
+	@Test
+	public void testConcurrentExcitation() throws InterruptedException {
+		final PerceptualAssociativeMemoryImpl pam = createPam(
+				new PerceptualAssociativeMemoryImpl(), true);
+		final PamNode node = pam.addDefaultNode("a");
+		double start = node.getActivation();
+		final int perThread = 1000;
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					for (int j = 0; j < perThread; j++) {
+						pam.receiveExcitation(node, 0.0001);
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (Thread t : threads) {
+			t.join();
+		}
+		List<ExcitationTask> tasks = excitationTasks();
+		assertTrue(tasks.size() >= 1);
+		for (ExcitationTask t : tasks) {
+			t.call();
+		}
+		assertEquals(start + threads.length * perThread * 0.0001, node
+				.getActivation(), 1e-6);
+	}
+
+	private PerceptualAssociativeMemoryImpl createPam(
+			PerceptualAssociativeMemoryImpl pam, boolean coalesce) {
+		Map<String, Object> params = new HashMap<String, Object>();
+		params.put("pam.coalesceExcitation", coalesce);
+		params.put("pam.perceptThreshold", 2.0);
+		pam.init(params);
+		pam.setAssistingTaskSpawner(new TaskSpawnerImpl(new TaskManager(10, 2)) {
+			@Override
+			public void addTask(FrameworkTask task) {
+				synchronized (added) {
+					added.add(task);
+				}
+			}
+		});
+		return pam;
+	}
+
+	private List<ExcitationTask> excitationTasks() {
+		List<ExcitationTask> tasks = new ArrayList<ExcitationTask>();
+		synchronized (added) {
+			for (FrameworkTask t : added) {
+				if (t instanceof ExcitationTask) {
+					tasks.add((ExcitationTask) t);
+				}
+			}
+		}
+		return tasks;
+	}
+
+}
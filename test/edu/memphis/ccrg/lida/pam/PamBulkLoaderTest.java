@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2011 The University of Memphis.  All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the LIDA Software Framework Non-Commercial License v1.0 
+ * which accompanies this distribution, and is available at
+ * http://ccrg.cs.memphis.edu/assets/papers/2010/LIDA-framework-non-commercial-v1.0.pdf
+ *******************************************************************************/
+package edu.memphis.ccrg.lida.pam;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.memphis.ccrg.lida.framework.initialization.LinkableDef;
+import edu.memphis.ccrg.lida.framework.shared.ElementFactory;
+import edu.memphis.ccrg.lida.framework.shared.Link;
+
+/**
+ * Tests of {@link PamBulkLoader}.
+ *
+ * @author agent
+ */
+public class PamBulkLoaderTest {
+
+	private static final double EPSILON = 1e-9;
+	private static final String NODE_TYPE = "PamBulkLoaderTestNode";
+	private static final String LINK_TYPE = "PamBulkLoaderTestLink";
+	private static final double TYPE_BASE_LEVEL_ACTIVATION = 0.4;
+
+	private PerceptualAssociativeMemoryImpl pam;
+	private PamBulkLoader loader;
+
+	@BeforeClass
+	public static void addTypes() {
+		Map<String, Object> params = new HashMap<String, Object>();
+		params.put("learnable.baseLevelActivation", TYPE_BASE_LEVEL_ACTIVATION);
+		ElementFactory factory = ElementFactory.getInstance();
+		factory.addNodeType(new LinkableDef(PamNodeImpl.class
+				.getCanonicalName(), new HashMap<String, String>(), NODE_TYPE,
+				params));
+		factory.addLinkType(new LinkableDef(PamLinkImpl.class
+				.getCanonicalName(), new HashMap<String, String>(), LINK_TYPE,
+				params));
+	}
+
+	@Before
+	public void setUp() {
+		Logger.getLogger("").setLevel(Level.SEVERE);
+		pam = new PerceptualAssociativeMemoryImpl();
+		pam.init(new HashMap<String, Object>());
+		loader = new PamBulkLoader(pam, 4, false);
+	}
+
+	@Test
+	public void testTypeDefaultKept() {
+		loader.addNode(NODE_TYPE, "a", Double.NaN);
+		loader.addNode(NODE_TYPE, "b", 0.2);
+		loader.flush();
+		PamNode a = (PamNode) pam.getNode("a");
+		PamNode b = (PamNode) pam.getNode("b");
+		assertEquals(TYPE_BASE_LEVEL_ACTIVATION, a.getBaseLevelActivation(),
+				EPSILON);
+		assertEquals(0.2, b.getBaseLevelActivation(), EPSILON);
+
+		loader.addLink(LINK_TYPE, a, b, PerceptualAssociativeMemoryImpl.PARENT,
+				Double.NaN, "ab");
+		loader.addLink(LINK_TYPE, b, a, PerceptualAssociativeMemoryImpl.PARENT,
+				0.3, "ba");
+		loader.flush();
+		assertEquals(TYPE_BASE_LEVEL_ACTIVATION, getLink(a, b)
+				.getBaseLevelActivation(), EPSILON);
+		assertEquals(0.3, getLink(b, a).getBaseLevelActivation(), EPSILON);
+	}
+
+	@Test
+	public void testDefaultTypeChunks() {
+		for (int i = 0; i < 10; i++) {
+			loader.addNode("n" + i, (i % 2 == 0) ? Double.NaN : 0.5);
+		}
+		loader.flush();
+		for (int i = 0; i < 10; i++) {
+			PamNode n = (PamNode) pam.getNode("n" + i);
+			assertEquals((i % 2 == 0) ? 0.0 : 0.5, n.getBaseLevelActivation(),
+					EPSILON);
+		}
+	}
+
+	private PamLink getLink(PamNode source, PamNode sink) {
+		for (Link l : pam.getLinks()) {
+			if (l.getSource().equals(source) && l.getSink().equals(sink)) {
+				return (PamLink) l;
+			}
+		}
+		throw new AssertionError("missing link " + source + " -> " + sink);
+	}
+
+}
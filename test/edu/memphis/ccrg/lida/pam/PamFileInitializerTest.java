@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2011 The University of Memphis.  All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the LIDA Software Framework Non-Commercial License v1.0 
+ * which accompanies this distribution, and is available at
+ * http://ccrg.cs.memphis.edu/assets/papers/2010/LIDA-framework-non-commercial-v1.0.pdf
+ *******************************************************************************/
+package edu.memphis.ccrg.lida.pam;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import edu.memphis.ccrg.lida.framework.shared.Link;
+import edu.memphis.ccrg.lida.framework.shared.LinkCategory;
+
+/**
+ * Tests of the text formats of {@link PamFileInitializer}.
+ *
+ * @author agent
+ */
+public class PamFileInitializerTest {
+
+	private static final double EPSILON = 1e-9;
+	private static final String LATERAL = PerceptualAssociativeMemoryImpl.LATERAL
+			.getLabel();
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private PerceptualAssociativeMemoryImpl pam;
+	private Map<String, Object> params;
+
+	@Before
+	public void setUp() {
+		Logger.getLogger("").setLevel(Level.SEVERE);
+		pam = new PerceptualAssociativeMemoryImpl();
+		pam.init(new HashMap<String, Object>());
+		params = new HashMap<String, Object>();
+	}
+
+	@Test
+	public void testCsv() throws IOException {
+		File file = write("pam.csv", "# comment\n" + "N,a,0.5\n" + "N,b\n"
+				+ "\n" + "L,a,b,0.25\n" + "N,c,0.75\n" + "L,c,a,0.1," + LATERAL + "\n"
+				+ "L,a,c,0.1,unknown\n");
+		load(file);
+		assertNode("a", 0.5);
+		assertNode("b", 0.0);
+		assertNode("c", 0.75);
+		assertLink("a", "b", PerceptualAssociativeMemoryImpl.PARENT.getLabel(),
+				0.25);
+		assertLink("c", "a", LATERAL, 0.1);
+		assertEquals(2, pam.getLinks().size());
+	}
+
+	@Test
+	public void testTsv() throws IOException {
+		File file = write("pam.tsv", "N\tnode a\t0.5\n" + "N\tnode b\n"
+				+ "L\tnode a\tnode b\t0.25\n");
+		load(file);
+		assertNode("node a", 0.5);
+		assertNode("node b", 0.0);
+		assertLink("node a", "node b", PerceptualAssociativeMemoryImpl.PARENT
+				.getLabel(), 0.25);
+	}
+
+	@Test
+	public void testFormatParameter() throws IOException {
+		File file = write("pam.txt", "N\ta\t0.5\n");
+		params.put("format", "tsv");
+		load(file);
+		assertNode("a", 0.5);
+	}
+
+	@Test
+	public void testInterleavedChunks() throws IOException {
+		StringBuilder text = new StringBuilder();
+		int count = 100;
+		for (int i = 0; i < count; i++) {
+			text.append("N,n").append(i).append(',').append(i / 1000.0)
+					.append('\n');
+			if (i > 0) {
+				text.append("L,n").append(i).append(",n").append(i - 1)
+						.append(",0.5\n");
+			}
+			if (i > 10) {
+				text.append("L,n").append(i - 10).append(",n").append(i)
+						.append(",0.25,").append(LATERAL).append('\n');
+			}
+		}
+		File file = write("pam.csv", text.toString());
+		params.put("chunkSize", "7");
+		load(file);
+		for (int i = 0; i < count; i++) {
+			assertNode("n" + i, i / 1000.0);
+			if (i > 0) {
+				assertLink("n" + i, "n" + (i - 1),
+						PerceptualAssociativeMemoryImpl.PARENT.getLabel(), 0.5);
+			}
+			if (i > 10) {
+				assertLink("n" + (i - 10), "n" + i, LATERAL, 0.25);
+			}
+		}
+		assertEquals(count - 1 + count - 11, pam.getLinks().size());
+	}
+
+	@Test
+	public void testBadRecords() throws IOException {
+		File file = write("pam.csv", "N,a\n" + "X,b\n" + "L,a,missing\n"
+				+ "N,c,oops\n");
+		load(file);
+		assertNode("a", 0.0);
+		assertNode("c", 0.0);
+		assertNull(pam.getNode("b"));
+		assertEquals(0, pam.getLinks().size());
+	}
+
+	@Test
+	public void testMissingFile() {
+		params.put("file", new File(folder.getRoot(), "none.csv").getPath());
+		new PamFileInitializer().initModule(pam, null, params);
+		assertNull(pam.getNode("a"));
+	}
+
+	private File write(String name, String text) throws IOException {
+		File file = folder.newFile(name);
+		Writer w = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		try {
+			w.write(text);
+		} finally {
+			w.close();
+		}
+		return file;
+	}
+
+	private void load(File file) {
+		params.put("file", file.getPath());
+		new PamFileInitializer().initModule(pam, null, params);
+	}
+
+	private void assertNode(String label, double baseLevelActivation) {
+		PamNode node = (PamNode) pam.getNode(label);
+		assertNotNull(label, node);
+		assertEquals(label, baseLevelActivation, node.getBaseLevelActivation(),
+				EPSILON);
+	}
+
+	private void assertLink(String source, String sink, String category,
+			double baseLevelActivation) {
+		String name = source + " -> " + sink;
+		for (Link l : pam.getLinks()) {
+			LinkCategory cat = l.getCategory();
+			if (l.getSource().getLabel().equals(source)
+					&& l.getSink().getLabel().equals(sink)
+					&& cat.getLabel().equals(category)) {
+				assertEquals(name, baseLevelActivation, ((PamLink) l)
+						.getBaseLevelActivation(), EPSILON);
+				return;
+			}
+		}
+		throw new AssertionError("missing link " + name);
+	}
+
+}
@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2011 The University of Memphis.  All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the LIDA Software Framework Non-Commercial License v1.0 
+ * which accompanies this distribution, and is available at
+ * http://ccrg.cs.memphis.edu/assets/papers/2010/LIDA-framework-non-commercial-v1.0.pdf
+ *******************************************************************************/
+package edu.memphis.ccrg.lida.pam;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import edu.memphis.ccrg.lida.framework.shared.ElementFactory;
+import edu.memphis.ccrg.lida.framework.shared.Link;
+import edu.memphis.ccrg.lida.framework.shared.LinkCategory;
+import edu.memphis.ccrg.lida.framework.shared.Linkable;
+import edu.memphis.ccrg.lida.framework.shared.Node;
+
+/**
+ * Tests of {@link PamSnapshot} and of the binary format of
+ * {@link PamFileInitializer}.
+ *
+ * @author agent
+ */
+public class PamSnapshotTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private PerceptualAssociativeMemoryImpl pam;
+
+	@Before
+	public void setUp() {
+		Logger.getLogger("").setLevel(Level.SEVERE);
+		pam = createPam(new PerceptualAssociativeMemoryImpl());
+		LinkCategory custom = (LinkCategory) ElementFactory.getInstance()
+				.getNode("NoDecayPamNode", "custom");
+		custom = pam.addLinkCategory(custom);
+
+		PamNode a = pam.addDefaultNode("a");
+		PamNode b = pam.addNode("NoDecayPamNode", "b");
+		PamNode c = pam.addDefaultNode("c");
+		a.setBaseLevelActivation(0.5);
+		b.setBaseLevelActivation(0.25);
+
+		PamLink ab = pam.addDefaultLink(a, b,
+				PerceptualAssociativeMemoryImpl.PARENT);
+		ab.setBaseLevelActivation(0.75);
+		PamLink bc = pam.addLink("NoDecayPamLink", b, c, custom);
+		bc.setBaseLevelActivation(0.125);
+		pam.addDefaultLink(c, ab, PerceptualAssociativeMemoryImpl.LATERAL);
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		File file = folder.newFile("pam.bin");
+		PamSnapshot.save(pam, file);
+		PerceptualAssociativeMemoryImpl loaded = createPam(new PerceptualAssociativeMemoryImpl());
+		PamSnapshot.load(file, loaded, false);
+		assertEquals(3, describeNodes(loaded).size());
+		assertEquals(3, describeLinks(loaded).size());
+		assertSameContents(pam, loaded);
+	}
+
+	@Test
+	public void testRoundTripCompact() throws IOException {
+		File file = folder.newFile("pam.bin");
+		PamSnapshot.save(pam, file);
+		PerceptualAssociativeMemoryImpl loaded = createPam(new CompactPerceptualAssociativeMemory());
+		PamSnapshot.load(file, loaded, false);
+		assertSameContents(pam, loaded);
+	}
+
+	@Test
+	public void testFileInitializer() throws IOException {
+		File file = folder.newFile("pam.bin");
+		PamSnapshot.save(pam, file);
+		PerceptualAssociativeMemoryImpl loaded = createPam(new PerceptualAssociativeMemoryImpl());
+		Map<String, Object> params = new HashMap<String, Object>();
+		params.put("file", file.getPath());
+		params.put("chunkSize", 2);
+		new PamFileInitializer().initModule(loaded, null, params);
+		assertSameContents(pam, loaded);
+	}
+
+	@Test
+	public void testLoadAddsToExisting() throws IOException {
+		File file = folder.newFile("pam.bin");
+		PamSnapshot.save(pam, file);
+		PerceptualAssociativeMemoryImpl loaded = createPam(new PerceptualAssociativeMemoryImpl());
+		loaded.addDefaultNode("d");
+		PamSnapshot.load(file, loaded, false);
+		assertNotNull(loaded.getNode("d"));
+		assertEquals(describeNodes(pam).size() + 1, describeNodes(loaded)
+				.size());
+		assertEquals(describeLinks(pam), describeLinks(loaded));
+	}
+
+	@Test(expected = IOException.class)
+	public void testBadMagic() throws IOException {
+		File file = folder.newFile("bad.bin");
+		DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+		try {
+			out.writeInt(PamSnapshot.MAGIC + 1);
+			out.writeInt(PamSnapshot.VERSION);
+		} finally {
+			out.close();
+		}
+		PamSnapshot.load(file, createPam(new PerceptualAssociativeMemoryImpl()),
+				false);
+	}
+
+	@Test(expected = IOException.class)
+	public void testBadVersion() throws IOException {
+		File file = folder.newFile("bad.bin");
+		DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+		try {
+			out.writeInt(PamSnapshot.MAGIC);
+			out.writeInt(PamSnapshot.VERSION + 1);
+		} finally {
+			out.close();
+		}
+		PamSnapshot.load(file, createPam(new PerceptualAssociativeMemoryImpl()),
+				false);
+	}
+
+	private static PerceptualAssociativeMemoryImpl createPam(
+			PerceptualAssociativeMemoryImpl pam) {
+		pam.init(new HashMap<String, Object>());
+		return pam;
+	}
+
+	private static void assertSameContents(PerceptualAssociativeMemory expected,
+			PerceptualAssociativeMemory actual) {
+		assertEquals(describeNodes(expected), describeNodes(actual));
+		assertEquals(describeLinks(expected), describeLinks(actual));
+	}
+
+	/*
+	 * Label, type and base-level activation of each node other than the
+	 * link category nodes
+	 */
+	private static Set<String> describeNodes(PerceptualAssociativeMemory pam) {
+		Set<Integer> categories = new HashSet<Integer>();
+		for (LinkCategory c : pam.getLinkCategories()) {
+			categories.add(c.getId());
+		}
+		Set<String> s = new HashSet<String>();
+		for (Node n : pam.getNodes()) {
+			if (!categories.contains(n.getId())) {
+				s.add(n.getLabel() + "|" + n.getFactoryType() + "|"
+						+ ((PamNode) n).getBaseLevelActivation());
+			}
+		}
+		return s;
+	}
+
+	private static Set<String> describeLinks(PerceptualAssociativeMemory pam) {
+		Set<String> s = new HashSet<String>();
+		for (Link l : pam.getLinks()) {
+			s.add(describe(l));
+		}
+		return s;
+	}
+
+	private static String describe(Linkable l) {
+		if (l instanceof Node) {
+			return l.getLabel();
+		}
+		Link link = (Link) l;
+		return "(" + link.getSource().getLabel() + " -"
+				+ link.getCategory().getLabel() + "-> "
+				+ describe(link.getSink()) + " " + link.getFactoryType() + " "
+				+ ((PamLink) link).getBaseLevelActivation() + ")";
+	}
+
+}
@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2011 The University of Memphis.  All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the LIDA Software Framework Non-Commercial License v1.0 
+ * which accompanies this distribution, and is available at
+ * http://ccrg.cs.memphis.edu/assets/papers/2010/LIDA-framework-non-commercial-v1.0.pdf
+ *******************************************************************************/
+package edu.memphis.ccrg.lida.pam;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.memphis.ccrg.lida.framework.shared.Link;
+import edu.memphis.ccrg.lida.framework.shared.Node;
+import edu.memphis.ccrg.lida.framework.shared.NodeStructure;
+
+/**
+ * Tests that {@link SweepPropagationEngine} gives the same result with one
+ * shard and with several shards.
+ *
+ * @author agent
+ */
+public class SweepPropagationEngineTest {
+
+	private static final double EPSILON = 1e-9;
+	private static final int NODES = 300;
+	private static final int LINKS = 1200;
+	private static final int HOPS = 4;
+	private static final double THRESHOLD = 0.05;
+	private static final double UPSCALE = 0.3;
+
+	@Before
+	public void setUp() {
+		Logger.getLogger("").setLevel(Level.SEVERE);
+	}
+
+	@Test
+	public void testRangeShards() {
+		assertSameAsOneShard(new RangePamPartitioner());
+	}
+
+	@Test
+	public void testComponentShards() {
+		assertSameAsOneShard(new ComponentPamPartitioner());
+	}
+
+	private void assertSameAsOneShard(PamPartitioner partitioner) {
+		PerceptualAssociativeMemoryImpl sequentialPam = createPam();
+		PerceptualAssociativeMemoryImpl shardedPam = createPam();
+		SweepPropagationEngine sequential = new SweepPropagationEngine();
+		SweepPropagationEngine sharded = new SweepPropagationEngine(4,
+				ForkJoinPool.commonPool(), partitioner);
+
+		Random r = new Random(7);
+		boolean perceived = false;
+		int partial = 0;
+		for (int sweep = 0; sweep < 3; sweep++) {
+			Set<String> seeds = new HashSet<String>();
+			for (int i = 0; i < 10; i++) {
+				seeds.add("n" + r.nextInt(NODES));
+			}
+			Set<String> expected = sweep(sequentialPam, sequential, seeds);
+			Set<String> actual = sweep(shardedPam, sharded, seeds);
+			assertEquals(expected, actual);
+			perceived |= !expected.isEmpty();
+			for (int i = 0; i < NODES; i++) {
+				String label = "n" + i;
+				double a = sequentialPam.getNode(label).getActivation();
+				assertEquals(label, a, shardedPam.getNode(label)
+						.getActivation(), EPSILON);
+				if (a > 0.0 && a < 0.5) {
+					partial++;
+				}
+			}
+		}
+		assertTrue(perceived);
+		// activation spread beyond the seeds without saturating
+		assertTrue(partial > NODES / 10);
+	}
+
+	/*
+	 * Seeds the nodes with specified labels, sweeps and returns the links of
+	 * the percept.
+	 */
+	private static Set<String> sweep(PerceptualAssociativeMemoryImpl pam,
+			SweepPropagationEngine engine, Set<String> seeds) {
+		for (String label : seeds) {
+			PamNode n = (PamNode) pam.getNode(label);
+			n.setActivation(0.5);
+			engine.addSeed(n);
+		}
+		NodeStructure percept = engine.sweep(pam.pamNodeStructure, pam, HOPS,
+				THRESHOLD, UPSCALE, new UpscalePropagationStrategy());
+		Set<String> links = new HashSet<String>();
+		if (percept != null) {
+			for (Link l : percept.getLinks()) {
+				links.add(l.getSource().getLabel() + "->"
+						+ l.getSink().getLabel());
+			}
+		}
+		return links;
+	}
+
+	/*
+	 * Builds the same random graph in a new PAM. Links go both ways between
+	 * low and high ids, so they cross the ranges of a RangePamPartitioner.
+	 */
+	private static PerceptualAssociativeMemoryImpl createPam() {
+		PerceptualAssociativeMemoryImpl pam = new PerceptualAssociativeMemoryImpl();
+		HashMap<String, Object> params = new HashMap<String, Object>();
+		params.put("pam.perceptThreshold", 0.4);
+		pam.init(params);
+		Node[] nodes = new Node[NODES];
+		for (int i = 0; i < NODES; i++) {
+			nodes[i] = pam.addDefaultNode("n" + i);
+		}
+		Random r = new Random(3);
+		for (int i = 0; i < LINKS; i++) {
+			int source = r.nextInt(NODES);
+			int sink = r.nextInt(NODES);
+			double baseLevelActivation = 0.2 + 0.8 * r.nextDouble();
+			if (source != sink) {
+				pam.addDefaultLink(nodes[source], nodes[sink],
+						PerceptualAssociativeMemoryImpl.PARENT)
+						.setBaseLevelActivation(baseLevelActivation);
+			}
+		}
+		assertFalse(pam.getLinks().isEmpty());
+		return pam;
+	}
+
+}
@@ -0,0 +1,310 @@
+package edu.memphis.ccrg.lida.pam.tasks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.memphis.ccrg.lida.framework.tasks.FrameworkTask;
+import edu.memphis.ccrg.lida.framework.tasks.TaskManager;
+import edu.memphis.ccrg.lida.framework.tasks.TaskSpawnerImpl;
+import edu.memphis.ccrg.lida.framework.tasks.TaskStatus;
+import edu.memphis.ccrg.lida.pam.PamLinkable;
+import edu.memphis.ccrg.lida.pam.PerceptualAssociativeMemoryImpl;
+import edu.memphis.ccrg.lida.sensorymemory.SensoryMemoryImpl;
+
+/**
+ * Tests of {@link DetectorBank} and of the grouping of
+ * {@link BasicDetectionAlgorithm}s by {@link PerceptualAssociativeMemoryImpl}.
+ *
+ * @author agent
+ */
+public class DetectorBankTest {
+
+	private static final double EPSILON = 1e-9;
+
+	private TestSensoryMemory sensoryMemory;
+	private TestPam pam;
+	private RecordingSpawner pamSpawner;
+	private RecordingSpawner declaredSpawner;
+
+	@Before
+	public void setUp() {
+		Logger.getLogger("").setLevel(Level.SEVERE);
+		sensoryMemory = new TestSensoryMemory();
+		pamSpawner = new RecordingSpawner();
+		declaredSpawner = new RecordingSpawner();
+		pam = createPam(true);
+	}
+
+	@Test
+	public void testDeclaredDetectorJoinsBankOfItsSpawner() {
+		TestDetector d = createDetector("visual", 0.5);
+		declaredSpawner.addTask(d);
+
+		d.call();
+		assertEquals(TaskStatus.CANCELED, d.getTaskStatus());
+		assertEquals(1, pam.singles);
+		DetectorBank bank = bank(declaredSpawner);
+		assertNotNull(bank);
+		assertEquals("visual", bank.getModality());
+		assertEquals(1, bank.getDetectorCount());
+		assertNull(bank(pamSpawner));
+	}
+
+	@Test
+	public void testDetectorsShareBank() {
+		TestDetector a = createDetector("visual", 0.5);
+		TestDetector b = createDetector("visual", 0.5);
+		TestDetector c = createDetector("visual", 0.5);
+		c.setTicksPerRun(3);
+		declaredSpawner.addTask(a);
+		declaredSpawner.addTask(b);
+		declaredSpawner.addTask(c);
+		a.call();
+		b.call();
+		c.call();
+
+		List<DetectorBank> banks = banks(declaredSpawner);
+		assertEquals(2, banks.size());
+		assertEquals(2, banks.get(0).getDetectorCount());
+		assertEquals(1, banks.get(1).getDetectorCount());
+		assertEquals(3, banks.get(1).getTicksPerRun());
+	}
+
+	@Test
+	public void testDetectorWithoutModality() {
+		TestDetector d = createDetector(null, 0.5);
+		declaredSpawner.addTask(d);
+		d.call();
+		d.call();
+		assertEquals(TaskStatus.RUNNING, d.getTaskStatus());
+		assertEquals(2, pam.singles);
+		assertNull(bank(declaredSpawner));
+	}
+
+	@Test
+	public void testBanksDisabled() {
+		pam = createPam(false);
+		TestDetector d = createDetector("visual", 0.5);
+		declaredSpawner.addTask(d);
+		d.call();
+		assertEquals(TaskStatus.RUNNING, d.getTaskStatus());
+		assertNull(bank(declaredSpawner));
+	}
+
+	@Test
+	public void testAddDetectionAlgorithm() {
+		TestDetector d = createDetector("visual", 0.5);
+		pam.addDetectionAlgorithm(d);
+
+		assertEquals(1, pamSpawner.tasks.size());
+		assertEquals(1, bank(pamSpawner).getDetectorCount());
+		assertNull(bank(declaredSpawner));
+	}
+
+	@Test
+	public void testBankSharesContent() {
+		TestDetector a = createDetector("visual", 0.5);
+		TestDetector b = createDetector("visual", 0.0);
+		TestDetector c = createDetector("visual", 0.25);
+		pam.addDetectionAlgorithm(a);
+		pam.addDetectionAlgorithm(b);
+		pam.addDetectionAlgorithm(c);
+		DetectorBank bank = bank(pamSpawner);
+		sensoryMemory.contents.put("visual", 2.0);
+		sensoryMemory.reads = 0;
+
+		bank.call();
+		assertEquals(1, sensoryMemory.reads);
+		assertEquals(3, a.detects + b.detects + c.detects);
+		assertEquals(1, pam.batches);
+		assertEquals(2, pam.excited.size());
+		assertSame(a.getPamLinkable(), pam.excited.get(0));
+		assertSame(c.getPamLinkable(), pam.excited.get(1));
+		assertEquals(1.0, pam.amounts.get(0), EPSILON);
+		assertEquals(0.5, pam.amounts.get(1), EPSILON);
+	}
+
+	@Test
+	public void testWarnWithoutDetectOverride() {
+		Logger logger = Logger.getLogger(DetectorBank.class.getCanonicalName());
+		final List<LogRecord> records = new ArrayList<LogRecord>();
+		Handler handler = new Handler() {
+			@Override
+			public void publish(LogRecord record) {
+				records.add(record);
+			}
+
+			@Override
+			public void flush() {
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+		logger.setLevel(Level.WARNING);
+		logger.addHandler(handler);
+		try {
+			DetectorBank bank = new DetectorBank("visual", 1, pam);
+			bank.addDetector(createDetector("visual", 0.5));
+			assertTrue(records.isEmpty());
+
+			bank.addDetector(new PlainDetector());
+			bank.addDetector(new PlainDetector());
+			assertEquals(1, records.size());
+			assertEquals(Level.WARNING, records.get(0).getLevel());
+		} finally {
+			logger.removeHandler(handler);
+			logger.setLevel(null);
+		}
+	}
+
+	private TestPam createPam(boolean banks) {
+		Map<String, Object> params = new HashMap<String, Object>();
+		params.put("pam.detectorBanks", banks);
+		TestPam p = new TestPam();
+		p.init(params);
+		p.setAssistingTaskSpawner(pamSpawner);
+		return p;
+	}
+
+	private TestDetector createDetector(String modality, double scale) {
+		TestDetector d = new TestDetector(scale);
+		d.setAssociatedModule(pam, null);
+		d.setAssociatedModule(sensoryMemory, null);
+		d.setModality(modality);
+		d.setPamLinkable(pam.addDefaultNode("n" + pam.getNodes().size()));
+		return d;
+	}
+
+	private static DetectorBank bank(RecordingSpawner spawner) {
+		List<DetectorBank> banks = banks(spawner);
+		return banks.isEmpty() ? null : banks.get(0);
+	}
+
+	private static List<DetectorBank> banks(RecordingSpawner spawner) {
+		List<DetectorBank> banks = new ArrayList<DetectorBank>();
+		for (FrameworkTask t : spawner.tasks) {
+			if (t instanceof DetectorBank) {
+				banks.add((DetectorBank) t);
+			}
+		}
+		return banks;
+	}
+
+	/*
+	 * Records the added tasks instead of scheduling them
+	 */
+	private static class RecordingSpawner extends TaskSpawnerImpl {
+
+		private final List<FrameworkTask> tasks = new ArrayList<FrameworkTask>();
+
+		RecordingSpawner() {
+			super(new TaskManager(10, 2));
+		}
+
+		@Override
+		public void addTask(FrameworkTask task) {
+			task.setControllingTaskSpawner(this);
+			tasks.add(task);
+		}
+
+		@Override
+		public void receiveFinishedTask(FrameworkTask task) {
+		}
+	}
+
+	/*
+	 * Records the excitations instead of running excitation tasks
+	 */
+	private static class TestPam extends PerceptualAssociativeMemoryImpl {
+
+		private int singles;
+		private int batches;
+		private final List<PamLinkable> excited = new ArrayList<PamLinkable>();
+		private final List<Double> amounts = new ArrayList<Double>();
+
+		@Override
+		public void receiveExcitation(PamLinkable pl, double amount) {
+			singles++;
+		}
+
+		@Override
+		public void receiveExcitation(PamLinkable[] pls, double[] as, int count) {
+			batches++;
+			for (int i = 0; i < count; i++) {
+				excited.add(pls[i]);
+				amounts.add(as[i]);
+			}
+		}
+	}
+
+	private static class TestSensoryMemory extends SensoryMemoryImpl {
+
+		private final Map<String, Double> contents = new HashMap<String, Double>();
+		private int reads;
+
+		@Override
+		public void runSensors() {
+		}
+
+		@Override
+		public Object getSensoryContent(String modality, Map<String, Object> params) {
+			reads++;
+			Double c = contents.get(modality);
+			return (c == null) ? 1.0 : c;
+		}
+
+		@Override
+		public void decayModule(long ticks) {
+		}
+	}
+
+	/*
+	 * Detects the sensory content of its modality times a scale
+	 */
+	private static class TestDetector extends BasicDetectionAlgorithm {
+
+		private final double scale;
+		private int detects;
+
+		TestDetector(double scale) {
+			this.scale = scale;
+		}
+
+		@Override
+		public double detect() {
+			return detect(sensoryMemory.getSensoryContent(modality, null));
+		}
+
+		@Override
+		public double detect(Object sensoryContent) {
+			detects++;
+			return scale * (Double) sensoryContent;
+		}
+	}
+
+	private static class PlainDetector extends BasicDetectionAlgorithm {
+
+		@Override
+		public double detect() {
+			return 0.0;
+		}
+	}
+
+}